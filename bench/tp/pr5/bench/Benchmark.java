@@ -0,0 +1,70 @@
+package tp.pr5.bench;
+
+/**
+ * A benchmark of an operation of the game. The runner calls setUp once for every size of city, setUpIteration before every
+ * measured iteration and operation as many times as it can during the iteration. The value returned by operation is consumed
+ * by the runner, so the JIT cannot remove the work that computes it.
+ * @author Juan Manuel Carrera García
+ */
+public abstract class Benchmark {
+	private String name;
+	private boolean sized;
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates a benchmark
+	 * @param name The name of the benchmark in the results
+	 * @param sized true if the benchmark depends on the number of places of the city
+	 */
+	protected Benchmark(String name, boolean sized) {
+		this.name = name;
+		this.sized = sized;
+	}
+
+	// --------------------------------------------- GETTER -----------------------------------------------
+
+	/**
+	 * @return The name of the benchmark
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * @return true if the benchmark is run for every size of city
+	 */
+	public boolean isSized() {
+		return this.sized;
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Prepares the benchmark for a size of city. It is not measured
+	 * @param places The number of places of the city, or 0 if the benchmark is not sized
+	 * @throws Exception If the benchmark cannot be prepared
+	 */
+	public void setUp(int places) throws Exception {
+	}
+
+	/**
+	 * Prepares an iteration of the benchmark. It is not measured
+	 * @throws Exception If the iteration cannot be prepared
+	 */
+	public void setUpIteration() throws Exception {
+	}
+
+	/**
+	 * Releases what setUp created
+	 */
+	public void tearDown() {
+	}
+
+	/**
+	 * The measured operation
+	 * @return Some value computed by the operation
+	 * @throws Exception If the operation fails
+	 */
+	public abstract long operation() throws Exception;
+}
@@ -0,0 +1,268 @@
+package tp.pr5.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs benchmarks in the way of JMH average time mode: some warmup iterations are discarded and then every measured iteration
+ * runs the operation repeatedly during a fixed time. The score of an iteration is the average time of an operation in ns.
+ * The results are written as JSON with the same fields as the JSON of JMH, so the tools that compare JMH runs can read them.
+ * A benchmark can also be run in a new JVM, as the forks of JMH, so the code compiled for other benchmarks and the global state
+ * that they change do not affect it: the fork writes its results as raw lines, which are read back.
+ * @author Juan Manuel Carrera García
+ */
+public class BenchmarkRunner {
+	private static final double STUDENT_T_99 = 2.576;
+
+	private int warmupIterations;
+	private int iterations;
+	private long iterationNanos;
+	private volatile long sink;
+
+	/**
+	 * The result of a benchmark for a size of city
+	 */
+	public static class Result {
+		private String benchmark;
+		private int places;
+		private double[] scores;
+
+		private Result(String benchmark, int places, double[] scores) {
+			this.benchmark = benchmark;
+			this.places = places;
+			this.scores = scores;
+		}
+
+		/**
+		 * @return The average time of an operation in ns
+		 */
+		public double getScore() {
+			double sum = 0;
+			for (double s : this.scores)
+				sum += s;
+			return sum / this.scores.length;
+		}
+
+		/**
+		 * @return The half width of the 99% confidence interval of the score
+		 */
+		public double getScoreError() {
+			double mean = this.getScore();
+			double sum = 0;
+
+			if (this.scores.length < 2)
+				return Double.NaN;
+			for (double s : this.scores)
+				sum += (s - mean) * (s - mean);
+			return STUDENT_T_99 * Math.sqrt(sum / (this.scores.length - 1)) / Math.sqrt(this.scores.length);
+		}
+
+		@Override
+		public String toString() {
+			String size = (this.places > 0) ? "[" + this.places + "]" : "";
+			return String.format(Locale.ROOT, "%-40s %14.1f +- %10.1f ns/op", this.benchmark + size, this.getScore(), this.getScoreError());
+		}
+	}
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates a runner
+	 * @param warmupIterations The number of iterations that are not measured
+	 * @param iterations The number of measured iterations
+	 * @param iterationMillis The duration of every iteration
+	 */
+	public BenchmarkRunner(int warmupIterations, int iterations, long iterationMillis) {
+		this.warmupIterations = warmupIterations;
+		this.iterations = iterations;
+		this.iterationNanos = iterationMillis * 1000000L;
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Runs a benchmark for a size of city
+	 * @param benchmark The benchmark
+	 * @param places The number of places of the city, or 0 if the benchmark is not sized
+	 * @return The result
+	 * @throws Exception If the benchmark fails
+	 */
+	public Result run(Benchmark benchmark, int places) throws Exception {
+		double[] scores = new double[this.iterations];
+
+		benchmark.setUp(places);
+		try {
+			for (int i = 0; i < this.warmupIterations; i++)
+				this.iteration(benchmark);
+			for (int i = 0; i < this.iterations; i++)
+				scores[i] = this.iteration(benchmark);
+		} finally {
+			benchmark.tearDown();
+		}
+
+		return new Result(benchmark.getName(), places, scores);
+	}
+
+	/**
+	 * Runs an iteration. The operation is called in batches that grow while they are short, so the cost of reading the clock
+	 * is not measured with the fast operations
+	 * @param benchmark The benchmark
+	 * @return The average time of an operation in ns
+	 * @throws Exception If the benchmark fails
+	 */
+	private double iteration(Benchmark benchmark) throws Exception {
+		long value = 0;
+		long ops = 0;
+		long batch = 1;
+		long start, now, batchStart;
+
+		benchmark.setUpIteration();
+		start = System.nanoTime();
+		now = start;
+		while (now - start < this.iterationNanos) {
+			batchStart = now;
+			for (long i = 0; i < batch; i++)
+				value ^= benchmark.operation();
+			ops += batch;
+			now = System.nanoTime();
+			if (now - batchStart < this.iterationNanos / 100)
+				batch *= 2;
+		}
+		this.sink = value;
+
+		return (double) (now - start) / ops;
+	}
+
+	/**
+	 * Runs a main class of the benchmarks in a new JVM, with the class path and the JVM options of this one. Its error output is
+	 * shown, and its standard output must be the results written by writeRaw
+	 * @param mainClass The class that runs the benchmarks
+	 * @param args The arguments of the class, which make it write raw results
+	 * @return The results of the fork
+	 * @throws IOException If the fork cannot be started, it fails or its results cannot be read
+	 */
+	public static List<Result> fork(Class<?> mainClass, List<String> args) throws IOException {
+		List<String> command = new ArrayList<String>();
+		List<Result> results;
+		Process process;
+		int exit;
+
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(mainClass.getName());
+		command.addAll(args);
+		process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+		try {
+			results = BenchmarkRunner.readRaw(new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)));
+			exit = process.waitFor();
+		} catch (InterruptedException e) {
+			process.destroy();
+			throw new IOException("Interrupted while waiting for the fork", e);
+		}
+		if (exit != 0)
+			throw new IOException("The fork " + args + " ended with exit code " + exit);
+
+		return results;
+	}
+
+	/**
+	 * Writes the results as raw lines: the benchmark, the places and the scores, separated by tabs
+	 * @param results The results
+	 * @param out Where the lines are written
+	 * @throws IOException If the lines cannot be written
+	 */
+	public void writeRaw(List<Result> results, Appendable out) throws IOException {
+		String separator = System.getProperty("line.separator");
+
+		for (Result res : results) {
+			out.append(res.benchmark).append('\t').append(String.valueOf(res.places)).append('\t');
+			for (int i = 0; i < res.scores.length; i++)
+				out.append(i == 0 ? "" : ",").append(Double.toString(res.scores[i]));
+			out.append(separator);
+		}
+	}
+
+	/**
+	 * Reads the results written by writeRaw
+	 * @param in The reader of the lines
+	 * @return The results
+	 * @throws IOException If the lines cannot be read or they are not results
+	 */
+	private static List<Result> readRaw(BufferedReader in) throws IOException {
+		List<Result> results = new ArrayList<Result>();
+		String line;
+
+		while ((line = in.readLine()) != null) {
+			String[] fields = line.split("\t");
+			if (fields.length != 3)
+				throw new IOException("Wrong result of a fork: " + line);
+			try {
+				String[] values = fields[2].split(",");
+				double[] scores = new double[values.length];
+				for (int i = 0; i < values.length; i++)
+					scores[i] = Double.parseDouble(values[i]);
+				results.add(new Result(fields[0], Integer.parseInt(fields[1]), scores));
+			} catch (NumberFormatException e) {
+				throw new IOException("Wrong result of a fork: " + line, e);
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Writes the results as a JSON array
+	 * @param results The results
+	 * @param out Where the JSON is written
+	 * @throws IOException If the JSON cannot be written
+	 */
+	public void writeJson(List<Result> results, Appendable out) throws IOException {
+		String separator = System.getProperty("line.separator");
+
+		out.append("[").append(separator);
+		for (int r = 0; r < results.size(); r++) {
+			Result res = results.get(r);
+			out.append("    {").append(separator);
+			out.append("        \"benchmark\" : \"tp.pr5.bench.").append(res.benchmark).append("\",").append(separator);
+			out.append("        \"mode\" : \"avgt\",").append(separator);
+			out.append("        \"warmupIterations\" : ").append(String.valueOf(this.warmupIterations)).append(",").append(separator);
+			out.append("        \"warmupTime\" : \"").append(String.valueOf(this.iterationNanos / 1000000)).append(" ms\",").append(separator);
+			out.append("        \"measurementIterations\" : ").append(String.valueOf(this.iterations)).append(",").append(separator);
+			out.append("        \"measurementTime\" : \"").append(String.valueOf(this.iterationNanos / 1000000)).append(" ms\",").append(separator);
+			if (res.places > 0) {
+				out.append("        \"params\" : {").append(separator);
+				out.append("            \"places\" : \"").append(String.valueOf(res.places)).append("\"").append(separator);
+				out.append("        },").append(separator);
+			}
+			out.append("        \"primaryMetric\" : {").append(separator);
+			out.append("            \"score\" : ").append(BenchmarkRunner.number(res.getScore())).append(",").append(separator);
+			out.append("            \"scoreError\" : ").append(BenchmarkRunner.number(res.getScoreError())).append(",").append(separator);
+			out.append("            \"scoreUnit\" : \"ns/op\",").append(separator);
+			out.append("            \"rawData\" : [ [ ");
+			for (int i = 0; i < res.scores.length; i++)
+				out.append(i == 0 ? "" : ", ").append(BenchmarkRunner.number(res.scores[i]));
+			out.append(" ] ]").append(separator);
+			out.append("        }").append(separator);
+			out.append(r + 1 < results.size() ? "    }," : "    }").append(separator);
+		}
+		out.append("]").append(separator);
+	}
+
+	/**
+	 * A number in JSON. JSON has no NaN, so it is written as a string as JMH does
+	 * @param d The number
+	 * @return The text of the number
+	 */
+	private static String number(double d) {
+		return Double.isNaN(d) ? "\"NaN\"" : String.format(Locale.ROOT, "%.3f", d);
+	}
+}
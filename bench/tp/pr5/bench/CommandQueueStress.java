@@ -0,0 +1,201 @@
+package tp.pr5.bench;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.apache.commons.cli.*;
+
+import tp.pr5.City;
+import tp.pr5.CommandQueue;
+import tp.pr5.Direction;
+import tp.pr5.Place;
+import tp.pr5.RobotEngine;
+
+/**
+ * A stress check of the CommandQueue. Several producers submit numbered commands at the same time to a queue with a very small ring,
+ * so the ring wraps around all the time and the producers wait while it is full. Every command checks in the engine thread that it is
+ * the next command of its producer, so a command lost, duplicated or out of order is found. Every producer flushes the queue from time
+ * to time and checks that all its commands have run, and at the end the main thread checks the number of commands of every producer.
+ * It ends with exit code 1 if a check fails.
+ *
+ * Usage: java tp.pr5.bench.CommandQueueStress [-p producers] [-n commands] [-c capacity] [-f every] [-r rounds]
+ * @author Juan Manuel Carrera García
+ */
+public class CommandQueueStress {
+	private int producers;
+	private int commands;
+	private int capacity;
+	private int flushEvery;
+	private CommandQueue queue;
+	private AtomicIntegerArray last;
+	private AtomicInteger executed;
+	private AtomicInteger errors;
+	private volatile String firstError;
+
+	/**
+	 * A numbered command of a producer. It runs in the engine thread
+	 */
+	private class Command implements Runnable {
+		private int producer;
+		private int number;
+
+		private Command(int producer, int number) {
+			this.producer = producer;
+			this.number = number;
+		}
+
+		public void run() {
+			int previous = CommandQueueStress.this.last.get(this.producer);
+
+			if (!Thread.currentThread().getName().equals("Engine"))
+				CommandQueueStress.this.error("Command " + this.number + " of producer " + this.producer + " ran in " + Thread.currentThread().getName());
+			if (this.number != previous + 1)
+				CommandQueueStress.this.error("Producer " + this.producer + ": command " + this.number + " ran after " + previous);
+			CommandQueueStress.this.last.set(this.producer, this.number);
+			CommandQueueStress.this.executed.incrementAndGet();
+		}
+	}
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates a check
+	 * @param producers The number of producer threads
+	 * @param commands The number of commands of every producer
+	 * @param capacity The capacity of the ring of the queue
+	 * @param flushEvery The number of commands between two flushes of a producer
+	 */
+	public CommandQueueStress(int producers, int commands, int capacity, int flushEvery) {
+		this.producers = producers;
+		this.commands = commands;
+		this.capacity = capacity;
+		this.flushEvery = Math.max(1, flushEvery);
+		this.errors = new AtomicInteger();
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Runs a round over a new queue and writes its report
+	 * @return true if all the checks passed
+	 * @throws InterruptedException If the main thread is interrupted while it waits for the producers
+	 */
+	public boolean run() throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[this.producers];
+		long begin;
+		long nanos;
+
+		this.queue = CommandQueue.start(new RobotEngine(new City(), new Place("Stress", false, ""), Direction.NORTH), this.capacity);
+		this.last = new AtomicIntegerArray(this.producers);
+		for (int p = 0; p < this.producers; p++)
+			this.last.set(p, -1);
+		this.executed = new AtomicInteger();
+		this.errors.set(0);
+		this.firstError = null;
+
+		for (int p = 0; p < this.producers; p++) {
+			final int producer = p;
+			threads[p] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						start.await();
+						CommandQueueStress.this.produce(producer);
+					} catch (InterruptedException e) {
+						CommandQueueStress.this.error("Producer " + producer + " was interrupted");
+					}
+				}
+			}, "Producer " + p);
+			threads[p].start();
+		}
+		begin = System.nanoTime();
+		start.countDown();
+		for (Thread t : threads)
+			t.join();
+		this.queue.flush();
+		nanos = System.nanoTime() - begin;
+
+		for (int p = 0; p < this.producers; p++)
+			if (this.last.get(p) != this.commands - 1)
+				this.error("Producer " + p + ": its last command run is " + this.last.get(p) + " of " + this.commands);
+		if (this.executed.get() != this.producers * this.commands)
+			this.error(this.executed.get() + " commands run of " + this.producers * this.commands);
+
+		System.out.println(String.format(java.util.Locale.ROOT, "%d producers, capacity %d: %d commands in %d ms, %.0f commands/s, %s",
+				this.producers, this.capacity, this.executed.get(), nanos / 1000000L, this.executed.get() * 1e9 / nanos,
+				(this.errors.get() == 0) ? "OK" : this.errors.get() + " errors, the first one: " + this.firstError));
+
+		return this.errors.get() == 0;
+	}
+
+	/**
+	 * Submits the commands of a producer, flushing the queue every some commands and waiting for the ticket of the last one
+	 * @param producer The number of the producer
+	 */
+	private void produce(int producer) {
+		long ticket = -1;
+
+		for (int i = 0; i < this.commands; i++) {
+			ticket = this.queue.submit(new Command(producer, i));
+			if ((i + 1) % this.flushEvery == 0) {
+				this.queue.flush();
+				if (this.last.get(producer) != i)
+					this.error("Producer " + producer + ": flush returned after command " + this.last.get(producer) + " of " + i);
+			}
+		}
+		this.queue.await(ticket);
+		if (this.last.get(producer) != this.commands - 1)
+			this.error("Producer " + producer + ": await returned after command " + this.last.get(producer) + " of " + (this.commands - 1));
+	}
+
+	/**
+	 * Counts a failed check, and keeps its message if it is the first one
+	 * @param msg The message of the check
+	 */
+	private void error(String msg) {
+		if (this.errors.getAndIncrement() == 0)
+			this.firstError = msg;
+	}
+
+	/**
+	 * Runs the check
+	 * @param args The options of the check
+	 */
+	public static void main(String[] args) {
+		Options options = new Options();
+		options.addOption("p", "producers", true, "Number of producer threads (default 4)");
+		options.addOption("n", "commands", true, "Number of commands of every producer (default 20000)");
+		options.addOption("c", "capacity", true, "Capacity of the ring of the queue (default 2)");
+		options.addOption("f", "flush", true, "Commands between two flushes of a producer (default 1000)");
+		options.addOption("r", "rounds", true, "Number of rounds, every one with a new queue (default 5)");
+		options.addOption("h", "help", false, "Shows this help message");
+
+		try {
+			CommandLine cmdLine = new BasicParser().parse(options, args);
+			if (cmdLine.hasOption("h")) {
+				new HelpFormatter().printHelp(CommandQueueStress.class.getCanonicalName(), options);
+				System.exit(0);
+			}
+
+			CommandQueueStress check = new CommandQueueStress(Integer.parseInt(cmdLine.getOptionValue("p", "4")),
+					Integer.parseInt(cmdLine.getOptionValue("n", "20000")), Integer.parseInt(cmdLine.getOptionValue("c", "2")),
+					Integer.parseInt(cmdLine.getOptionValue("f", "1000")));
+			int rounds = Integer.parseInt(cmdLine.getOptionValue("r", "5"));
+			boolean ok = true;
+			for (int i = 0; i < rounds; i++)
+				ok &= check.run();
+			if (!ok)
+				System.exit(1);
+		} catch (ParseException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		} catch (NumberFormatException e) {
+			System.err.println("Wrong number: " + e.getMessage());
+			System.exit(1);
+		} catch (InterruptedException e) {
+			System.err.println("Interrupted");
+			System.exit(2);
+		}
+	}
+}
@@ -0,0 +1,477 @@
+package tp.pr5.bench;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.apache.commons.cli.*;
+
+import tp.pr5.City;
+import tp.pr5.Direction;
+import tp.pr5.InstructionStats;
+import tp.pr5.Interpreter;
+import tp.pr5.Place;
+import tp.pr5.RobotEngine;
+import tp.pr5.cityLoader.CityBinaryConverter;
+import tp.pr5.cityLoader.CityGenerator;
+import tp.pr5.cityLoader.CityLoaderFromBinaryFile;
+import tp.pr5.cityLoader.CityLoaderFromMappedFile;
+import tp.pr5.cityLoader.CityLoaderFromTxtFile;
+import tp.pr5.cityLoader.CityLoaderParallel;
+import tp.pr5.instructions.Instruction;
+import tp.pr5.items.Garbage;
+import tp.pr5.items.Item;
+import tp.pr5.items.ItemContainer;
+
+/**
+ * Benchmarks of the hot paths of the game over grid cities of several sizes: the search of streets in the city, the operations
+ * of the item containers, the text of a place, the interpreter, the city loaders and the execution of instructions by the robot engine.
+ *
+ * Usage: java tp.pr5.bench.HotPathBenchmarks [-s sizes] [-b regex] [-w warmup] [-n iterations] [-t millis] [-f] [-o file.json]
+ *
+ * With -f every benchmark runs in a new JVM with -b and its name, so the code compiled for the other benchmarks and the global state
+ * that they change (as the instruction statistics of RobotEngine.comunicateRobot+stats) do not affect its results.
+ * @author Juan Manuel Carrera García
+ */
+public class HotPathBenchmarks {
+	private static final int RANDOM_INDEXES = 1 << 12;
+	private static final Direction[] DIRECTIONS = { Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
+	private static final String[] INSTRUCTIONS = { "move", "MOVER", "turn left", "GIRAR RIGHT", "pick G1", "COGER G1", "drop G1",
+		"operate G1", "radar", "scan", "ESCANEAR G1", "help", "AYUDA", "quit", "unknown instruction" };
+
+	/**
+	 * A benchmark over a grid city, with open streets and a garbage in every place, loaded with the text loader
+	 */
+	private abstract static class CityBenchmark extends Benchmark {
+		protected File file;
+		protected City city;
+		protected Place[] places;
+		protected int[] indexes;
+		protected int next;
+
+		protected CityBenchmark(String name) {
+			super(name, true);
+		}
+
+		@Override
+		public void setUp(int places) throws Exception {
+			CityLoaderFromTxtFile loader = new CityLoaderFromTxtFile();
+			InputStream in;
+			Random random = new Random(places);
+
+			this.file = File.createTempFile("grid" + places + "_", ".txt");
+			this.file.deleteOnExit();
+			OutputStream out = new FileOutputStream(this.file);
+			try {
+				new CityGenerator(CityGenerator.Topology.GRID, places, places).generate(out);
+			} finally {
+				out.close();
+			}
+			in = new FileInputStream(this.file);
+			try {
+				this.city = loader.loadCity(in);
+			} finally {
+				in.close();
+			}
+			this.places = loader.getPlaces().toArray(new Place[0]);
+			this.indexes = new int[RANDOM_INDEXES];
+			for (int i = 0; i < this.indexes.length; i++)
+				this.indexes[i] = random.nextInt(this.places.length);
+			this.next = 0;
+		}
+
+		@Override
+		public void tearDown() {
+			this.file.delete();
+			this.city = null;
+			this.places = null;
+		}
+
+		/**
+		 * @return The index of a place chosen at random
+		 */
+		protected int randomIndex() {
+			this.next++;
+			return this.indexes[this.next & (RANDOM_INDEXES - 1)];
+		}
+	}
+
+	/**
+	 * City.lookForStreet from random places in every direction
+	 */
+	private static class LookForStreet extends CityBenchmark {
+		private LookForStreet() {
+			super("City.lookForStreet");
+		}
+
+		@Override
+		public long operation() {
+			Place place = this.places[this.randomIndex()];
+			return (this.city.lookForStreet(place, DIRECTIONS[this.next & 3]) == null) ? 0 : 1;
+		}
+	}
+
+	/**
+	 * The text loader reading the whole city
+	 */
+	private static class LoadCity extends CityBenchmark {
+		private LoadCity() {
+			super("CityLoaderFromTxtFile.loadCity");
+		}
+
+		@Override
+		public long operation() throws IOException {
+			InputStream in = new FileInputStream(this.file);
+			try {
+				return new CityLoaderFromTxtFile().loadCity(in).getNumStreet();
+			} finally {
+				in.close();
+			}
+		}
+	}
+
+	/**
+	 * The binary loader reading the whole city, converted from the text file by CityBinaryConverter
+	 */
+	private static class LoadCityBinary extends CityBenchmark {
+		private File binary;
+
+		private LoadCityBinary() {
+			super("CityLoaderFromBinaryFile.loadCity");
+		}
+
+		@Override
+		public void setUp(int places) throws Exception {
+			super.setUp(places);
+			this.binary = File.createTempFile("grid" + places + "_", ".bin");
+			this.binary.deleteOnExit();
+			InputStream in = new FileInputStream(this.file);
+			OutputStream out = new FileOutputStream(this.binary);
+			try {
+				new CityBinaryConverter().convert(in, out);
+			} finally {
+				out.close();
+				in.close();
+			}
+		}
+
+		@Override
+		public long operation() throws IOException {
+			return new CityLoaderFromBinaryFile().loadCity(this.binary).getNumStreet();
+		}
+
+		@Override
+		public void tearDown() {
+			super.tearDown();
+			this.binary.delete();
+		}
+	}
+
+	/**
+	 * The loader of memory mapped text files reading the whole city
+	 */
+	private static class LoadCityMapped extends CityBenchmark {
+		private LoadCityMapped() {
+			super("CityLoaderFromMappedFile.loadCity");
+		}
+
+		@Override
+		public long operation() throws IOException {
+			return new CityLoaderFromMappedFile().loadCity(this.file).getNumStreet();
+		}
+	}
+
+	/**
+	 * The parallel loader reading the whole city in the common pool
+	 */
+	private static class LoadCityParallel extends CityBenchmark {
+		private LoadCityParallel() {
+			super("CityLoaderParallel.loadCity");
+		}
+
+		@Override
+		public long operation() throws IOException {
+			return new CityLoaderParallel().loadCity(this.file).getNumStreet();
+		}
+	}
+
+	/**
+	 * The robot engine walking around a block of the grid: every operation executes four turns and four moves.
+	 * With the instruction statistics enabled it measures what they cost
+	 */
+	private static class EngineLoop extends CityBenchmark {
+		private Instruction[] loop;
+		private RobotEngine engine;
+		private boolean stats;
+
+		private EngineLoop(boolean stats) {
+			super(stats ? "RobotEngine.comunicateRobot+stats" : "RobotEngine.comunicateRobot");
+			this.stats = stats;
+		}
+
+		@Override
+		public void setUp(int places) throws Exception {
+			super.setUp(places);
+			InstructionStats.getDefault().setEnabled(this.stats);
+			this.loop = new Instruction[8];
+			for (int i = 0; i < this.loop.length; i += 2) {
+				this.loop[i] = Interpreter.generateInstruction("turn right");
+				this.loop[i + 1] = Interpreter.generateInstruction("move");
+			}
+		}
+
+		@Override
+		public void setUpIteration() {
+			this.engine = new RobotEngine(this.city, this.places[0], Direction.NORTH);
+			this.engine.setFuel(Integer.MAX_VALUE);
+		}
+
+		@Override
+		public long operation() {
+			for (Instruction ins : this.loop)
+				this.engine.comunicateRobot(ins);
+			return this.engine.getFuel();
+		}
+
+		@Override
+		public void tearDown() {
+			super.tearDown();
+			InstructionStats.getDefault().setEnabled(false);
+		}
+	}
+
+	/**
+	 * A benchmark over a container with an item for every place of the city
+	 */
+	private abstract static class ContainerBenchmark extends Benchmark {
+		protected ItemContainer container;
+		protected String[] ids;
+		protected int[] indexes;
+		protected int next;
+
+		protected ContainerBenchmark(String name) {
+			super(name, true);
+		}
+
+		@Override
+		public void setUp(int places) {
+			Random random = new Random(places);
+
+			this.container = new ItemContainer();
+			this.ids = new String[places];
+			for (int i = 0; i < places; i++) {
+				this.ids[i] = "G" + i;
+				this.container.addItem(new Garbage(this.ids[i], "Some garbage", i % 50));
+			}
+			this.indexes = new int[RANDOM_INDEXES];
+			for (int i = 0; i < this.indexes.length; i++)
+				this.indexes[i] = random.nextInt(places);
+		}
+
+		@Override
+		public void tearDown() {
+			this.container = null;
+			this.ids = null;
+		}
+
+		/**
+		 * @return The id of an item chosen at random
+		 */
+		protected String randomId() {
+			this.next++;
+			return this.ids[this.indexes[this.next & (RANDOM_INDEXES - 1)]];
+		}
+	}
+
+	/**
+	 * ItemContainer.pickItem of a random item and ItemContainer.addItem to put it back
+	 */
+	private static class PickAndAdd extends ContainerBenchmark {
+		private PickAndAdd() {
+			super("ItemContainer.pickItem+addItem");
+		}
+
+		@Override
+		public long operation() {
+			Item item = this.container.pickItem(this.randomId());
+			return this.container.addItem(item) ? 1 : 0;
+		}
+	}
+
+	/**
+	 * ItemContainer.getItem of a random item
+	 */
+	private static class GetItem extends ContainerBenchmark {
+		private GetItem() {
+			super("ItemContainer.getItem");
+		}
+
+		@Override
+		public long operation() {
+			return (this.container.getItem(this.randomId()) == null) ? 0 : 1;
+		}
+	}
+
+	/**
+	 * Place.toString of a place with an item for every place of the city, after picking a random item and dropping it again,
+	 * and once more without changes
+	 */
+	private static class PlaceText extends ContainerBenchmark {
+		private Place place;
+
+		private PlaceText() {
+			super("Place.toString");
+		}
+
+		@Override
+		public void setUp(int places) {
+			super.setUp(places);
+			this.place = new Place("Sol", false, "You are at the center of Madrid");
+			for (int i = 0; i < places; i++)
+				this.place.addItem(this.container.getItem(this.ids[i]));
+		}
+
+		@Override
+		public long operation() {
+			this.place.dropItem(this.place.pickItem(this.randomId()));
+			return this.place.toString().length() + this.place.toString().length();
+		}
+	}
+
+	/**
+	 * Interpreter.generateInstruction over all the instructions, in English and in Spanish, and a wrong one
+	 */
+	private static class GenerateInstruction extends Benchmark {
+		private int next;
+
+		private GenerateInstruction() {
+			super("Interpreter.generateInstruction", false);
+		}
+
+		@Override
+		public long operation() {
+			this.next++;
+			try {
+				return Interpreter.generateInstruction(INSTRUCTIONS[this.next % INSTRUCTIONS.length]).hashCode();
+			} catch (Exception e) {
+				return 0;
+			}
+		}
+	}
+
+	// --------------------------------------------- PROGRAMA -----------------------------------------------
+
+	/**
+	 * Runs the benchmarks and writes the results as JSON
+	 * @param args The options of the run
+	 */
+	public static void main(String[] args) {
+		Options options = new Options();
+		options.addOption("s", "sizes", true, "Comma separated numbers of places of the cities (default 100,1000,10000,100000,1000000)");
+		options.addOption("b", "benchmarks", true, "Regular expression of the benchmarks to run (default all)");
+		options.addOption("w", "warmup", true, "Warmup iterations (default 3)");
+		options.addOption("n", "iterations", true, "Measured iterations (default 5)");
+		options.addOption("t", "time", true, "Milliseconds of every iteration (default 1000)");
+		options.addOption("f", "fork", false, "Runs every benchmark in a new JVM");
+		options.addOption("r", "raw", false, "Writes the results as tab separated lines instead of JSON, as the forks do");
+		options.addOption("o", "output", true, "File for the JSON results (default the standard output)");
+		options.addOption("h", "help", false, "Shows this help message");
+
+		try {
+			CommandLine cmdLine = new BasicParser().parse(options, args);
+			if (cmdLine.hasOption("h")) {
+				new HelpFormatter().printHelp(HotPathBenchmarks.class.getCanonicalName(), options);
+				System.exit(0);
+			}
+
+			String[] sizes = cmdLine.getOptionValue("s", "100,1000,10000,100000,1000000").split(",");
+			Pattern filter = Pattern.compile(cmdLine.getOptionValue("b", ".*"));
+			BenchmarkRunner runner = new BenchmarkRunner(Integer.parseInt(cmdLine.getOptionValue("w", "3")),
+					Integer.parseInt(cmdLine.getOptionValue("n", "5")), Long.parseLong(cmdLine.getOptionValue("t", "1000")));
+			Benchmark[] benchmarks = { new LookForStreet(), new PickAndAdd(), new GetItem(), new PlaceText(), new GenerateInstruction(),
+					new LoadCity(), new LoadCityBinary(), new LoadCityMapped(), new LoadCityParallel(), new EngineLoop(false),
+					new EngineLoop(true) };
+			List<BenchmarkRunner.Result> results = new ArrayList<BenchmarkRunner.Result>();
+
+			for (Benchmark b : benchmarks) {
+				if (filter.matcher(b.getName()).find()) {
+					if (cmdLine.hasOption("f"))
+						results.addAll(HotPathBenchmarks.fork(cmdLine, b));
+					else if (b.isSized())
+						for (String size : sizes)
+							results.add(HotPathBenchmarks.run(runner, b, Integer.parseInt(size.trim())));
+					else
+						results.add(HotPathBenchmarks.run(runner, b, 0));
+				}
+			}
+
+			Writer out = cmdLine.hasOption("o")
+					? new OutputStreamWriter(new FileOutputStream(cmdLine.getOptionValue("o")), StandardCharsets.UTF_8)
+					: new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+			if (cmdLine.hasOption("r"))
+				runner.writeRaw(results, out);
+			else
+				runner.writeJson(results, out);
+			out.flush();
+			if (cmdLine.hasOption("o"))
+				out.close();
+		} catch (ParseException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		} catch (NumberFormatException e) {
+			System.err.println("Wrong number: " + e.getMessage());
+			System.exit(1);
+		} catch (Exception e) {
+			System.err.println("Error running the benchmarks: " + e);
+			System.exit(2);
+		}
+	}
+
+	/**
+	 * Runs a benchmark in a new JVM, with all the sizes and the same iterations
+	 * @param cmdLine The options of this run
+	 * @param b The benchmark
+	 * @return The results of the fork
+	 * @throws IOException If the fork fails
+	 */
+	private static List<BenchmarkRunner.Result> fork(CommandLine cmdLine, Benchmark b) throws IOException {
+		List<String> args = new ArrayList<String>();
+		String[] copied = { "s", "w", "n", "t" };
+
+		args.add("-b");
+		args.add("^" + Pattern.quote(b.getName()) + "$");
+		for (String opt : copied) {
+			if (cmdLine.hasOption(opt)) {
+				args.add("-" + opt);
+				args.add(cmdLine.getOptionValue(opt));
+			}
+		}
+		args.add("-r");
+
+		return BenchmarkRunner.fork(HotPathBenchmarks.class, args);
+	}
+
+	/**
+	 * Runs a benchmark, printing the result in the error output as it finishes
+	 * @param runner The runner
+	 * @param b The benchmark
+	 * @param places The number of places, or 0 if the benchmark is not sized
+	 * @return The result
+	 * @throws Exception If the benchmark fails
+	 */
+	private static BenchmarkRunner.Result run(BenchmarkRunner runner, Benchmark b, int places) throws Exception {
+		BenchmarkRunner.Result result = runner.run(b, places);
+		System.err.println(result);
+		return result;
+	}
+}
@@ -0,0 +1,346 @@
+package tp.pr5.bench;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.cli.*;
+
+/**
+ * A load generator for the session server. It opens many connections from one thread with non blocking channels, and every
+ * connection plays the same script: it waits for the prompt, optionally thinks for a while, and sends the next instruction.
+ * The script ends with QUIT, so the server closes the session. At the end it reports the sessions, the number of instructions
+ * per second, the maximum number of sessions open at the same time and the latency from an instruction to the next prompt.
+ *
+ * Usage: java tp.pr5.bench.SessionLoadClient [-H host] [-p port] [-c connections] [-n instructions] [-s script] [-t millis]
+ * @author Juan Manuel Carrera García
+ */
+public class SessionLoadClient {
+	private static final byte[] PROMPT = "WALL·E> ".getBytes(StandardCharsets.UTF_8);
+	private static final String[] DEFAULT_SCRIPT = { "radar", "scan", "pick nothing" };
+	private static final int MAX_CONNECTING = 512;
+
+	private InetSocketAddress address;
+	private byte[][] script;
+	private long thinkNanos;
+	private int connections;
+	private Selector selector;
+	private ArrayDeque<Session> thinking;
+	private ByteBuffer readBuffer;
+	private long[] latencies;
+	private int numLatencies;
+	private int opened;
+	private int connecting;
+	private int open;
+	private int maxOpen;
+	private int completed;
+	private int failed;
+
+	/**
+	 * A connection and the state of its script
+	 */
+	private static class Session {
+		private SocketChannel channel;
+		private int next;
+		private long sentAt;
+		private long sendAt;
+		private ByteBuffer pending;
+		private byte[] tail = new byte[PROMPT.length];
+		private int tailLength;
+		private boolean established;
+	}
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates a client
+	 * @param address The address of the server
+	 * @param lines The instructions of every session, without the final QUIT
+	 * @param connections The number of sessions
+	 * @param thinkMillis The time between a prompt and the next instruction
+	 * @throws IOException If the selector cannot be opened
+	 */
+	public SessionLoadClient(InetSocketAddress address, List<String> lines, int connections, long thinkMillis) throws IOException {
+		this.address = address;
+		this.connections = connections;
+		this.thinkNanos = thinkMillis * 1000000L;
+		this.script = new byte[lines.size() + 1][];
+		for (int i = 0; i < lines.size(); i++)
+			this.script[i] = (lines.get(i) + "\n").getBytes(StandardCharsets.UTF_8);
+		this.script[lines.size()] = "quit\n".getBytes(StandardCharsets.UTF_8);
+		this.selector = Selector.open();
+		this.thinking = new ArrayDeque<Session>();
+		this.readBuffer = ByteBuffer.allocate(1 << 16);
+		this.latencies = new long[connections * this.script.length];
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Plays all the sessions and writes the report
+	 * @throws IOException If the selector fails
+	 */
+	public void run() throws IOException {
+		long start = System.nanoTime();
+
+		while (this.completed + this.failed < this.connections) {
+			this.openConnections();
+			long timeout = 0;
+			if (!this.thinking.isEmpty())
+				timeout = Math.max(1, (this.thinking.peek().sendAt - System.nanoTime()) / 1000000L);
+			this.selector.select(timeout);
+
+			Iterator<SelectionKey> it = this.selector.selectedKeys().iterator();
+			while (it.hasNext()) {
+				SelectionKey key = it.next();
+				it.remove();
+				Session s = (Session) key.attachment();
+				try {
+					if (key.isConnectable())
+						this.connected(s);
+					else if (key.isReadable())
+						this.read(s);
+					else if (key.isWritable())
+						this.write(s);
+				} catch (IOException e) {
+					this.finish(s, false);
+				}
+			}
+			this.sendDue();
+		}
+
+		this.report(System.nanoTime() - start);
+	}
+
+	/**
+	 * Starts new connections while there are few connections being established
+	 */
+	private void openConnections() {
+		while (this.opened < this.connections && this.connecting < MAX_CONNECTING) {
+			Session s = new Session();
+			this.opened++;
+			try {
+				s.channel = SocketChannel.open();
+				s.channel.configureBlocking(false);
+				s.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+				this.connecting++;
+				if (s.channel.connect(this.address))
+					this.connected(s);
+				else
+					s.channel.register(this.selector, SelectionKey.OP_CONNECT, s);
+			} catch (IOException e) {
+				this.connecting--;
+				this.failed++;
+			}
+		}
+	}
+
+	/**
+	 * A connection is established
+	 * @param s The session
+	 * @throws IOException If the connection fails
+	 */
+	private void connected(Session s) throws IOException {
+		s.channel.finishConnect();
+		this.connecting--;
+		this.open++;
+		s.established = true;
+		this.maxOpen = Math.max(this.maxOpen, this.open);
+		s.channel.register(this.selector, SelectionKey.OP_READ, s);
+	}
+
+	/**
+	 * Reads the messages of the server and looks for the prompt at the end
+	 * @param s The session
+	 * @throws IOException If the connection fails
+	 */
+	private void read(Session s) throws IOException {
+		this.readBuffer.clear();
+		int n = s.channel.read(this.readBuffer);
+
+		if (n == -1)
+			this.finish(s, true);
+		else if (n > 0 && this.endsWithPrompt(s, this.readBuffer.array(), n)) {
+			long now = System.nanoTime();
+			if (s.sentAt != 0)
+				this.latencies[this.numLatencies++] = now - s.sentAt;
+			s.sentAt = 0;
+			if (s.next < this.script.length) {
+				s.sendAt = now + this.thinkNanos;
+				if (this.thinkNanos == 0)
+					this.send(s);
+				else
+					this.thinking.add(s);
+			}
+		}
+	}
+
+	/**
+	 * Keeps the last bytes received by a session
+	 * @param s The session
+	 * @param data The bytes received
+	 * @param n The number of bytes received
+	 * @return true if the bytes received end with the prompt
+	 */
+	private boolean endsWithPrompt(Session s, byte[] data, int n) {
+		int k = PROMPT.length;
+
+		if (n >= k) {
+			System.arraycopy(data, n - k, s.tail, 0, k);
+			s.tailLength = k;
+		}
+		else {
+			int keep = Math.min(s.tailLength, k - n);
+			System.arraycopy(s.tail, s.tailLength - keep, s.tail, 0, keep);
+			System.arraycopy(data, 0, s.tail, keep, n);
+			s.tailLength = keep + n;
+		}
+
+		return s.tailLength == k && Arrays.equals(s.tail, PROMPT);
+	}
+
+	/**
+	 * Sends the instructions of the sessions that have finished thinking
+	 */
+	private void sendDue() {
+		long now = System.nanoTime();
+
+		while (!this.thinking.isEmpty() && this.thinking.peek().sendAt <= now) {
+			Session s = this.thinking.poll();
+			try {
+				this.send(s);
+			} catch (IOException e) {
+				this.finish(s, false);
+			}
+		}
+	}
+
+	/**
+	 * Sends the next instruction of a session
+	 * @param s The session
+	 * @throws IOException If the connection fails
+	 */
+	private void send(Session s) throws IOException {
+		s.pending = ByteBuffer.wrap(this.script[s.next++]);
+		s.sentAt = System.nanoTime();
+		this.write(s);
+	}
+
+	/**
+	 * Writes the rest of the instruction of a session, waiting for the channel if it is full
+	 * @param s The session
+	 * @throws IOException If the connection fails
+	 */
+	private void write(Session s) throws IOException {
+		s.channel.write(s.pending);
+		if (s.pending.hasRemaining())
+			s.channel.register(this.selector, SelectionKey.OP_WRITE, s);
+		else
+			s.channel.register(this.selector, SelectionKey.OP_READ, s);
+	}
+
+	/**
+	 * Closes a session
+	 * @param s The session
+	 * @param ok true if the server has ended the session
+	 */
+	private void finish(Session s, boolean ok) {
+		if (!s.established)
+			this.connecting--;
+		else
+			this.open--;
+		try {
+			s.channel.close();
+		} catch (IOException e) {
+			// It is already closed
+		}
+		if (ok)
+			this.completed++;
+		else
+			this.failed++;
+	}
+
+	/**
+	 * Writes the throughput and the latencies
+	 * @param elapsed The time of the run in ns
+	 */
+	private void report(long elapsed) {
+		long[] sorted = Arrays.copyOf(this.latencies, this.numLatencies);
+		Arrays.sort(sorted);
+
+		System.out.println("Sessions: " + this.completed + " completed, " + this.failed + " failed, " + this.maxOpen + " open at the same time");
+		System.out.println(String.format(Locale.ROOT, "Instructions: %d in %d ms, %.0f instructions/s", this.numLatencies,
+				elapsed / 1000000, this.numLatencies * 1e9 / Math.max(1, elapsed)));
+		if (sorted.length > 0)
+			System.out.println(String.format(Locale.ROOT, "Latency: p50 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us",
+					SessionLoadClient.percentile(sorted, 0.5), SessionLoadClient.percentile(sorted, 0.99),
+					SessionLoadClient.percentile(sorted, 0.999), sorted[sorted.length - 1] / 1000.0));
+	}
+
+	/**
+	 * @param sorted The sorted latencies in ns
+	 * @param p The percentile, between 0 and 1
+	 * @return The latency of the percentile in us
+	 */
+	private static double percentile(long[] sorted, double p) {
+		return sorted[(int) Math.min(sorted.length - 1, Math.floor(p * sorted.length))] / 1000.0;
+	}
+
+	// --------------------------------------------- PROGRAMA -----------------------------------------------
+
+	/**
+	 * Runs the client
+	 * @param args The options of the run
+	 */
+	public static void main(String[] args) {
+		Options options = new Options();
+		options.addOption("H", "host", true, "Host of the server (default localhost)");
+		options.addOption("p", "port", true, "Port of the server (default 8023)");
+		options.addOption("c", "connections", true, "Number of sessions (default 1000)");
+		options.addOption("n", "instructions", true, "Number of instructions of every session before QUIT (default 100)");
+		options.addOption("s", "script", true, "File with the instructions, used in turns (default RADAR, SCAN and a wrong PICK)");
+		options.addOption("t", "think", true, "Milliseconds between a prompt and the next instruction (default 0)");
+		options.addOption("h", "help", false, "Shows this help message");
+
+		try {
+			CommandLine cmdLine = new BasicParser().parse(options, args);
+			if (cmdLine.hasOption("h")) {
+				new HelpFormatter().printHelp(SessionLoadClient.class.getCanonicalName(), options);
+				System.exit(0);
+			}
+
+			List<String> base = cmdLine.hasOption("s")
+					? Files.readAllLines(Paths.get(cmdLine.getOptionValue("s")), StandardCharsets.UTF_8)
+					: Arrays.asList(DEFAULT_SCRIPT);
+			int n = base.isEmpty() ? 0 : Integer.parseInt(cmdLine.getOptionValue("n", "100"));
+			String[] lines = new String[n];
+			for (int i = 0; i < n; i++)
+				lines[i] = base.get(i % base.size());
+
+			new SessionLoadClient(new InetSocketAddress(cmdLine.getOptionValue("H", "localhost"), Integer.parseInt(cmdLine.getOptionValue("p", "8023"))),
+					Arrays.asList(lines), Integer.parseInt(cmdLine.getOptionValue("c", "1000")),
+					Long.parseLong(cmdLine.getOptionValue("t", "0"))).run();
+		} catch (ParseException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		} catch (NumberFormatException e) {
+			System.err.println("Wrong number: " + e.getMessage());
+			System.exit(1);
+		} catch (IOException e) {
+			System.err.println("Error running the client: " + e);
+			System.exit(2);
+		}
+	}
+}
@@ -0,0 +1,422 @@
+package tp.pr5;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.swing.SwingUtilities;
+
+import tp.pr5.items.InventoryObserver;
+import tp.pr5.items.Item;
+
+/**
+ * Delivers the notifications of the robot engine, the navigation module and the item container in other thread, so the engine
+ * does not wait for the observers. The observers are wrapped by the dispatcher: the wrappers put the events in a lock-free queue
+ * and the events are delivered in order by a dedicated thread or by the Swing event dispatch thread.
+ *
+ * The places and the inventories are copied when the event is produced, because the engine can change them before the event
+ * is delivered. The changes of one item of an inventory are never coalesced, because the observer needs all of them in order. When an observer receives a robotUpdate, a fuelToShipUpdate, or a placeHasChanged of the same place, and its previous event is
+ * of the same kind and it has not been delivered yet, the new arguments replace the old ones, so a slow observer receives
+ * only the last state.
+ *
+ * The events of a dispatcher must be produced by one thread, the one that executes the instructions.
+ * @author Juan Manuel Carrera García
+ */
+public class AsyncDispatcher {
+	private static final Object DELIVERED = new Object();
+
+	private static final int COMMUNICATION_COMPLETED = 0;
+	private static final int COMMUNICATION_HELP = 1;
+	private static final int ENGINE_OFF = 2;
+	private static final int RAISE_ERROR = 3;
+	private static final int ROBOT_SAYS = 4;
+	private static final int ROBOT_UPDATE = 5;
+	private static final int HEADING_CHANGED = 6;
+	private static final int INIT_NAVIGATION_MODULE = 7;
+	private static final int PLACE_HAS_CHANGED = 8;
+	private static final int PLACE_SCANNED = 9;
+	private static final int ROBOT_ARRIVES = 10;
+	private static final int INVENTORY_CHANGE = 11;
+	private static final int ITEM_ADDED = 12;
+	private static final int ITEM_REMOVED = 13;
+	private static final int ITEM_USAGE_CHANGED = 14;
+	private static final int FUEL_TO_SHIP = 15;
+
+	private Queue<Event> queue;
+	private boolean swing;
+	private Thread thread;
+	private volatile boolean waiting;
+	private volatile boolean stopped;
+	private AtomicBoolean scheduled;
+	private Runnable drainTask;
+	private long produced;
+	private volatile long delivered;
+
+	/**
+	 * A notification for an observer. The arguments are in an atomic reference so that the producer can replace them
+	 * while the event waits in the queue, and the consumer takes them only once
+	 */
+	private static class Event {
+		private int kind;
+		private Object observer;
+		private Object key;
+		private Object direction;
+		private AtomicReference<Object> args;
+		private long number;
+
+		private Event(int kind, Object observer, Object key, Object direction, Object args) {
+			this.kind = kind;
+			this.observer = observer;
+			this.key = key;
+			this.direction = direction;
+			this.args = new AtomicReference<Object>(args);
+		}
+	}
+
+	/**
+	 * An observer wrapped by the dispatcher, and the last event sent to it
+	 */
+	private static class Target {
+		private Object observer;
+		private Event last;
+
+		private Target(Object observer) {
+			this.observer = observer;
+		}
+	}
+
+	/**
+	 * An item that has changed in an inventory, and its position
+	 */
+	private static class ItemChange {
+		private Item item;
+		private int index;
+
+		private ItemChange(Item item, int index) {
+			this.item = item;
+			this.index = index;
+		}
+	}
+
+	/**
+	 * An unmodifiable copy of a place
+	 */
+	private static class PlaceCopy implements PlaceInfo {
+		private String name;
+		private String description;
+		private boolean spaceship;
+		private String text;
+
+		private PlaceCopy(PlaceInfo place) {
+			this.name = place.getName();
+			this.description = place.getDescription();
+			this.spaceship = place.isSpaceship();
+			this.text = place.toString();
+		}
+
+		public String getDescription() {
+			return this.description;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public boolean isSpaceship() {
+			return this.spaceship;
+		}
+
+		@Override
+		public String toString() {
+			return this.text;
+		}
+	}
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates a dispatcher
+	 * @param swing true to deliver the events in the Swing event dispatch thread
+	 */
+	private AsyncDispatcher(boolean swing) {
+		this.queue = new ConcurrentLinkedQueue<Event>();
+		this.swing = swing;
+		this.scheduled = new AtomicBoolean(false);
+	}
+
+	/**
+	 * Creates a dispatcher that delivers the events in a new daemon thread
+	 * @param name The name of the thread
+	 * @return The dispatcher
+	 */
+	public static AsyncDispatcher startThread(String name) {
+		final AsyncDispatcher dispatcher = new AsyncDispatcher(false);
+
+		dispatcher.thread = new Thread(new Runnable() {
+			public void run() {
+				dispatcher.deliverLoop();
+			}
+		}, name);
+		dispatcher.thread.setDaemon(true);
+		dispatcher.thread.start();
+
+		return dispatcher;
+	}
+
+	/**
+	 * Creates a dispatcher that delivers the events in the Swing event dispatch thread
+	 * @return The dispatcher
+	 */
+	public static AsyncDispatcher swing() {
+		final AsyncDispatcher dispatcher = new AsyncDispatcher(true);
+
+		dispatcher.drainTask = new Runnable() {
+			public void run() {
+				dispatcher.scheduled.set(false);
+				dispatcher.drain();
+			}
+		};
+
+		return dispatcher;
+	}
+
+	// --------------------------------------------- OBSERVADORES -----------------------------------------------
+
+	/**
+	 * Wraps an observer of the robot engine
+	 * @param observer The observer
+	 * @return An observer that sends the notifications to the observer through the dispatcher
+	 */
+	public RobotEngineObserver wrapRobotObserver(RobotEngineObserver observer) {
+		final Target target = new Target(observer);
+
+		return new RobotEngineObserver() {
+			public void communicationCompleted() {
+				AsyncDispatcher.this.post(COMMUNICATION_COMPLETED, target, null, null, null);
+			}
+
+			public void communicationHelp(String help) {
+				AsyncDispatcher.this.post(COMMUNICATION_HELP, target, null, null, help);
+			}
+
+			public void engineOff(boolean atShip) {
+				AsyncDispatcher.this.post(ENGINE_OFF, target, null, null, atShip);
+			}
+
+			public void raiseError(String msg) {
+				AsyncDispatcher.this.post(RAISE_ERROR, target, null, null, msg);
+			}
+
+			public void robotSays(String message) {
+				AsyncDispatcher.this.post(ROBOT_SAYS, target, null, null, message);
+			}
+
+			public void robotUpdate(int fuel, int recycledMaterial) {
+				AsyncDispatcher.this.post(ROBOT_UPDATE, target, null, null, new int[] { fuel, recycledMaterial });
+			}
+
+			public void fuelToShipUpdate(int fuelToShip, boolean canReach) {
+				AsyncDispatcher.this.post(FUEL_TO_SHIP, target, null, null, new int[] { fuelToShip, canReach ? 1 : 0 });
+			}
+		};
+	}
+
+	/**
+	 * Wraps an observer of the navigation module
+	 * @param observer The observer
+	 * @return An observer that sends the notifications to the observer through the dispatcher
+	 */
+	public NavigationObserver wrapNavigationObserver(NavigationObserver observer) {
+		final Target target = new Target(observer);
+
+		return new NavigationObserver() {
+			public void headingChanged(Direction newHeading) {
+				AsyncDispatcher.this.post(HEADING_CHANGED, target, null, newHeading, null);
+			}
+
+			public void initNavigationModule(PlaceInfo initialPlace, Direction heading) {
+				AsyncDispatcher.this.post(INIT_NAVIGATION_MODULE, target, null, heading, new PlaceCopy(initialPlace));
+			}
+
+			public void placeHasChanged(PlaceInfo placeDescription) {
+				AsyncDispatcher.this.post(PLACE_HAS_CHANGED, target, placeDescription, null, new PlaceCopy(placeDescription));
+			}
+
+			public void placeScanned(PlaceInfo placeDescription) {
+				AsyncDispatcher.this.post(PLACE_SCANNED, target, null, null, new PlaceCopy(placeDescription));
+			}
+
+			public void robotArrivesAtPlace(Direction heading, PlaceInfo place) {
+				AsyncDispatcher.this.post(ROBOT_ARRIVES, target, null, heading, new PlaceCopy(place));
+			}
+		};
+	}
+
+	/**
+	 * Wraps an observer of the item container
+	 * @param observer The observer
+	 * @return An observer that sends the notifications to the observer through the dispatcher
+	 */
+	public InventoryObserver wrapInventoryObserver(InventoryObserver observer) {
+		final Target target = new Target(observer);
+
+		return new InventoryObserver() {
+			public void inventoryChange(List<Item> inventory) {
+				AsyncDispatcher.this.post(INVENTORY_CHANGE, target, null, null, new ArrayList<Item>(inventory));
+			}
+
+			public void itemAdded(Item item, int index) {
+				AsyncDispatcher.this.post(ITEM_ADDED, target, null, null, new ItemChange(item, index));
+			}
+
+			public void itemRemoved(Item item, int index) {
+				AsyncDispatcher.this.post(ITEM_REMOVED, target, null, null, new ItemChange(item, index));
+			}
+
+			public void itemUsageChanged(Item item, int index) {
+				AsyncDispatcher.this.post(ITEM_USAGE_CHANGED, target, null, null, new ItemChange(item, index));
+			}
+		};
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Waits until all the events produced before are delivered. In the event dispatch thread they are delivered directly
+	 */
+	public void flush() {
+		long target = this.produced;
+
+		if (this.swing && SwingUtilities.isEventDispatchThread())
+			this.drain();
+		while (this.delivered < target && !this.stopped)
+			LockSupport.parkNanos(100000L);
+	}
+
+	/**
+	 * Stops the dedicated thread after delivering the events produced before
+	 */
+	public void shutdown() {
+		this.flush();
+		this.stopped = true;
+		if (this.thread != null)
+			LockSupport.unpark(this.thread);
+	}
+
+	/**
+	 * Puts an event in the queue, or replaces the arguments of the last event if it can be coalesced
+	 * @param kind The kind of event
+	 * @param target The observer that receives the event
+	 * @param key The place of a placeHasChanged, or null
+	 * @param direction The direction of the event, or null
+	 * @param args The other arguments of the event
+	 */
+	private void post(int kind, Target target, Object key, Object direction, Object args) {
+		Event prev = target.last;
+
+		if (prev != null && prev.kind == kind && prev.key == key
+				&& (kind == ROBOT_UPDATE || kind == FUEL_TO_SHIP || kind == PLACE_HAS_CHANGED)) {
+			Object current = prev.args.get();
+			if (current != DELIVERED && prev.args.compareAndSet(current, args))
+				return;
+		}
+
+		Event event = new Event(kind, target.observer, key, direction, args);
+		event.number = ++this.produced;
+		target.last = event;
+		this.queue.offer(event);
+
+		if (this.swing) {
+			if (this.scheduled.compareAndSet(false, true))
+				SwingUtilities.invokeLater(this.drainTask);
+		}
+		else if (this.waiting)
+			LockSupport.unpark(this.thread);
+	}
+
+	/**
+	 * The loop of the dedicated thread
+	 */
+	private void deliverLoop() {
+		while (!this.stopped) {
+			this.drain();
+			this.waiting = true;
+			if (this.queue.isEmpty() && !this.stopped)
+				LockSupport.park(this);
+			this.waiting = false;
+		}
+	}
+
+	/**
+	 * Delivers the events of the queue
+	 */
+	private void drain() {
+		Event event;
+
+		while ((event = this.queue.poll()) != null) {
+			try {
+				this.deliver(event, event.args.getAndSet(DELIVERED));
+			} catch (RuntimeException e) {
+				Thread t = Thread.currentThread();
+				t.getUncaughtExceptionHandler().uncaughtException(t, e);
+			}
+			this.delivered = event.number;
+		}
+	}
+
+	/**
+	 * Calls the observer of an event
+	 * @param event The event
+	 * @param args The arguments of the event
+	 */
+	private void deliver(Event event, Object args) {
+		switch (event.kind) {
+		case COMMUNICATION_COMPLETED: ((RobotEngineObserver) event.observer).communicationCompleted();
+		break;
+		case COMMUNICATION_HELP: ((RobotEngineObserver) event.observer).communicationHelp((String) args);
+		break;
+		case ENGINE_OFF: ((RobotEngineObserver) event.observer).engineOff((Boolean) args);
+		break;
+		case RAISE_ERROR: ((RobotEngineObserver) event.observer).raiseError((String) args);
+		break;
+		case ROBOT_SAYS: ((RobotEngineObserver) event.observer).robotSays((String) args);
+		break;
+		case ROBOT_UPDATE: ((RobotEngineObserver) event.observer).robotUpdate(((int[]) args)[0], ((int[]) args)[1]);
+		break;
+		case FUEL_TO_SHIP: ((RobotEngineObserver) event.observer).fuelToShipUpdate(((int[]) args)[0], ((int[]) args)[1] != 0);
+		break;
+		case HEADING_CHANGED: ((NavigationObserver) event.observer).headingChanged((Direction) event.direction);
+		break;
+		case INIT_NAVIGATION_MODULE: ((NavigationObserver) event.observer).initNavigationModule((PlaceInfo) args, (Direction) event.direction);
+		break;
+		case PLACE_HAS_CHANGED: ((NavigationObserver) event.observer).placeHasChanged((PlaceInfo) args);
+		break;
+		case PLACE_SCANNED: ((NavigationObserver) event.observer).placeScanned((PlaceInfo) args);
+		break;
+		case ROBOT_ARRIVES: ((NavigationObserver) event.observer).robotArrivesAtPlace((Direction) event.direction, (PlaceInfo) args);
+		break;
+		case INVENTORY_CHANGE: ((InventoryObserver) event.observer).inventoryChange(castItems(args));
+		break;
+		case ITEM_ADDED: ((InventoryObserver) event.observer).itemAdded(((ItemChange) args).item, ((ItemChange) args).index);
+		break;
+		case ITEM_REMOVED: ((InventoryObserver) event.observer).itemRemoved(((ItemChange) args).item, ((ItemChange) args).index);
+		break;
+		case ITEM_USAGE_CHANGED: ((InventoryObserver) event.observer).itemUsageChanged(((ItemChange) args).item, ((ItemChange) args).index);
+		break;
+		default: break;
+		}
+	}
+
+	/**
+	 * @param args The arguments of an inventory event
+	 * @return The copy of the inventory
+	 */
+	@SuppressWarnings("unchecked")
+	private static List<Item> castItems(Object args) {
+		return (List<Item>) args;
+	}
+}
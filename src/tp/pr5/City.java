@@ -1,16 +1,23 @@
 package tp.pr5;
 
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import tp.pr5.items.ItemContainer;
+
 /*import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;*/
 
 
 /**
- * This class represents the city where the robot is wandering. It contains information about the streets and the places in the city
+ * This class represents the city where the robot is wandering. It contains information about the streets and the places in the city.
+ * The loaders add its streets, and the robot uses it as a CityMap
  * @author Juan Manuel Carrera García 
  */
 
-public class City {
+public class City implements CityMap {
 	
 	// ------------- CÓDIGO CON LISTAS (FUNCIONA PERFECTAMENTE EJECUTANDOLO PERO LOS TEST NO FUNCIONAN) !!!!!!!!!!!!!!
 	
@@ -72,9 +79,18 @@ public class City {
 
 	// ------------- CÓDIGO CON ARRAY NORMAL --------------
 	
+	private static final int NUM_DIRECTIONS = 4;
+	
 	private Street[] cityMap;
 	private int numStreet;
 	private int tam;
+	private int[] indexById;
+	private Map<Place, Integer> placeIndex;
+	private Place[] places;
+	private Street[][] exits;
+	private int[][] exitTargets;
+	private int numPlaces;
+	private FuelMap fuelMap;
 	
 	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
 	
@@ -85,6 +101,20 @@ public class City {
 		this.cityMap = new Street[0];
 		this.numStreet = 0;
 		this.tam = 0;
+		this.initIndex(0);
+	}
+	
+	/**
+	 * Creates an empty city with room for some streets and places, so that a loader that knows how many there are
+	 * adds them without resizing
+	 * @param streets The number of streets
+	 * @param places The number of places, numbered from 0
+	 */
+	public City(int streets, int places) {
+		this.cityMap = new Street[Math.max(0, streets)];
+		this.numStreet = 0;
+		this.tam = this.cityMap.length;
+		this.initIndex(Math.max(0, places));
 	}
 	
 	/**
@@ -95,6 +125,9 @@ public class City {
 		this.cityMap = city;
 		this.numStreet = city.length;
 		this.tam = city.length;
+		this.initIndex(0);
+		for (int i = 0; i < city.length; i++)
+			this.indexStreet(city[i]);
 	}
 	
 	
@@ -108,6 +141,53 @@ public class City {
 		return this.numStreet;
 	}
 	
+	/**
+	 * Street in a given position. Streets are kept in the order they were added
+	 * @param i The position of the street
+	 * @return The street in this position
+	 */
+	public Street getStreet(int i) {
+		return this.cityMap[i];
+	}
+	
+	/**
+	 * Number of places linked by at least one street
+	 * @return The number of places
+	 */
+	public int getNumPlaces() {
+		return this.numPlaces;
+	}
+	
+	/**
+	 * Place with a given index. Places are numbered from 0 in the order their streets were added
+	 * @param index The index of the place
+	 * @return The place with this index
+	 */
+	public Place getPlace(int index) {
+		return this.places[index];
+	}
+	
+	/**
+	 * Index of a place in the city. The index of a place of a map is found by its number
+	 * @param place The place
+	 * @return The index of the place, or -1 if no street of the city comes out from it
+	 */
+	public int indexOf(Place place) {
+		int aux = -1;
+		
+		if (place != null && place.getId() >= 0) {
+			if (place.getId() < this.indexById.length)
+				aux = this.indexById[place.getId()];
+		}
+		else {
+			Integer index = this.placeIndex.get(place);
+			if (index != null)
+				aux = index;
+		}
+		
+		return aux;
+	}
+	
 	
 	// --------------------------------------------- MÉTODOS -----------------------------------------------
 	 
@@ -121,27 +201,64 @@ public class City {
 	 * 			It returns null if there is not any street in this direction from the given place
 	 */
 	public Street lookForStreet(Place currentPlace, Direction currentHeading) {
-		int i = 0;
-		boolean encontrado = false;
-		Street aux;
+		int index = this.indexOf(currentPlace);
+		Street aux = null;
 
-		while (i < this.numStreet && !encontrado) {
-			aux = this.cityMap[i];
-			if (aux.comeOutFrom(currentPlace, currentHeading))
-				encontrado = true;
-			else
-				i++;
-		}
+		if (index != -1)
+			aux = this.lookForStreet(index, currentHeading);
 
-		if (encontrado)
-			aux = this.cityMap[i];
-		else
-			aux = null;
+		return aux;
+	}
+	
+	/**
+	 * Looks for the street that starts from the place with the given index in the given direction
+	 * @param place The index of the place where to look for the street
+	 * @param currentHeading The direction to look for the street
+	 * @return The street that stars from the place in the given direction. 
+	 * 			It returns null if there is not any street in this direction from the place
+	 */
+	public Street lookForStreet(int place, Direction currentHeading) {
+		int slot = City.directionSlot(currentHeading);
+		Street aux = null;
+
+		if (slot != -1)
+			aux = this.exits[place][slot];
 
 		return aux;
 	}
 	
 	
+	/**
+	 * Index of the place at the other side of the street that starts from a place in the given direction
+	 * @param place The index of the place where the street starts
+	 * @param currentHeading The direction of the street
+	 * @return The index of the place at the other side, or -1 if there is not any street in this direction
+	 */
+	public int nextPlace(int place, Direction currentHeading) {
+		int slot = City.directionSlot(currentHeading);
+		int aux = -1;
+
+		if (slot != -1)
+			aux = this.exitTargets[place][slot];
+
+		return aux;
+	}
+	
+	// ------------- MÉTODO QUE DA EL COMBUSTIBLE HASTA LA NAVE DESDE CADA LUGAR ---------------------------
+	
+	/**
+	 * The fuel to the spaceships of the city, computed the first time that it is asked. The games over the city, as the robots of a fleet
+	 * or the sessions of the server over a template, share it, because the streets that can be crossed never change during a game
+	 * @param inventory The inventory of the robot that asks for it, where code cards are also looked for the first time, or null
+	 * @return The fuel map of the city
+	 */
+	public synchronized FuelMap getFuelMap(ItemContainer inventory) {
+		if (this.fuelMap == null)
+			this.fuelMap = new FuelMap(this, inventory);
+		return this.fuelMap;
+	}
+	
+	
 	// ------------- MÉTODO QUE AÑADE UNA CALLE AL MAPA DE LA CIUDAD SI ES NECESARIO SE REDIMENSIONA --------------
 
 	/**
@@ -153,6 +270,7 @@ public class City {
 			this.cityMap = this.reSize();
 		this.cityMap[this.numStreet] = street;
 		this.numStreet++;
+		this.indexStreet(street);
 	}
 
 	/**
@@ -168,4 +286,125 @@ public class City {
 		return aux;
 	}
 	
+	// ------------- MÉTODOS QUE MANTIENEN EL ÍNDICE DE CALLES POR LUGAR Y DIRECCIÓN --------------
+	
+	/**
+	 * Creates the empty index of places and exits
+	 * @param places The number of places that fit in the index before resizing it
+	 */
+	private void initIndex(int places) {
+		this.indexById = new int[places];
+		Arrays.fill(this.indexById, -1);
+		this.placeIndex = new IdentityHashMap<Place, Integer>();
+		this.places = new Place[places];
+		this.exits = new Street[places][];
+		this.exitTargets = new int[places][];
+		this.numPlaces = 0;
+	}
+	
+	/**
+	 * Registers a street in the exits of both of its places. The street comes out from the source
+	 * in its direction and from the target in the opposite one, as in Street.comeOutFrom. 
+	 * A slot that is already taken keeps the street added first
+	 * @param street The street to be indexed
+	 */
+	private void indexStreet(Street street) {
+		Direction dir = street.getDirection();
+		Place source = street.getSource();
+		Place target = street.getTarget();
+		
+		if (source != null && target != null) {
+			int sourceIndex = this.placeIndexOrAdd(source);
+			int targetIndex = this.placeIndexOrAdd(target);
+			this.indexExit(sourceIndex, dir, street, targetIndex);
+			this.indexExit(targetIndex, dir.direccionOpuesta(), street, sourceIndex);
+		}
+	}
+	
+	/**
+	 * Stores a street in the given direction slot of a place, if the slot is empty
+	 * @param place The index of the place where the street comes out
+	 * @param dir The direction of the street from the place
+	 * @param street The street
+	 * @param target The index of the place at the other side of the street
+	 */
+	private void indexExit(int place, Direction dir, Street street, int target) {
+		int slot = City.directionSlot(dir);
+		
+		if (slot != -1 && this.exits[place][slot] == null) {
+			this.exits[place][slot] = street;
+			this.exitTargets[place][slot] = target;
+		}
+	}
+	
+	/**
+	 * Index of a place, giving it a new one if the place has not been indexed yet
+	 * @param place The place
+	 * @return The index of the place
+	 */
+	private int placeIndexOrAdd(Place place) {
+		int index = this.indexOf(place);
+		
+		if (index == -1)
+			index = this.addPlace(place);
+		
+		return index;
+	}
+	
+	/**
+	 * Gives the next index to a place, resizing the arrays of places and exits if it is necessary
+	 * @param place The new place
+	 * @return The index of the place
+	 */
+	private int addPlace(Place place) {
+		if (this.numPlaces == this.places.length) {
+			int newSize = 2 * (this.places.length + 1);
+			Place[] auxPlaces = new Place[newSize];
+			Street[][] auxExits = new Street[newSize][];
+			int[][] auxTargets = new int[newSize][];
+			for (int i = 0; i < this.numPlaces; i++) {
+				auxPlaces[i] = this.places[i];
+				auxExits[i] = this.exits[i];
+				auxTargets[i] = this.exitTargets[i];
+			}
+			this.places = auxPlaces;
+			this.exits = auxExits;
+			this.exitTargets = auxTargets;
+		}
+		this.places[this.numPlaces] = place;
+		this.exits[this.numPlaces] = new Street[City.NUM_DIRECTIONS];
+		this.exitTargets[this.numPlaces] = new int[City.NUM_DIRECTIONS];
+		if (place.getId() >= 0) {
+			if (place.getId() >= this.indexById.length) {
+				int oldSize = this.indexById.length;
+				this.indexById = Arrays.copyOf(this.indexById, Math.max(2 * oldSize, place.getId() + 1));
+				Arrays.fill(this.indexById, oldSize, this.indexById.length, -1);
+			}
+			this.indexById[place.getId()] = this.numPlaces;
+		}
+		else
+			this.placeIndex.put(place, this.numPlaces);
+		this.numPlaces++;
+		
+		return this.numPlaces - 1;
+	}
+	
+	/**
+	 * Position of a direction in the exits of a place
+	 * @param dir The direction
+	 * @return The slot of the direction, or -1 if the direction is unknown
+	 */
+	private static int directionSlot(Direction dir) {
+		int slot;
+		
+		switch (dir) {
+		case NORTH: slot = 0; break;
+		case EAST: slot = 1; break;
+		case SOUTH: slot = 2; break;
+		case WEST: slot = 3; break;
+		default: slot = -1;
+		}
+		
+		return slot;
+	}
 }
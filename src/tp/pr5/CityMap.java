@@ -0,0 +1,74 @@
+package tp.pr5;
+
+import tp.pr5.items.ItemContainer;
+
+/**
+ * The city as the robot sees it while it plays: its places and streets can be looked for, but not added. It is implemented by City,
+ * where the loaders add the streets, and by CityOverlay, the city of a session of the server over a shared City
+ * @author Juan Manuel Carrera García
+ */
+public interface CityMap {
+	/**
+	 * Number of streets
+	 * @return The number of streets
+	 */
+	int getNumStreet();
+
+	/**
+	 * Street in a given position. Streets are kept in the order they were added
+	 * @param i The position of the street
+	 * @return The street in this position
+	 */
+	Street getStreet(int i);
+
+	/**
+	 * Number of places linked by at least one street
+	 * @return The number of places
+	 */
+	int getNumPlaces();
+
+	/**
+	 * Place with a given index. Places are numbered from 0 in the order their streets were added
+	 * @param index The index of the place
+	 * @return The place with this index
+	 */
+	Place getPlace(int index);
+
+	/**
+	 * Index of a place in the city
+	 * @param place The place
+	 * @return The index of the place, or -1 if no street of the city comes out from it
+	 */
+	int indexOf(Place place);
+
+	/**
+	 * Looks for the street that starts from the given place in the given direction
+	 * @param currentPlace The place where to look for the street
+	 * @param currentHeading The direction to look for the street
+	 * @return The street that stars from the given place in the given direction, or null if there is not any street in this direction
+	 */
+	Street lookForStreet(Place currentPlace, Direction currentHeading);
+
+	/**
+	 * Looks for the street that starts from the place with the given index in the given direction
+	 * @param place The index of the place where to look for the street
+	 * @param currentHeading The direction to look for the street
+	 * @return The street that stars from the place in the given direction, or null if there is not any street in this direction
+	 */
+	Street lookForStreet(int place, Direction currentHeading);
+
+	/**
+	 * Index of the place at the other side of the street that starts from a place in the given direction
+	 * @param place The index of the place where the street starts
+	 * @param currentHeading The direction of the street
+	 * @return The index of the place at the other side, or -1 if there is not any street in this direction
+	 */
+	int nextPlace(int place, Direction currentHeading);
+
+	/**
+	 * The fuel to the spaceships of the city, computed the first time that it is asked and shared by all the games over the same city
+	 * @param inventory The inventory of the robot that asks for it, where code cards are also looked for the first time, or null
+	 * @return The fuel map of the city
+	 */
+	FuelMap getFuelMap(ItemContainer inventory);
+}
@@ -0,0 +1,193 @@
+package tp.pr5;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import tp.pr5.items.ItemContainer;
+
+/**
+ * The city of a game session over a city template that is shared by all the sessions. The template is never changed:
+ * the session works with its own copies of the places and the streets, that are made the first time that the session
+ * reaches them. A copy of a place shares the items of the template until they change, and a copy of a street keeps
+ * its own open state. So a session is created in no time, and it takes memory only for the places and the streets it has reached.
+ *
+ * The places and the streets of the template cannot be used by the engines, only the ones returned by the session. A session has no
+ * streets of its own, so it is only a CityMap: no street can be added to it.
+ * @author Juan Manuel Carrera García
+ */
+public class CityOverlay implements CityMap {
+	private City template;
+	private Map<Place, Place> places;
+	private Map<Street, Street> streets;
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates a session over a template
+	 * @param template The city shared by the sessions. It must not be changed while there are sessions
+	 */
+	public CityOverlay(City template) {
+		this.template = template;
+		this.places = new IdentityHashMap<Place, Place>();
+		this.streets = new IdentityHashMap<Street, Street>();
+	}
+
+	// --------------------------------------------- GETTER -----------------------------------------------
+
+	/**
+	 * @return The city template of the session
+	 */
+	public City getTemplate() {
+		return this.template;
+	}
+
+	/**
+	 * Number of streets
+	 * @return The number of streets of the template
+	 */
+	@Override
+	public int getNumStreet() {
+		return this.template.getNumStreet();
+	}
+
+	/**
+	 * Street in a given position
+	 * @param i The position of the street
+	 * @return The copy of the street in this position
+	 */
+	@Override
+	public Street getStreet(int i) {
+		return this.sessionStreet(this.template.getStreet(i));
+	}
+
+	/**
+	 * Number of places linked by at least one street
+	 * @return The number of places of the template
+	 */
+	@Override
+	public int getNumPlaces() {
+		return this.template.getNumPlaces();
+	}
+
+	/**
+	 * Place with a given index
+	 * @param index The index of the place
+	 * @return The copy of the place with this index
+	 */
+	@Override
+	public Place getPlace(int index) {
+		return this.sessionPlace(this.template.getPlace(index));
+	}
+
+	/**
+	 * Index of a place in the city
+	 * @param place The place, of the session or of the template
+	 * @return The index of the place, or -1 if no street of the city comes out from it
+	 */
+	@Override
+	public int indexOf(Place place) {
+		return this.template.indexOf(CityOverlay.templateOf(place));
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Looks for the street that starts from the given place in the given direction
+	 * @param currentPlace The place where to look for the street
+	 * @param currentHeading The direction to look for the street
+	 * @return The copy of the street, or null if there is not any street in this direction from the given place
+	 */
+	@Override
+	public Street lookForStreet(Place currentPlace, Direction currentHeading) {
+		return this.sessionStreet(this.template.lookForStreet(CityOverlay.templateOf(currentPlace), currentHeading));
+	}
+
+	/**
+	 * Looks for the street that starts from the place with the given index in the given direction, to know its state without
+	 * making a copy: the street of the template is returned if the session has not reached it, so it must not be changed
+	 * @param place The index of the place where to look for the street
+	 * @param currentHeading The direction to look for the street
+	 * @return The street, or null if there is not any street in this direction from the place
+	 */
+	@Override
+	public Street lookForStreet(int place, Direction currentHeading) {
+		Street aux = this.template.lookForStreet(place, currentHeading);
+		Street copy = (aux == null) ? null : this.streets.get(aux);
+
+		return (copy == null) ? aux : copy;
+	}
+
+	/**
+	 * Index of the place at the other side of the street that starts from a place in the given direction
+	 * @param place The index of the place where the street starts
+	 * @param currentHeading The direction of the street
+	 * @return The index of the place at the other side, or -1 if there is not any street in this direction
+	 */
+	@Override
+	public int nextPlace(int place, Direction currentHeading) {
+		return this.template.nextPlace(place, currentHeading);
+	}
+
+	/**
+	 * The fuel to the spaceships of the template, shared by all its sessions. The cards are looked for in the places of the template,
+	 * that are never changed, so they are all found
+	 * @param inventory The inventory of the robot that asks for it
+	 * @return The fuel map of the template
+	 */
+	@Override
+	public FuelMap getFuelMap(ItemContainer inventory) {
+		return this.template.getFuelMap(inventory);
+	}
+
+	/**
+	 * The copy of a place of the template in this session, made the first time that it is needed
+	 * @param place The place of the template, or of this session
+	 * @return The place of this session
+	 */
+	public Place sessionPlace(Place place) {
+		Place templatePlace = CityOverlay.templateOf(place);
+		Place aux = this.places.get(templatePlace);
+
+		if (aux == null) {
+			aux = new Place(templatePlace);
+			this.places.put(templatePlace, aux);
+		}
+
+		return aux;
+	}
+
+	/**
+	 * @return The number of places that the session has reached
+	 */
+	public int getTouchedPlaces() {
+		return this.places.size();
+	}
+
+	/**
+	 * The copy of a street of the template in this session, made the first time that it is needed, with the same state
+	 * @param street The street of the template, or null
+	 * @return The street of this session, or null
+	 */
+	private Street sessionStreet(Street street) {
+		Street aux = null;
+
+		if (street != null) {
+			aux = this.streets.get(street);
+			if (aux == null) {
+				aux = new Street(this.sessionPlace(street.getSource()), street.getDirection(),
+						this.sessionPlace(street.getTarget()), street.isOpen(), street.getCodeStreet());
+				this.streets.put(street, aux);
+			}
+		}
+
+		return aux;
+	}
+
+	/**
+	 * @param place A place of a session or of a template
+	 * @return The place of the template
+	 */
+	private static Place templateOf(Place place) {
+		return (place != null && place.getTemplate() != null) ? place.getTemplate() : place;
+	}
+}
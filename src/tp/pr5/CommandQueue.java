@@ -0,0 +1,208 @@
+package tp.pr5;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import tp.pr5.instructions.Instruction;
+
+/**
+ * The only way to the engine when several interfaces play the same game (the console, the window...). Every interface submits its
+ * instructions to the queue from its own thread, and a single engine thread takes them in the order they were submitted and executes them,
+ * so the engine is never used by two threads at the same time.
+ *
+ * The queue is a ring buffer of fixed size with a sequence number in every slot: a producer takes a slot with a compareAndSet over the tail
+ * and publishes the command writing the sequence of the slot, and the engine thread reads the slots in order without locks.
+ * A producer waits while the queue is full.
+ * @author Juan Manuel Carrera García
+ */
+public class CommandQueue {
+	/**
+	 * The number of commands that can wait in the queue if no other capacity is given
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private static final long FULL_WAIT_NANOS = 100000L;
+
+	private RobotEngine engine;
+	private Object[] buffer;
+	private AtomicLongArray sequences;
+	private int mask;
+	private AtomicLong tail;
+	private long head;
+	private Thread thread;
+	private volatile boolean waiting;
+	private volatile long executed;
+	private volatile int waiters;
+	private volatile boolean over;
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates the queue of an engine
+	 * @param engine The engine
+	 * @param capacity The number of commands that can wait, rounded up to a power of two
+	 */
+	private CommandQueue(RobotEngine engine, int capacity) {
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+
+		this.engine = engine;
+		this.buffer = new Object[size];
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++)
+			this.sequences.set(i, i);
+		this.mask = size - 1;
+		this.tail = new AtomicLong(0);
+		this.head = 0;
+		this.executed = 0;
+		this.over = engine.isOver();
+	}
+
+	/**
+	 * Creates the queue of an engine and starts the engine thread, a daemon thread that executes the commands submitted
+	 * @param engine The engine. From now on it is only used by the engine thread
+	 * @param capacity The number of commands that can wait, rounded up to a power of two
+	 * @return The queue
+	 */
+	public static CommandQueue start(RobotEngine engine, int capacity) {
+		final CommandQueue queue = new CommandQueue(engine, capacity);
+
+		queue.thread = new Thread(new Runnable() {
+			public void run() {
+				queue.executeLoop();
+			}
+		}, "Engine");
+		queue.thread.setDaemon(true);
+		queue.thread.start();
+
+		return queue;
+	}
+
+	// ---------------------------- SETTER Y GETTER ------------------------------------
+
+	/**
+	 * @return true if the simulation was over after the last command executed
+	 */
+	public boolean isOver() {
+		return this.over;
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Submits an instruction, that the engine thread communicates to the robot
+	 * @param ins The instruction
+	 * @return The ticket of the instruction, to wait until it is executed
+	 */
+	public long submit(Instruction ins) {
+		return this.offer(ins);
+	}
+
+	/**
+	 * Submits an action over the engine that is not an instruction (to start the simulation, to inform of an error...), that the engine thread runs
+	 * @param action The action
+	 * @return The ticket of the action, to wait until it is executed
+	 */
+	public long submit(Runnable action) {
+		return this.offer(action);
+	}
+
+	/**
+	 * Waits until a command and all the commands submitted before it are executed
+	 * @param ticket The ticket of the command
+	 */
+	public void await(long ticket) {
+		if (this.executed <= ticket) {
+			synchronized (this) {
+				this.waiters++;
+				try {
+					while (this.executed <= ticket)
+						this.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					this.waiters--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Waits until all the commands submitted before are executed
+	 */
+	public void flush() {
+		this.await(this.tail.get() - 1);
+	}
+
+	/**
+	 * Puts a command in the next slot of the ring, waiting while the ring is full
+	 * @param command An instruction or a runnable action
+	 * @return The position of the command in the queue
+	 */
+	private long offer(Object command) {
+		long pos = -1;
+
+		while (pos == -1) {
+			long tail = this.tail.get();
+			int slot = (int) tail & this.mask;
+			long dif = this.sequences.get(slot) - tail;
+			if (dif == 0) {
+				if (this.tail.compareAndSet(tail, tail + 1))
+					pos = tail;
+			}
+			else if (dif < 0)
+				LockSupport.parkNanos(FULL_WAIT_NANOS);
+		}
+		this.buffer[(int) pos & this.mask] = command;
+		this.sequences.set((int) pos & this.mask, pos + 1);
+		if (this.waiting)
+			LockSupport.unpark(this.thread);
+
+		return pos;
+	}
+
+	/**
+	 * The loop of the engine thread: it executes the commands in order, and it sleeps while the queue is empty
+	 */
+	private void executeLoop() {
+		while (true) {
+			int slot = (int) this.head & this.mask;
+			if (this.sequences.get(slot) == this.head + 1) {
+				Object command = this.buffer[slot];
+				this.buffer[slot] = null;
+				this.sequences.set(slot, this.head + this.buffer.length);
+				this.head++;
+				this.execute(command);
+				this.over = this.engine.isOver();
+				this.executed = this.head;
+				if (this.waiters > 0) {
+					synchronized (this) {
+						this.notifyAll();
+					}
+				}
+			}
+			else {
+				this.waiting = true;
+				if (this.sequences.get(slot) != this.head + 1)
+					LockSupport.park(this);
+				this.waiting = false;
+			}
+		}
+	}
+
+	/**
+	 * Executes a command in the engine thread. An exception of the command does not stop the thread
+	 * @param command An instruction or a runnable action
+	 */
+	private void execute(Object command) {
+		try {
+			if (command instanceof Instruction)
+				this.engine.comunicateRobot((Instruction) command);
+			else
+				((Runnable) command).run();
+		} catch (RuntimeException e) {
+			Thread.UncaughtExceptionHandler handler = Thread.currentThread().getUncaughtExceptionHandler();
+			handler.uncaughtException(Thread.currentThread(), e);
+		}
+	}
+}
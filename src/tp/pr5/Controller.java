@@ -1,5 +1,6 @@
 package tp.pr5;
 
+import tp.pr5.instructions.Instruction;
 import tp.pr5.items.InventoryObserver;
 
 /**
@@ -9,6 +10,8 @@ import tp.pr5.items.InventoryObserver;
  */
 public abstract class Controller {
 	protected RobotEngine robotEngine;
+	private AsyncDispatcher dispatcher;
+	private CommandQueue queue;
 	
 	/**
 	 * Constructor of the controller. It receives the model main class.
@@ -23,19 +26,56 @@ public abstract class Controller {
 	 */
 	public abstract void runGame();
 
+	/**
+	 * Makes the observers set from now on receive the notifications through a dispatcher, in other thread
+	 * @param dispatcher The dispatcher of the notifications
+	 */
+	public void setDispatcher(AsyncDispatcher dispatcher) {
+		this.dispatcher = dispatcher;
+	}
+	
+	/**
+	 * Makes the controller submit the instructions to a queue, where the engine thread executes them, instead of using the engine in its own thread.
+	 * It is used when several interfaces play the same game
+	 * @param queue The queue of the engine
+	 */
+	public void setCommandQueue(CommandQueue queue) {
+		this.queue = queue;
+	}
+
+	/**
+	 * Waits until the observers have received the notifications sent before. It does nothing if there is no dispatcher
+	 */
+	public void flushNotifications() {
+		if (this.dispatcher != null)
+			this.dispatcher.flush();
+	}
+
 	/**
 	 * Set a observer of the robot on the robot engine.
 	 * @param observer Observer of the robot engine.
 	 */
 	public void setRobotObserver(RobotEngineObserver observer) {
+		if (this.dispatcher != null)
+			observer = this.dispatcher.wrapRobotObserver(observer);
 		this.robotEngine.addEngineObserver(observer);
 	}
 
+	/**
+	 * Makes the engine inform the observers of the robot of the fuel to the spaceship, for an interface that shows it.
+	 * It must be called before the simulation starts
+	 */
+	public void requestFuelToShipUpdates() {
+		this.robotEngine.setFuelToShipUpdates(true);
+	}
+
 	/**
 	 * Set a observer of the navigation on the navigation module.
 	 * @param observer Observer of the navigation module.
 	 */
 	public void setNavigationObserver(NavigationObserver observer) {
+		if (this.dispatcher != null)
+			observer = this.dispatcher.wrapNavigationObserver(observer);
 		this.robotEngine.addNavigationObserver(observer);
 	}
 	
@@ -44,6 +84,46 @@ public abstract class Controller {
 	 * @param observer Observer of the inventory observer.
 	 */
 	public void setInventoryObserver(InventoryObserver observer) {
+		if (this.dispatcher != null)
+			observer = this.dispatcher.wrapInventoryObserver(observer);
 		this.robotEngine.addItemContainerObserver(observer);
 	}
+
+	/**
+	 * Executes an instruction in the engine: in the engine thread if there is a queue, without waiting for it, or in this thread
+	 * @param ins The instruction
+	 */
+	protected void execute(Instruction ins) {
+		if (this.queue != null)
+			this.queue.submit(ins);
+		else
+			this.robotEngine.comunicateRobot(ins);
+	}
+
+	/**
+	 * Runs an action over the engine (to start the simulation, to inform of an error...): in the engine thread if there is a queue, without waiting for it,
+	 * or in this thread
+	 * @param action The action
+	 */
+	protected void execute(Runnable action) {
+		if (this.queue != null)
+			this.queue.submit(action);
+		else
+			action.run();
+	}
+
+	/**
+	 * Waits until the engine has executed the instructions and actions submitted before. It does nothing if there is no queue
+	 */
+	public void flushCommands() {
+		if (this.queue != null)
+			this.queue.flush();
+	}
+
+	/**
+	 * @return true if the simulation is over, as the engine thread saw it after the last instruction if there is a queue
+	 */
+	protected boolean isOver() {
+		return (this.queue != null) ? this.queue.isOver() : this.robotEngine.isOver();
+	}
 }
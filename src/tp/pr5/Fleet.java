@@ -0,0 +1,266 @@
+package tp.pr5;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+import tp.pr5.instructions.Instruction;
+import tp.pr5.instructions.MoveInstruction;
+import tp.pr5.instructions.OperateInstruction;
+import tp.pr5.instructions.PickInstruction;
+import tp.pr5.instructions.TurnInstruction;
+import tp.pr5.items.CodeCard;
+import tp.pr5.items.Item;
+
+/**
+ * A fleet of robots that share a city. Every robot has its own engine, so its own place, heading, fuel and inventory,
+ * and the items of the places are shared by all of them.
+ *
+ * The robots are stepped in parallel in a pool: every step a robot picks an item of its place if there is any,
+ * operates the garbage and the fuel it has picked, and otherwise it moves or turns at random.
+ * A robot executes its instruction holding the lock of the stripe of its current place, so two robots cannot
+ * pick the same item. The code cards are kept, because a street is shared by two places with different locks.
+ * A robot stops when its engine is over: without fuel or at the spaceship.
+ * @author Juan Manuel Carrera García
+ */
+public class Fleet {
+	private static final int STRIPES = 1 << 10;
+	private static final int ROBOTS_PER_TASK = 64;
+	private static final Direction[] DIRECTIONS = { Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
+
+	private CityMap city;
+	private Robot[] robots;
+	private ReentrantLock[] locks;
+	private ForkJoinPool pool;
+	private long elapsed;
+
+	/**
+	 * A robot of the fleet, and the state of its random behaviour
+	 */
+	private static class Robot {
+		private RobotEngine engine;
+		private Random random;
+		private Instruction move;
+		private Instruction left;
+		private Instruction right;
+		private String pending;
+		private long steps;
+		private long picks;
+
+		private Robot(RobotEngine engine, long seed) {
+			this.engine = engine;
+			this.random = new Random(seed);
+			this.move = new MoveInstruction();
+			this.left = new TurnInstruction(Rotation.LEFT);
+			this.right = new TurnInstruction(Rotation.RIGHT);
+		}
+	}
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates a fleet that is stepped in the common pool
+	 * @param cityMap The city shared by the robots
+	 * @param initialPlace The place of the robots if no street of the city comes out from any place
+	 * @param numRobots The number of robots
+	 * @param seed The seed of the places, the headings and the behaviour of the robots
+	 */
+	public Fleet(CityMap cityMap, Place initialPlace, int numRobots, long seed) {
+		this(cityMap, initialPlace, numRobots, seed, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a fleet that is stepped in the given pool. The robots start at places of the city chosen at random
+	 * @param cityMap The city shared by the robots
+	 * @param initialPlace The place of the robots if no street of the city comes out from any place
+	 * @param numRobots The number of robots
+	 * @param seed The seed of the places, the headings and the behaviour of the robots
+	 * @param pool The pool where the robots are stepped
+	 */
+	public Fleet(CityMap cityMap, Place initialPlace, int numRobots, long seed, ForkJoinPool pool) {
+		Random random = new Random(seed);
+
+		this.city = cityMap;
+		this.pool = pool;
+		this.robots = new Robot[numRobots];
+		for (int i = 0; i < numRobots; i++) {
+			Place place = (cityMap.getNumPlaces() == 0) ? initialPlace : cityMap.getPlace(random.nextInt(cityMap.getNumPlaces()));
+			RobotEngine engine = new RobotEngine(cityMap, place, DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+			engine.requestStart();
+			this.robots[i] = new Robot(engine, random.nextLong());
+		}
+		this.locks = new ReentrantLock[STRIPES];
+		for (int i = 0; i < STRIPES; i++)
+			this.locks[i] = new ReentrantLock();
+	}
+
+	// ---------------------------- SETTER Y GETTER ------------------------------------
+
+	/**
+	 * Configures the fuel of all the robots
+	 * @param fuel The fuel of every robot
+	 */
+	public void setFuel(int fuel) {
+		for (Robot r : this.robots)
+			r.engine.setFuel(fuel);
+	}
+
+	/**
+	 * @return The number of robots
+	 */
+	public int getNumRobots() {
+		return this.robots.length;
+	}
+
+	/**
+	 * @param i The index of a robot
+	 * @return The engine of the robot
+	 */
+	public RobotEngine getRobot(int i) {
+		return this.robots[i].engine;
+	}
+
+	/**
+	 * @return The number of instructions executed by all the robots
+	 */
+	public long getSteps() {
+		long steps = 0;
+		for (Robot r : this.robots)
+			steps += r.steps;
+		return steps;
+	}
+
+	/**
+	 * @return The number of items picked from the places by all the robots
+	 */
+	public long getPicks() {
+		long picks = 0;
+		for (Robot r : this.robots)
+			picks += r.picks;
+		return picks;
+	}
+
+	/**
+	 * @return The number of robots whose simulation is over
+	 */
+	public int getFinishedRobots() {
+		int finished = 0;
+		for (Robot r : this.robots)
+			if (r.engine.isOver())
+				finished++;
+		return finished;
+	}
+
+	/**
+	 * @return The time of the last run in ns
+	 */
+	public long getElapsed() {
+		return this.elapsed;
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Steps every robot the given number of times, or until its simulation is over. The robots are divided in groups,
+	 * and every group is stepped in turns by a task of the pool
+	 * @param steps The number of steps of every robot
+	 */
+	public void run(final int steps) {
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		long start = System.nanoTime();
+
+		for (int first = 0; first < this.robots.length; first += ROBOTS_PER_TASK) {
+			final int from = first;
+			final int to = Math.min(first + ROBOTS_PER_TASK, this.robots.length);
+			tasks.add(new Callable<Void>() {
+				public Void call() {
+					for (int s = 0; s < steps; s++)
+						for (int i = from; i < to; i++)
+							if (!Fleet.this.robots[i].engine.isOver())
+								Fleet.this.step(Fleet.this.robots[i]);
+					return null;
+				}
+			});
+		}
+
+		try {
+			for (Future<Void> f : this.pool.invokeAll(tasks))
+				f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Error simulating the fleet", e.getCause());
+		} finally {
+			this.elapsed = System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Executes the next instruction of a robot holding the lock of its place
+	 * @param r The robot
+	 */
+	private void step(Robot r) {
+		Place place = r.engine.getCurrentPlace();
+		ReentrantLock lock = this.lockOf(place);
+
+		lock.lock();
+		try {
+			int items = place.numberOfItems();
+			Item target = null;
+			Instruction ins;
+
+			if (r.pending != null) {
+				ins = new OperateInstruction(r.pending);
+				r.pending = null;
+			}
+			else if (items > 0) {
+				target = place.getItem(r.random.nextInt(items));
+				ins = new PickInstruction(target.getId());
+			}
+			else
+				ins = this.randomMove(r, place);
+
+			r.engine.comunicateRobot(ins);
+			if (target != null && place.numberOfItems() < items) {
+				r.picks++;
+				if (!(target instanceof CodeCard))
+					r.pending = target.getId();
+			}
+		} finally {
+			lock.unlock();
+		}
+		r.steps++;
+	}
+
+	/**
+	 * Chooses a move of a robot: it moves forward if the street is open, and otherwise or sometimes it turns
+	 * @param r The robot
+	 * @param place The place of the robot
+	 * @return The instruction
+	 */
+	private Instruction randomMove(Robot r, Place place) {
+		Street street = this.city.lookForStreet(place, r.engine.getCurrentHeading());
+		Instruction ins;
+
+		if (street != null && street.isOpen() && r.random.nextInt(4) != 0)
+			ins = r.move;
+		else
+			ins = r.random.nextBoolean() ? r.left : r.right;
+
+		return ins;
+	}
+
+	/**
+	 * @param place A place
+	 * @return The lock of the stripe of the place
+	 */
+	private ReentrantLock lockOf(Place place) {
+		int h = System.identityHashCode(place);
+		return this.locks[(h ^ (h >>> 16)) & (STRIPES - 1)];
+	}
+}
@@ -0,0 +1,252 @@
+package tp.pr5;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import tp.pr5.items.CodeCard;
+import tp.pr5.items.Item;
+import tp.pr5.items.ItemContainer;
+
+/**
+ * This class keeps the fuel that the robot needs to arrive at a spaceship from every place and heading of a city, so the engine knows
+ * in constant time if the robot can still arrive at it with the fuel that it has.
+ * The fuel is computed once with a search from all the spaceships at the same time over the states (place, heading) of the city, walking the streets
+ * backwards. Every MOVE and every TURN costs the same fuel, so the search is a breadth first search.
+ * A closed street can be crossed if there is a code card with its code in the city or in the inventory of the robot: the cards are never lost, so
+ * the street can be opened sooner or later. Picking fuel on the way is not taken into account.
+ *
+ * A street is only opened or closed with a card of its code, and then it can be crossed before and after, so the streets that can be
+ * crossed never change during a game and the fuel is computed only once.
+ * @author Juan Manuel Carrera García
+ */
+public class FuelMap {
+	/**
+	 * The fuel of a state from where no spaceship can be reached
+	 */
+	public static final int UNREACHABLE = -1;
+
+	private static final Direction[] DIRECTIONS = { Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
+	private static final int NUM_DIRECTIONS = 4;
+	private static final int NUM_STEPS = 3;
+	private static final int INFINITE = Integer.MAX_VALUE;
+
+	private City city;
+	private Set<String> codes;
+	private int[] fuel;
+
+	// ----------------------------- CONSTRUCTORAS ----------------------------------------------
+
+	/**
+	 * Computes the fuel to the spaceships in a city. It is made by the city, that shares it between all the games over it
+	 * @param city The city
+	 * @param inventory The inventory of the robot, where code cards are also looked for, or null
+	 */
+	public FuelMap(City city, ItemContainer inventory) {
+		this.city = city;
+		this.codes = new HashSet<String>();
+		for (int i = 0; i < city.getNumPlaces(); i++) {
+			Place place = city.getPlace(i);
+			for (int j = 0; j < place.numberOfItems(); j++)
+				this.addCode(place.getItem(j));
+		}
+		if (inventory != null)
+			for (int i = 0; i < inventory.numberOfItems(); i++)
+				this.addCode(inventory.getItem(i));
+		this.build();
+	}
+
+	// ----------------------------------------- GETTER -----------------------------------------
+
+	/**
+	 * Fuel spent by the cheapest route from a place and heading to a spaceship
+	 * @param place The place
+	 * @param heading The heading of the robot
+	 * @return The fuel, 0 in a spaceship, or UNREACHABLE if no spaceship can be reached or the place is not in the city
+	 */
+	public int getFuelToShip(Place place, Direction heading) {
+		return this.getFuelToShip(this.city.indexOf(place), heading);
+	}
+
+	/**
+	 * Fuel spent by the cheapest route from the place with a given index and a heading to a spaceship
+	 * @param place The index of the place, in the city or in a session over it
+	 * @param heading The heading of the robot
+	 * @return The fuel, 0 in a spaceship, or UNREACHABLE if no spaceship can be reached or the index is -1
+	 */
+	public int getFuelToShip(int place, Direction heading) {
+		int dir = FuelMap.headingIndex(heading);
+		int aux = UNREACHABLE;
+
+		if (place != -1 && dir != -1 && this.fuel[place * NUM_DIRECTIONS + dir] != INFINITE)
+			aux = this.fuel[place * NUM_DIRECTIONS + dir];
+
+		return aux;
+	}
+
+	/**
+	 * Checks if the robot can still arrive at a spaceship. The game ends when the fuel is 0 out of a spaceship, so the robot
+	 * must have some fuel left before the last move
+	 * @param place The place of the robot
+	 * @param heading The heading of the robot
+	 * @param fuel The fuel of the robot
+	 * @return true if the fuel is enough for the cheapest route to a spaceship
+	 */
+	public boolean canReachShip(Place place, Direction heading, int fuel) {
+		return this.canReachShip(this.city.indexOf(place), heading, fuel);
+	}
+
+	/**
+	 * Checks if the robot can still arrive at a spaceship from the place with a given index
+	 * @param place The index of the place of the robot, in the city or in a session over it
+	 * @param heading The heading of the robot
+	 * @param fuel The fuel of the robot
+	 * @return true if the fuel is enough for the cheapest route to a spaceship
+	 */
+	public boolean canReachShip(int place, Direction heading, int fuel) {
+		int needed = this.getFuelToShip(place, heading);
+
+		return needed == 0 || (needed != UNREACHABLE && fuel > needed - RoutePlanner.MOVE_COST);
+	}
+
+	// ------------------------------------------------- MÉTODOS -------------------------------------
+
+	/**
+	 * Computes the fuel of every state with a breadth first search backwards from the spaceships
+	 */
+	private void build() {
+		int states = this.city.getNumPlaces() * NUM_DIRECTIONS;
+		int[] queue = new int[states];
+		int head = 0;
+		int tail = 0;
+
+		this.fuel = new int[states];
+		Arrays.fill(this.fuel, INFINITE);
+		for (int state = 0; state < states; state += NUM_DIRECTIONS) {
+			if (this.isShip(state / NUM_DIRECTIONS)) {
+				for (int d = 0; d < NUM_DIRECTIONS; d++) {
+					this.fuel[state + d] = 0;
+					queue[tail++] = state + d;
+				}
+			}
+		}
+		while (head < tail) {
+			int state = queue[head++];
+			int cost = this.fuel[state] + RoutePlanner.MOVE_COST;
+			for (int k = 0; k < NUM_STEPS; k++) {
+				int prev = this.previous(state, k);
+				if (prev != -1 && this.fuel[prev] == INFINITE) {
+					this.fuel[prev] = cost;
+					queue[tail++] = prev;
+				}
+			}
+		}
+	}
+
+	// ----------------------- MÉTODOS AUXILIARES ---------------------------------------------------------
+
+	/**
+	 * The state from where a state is reached with a step
+	 * @param state The state
+	 * @param step 0 to move, 1 to turn right, 2 to turn left
+	 * @return The previous state, or -1 if there is none
+	 */
+	private int previous(int state, int step) {
+		int aux;
+
+		if (step == 0)
+			aux = this.previousByMove(state);
+		else
+			aux = this.turned(state, (step == 1) ? 3 : 1);
+
+		return aux;
+	}
+
+	/**
+	 * The state reached moving from a state
+	 * @param state The state
+	 * @return The state at the other side of the street, or -1 if there is no street or it cannot be crossed
+	 */
+	private int nextByMove(int state) {
+		int place = state / NUM_DIRECTIONS;
+		int dir = state % NUM_DIRECTIONS;
+		Street street = this.city.lookForStreet(place, DIRECTIONS[dir]);
+		int aux = -1;
+
+		if (street != null && this.canCross(street))
+			aux = this.city.nextPlace(place, DIRECTIONS[dir]) * NUM_DIRECTIONS + dir;
+
+		return aux;
+	}
+
+	/**
+	 * The state from where the robot arrives at a state with a move. The robot does not move from a spaceship, where the game ends
+	 * @param state The state
+	 * @return The state at the other side of the street behind, or -1 if there is none
+	 */
+	private int previousByMove(int state) {
+		int place = state / NUM_DIRECTIONS;
+		int dir = state % NUM_DIRECTIONS;
+		int behind = this.city.nextPlace(place, DIRECTIONS[(dir + 2) % NUM_DIRECTIONS]);
+		int aux = -1;
+
+		if (behind != -1 && !this.isShip(behind) && this.nextByMove(behind * NUM_DIRECTIONS + dir) == state)
+			aux = behind * NUM_DIRECTIONS + dir;
+
+		return aux;
+	}
+
+	/**
+	 * The state reached turning in a state, if it is not in a spaceship
+	 * @param state The state
+	 * @param quarters The number of quarters turned to the right: 1 to the right and 3 to the left
+	 * @return The state after the turn, or -1 in a spaceship
+	 */
+	private int turned(int state, int quarters) {
+		int place = state / NUM_DIRECTIONS;
+
+		return this.isShip(place) ? -1 : place * NUM_DIRECTIONS + (state % NUM_DIRECTIONS + quarters) % NUM_DIRECTIONS;
+	}
+
+	/**
+	 * Checks if a place of the city is a spaceship
+	 * @param place The index of the place
+	 * @return true if it is a spaceship
+	 */
+	private boolean isShip(int place) {
+		return this.city.getPlace(place).isSpaceship();
+	}
+
+	/**
+	 * Checks if the robot can cross a street
+	 * @param street The street
+	 * @return true if the street is open or there is a code card that opens it
+	 */
+	private boolean canCross(Street street) {
+		return street.isOpen() || this.codes.contains(street.getCodeStreet());
+	}
+
+	/**
+	 * Keeps the code of an item if it is a code card
+	 * @param item The item
+	 */
+	private void addCode(Item item) {
+		if (item instanceof CodeCard)
+			this.codes.add(((CodeCard) item).getCode());
+	}
+
+	/**
+	 * Position of a heading in the array of directions
+	 * @param heading The heading
+	 * @return The position, or -1 if the heading is unknown
+	 */
+	private static int headingIndex(Direction heading) {
+		int index = -1;
+
+		for (int i = 0; i < NUM_DIRECTIONS && index == -1; i++)
+			if (DIRECTIONS[i] == heading)
+				index = i;
+
+		return index;
+	}
+}
@@ -0,0 +1,45 @@
+package tp.pr5;
+
+/**
+ * The hash of a text without taking case into account, as equalsIgnoreCase, compareToIgnoreCase and regionMatches compare the characters
+ * (with a shortcut for ASCII). It is shared by the table of keywords of the interpreter and the table of items of the containers
+ * @author Juan Manuel Carrera García
+ */
+public final class IgnoreCaseHash {
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	private IgnoreCaseHash() {
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * The hash of a whole text
+	 * @param text The text
+	 * @return The hash, with the high bits mixed with the low ones
+	 */
+	public static int hash(String text) {
+		return IgnoreCaseHash.hash(text, text.length());
+	}
+
+	/**
+	 * The hash of the beginning of a text
+	 * @param text The text
+	 * @param length The number of characters
+	 * @return The hash, with the high bits mixed with the low ones
+	 */
+	public static int hash(String text, int length) {
+		int h = 0;
+
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c < 128)
+				h = 31 * h + ((c >= 'A' && c <= 'Z') ? c + ('a' - 'A') : c);
+			else
+				h = 31 * h + Character.toLowerCase(Character.toUpperCase(c));
+		}
+
+		return h ^ (h >>> 16);
+	}
+}
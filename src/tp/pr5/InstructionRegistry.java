@@ -0,0 +1,270 @@
+package tp.pr5;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+import tp.pr5.instructions.DropInstruction;
+import tp.pr5.instructions.HelpInstruction;
+import tp.pr5.instructions.Instruction;
+import tp.pr5.instructions.InstructionProvider;
+import tp.pr5.instructions.MoveInstruction;
+import tp.pr5.instructions.OperateInstruction;
+import tp.pr5.instructions.PickInstruction;
+import tp.pr5.instructions.QuitInstruction;
+import tp.pr5.instructions.RadarInstruction;
+import tp.pr5.instructions.RedoInstruction;
+import tp.pr5.instructions.ScanInstruction;
+import tp.pr5.instructions.TurnInstruction;
+import tp.pr5.instructions.UndoInstruction;
+import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
+
+/**
+ * The instructions that the interpreter understands: the ones of the game and the ones of the InstructionProvider found with ServiceLoader.
+ * The registry is made once and it does not change, so it can be used by several threads.
+ *
+ * The keywords are kept in a hash table with open addressing indexed by the keyword without case, so the keyword of a line is found
+ * in constant time and without creating objects. The help and the message of a wrong instruction are written once, when the registry is made.
+ * @author Juan Manuel Carrera García
+ */
+public class InstructionRegistry {
+	/**
+	 * The syntax of every instruction of the game: the number of arguments and how the instruction is created
+	 */
+	private enum Syntax {
+		MOVE(0, 0), DROP(1, 1), HELP(0, 0), QUIT(0, 0), SCAN(0, 1), RADAR(0, 0), TURN(1, 1), OPERATE(1, 1), PICK(1, 1), UNDO(0, 0), REDO(0, 0);
+
+		private int minArgs;
+		private int maxArgs;
+
+		private Syntax(int minArgs, int maxArgs) {
+			this.minArgs = minArgs;
+			this.maxArgs = maxArgs;
+		}
+
+		/**
+		 * Creates the instruction
+		 * @param arg The argument of the instruction, or null if it has none
+		 * @return The instruction, or null if the argument is not correct
+		 */
+		private Instruction create(String arg) {
+			Instruction ins = null;
+
+			switch (this) {
+			case MOVE: ins = new MoveInstruction();
+			break;
+			case DROP: ins = new DropInstruction(arg);
+			break;
+			case HELP: ins = new HelpInstruction();
+			break;
+			case QUIT: ins = new QuitInstruction();
+			break;
+			case SCAN: ins = (arg == null) ? new ScanInstruction() : new ScanInstruction(arg);
+			break;
+			case RADAR: ins = new RadarInstruction();
+			break;
+			case TURN:
+				if (arg.equalsIgnoreCase("LEFT"))
+					ins = new TurnInstruction(Rotation.LEFT);
+				else if (arg.equalsIgnoreCase("RIGHT"))
+					ins = new TurnInstruction(Rotation.RIGHT);
+			break;
+			case OPERATE: ins = new OperateInstruction(arg);
+			break;
+			case PICK: ins = new PickInstruction(arg);
+			break;
+			case UNDO: ins = new UndoInstruction();
+			break;
+			case REDO: ins = new RedoInstruction();
+			}
+
+			return ins;
+		}
+	}
+
+	/**
+	 * A keyword and the instruction that it starts: an instruction of the game or the instruction of a provider
+	 */
+	private static class Entry {
+		private String keyword;
+		private int hash;
+		private Syntax syntax;
+		private Instruction prototype;
+
+		private Entry(String keyword, Syntax syntax, Instruction prototype) {
+			this.keyword = keyword;
+			this.hash = IgnoreCaseHash.hash(keyword);
+			this.syntax = syntax;
+			this.prototype = prototype;
+		}
+	}
+
+	/**
+	 * The keywords of the instructions of the game, in English and in Spanish, and the syntax of the instruction of every keyword
+	 */
+	private static final String[] KEYWORDS = { "MOVE", "MOVER", "DROP", "SOLTAR", "HELP", "AYUDA", "QUIT", "SALIR", "SCAN", "ESCANEAR",
+		"RADAR", "TURN", "GIRAR", "OPERATE", "OPERAR", "PICK", "COGER", "UNDO", "DESHACER", "REDO", "REHACER" };
+	private static final Syntax[] SYNTAX = { Syntax.MOVE, Syntax.MOVE, Syntax.DROP, Syntax.DROP, Syntax.HELP, Syntax.HELP, Syntax.QUIT,
+		Syntax.QUIT, Syntax.SCAN, Syntax.SCAN, Syntax.RADAR, Syntax.TURN, Syntax.TURN, Syntax.OPERATE, Syntax.OPERATE, Syntax.PICK, Syntax.PICK,
+		Syntax.UNDO, Syntax.UNDO, Syntax.REDO, Syntax.REDO };
+	private static final InstructionRegistry DEFAULT = new InstructionRegistry(InstructionRegistry.class.getClassLoader());
+
+	private Entry[] table;
+	private List<Instruction> instructions;
+	private String help;
+	private String invalidMessage;
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Makes the registry with the instructions of the game and the ones of the providers of a class loader.
+	 * A provider that cannot be loaded is written in the error output and ignored
+	 * @param loader The class loader where the providers are looked for
+	 */
+	public InstructionRegistry(ClassLoader loader) {
+		List<Entry> entries = new ArrayList<Entry>();
+
+		this.instructions = new ArrayList<Instruction>();
+		this.instructions.add(new MoveInstruction());
+		this.instructions.add(new DropInstruction());
+		this.instructions.add(new HelpInstruction());
+		this.instructions.add(new QuitInstruction());
+		this.instructions.add(new ScanInstruction());
+		this.instructions.add(new RadarInstruction());
+		this.instructions.add(new TurnInstruction());
+		this.instructions.add(new OperateInstruction());
+		this.instructions.add(new PickInstruction());
+		this.instructions.add(new UndoInstruction());
+		this.instructions.add(new RedoInstruction());
+		for (int i = 0; i < KEYWORDS.length; i++)
+			entries.add(new Entry(KEYWORDS[i], SYNTAX[i], null));
+
+		Iterator<InstructionProvider> it = ServiceLoader.load(InstructionProvider.class, loader).iterator();
+		try {
+			while (it.hasNext()) {
+				try {
+					InstructionProvider provider = it.next();
+					Instruction prototype = provider.getInstruction();
+					this.instructions.add(prototype);
+					for (String keyword : provider.getKeywords())
+						entries.add(new Entry(keyword, null, prototype));
+				} catch (ServiceConfigurationError e) {
+					System.err.println("The instruction cannot be loaded: " + e.getMessage());
+				}
+			}
+		} catch (ServiceConfigurationError e) {
+			System.err.println("The instructions cannot be loaded: " + e.getMessage());
+		}
+
+		this.table = new Entry[Integer.highestOneBit(4 * entries.size())];
+		for (Entry entry : entries)
+			if (this.lookUp(entry.keyword, entry.keyword.length()) == null)
+				this.insert(entry);
+
+		StringBuilder aux = new StringBuilder("The valid instructions for WALL·E are:").append(Interpreter.LINE_SEPARATOR);
+		for (Instruction ins : this.instructions)
+			aux.append("	").append(ins.getHelp()).append(Interpreter.LINE_SEPARATOR);
+		this.help = aux.toString();
+		this.invalidMessage = "Invalid Instruction" + Interpreter.LINE_SEPARATOR + this.help;
+	}
+
+	// ---------------------------- SETTER Y GETTER ------------------------------------
+
+	/**
+	 * @return The registry of the application, made the first time that it is used
+	 */
+	public static InstructionRegistry getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * @return Information about all the instructions that the robot understands
+	 */
+	public String getHelp() {
+		return this.help;
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Generates a new instruction from a line, as Interpreter.generateInstruction does
+	 * @param line A string to the user input
+	 * @return The instruction read from the given line
+	 * @throws WrongInstructionFormatException If the line is not a valid instruction, with the help in the message
+	 */
+	public Instruction generateInstruction(String line) throws WrongInstructionFormatException {
+		Instruction instruction = null;
+		int end = line.length();
+
+		while (end > 0 && line.charAt(end - 1) == ' ')
+			end--;
+
+		int keywordEnd = line.indexOf(' ');
+		if (keywordEnd == -1 || keywordEnd > end)
+			keywordEnd = end;
+		Entry entry = this.lookUp(line, keywordEnd);
+
+		if (entry != null && entry.syntax != null) {
+			Syntax syntax = entry.syntax;
+			if (keywordEnd == end) {
+				if (syntax.minArgs == 0)
+					instruction = syntax.create(null);
+			}
+			else if (syntax.maxArgs == 1) {
+				int argEnd = line.indexOf(' ', keywordEnd + 1);
+				if (argEnd == -1 || argEnd >= end)
+					instruction = syntax.create(line.substring(keywordEnd + 1, end));
+			}
+		}
+		else if (entry != null) {
+			try {
+				instruction = entry.prototype.parse(line.substring(0, end));
+			} catch (WrongInstructionFormatException e) {
+				instruction = null;
+			}
+		}
+
+		if (instruction == null)
+			throw new WrongInstructionFormatException(this.invalidMessage);
+
+		return instruction;
+	}
+
+	/**
+	 * Looks for the keyword at the beginning of a line, ignoring case
+	 * @param line The line
+	 * @param length The length of the keyword
+	 * @return The entry of the keyword, or null if it is not a keyword
+	 */
+	private Entry lookUp(String line, int length) {
+		int hash = IgnoreCaseHash.hash(line, length);
+		int mask = this.table.length - 1;
+		int i = hash & mask;
+		Entry found = null;
+
+		while (found == null && this.table[i] != null) {
+			Entry entry = this.table[i];
+			if (entry.hash == hash && entry.keyword.length() == length && line.regionMatches(true, 0, entry.keyword, 0, length))
+				found = entry;
+			else
+				i = (i + 1) & mask;
+		}
+
+		return found;
+	}
+
+	/**
+	 * Puts an entry in the first free slot from the hash of its keyword
+	 * @param entry The entry
+	 */
+	private void insert(Entry entry) {
+		int mask = this.table.length - 1;
+		int i = entry.hash & mask;
+
+		while (this.table[i] != null)
+			i = (i + 1) & mask;
+		this.table[i] = entry;
+	}
+}
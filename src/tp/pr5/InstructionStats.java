@@ -0,0 +1,375 @@
+package tp.pr5;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import tp.pr5.instructions.Instruction;
+
+/**
+ * The latency of the instructions: for every type of instruction, the time to parse it, to execute it and to notify the observers,
+ * and the number of instructions executed and of instructions that failed with an InstructionExecutionException. The statistics are
+ * shared by all the engines of the application, and they are disabled until setEnabled is called, so they cost nothing if they are not used.
+ *
+ * Every phase of every type has a histogram like the ones of HdrHistogram: the values are split in ranges that grow as powers of two,
+ * and every range in SUB_BUCKETS buckets of the same width, so a latency is kept with an error below 1/SUB_BUCKETS with a few hundred counters.
+ * The counters are atomic, so several threads record without locks. Every instruction is counted, but only one of every SAMPLE_INTERVAL,
+ * chosen at random, is timed, because reading the clock costs more than the rest.
+ * @author Juan Manuel Carrera García
+ */
+public class InstructionStats {
+	/**
+	 * The type of an instruction. OTHER are the instructions of the providers, and INVALID the lines that are not an instruction
+	 */
+	public enum Kind {
+		MOVE, TURN, PICK, DROP, OPERATE, SCAN, RADAR, HELP, QUIT, UNDO, REDO, OTHER, INVALID
+	}
+
+	/**
+	 * The phases of an instruction that are timed
+	 */
+	public enum Phase {
+		PARSE, EXECUTE, NOTIFY
+	}
+
+	/**
+	 * One of every SAMPLE_INTERVAL instructions is timed
+	 */
+	public static final int SAMPLE_INTERVAL = 16;
+
+	/**
+	 * The number of buckets of every power of two
+	 */
+	public static final int SUB_BUCKETS = 16;
+
+	/**
+	 * Returned by start when the statistics are disabled
+	 */
+	public static final long DISABLED = Long.MIN_VALUE;
+
+	/**
+	 * Returned by start when the instruction is counted but not timed
+	 */
+	public static final long NOT_TIMED = Long.MIN_VALUE + 1;
+
+	private static final int SUB_BITS = 4;
+	private static final int MAX_BITS = 40;
+	private static final int BUCKETS = (MAX_BITS - SUB_BITS + 1) * SUB_BUCKETS;
+	private static final double[] PERCENTILES = { 0.5, 0.9, 0.99, 0.999 };
+	private static final InstructionStats DEFAULT = new InstructionStats();
+
+	/**
+	 * The type of every class of instruction, found the first time by the name of the class
+	 */
+	private static final ClassValue<Kind> KINDS = new ClassValue<Kind>() {
+		@Override
+		protected Kind computeValue(Class<?> type) {
+			String name = type.getSimpleName();
+			Kind aux = Kind.OTHER;
+
+			if (name.endsWith("Instruction") && type.getName().equals(Instruction.class.getPackage().getName() + "." + name)) {
+				try {
+					aux = Kind.valueOf(name.substring(0, name.length() - "Instruction".length()).toUpperCase());
+				} catch (IllegalArgumentException e) {
+					aux = Kind.OTHER;
+				}
+			}
+
+			return aux;
+		}
+	};
+
+	private volatile boolean enabled;
+	private LongAdder[] counts;
+	private LongAdder[] failures;
+	private Histogram[][] histograms;
+
+	/**
+	 * The latencies of a phase of a type of instruction, in ns
+	 */
+	private static class Histogram {
+		private AtomicLongArray buckets;
+		private AtomicLong total;
+		private AtomicLong max;
+
+		private Histogram() {
+			this.buckets = new AtomicLongArray(BUCKETS);
+			this.total = new AtomicLong();
+			this.max = new AtomicLong();
+		}
+
+		/**
+		 * Adds a latency
+		 * @param nanos The latency in ns
+		 */
+		private void record(long nanos) {
+			long value = Math.max(0, nanos);
+			long last = this.max.get();
+
+			this.buckets.incrementAndGet(Histogram.bucket(value));
+			this.total.addAndGet(value);
+			while (value > last && !this.max.compareAndSet(last, value))
+				last = this.max.get();
+		}
+
+		/**
+		 * @return The number of latencies
+		 */
+		private long count() {
+			long aux = 0;
+
+			for (int i = 0; i < BUCKETS; i++)
+				aux += this.buckets.get(i);
+
+			return aux;
+		}
+
+		/**
+		 * The latency below which there are a fraction of the latencies, as the highest value of its bucket
+		 * @param fraction The fraction, between 0 and 1
+		 * @return The latency in ns, or 0 if there are none
+		 */
+		private long percentile(double fraction) {
+			long count = this.count();
+			long rank = Math.max(1, (long) Math.ceil(fraction * count));
+			long seen = 0;
+			long aux = 0;
+			int i = 0;
+
+			if (count > 0) {
+				while (i < BUCKETS - 1 && seen + this.buckets.get(i) < rank) {
+					seen += this.buckets.get(i);
+					i++;
+				}
+				aux = Math.min(Histogram.lowest(i + 1) - 1, this.max.get());
+			}
+
+			return aux;
+		}
+
+		/**
+		 * The bucket of a value: the values below SUB_BUCKETS have a bucket each one, and the rest are split by their highest bit
+		 * and the SUB_BITS bits after it
+		 * @param value The value, not negative
+		 * @return The position of the bucket
+		 */
+		private static int bucket(long value) {
+			long v = Math.min(value, (1L << MAX_BITS) - 1);
+			int aux = (int) v;
+
+			if (v >= SUB_BUCKETS) {
+				int exp = 63 - Long.numberOfLeadingZeros(v);
+				aux = (exp - SUB_BITS + 1) * SUB_BUCKETS + (int) ((v >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1));
+			}
+
+			return aux;
+		}
+
+		/**
+		 * @param bucket The position of a bucket, up to BUCKETS
+		 * @return The lowest value of the bucket
+		 */
+		private static long lowest(int bucket) {
+			long aux = bucket;
+
+			if (bucket >= SUB_BUCKETS) {
+				int exp = bucket / SUB_BUCKETS + SUB_BITS - 1;
+				aux = ((long) SUB_BUCKETS + bucket % SUB_BUCKETS) << (exp - SUB_BITS);
+			}
+
+			return aux;
+		}
+	}
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates empty statistics, disabled
+	 */
+	public InstructionStats() {
+		this.counts = new LongAdder[Kind.values().length];
+		this.failures = new LongAdder[Kind.values().length];
+		this.histograms = new Histogram[Kind.values().length][Phase.values().length];
+		for (int k = 0; k < this.counts.length; k++) {
+			this.counts[k] = new LongAdder();
+			this.failures[k] = new LongAdder();
+			for (int p = 0; p < Phase.values().length; p++)
+				this.histograms[k][p] = new Histogram();
+		}
+	}
+
+	// ---------------------------- SETTER Y GETTER ------------------------------------
+
+	/**
+	 * @return The statistics of the application
+	 */
+	public static InstructionStats getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * @return true if the instructions are being recorded
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * Starts or stops recording the instructions. The observers registered while they are disabled are not timed
+	 * @param enabled true to record the instructions
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * @param kind A type of instruction
+	 * @return The number of instructions of the type executed, or of lines that were not an instruction
+	 */
+	public long getCount(Kind kind) {
+		return this.counts[kind.ordinal()].sum();
+	}
+
+	/**
+	 * @param kind A type of instruction
+	 * @return The number of instructions of the type that failed with an InstructionExecutionException
+	 */
+	public long getFailures(Kind kind) {
+		return this.failures[kind.ordinal()].sum();
+	}
+
+	/**
+	 * @param kind A type of instruction
+	 * @param phase A phase
+	 * @param fraction The fraction of the latencies, between 0 and 1
+	 * @return The latency in ns below which there are the fraction of the latencies timed, or 0 if there are none
+	 */
+	public long getPercentile(Kind kind, Phase phase, double fraction) {
+		return this.histograms[kind.ordinal()][phase.ordinal()].percentile(fraction);
+	}
+
+	/**
+	 * @param ins An instruction
+	 * @return Its type
+	 */
+	public static Kind kindOf(Instruction ins) {
+		return KINDS.get(ins.getClass());
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Starts a phase of an instruction
+	 * @return The time when the phase starts if the instruction is timed, NOT_TIMED if it is only counted or DISABLED
+	 */
+	public long start() {
+		long aux = DISABLED;
+
+		if (this.enabled)
+			aux = (ThreadLocalRandom.current().nextInt(SAMPLE_INTERVAL) == 0) ? System.nanoTime() : NOT_TIMED;
+
+		return aux;
+	}
+
+	/**
+	 * Records the end of the parse of a line
+	 * @param start The value returned by start before parsing the line
+	 * @param ins The instruction of the line, or null if it was not an instruction
+	 */
+	public void parsed(long start, Instruction ins) {
+		if (start != DISABLED) {
+			Kind kind = (ins == null) ? Kind.INVALID : KINDS.get(ins.getClass());
+			if (ins == null)
+				this.counts[kind.ordinal()].increment();
+			if (start != NOT_TIMED)
+				this.histograms[kind.ordinal()][Phase.PARSE.ordinal()].record(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Records the end of the execution of an instruction, with the notifications of the observers
+	 * @param start The value returned by start before executing the instruction
+	 * @param notifyNanos The time spent notifying the observers during the execution, in ns
+	 * @param ins The instruction
+	 * @param failed true if the instruction failed with an InstructionExecutionException
+	 */
+	public void executed(long start, long notifyNanos, Instruction ins, boolean failed) {
+		if (start != DISABLED) {
+			int kind = KINDS.get(ins.getClass()).ordinal();
+			this.counts[kind].increment();
+			if (failed)
+				this.failures[kind].increment();
+			if (start != NOT_TIMED) {
+				this.histograms[kind][Phase.EXECUTE.ordinal()].record(System.nanoTime() - start - notifyNanos);
+				this.histograms[kind][Phase.NOTIFY.ordinal()].record(notifyNanos);
+			}
+		}
+	}
+
+	/**
+	 * Writes a table with the instructions of every type, the failures and the percentiles of every phase, for the console
+	 * @return The table, with a line separator at the end of every line
+	 */
+	public String getReport() {
+		StringBuilder aux = new StringBuilder();
+
+		aux.append("Instruction statistics, in ns (1 of every ").append(SAMPLE_INTERVAL).append(" instructions timed)")
+			.append(Interpreter.LINE_SEPARATOR);
+		aux.append(String.format("%-8s %9s %7s %-8s %8s %9s %9s %9s %9s %9s %9s", "TYPE", "COUNT", "FAILED", "PHASE", "TIMED", "MEAN",
+				"P50", "P90", "P99", "P99.9", "MAX")).append(Interpreter.LINE_SEPARATOR);
+		for (Kind kind : Kind.values()) {
+			for (Phase phase : Phase.values()) {
+				Histogram h = this.histograms[kind.ordinal()][phase.ordinal()];
+				long timed = h.count();
+				if (this.isShown(kind, phase, timed)) {
+					aux.append(String.format("%-8s %9d %7d %-8s %8d %9d", kind, this.getCount(kind), this.getFailures(kind), phase, timed,
+							(timed == 0) ? 0 : h.total.get() / timed));
+					for (double fraction : PERCENTILES)
+						aux.append(String.format(" %9d", h.percentile(fraction)));
+					aux.append(String.format(" %9d", h.max.get())).append(Interpreter.LINE_SEPARATOR);
+				}
+			}
+		}
+
+		return aux.toString();
+	}
+
+	/**
+	 * Writes the statistics as CSV, with a line for every phase of every type of instruction that has been timed,
+	 * and for the parse of the types that have been executed but not timed
+	 * @param out The writer. It is not closed
+	 * @throws IOException If the writer fails
+	 */
+	public void export(Writer out) throws IOException {
+		out.write("type,phase,count,failures,timed,mean_ns,p50_ns,p90_ns,p99_ns,p999_ns,max_ns\n");
+		for (Kind kind : Kind.values()) {
+			for (Phase phase : Phase.values()) {
+				Histogram h = this.histograms[kind.ordinal()][phase.ordinal()];
+				long timed = h.count();
+				if (this.isShown(kind, phase, timed)) {
+					StringBuilder line = new StringBuilder();
+					line.append(kind).append(',').append(phase).append(',').append(this.getCount(kind)).append(',')
+						.append(this.getFailures(kind)).append(',').append(timed).append(',').append((timed == 0) ? 0 : h.total.get() / timed);
+					for (double fraction : PERCENTILES)
+						line.append(',').append(h.percentile(fraction));
+					line.append(',').append(h.max.get()).append('\n');
+					out.write(line.toString());
+				}
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * @param kind A type of instruction
+	 * @param phase A phase
+	 * @param timed The number of latencies of the phase
+	 * @return true if the phase is written: if it has been timed, or it is the parse of a type that has been executed
+	 */
+	private boolean isShown(Kind kind, Phase phase, long timed) {
+		return timed > 0 || (phase == Phase.PARSE && this.getCount(kind) > 0);
+	}
+}
@@ -1,19 +1,6 @@
 package tp.pr5;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-
-import tp.pr5.instructions.DropInstruction;
-import tp.pr5.instructions.HelpInstruction;
 import tp.pr5.instructions.Instruction;
-import tp.pr5.instructions.MoveInstruction;
-import tp.pr5.instructions.OperateInstruction;
-import tp.pr5.instructions.PickInstruction;
-import tp.pr5.instructions.QuitInstruction;
-import tp.pr5.instructions.RadarInstruction;
-import tp.pr5.instructions.ScanInstruction;
-import tp.pr5.instructions.TurnInstruction;
 import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
 
 /**
@@ -24,42 +11,39 @@ import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
  *  •PICK <ITEM>
  *  •SCAN [ <ITEM> ]
  *  •OPERATE <ITEM>
+ *  •UNDO
+ *  •REDO
  *  •QUIT
+ *  and the ones added with an InstructionProvider. The instructions are kept in the InstructionRegistry, that is made once.
  *  @author Juan Manuel Carrera García 
  */
 public class Interpreter {
 	public static final java.lang.String LINE_SEPARATOR = System.getProperty("line.separator");
 
-	
 	// ----------------------------------------------------- MÉTODOS -----------------------------------------------------
 	
 	// ---------------------------------- MÉTODO QUE GENERA UNA NUEVA INSTRUCCIÓN ----------------------------------------
 	
 	/**
-	 * Generates a new instruction according to the user input
+	 * Generates a new instruction according to the user input. The line is read in one pass: the keyword is looked up in the table
+	 * of keywords of the registry and the instruction is created directly, so only an exception is thrown, when the line is not a valid instruction.
+	 * The words are separated by one space, as with split(" "): the spaces at the end of the line are ignored.
+	 * The time to parse the line is recorded in the InstructionStats if they are enabled
 	 * @param line A string to the user input
 	 * @return The instruction read from the given line. If the instruction is not correct, then it returns a not valid instruction
 	 */
 	public static Instruction generateInstruction(String line)
 			throws WrongInstructionFormatException {
-		List<Instruction> ins = Interpreter.generateListInstrucctions();
-		Iterator<Instruction> iter = ins.iterator();
+		InstructionStats stats = InstructionStats.getDefault();
+		long start = stats.start();
 		Instruction instruction = null;
-		boolean correct = false;
-			
-		while (iter.hasNext() && !correct) {
-			try {
-				instruction = iter.next().parse(line);
-				correct = true;
-			} catch (WrongInstructionFormatException e) {
-			}
+		
+		try {
+			instruction = InstructionRegistry.getDefault().generateInstruction(line);
+		} finally {
+			stats.parsed(start, instruction);
 		}
 		
-		if (!correct)
-			throw new WrongInstructionFormatException("Invalid Instruction"
-					+ Interpreter.LINE_SEPARATOR
-					+ Interpreter.interpreterHelp());
-
 		return instruction;
 	}
 		
@@ -67,38 +51,10 @@ public class Interpreter {
 	// ---------------------------------- MÉTODO QUE GENERA UN STRING CON LA AYUDA DEL JUEGO ----------------------------------------
 		
 	/**
-	 * It returns information about all the instructions that the robot understands
+	 * It returns information about all the instructions that the robot understands. The text is written once by the registry
 	 * @return A string with the information about all the available instructions
 	 */
 	public static String interpreterHelp() {
-		List<Instruction> ins = Interpreter.generateListInstrucctions();
-		Iterator<Instruction> iter = ins.iterator();
-		String aux = "";
-
-		while (iter.hasNext()) 
-			aux = aux + "	" + iter.next().getHelp() + LINE_SEPARATOR;
-		
-		return ("The valid instructions for WALL·E are:" + LINE_SEPARATOR + aux);
-	}
-	
-	
-	// ---------------------------------- MÉTODO QUE DEVUELVE UN ARRAY CON TODAS LAS INSTRUCCIONES ------------------------------------
-	/**
-	 * Generate a list of instructions
-	 * @return A array with all information about all the available instructions
-	 */
-	private static List<Instruction> generateListInstrucctions() {
-		List<Instruction> ins = new ArrayList<Instruction>();
-		
-		ins.add(new MoveInstruction());
-		ins.add(new DropInstruction());
-		ins.add(new HelpInstruction());
-		ins.add(new QuitInstruction());
-		ins.add(new ScanInstruction());
-		ins.add(new RadarInstruction());
-		ins.add(new TurnInstruction());
-		ins.add(new OperateInstruction());
-		ins.add(new PickInstruction());
-		return ins;
+		return InstructionRegistry.getDefault().getHelp();
 	}
 }
\ No newline at end of file
@@ -1,14 +1,31 @@
 package tp.pr5;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import org.apache.commons.cli.*; 
 
+import tp.pr5.cityLoader.CityLoaderFromBinaryFile;
+import tp.pr5.cityLoader.CityLoaderFromMappedFile;
 import tp.pr5.cityLoader.CityLoaderFromTxtFile;
+import tp.pr5.cityLoader.CityLoaderParallel;
 import tp.pr5.cityLoader.cityLoaderExceptions.WrongCityFormatException;
+import tp.pr5.console.BatchController;
 import tp.pr5.console.ConsoleController;
 import tp.pr5.gui.GUIController;
 import tp.pr5.gui.MainWindow;
+import tp.pr5.instructions.Instruction;
+import tp.pr5.server.SessionServer;
 
 /**
  * Application entry-point. The application admits a parameter -m | --map with the name of the map file to be used and a parameter -i | --interface with the type of interface (console or swing)
@@ -17,6 +34,24 @@ import tp.pr5.gui.MainWindow;
 
    If the map file cannot be read (or it does not exist), the application ends with a different error code (-2).
 
+   In batch mode (-i batch) the instructions are read from the file given with the parameter -s | --script, and the application reports the final state of the robot and the throughput.
+
+   In fleet mode (-i fleet) -r | --robots robots share the city and execute -n | --steps random instructions in parallel, starting with -f | --fuel fuel, and the application reports the throughput.
+
+   In tour mode (-i tour) the application looks during -t | --time ms for the tour from the initial place that gives more recycled material and ends at the spaceship, reports how the recycled material grows with the time, and writes the instructions of the tour in the file given with -s | --script, or in the standard output. The file can be executed in batch mode.
+
+   In server mode (-i server) the application plays a game for every TCP connection in the port -p | --port, with the protocol of the console. The sessions share the loaded city, and every one copies only the places and streets that it reaches.
+
+   The robot keeps its last -u | --undo instructions that change the game, so they can be undone with UNDO and redone with REDO.
+
+   With -x | --stats file the application measures the time to parse and execute every type of instruction and to notify the observers, and writes the percentiles in the file (CSV) when it ends. The console writes them with STATS, or as CSV with STATS CSV.
+
+   With -j | --journal file every instruction is appended to the file, and a snapshot of the game is written every some instructions. If the file exists, the game is restored from the last snapshot and the instructions after it before the simulation starts. It can only be used with the modes of one game: console, swing, both and batch.
+
+   With -d | --dispatch async the observers receive the notifications in other thread (the event dispatch thread in swing mode), and the updates of the robot and the places that the interface has not shown yet are merged.
+
+   In swing and both modes the engine runs in its own thread, that executes in order the instructions that the window and the console submit to its command queue. The window always receives the notifications in the event dispatch thread.
+
    If the interface arg is not correct (console or swing) the application prints a message and the application finishes with an error code (-3). If the interface arg is not included it starts the application in console mode. Otherwise, the simulation starts and eventually the application will end normally (return code 0).
  
  * @author Juan Manuel Carrera García
@@ -43,10 +78,32 @@ public class Main {
 		CommandLine cmdLine = null;
 		String interfazOpt = null;
 		String mapOpt = null;
+		String loaderOpt = null;
+		String scriptOpt = null;
+		String dispatchOpt = null;
+		String journalOpt = null;
+		String statsOpt = null;
+		int robotsOpt = 0;
+		int stepsOpt = 0;
+		int fuelOpt = 0;
+		int portOpt = 0;
+		int undoOpt = 0;
+		int timeOpt = 0;
 	    		
 		Options options = new Options();  
-		options.addOption("i", "interface", true,  "The type of interface: console or swing");  
+		options.addOption("i", "interface", true,  "The type of interface: console, swing, both, batch, fleet, tour or server");  
 		options.addOption("m", "map", true, "File with the description of the city");   
+		options.addOption("s", "script", true, "File with the instructions executed in batch mode, or written in tour mode");
+		options.addOption("d", "dispatch", true, "How the interface receives the notifications: sync or async");
+		options.addOption("l", "loader", true, "The type of map loader: txt, mapped, parallel or binary");
+		options.addOption("r", "robots", true, "Number of robots in fleet mode (default 1000)");
+		options.addOption("n", "steps", true, "Number of instructions of every robot in fleet mode (default 1000)");
+		options.addOption("f", "fuel", true, "Initial fuel of every robot in fleet mode (default 100)");
+		options.addOption("p", "port", true, "Port of the server mode (default 8023)");
+		options.addOption("t", "time", true, "Time in ms to look for the tour in tour mode (default 1000)");
+		options.addOption("j", "journal", true, "File where the game is kept, to restore it if it exists");
+		options.addOption("u", "undo", true, "Number of instructions that can be undone (default " + UndoJournal.DEFAULT_LIMIT + ")");
+		options.addOption("x", "stats", true, "CSV file where the latency of the instructions is written when the application ends");
 		options.addOption("h", "help", false, "Shows this help message");
 		
 		try {
@@ -62,6 +119,11 @@ public class Main {
 			
 			interfazOpt = (String)cmdLine.getOptionValue("i"); 
 			mapOpt = (String)cmdLine.getOptionValue("m");
+			loaderOpt = (String)cmdLine.getOptionValue("l", "txt");
+			scriptOpt = (String)cmdLine.getOptionValue("s");
+			dispatchOpt = (String)cmdLine.getOptionValue("d", "sync");
+			journalOpt = (String)cmdLine.getOptionValue("j");
+			statsOpt = (String)cmdLine.getOptionValue("x");
 			
 			if (mapOpt == null || cmdLine.getArgs().length > 0) { 
 				System.err.println("Map file not specified");
@@ -72,12 +134,57 @@ public class Main {
 					System.err.println("Interface not specified");
 					System.exit(1);
 				}
-				if (!(interfazOpt.equalsIgnoreCase("console") || interfazOpt.equalsIgnoreCase("swing") || interfazOpt.equalsIgnoreCase("both"))) {
+				if (!(interfazOpt.equalsIgnoreCase("console") || interfazOpt.equalsIgnoreCase("swing") || interfazOpt.equalsIgnoreCase("both") || interfazOpt.equalsIgnoreCase("batch") || interfazOpt.equalsIgnoreCase("fleet") || interfazOpt.equalsIgnoreCase("tour") || interfazOpt.equalsIgnoreCase("server"))) {
 					System.err.println("Wrong type of interface");
 					System.exit(3);
 				}
 				
-				Main.initRobot(mapOpt, interfazOpt);
+				if (!(loaderOpt.equalsIgnoreCase("txt") || loaderOpt.equalsIgnoreCase("mapped") || loaderOpt.equalsIgnoreCase("parallel") || loaderOpt.equalsIgnoreCase("binary"))) {
+					System.err.println("Wrong type of loader");
+					System.exit(3);
+				}
+				
+				if (!(dispatchOpt.equalsIgnoreCase("sync") || dispatchOpt.equalsIgnoreCase("async"))) {
+					System.err.println("Wrong type of dispatch");
+					System.exit(3);
+				}
+				
+				if (interfazOpt.equalsIgnoreCase("batch") && scriptOpt == null) {
+					System.err.println("Script file not specified");
+					System.exit(1);
+				}
+				
+				if (journalOpt != null && (interfazOpt.equalsIgnoreCase("fleet") || interfazOpt.equalsIgnoreCase("tour") || interfazOpt.equalsIgnoreCase("server"))) {
+					System.err.println("The journal can only be used with one game: console, swing, both or batch");
+					System.exit(3);
+				}
+				
+				try {
+					robotsOpt = Integer.parseInt(cmdLine.getOptionValue("r", "1000"));
+					stepsOpt = Integer.parseInt(cmdLine.getOptionValue("n", "1000"));
+					fuelOpt = Integer.parseInt(cmdLine.getOptionValue("f", "100"));
+					portOpt = Integer.parseInt(cmdLine.getOptionValue("p", "8023"));
+					undoOpt = Integer.parseInt(cmdLine.getOptionValue("u", String.valueOf(UndoJournal.DEFAULT_LIMIT)));
+					timeOpt = Integer.parseInt(cmdLine.getOptionValue("t", "1000"));
+				} catch (NumberFormatException e) {
+					robotsOpt = -1;
+				}
+				if (robotsOpt < 0 || stepsOpt < 0 || fuelOpt < 0 || timeOpt < 0) {
+					System.err.println("Wrong number of robots, steps, fuel or time");
+					System.exit(3);
+				}
+				if (undoOpt < 1) {
+					System.err.println("Wrong number of instructions for undo");
+					System.exit(3);
+				}
+				if (portOpt < 0 || portOpt > 65535) {
+					System.err.println("Wrong port: " + portOpt);
+					System.exit(3);
+				}
+				
+				if (statsOpt != null)
+					Main.keepStats(statsOpt);
+				Main.initRobot(mapOpt, interfazOpt, loaderOpt, scriptOpt, journalOpt, dispatchOpt.equalsIgnoreCase("async"), new int[] { robotsOpt, stepsOpt, fuelOpt, portOpt, undoOpt, timeOpt });
 			}		 
 		} catch (ParseException e) {
 			e.printStackTrace();
@@ -89,25 +196,72 @@ public class Main {
 	 * This method init the robot engine and launches the game for the corresponding interface
 	 * @param mapOpt The name of file with the map
 	 * @param interfazOpt The name of the type of interface
+	 * @param loaderOpt The name of the type of map loader
+	 * @param scriptOpt The name of the file with the script of the batch mode
+	 * @param journalOpt The name of the file of the replay log, or null if the game is not kept
+	 * @param async true if the interface receives the notifications in other thread
+	 * @param numbersOpt The number of robots, the number of steps and the fuel of the fleet mode, the port of the server mode, the number of instructions that can be undone
+	 * 			and the time of the tour mode
 	 */
-	private static void initRobot(String mapOpt, String interfazOpt) {
-		CityLoaderFromTxtFile loader = new CityLoaderFromTxtFile();
+	private static void initRobot(String mapOpt, String interfazOpt, String loaderOpt, String scriptOpt, String journalOpt, boolean async, int[] numbersOpt) {
+		City map;
+		Place initPlace;
 	
 		try {
-			City map = loader.loadCity(new FileInputStream(mapOpt));
-			Place initPlace = loader.getInitialPlace();
-			initPlace = loader.getInitialPlace();
+			if (loaderOpt.equalsIgnoreCase("mapped")) {
+				CityLoaderFromMappedFile loader = new CityLoaderFromMappedFile();
+				map = loader.loadCity(new File(mapOpt));
+				initPlace = loader.getInitialPlace();
+			}
+			else if (loaderOpt.equalsIgnoreCase("parallel")) {
+				CityLoaderParallel loader = new CityLoaderParallel();
+				map = loader.loadCity(new File(mapOpt));
+				initPlace = loader.getInitialPlace();
+			}
+			else if (loaderOpt.equalsIgnoreCase("binary")) {
+				CityLoaderFromBinaryFile loader = new CityLoaderFromBinaryFile();
+				map = loader.loadCity(new File(mapOpt));
+				initPlace = loader.getInitialPlace();
+			}
+			else {
+				CityLoaderFromTxtFile loader = new CityLoaderFromTxtFile();
+				map = loader.loadCity(new FileInputStream(mapOpt));
+				initPlace = loader.getInitialPlace();
+			}
+			
+			// These modes share the city, so it must stay as it was loaded
+			if (interfazOpt.equalsIgnoreCase("fleet")) {
+				Main.runFleet(map, initPlace, numbersOpt[0], numbersOpt[1], numbersOpt[2]);
+				System.exit(0);
+			}
+			if (interfazOpt.equalsIgnoreCase("tour")) {
+				Main.runTour(map, initPlace, scriptOpt, numbersOpt[5]);
+				System.exit(0);
+			}
+			if (interfazOpt.equalsIgnoreCase("server")) {
+				Main.runServer(map, initPlace, numbersOpt[3]);
+				System.exit(0);
+			}
+			
 			RobotEngine engine = new RobotEngine(map, initPlace, Direction.NORTH);
+			engine.setUndoLimit(numbersOpt[4]);
+			if (journalOpt != null)
+				Main.restoreGame(engine, journalOpt);
 			
-			if (interfazOpt.equalsIgnoreCase("swing")) 
-				Main.initSwing(engine).runGame();
+			if (interfazOpt.equalsIgnoreCase("swing")) {
+				Controller swing = Main.initSwing(engine);
+				swing.setCommandQueue(CommandQueue.start(engine, CommandQueue.DEFAULT_CAPACITY));
+				swing.runGame();
+			}
 			if (interfazOpt.equalsIgnoreCase("console")) {
-				Main.initConsole(engine).runGame();
+				Main.initConsole(engine, async).runGame();
 				System.exit(0);
 			}
-			if (interfazOpt.equalsIgnoreCase("both")) {
-				Main.initConsole(engine);
-				Main.initSwing(engine).runGame();
+			if (interfazOpt.equalsIgnoreCase("both")) 
+				Main.runBoth(engine, async);
+			if (interfazOpt.equalsIgnoreCase("batch")) {
+				Main.initBatch(engine, scriptOpt, async).runGame();
+				System.exit(0);
 			}
 		} catch (WrongCityFormatException e) {
 			System.err.println("Incorrect Format");
@@ -120,6 +274,53 @@ public class Main {
 		}		
 	}
 		
+	/**
+	 * Restores the game kept in a replay log, and keeps in it the next instructions. The log is written to disk when the application ends
+	 * @param engine Engine Robot that has not started yet
+	 * @param journalOpt The name of the file of the journal
+	 */
+	private static void restoreGame(RobotEngine engine, String journalOpt) {
+		final ReplayLog log = new ReplayLog(new File(journalOpt), ReplayLog.DEFAULT_SNAPSHOT_INTERVAL);
+		long start = System.nanoTime();
+		
+		try {
+			long replayed = engine.restoreFrom(log);
+			if (log.getCount() > 0)
+				System.err.println("Game restored: " + log.getCount() + " instructions, " + replayed + " executed again in "
+						+ (System.nanoTime() - start) / 1000000 + " ms");
+		} catch (IOException e) {
+			System.err.println("Error restoring the game: " + e.getMessage());
+			System.exit(2);
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				log.close();
+			}
+		});
+	}
+	
+	/**
+	 * Enables the instruction statistics, and writes them in a file when the application ends
+	 * @param statsOpt The name of the CSV file
+	 */
+	private static void keepStats(final String statsOpt) {
+		InstructionStats.getDefault().setEnabled(true);
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				try {
+					Writer out = new OutputStreamWriter(new FileOutputStream(statsOpt), StandardCharsets.UTF_8);
+					try {
+						InstructionStats.getDefault().export(out);
+					} finally {
+						out.close();
+					}
+				} catch (IOException e) {
+					System.err.println("Error writing the statistics file: " + statsOpt);
+				}
+			}
+		});
+	}
+	
 	/**
 	 * This method initializes the swing interface
 	 * @param engine Engine Robot that controls the interface
@@ -127,6 +328,7 @@ public class Main {
 	 */
 	private static Controller initSwing(RobotEngine engine) {
 		GUIController controller = new GUIController(engine);
+		controller.setDispatcher(AsyncDispatcher.swing());
 		MainWindow window = new MainWindow(controller);
 		window.createMainWindows();
 		return controller;
@@ -135,13 +337,133 @@ public class Main {
 	/**
 	 * This method initializes the console interface
 	 * @param engine Engine Robot that controls the interface
+	 * @param async true if the console receives the notifications in other thread
 	 * @return the controller of the interface
 	 */
-	private static Controller initConsole(RobotEngine engine) {
-		ConsoleController controller = new ConsoleController(engine);
+	private static ConsoleController initConsole(RobotEngine engine, boolean async) {
+		ConsoleController controller = new ConsoleController(engine, async ? AsyncDispatcher.startThread("Console notifications") : null);
 		return controller;
 	}
 	
+	/**
+	 * Plays the game with the console and the window at the same time. Both submit their instructions to a command queue, so the engine
+	 * executes them in the order they arrive in a single thread, and the console reads its instructions in its own thread
+	 * @param engine Engine Robot that is played
+	 * @param async true if the console receives the notifications in other thread
+	 */
+	private static void runBoth(RobotEngine engine, boolean async) {
+		final ConsoleController console = Main.initConsole(engine, async);
+		Controller swing = Main.initSwing(engine);
+		CommandQueue queue = CommandQueue.start(engine, CommandQueue.DEFAULT_CAPACITY);
+
+		console.setCommandQueue(queue);
+		swing.setCommandQueue(queue);
+		swing.runGame();
+		new Thread(new Runnable() {
+			public void run() {
+				console.readInstructions();
+			}
+		}, "Console").start();
+	}
+	
+	/**
+	 * This method initializes the batch mode
+	 * @param engine Engine Robot that executes the script
+	 * @param scriptOpt The name of the file with the script
+	 * @param async true if the messages are written in other thread
+	 * @return the controller of the batch mode
+	 */
+	private static Controller initBatch(RobotEngine engine, String scriptOpt, boolean async) {
+		List<String> script = null;
+		
+		try {
+			script = Files.readAllLines(new File(scriptOpt).toPath(), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			System.err.println("Error reading the script file: " + scriptOpt);
+			System.exit(2);
+		}
+		PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out)), 1 << 16));
+		return new BatchController(engine, script, out, async ? AsyncDispatcher.startThread("Batch notifications") : null);
+	}
+	
+	/**
+	 * Runs a fleet of robots on the city and reports the throughput
+	 * @param map The city shared by the robots
+	 * @param initPlace The initial place of the city
+	 * @param robots The number of robots
+	 * @param steps The number of instructions of every robot
+	 * @param fuel The initial fuel of every robot
+	 */
+	private static void runFleet(City map, Place initPlace, int robots, int steps, int fuel) {
+		Fleet fleet = new Fleet(map, initPlace, robots, robots);
+		fleet.setFuel(fuel);
+		fleet.run(steps);
+		
+		long elapsed = fleet.getElapsed();
+		long perSecond = (elapsed == 0) ? 0 : (long) (fleet.getSteps() * 1e9 / elapsed);
+		System.out.println("Fleet: " + robots + " robots, " + fleet.getSteps() + " steps in " + (elapsed / 1000000) + " ms, "
+				+ perSecond + " steps/s, " + ForkJoinPool.commonPool().getParallelism() + " threads");
+		System.out.println("Items picked: " + fleet.getPicks() + ", robots over: " + fleet.getFinishedRobots());
+	}
+	
+	/**
+	 * Looks for the tour that gives more recycled material from the initial place, with the fuel of the start of the game, and reports it
+	 * @param map The city
+	 * @param initPlace The initial place of the city
+	 * @param scriptOpt The name of the file where the instructions of the tour are written, or null to write them in the standard output
+	 * @param time The time to look for the tour, in ms
+	 */
+	private static void runTour(City map, Place initPlace, String scriptOpt, int time) {
+		TourOptimizer optimizer = new TourOptimizer(map, null);
+		List<Instruction> tour = optimizer.optimize(initPlace, Direction.NORTH, RobotEngine.INITIAL_FUEL, time * 1000000L);
+		
+		System.out.println("Tour: " + optimizer.getNumStops() + " places with garbage, fuel or code cards, " 
+				+ ForkJoinPool.commonPool().getParallelism() + " threads");
+		for (String line : optimizer.getProgress())
+			System.out.println("  " + line);
+		if (tour == null && !optimizer.isComplete())
+			System.out.println("No tour to the spaceship was found in " + time + " ms");
+		else if (tour == null)
+			System.out.println("The spaceship cannot be reached");
+		else {
+			System.out.println("Recycled material: " + optimizer.getScore() + ", fuel at the spaceship: " + optimizer.getFinalFuel() 
+					+ ", " + tour.size() + " instructions");
+			try {
+				PrintWriter out = (scriptOpt == null) ? new PrintWriter(System.out)
+						: new PrintWriter(Files.newBufferedWriter(new File(scriptOpt).toPath(), StandardCharsets.UTF_8));
+				for (Instruction ins : tour)
+					out.println(ins);
+				out.flush();
+				if (scriptOpt != null)
+					out.close();
+				if (out.checkError())
+					throw new IOException("The tour was not written");
+			} catch (IOException e) {
+				System.err.println("Error writing the tour file: " + ((scriptOpt == null) ? "standard output" : scriptOpt));
+				System.exit(2);
+			}
+		}
+	}
+	
+	/**
+	 * Runs the server of game sessions over TCP until the application is killed. The sessions share the city as a template
+	 * @param map The city
+	 * @param initPlace The initial place of the city
+	 * @param port The port of the server
+	 */
+	private static void runServer(City map, Place initPlace, int port) {
+		SessionServer server = new SessionServer(map, initPlace);
+		
+		try {
+			server.bind(port);
+		} catch (IOException e) {
+			System.err.println("The port " + port + " cannot be used: " + e.getMessage());
+			System.exit(2);
+		}
+		System.err.println("Server listening on port " + server.getPort());
+		server.serve();
+	}
+	
 	public static void main(String[] args) {
 		Main.parser(args);
 	}
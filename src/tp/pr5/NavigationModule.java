@@ -1,9 +1,14 @@
 package tp.pr5;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.BitSet;
 import java.util.Iterator;
 
 import tp.pr5.instructions.exceptions.InstructionExecutionException;
 import tp.pr5.items.Item;
+import tp.pr5.jfr.NotificationEvent;
 
 /**
  * 
@@ -13,9 +18,10 @@ import tp.pr5.items.Item;
  * @author Juan Manuel Carrera García
  */
 public class NavigationModule extends tp.pr5.Observable<NavigationObserver> {
-	private City cityMap;
+	private CityMap cityMap;
 	private Place currentPlace;
 	private Direction currentDirection;
+	private BitSet changedPlaces;
 	
 	// ----------------------------- CONSTRUCTORAS ----------------------------------------------
 	
@@ -25,9 +31,19 @@ public class NavigationModule extends tp.pr5.Observable<NavigationObserver> {
 	 * @param initialPlace An initial place for the robot
 	 */
 	public NavigationModule(City aCity, Place initialPlace) {
+		this((CityMap) aCity, initialPlace);
+	}
+	
+	/**
+	 * Navigation module constructor over any city map, as the city of a session of the server
+	 * @param aCity A city map
+	 * @param initialPlace An initial place for the robot
+	 */
+	public NavigationModule(CityMap aCity, Place initialPlace) {
 		super();
 		this.cityMap = aCity;
 		this.currentPlace = initialPlace;
+		this.changedPlaces = new BitSet();
 	}
 	
 	// -------------------- MÉTODO QUE DEVUELVE LA DIRECCIÓN DEL ROBOT ---------------------------
@@ -50,6 +66,16 @@ public class NavigationModule extends tp.pr5.Observable<NavigationObserver> {
 		return this.currentPlace;
 	}
 	
+	// -------------------- MÉTODO QUE DEVUELVE EL MAPA DE LA CIUDAD ---------------------------
+	
+	/**
+	 * Returns the city where the robot is navigating
+	 * @return The city map
+	 */
+	public CityMap getCityMap() {
+		return this.cityMap;
+	}
+	
 	// -------------------- MÉTODO QUE DEVUELVE LA CALLE DEL ROBOT ---------------------------
 		
 	/**
@@ -88,6 +114,7 @@ public class NavigationModule extends tp.pr5.Observable<NavigationObserver> {
 	 */
 	public void dropItemAtCurrentPlace(Item it) {
 		this.currentPlace.dropItem(it);
+		this.placeChanged();
 		this.updateNavigationModule();
 	}
 	
@@ -172,7 +199,16 @@ public class NavigationModule extends tp.pr5.Observable<NavigationObserver> {
 			}
 		}
 	}
-	
+
+	/**
+	 * Takes the robot back to the place where a movement started, without looking at the state of the street
+	 * @param place The place where the movement started
+	 */
+	public void returnTo(Place place) {
+		this.currentPlace = place;
+		this.notifyObserversNavigationModule(TypeMessage.ROBOT_ARRIVE_UNDO);
+	}
+
 	// -------------------- MÉTODO QUE COGE UN ÍTEM DEL LUGAR ---------------------------
 		
 	/**
@@ -181,7 +217,11 @@ public class NavigationModule extends tp.pr5.Observable<NavigationObserver> {
 	 * @return The item of identifier id if it exists in the place. Otherwise the method returns null
 	 */
 	public Item pickItemFromCurrentPlace(String id) {
-		return this.currentPlace.pickItem(id);
+		Item aux = this.currentPlace.pickItem(id);
+		
+		if (aux != null)
+			this.placeChanged();
+		return aux;
 	}
 	
 	// -------------------- MÉTODO QUE GIRA A IZQUIERDA O DERECHA AL ROBOT ---------------------------
@@ -217,16 +257,93 @@ public class NavigationModule extends tp.pr5.Observable<NavigationObserver> {
 		this.notifyObserversNavigationModule(TypeMessage.UPDATE_PLACE);
 	}
 	
+	// ------------------ MÉTODOS PARA LAS INSTANTÁNEAS DEL JUEGO ------------------------------------
+	
+	/**
+	 * Writes the heading and the place of the robot, the state of the streets and the items of the places that have changed
+	 * @param out The stream of the snapshot
+	 * @throws IOException If the stream cannot be written
+	 */
+	void writeState(ObjectOutputStream out) throws IOException {
+		BitSet open = new BitSet(this.cityMap.getNumStreet());
+		
+		for (int i = 0; i < this.cityMap.getNumStreet(); i++)
+			open.set(i, this.cityMap.getStreet(i).isOpen());
+		out.writeInt(this.cityMap.getNumPlaces());
+		out.writeInt(this.cityMap.getNumStreet());
+		out.writeObject(this.currentDirection);
+		out.writeInt(this.cityMap.indexOf(this.currentPlace));
+		out.writeObject(open);
+		out.writeInt(this.changedPlaces.cardinality());
+		for (int i = this.changedPlaces.nextSetBit(0); i >= 0; i = this.changedPlaces.nextSetBit(i + 1)) {
+			Place place = this.cityMap.getPlace(i);
+			Item[] items = new Item[place.numberOfItems()];
+			for (int j = 0; j < items.length; j++)
+				items[j] = place.getItem(j);
+			out.writeInt(i);
+			out.writeObject(items);
+		}
+	}
+	
+	/**
+	 * Reads the heading and the place of the robot, the state of the streets and the items of the places that have changed. 
+	 * The city must be the one of the snapshot as it was loaded
+	 * @param in The stream of the snapshot
+	 * @throws IOException If the stream cannot be read or it is not a snapshot of this city
+	 */
+	void readState(ObjectInputStream in) throws IOException {
+		if (in.readInt() != this.cityMap.getNumPlaces() || in.readInt() != this.cityMap.getNumStreet())
+			throw new IOException("The snapshot is not of this city");
+		try {
+			Direction heading = (Direction) in.readObject();
+			int place = in.readInt();
+			BitSet open = (BitSet) in.readObject();
+			
+			this.currentDirection = heading;
+			if (place >= 0)
+				this.currentPlace = this.cityMap.getPlace(place);
+			for (int i = 0; i < this.cityMap.getNumStreet(); i++)
+				this.cityMap.getStreet(i).setOpen(open.get(i));
+			for (int n = in.readInt(); n > 0; n--) {
+				int index = in.readInt();
+				Item[] items = (Item[]) in.readObject();
+				Place aux = this.cityMap.getPlace(index);
+				while (aux.numberOfItems() > 0)
+					aux.pickItem(aux.getItem(0).getId());
+				for (Item item : items)
+					aux.addItem(item);
+				this.changedPlaces.set(index);
+			}
+		} catch (ClassNotFoundException | ClassCastException | IndexOutOfBoundsException e) {
+			throw new IOException("Wrong state of the city in the snapshot", e);
+		}
+	}
+	
+	/**
+	 * Remembers that the items of the current place have changed, so they are kept in the snapshots. A module without city has no snapshots
+	 */
+	private void placeChanged() {
+		int index = (this.cityMap == null) ? -1 : this.cityMap.indexOf(this.currentPlace);
+		
+		if (index >= 0)
+			this.changedPlaces.set(index);
+	}
+	
 	// ------------------ MÉTODO PARA AVISAR A LOS OBSERVADORES DEL CAMBIO QUE HA OCURRIDO ------------------
 	
 	
 	/**
-	 * Notifies observers with the changes that have occurred
+	 * Notifies observers with the changes that have occurred. The notification is recorded as a NotificationEvent when Java Flight Recorder is recording it
 	 * @param tipoMensaje Type of Message to to call the correct method
 	 */
 	private void notifyObserversNavigationModule (TypeMessage tipoMensaje) {
+		NotificationEvent event = new NotificationEvent();
 		Iterator<NavigationObserver> it = this.iterator();
+		int observers = 0;
+		
+		event.begin();
 		while (it.hasNext()) {
+			observers++;
 			switch (tipoMensaje) {
 			case INIT_NAVIGATION_MODULE: it.next().initNavigationModule(this.currentPlace, this.currentDirection);
 			break;
@@ -242,5 +359,7 @@ public class NavigationModule extends tp.pr5.Observable<NavigationObserver> {
 			default: break;
 			}
 		}
+		if (event.shouldCommit())
+			event.commit("NavigationModule", tipoMensaje.name(), observers);
 	}
 }
@@ -0,0 +1,234 @@
+package tp.pr5;
+
+import java.util.List;
+
+import tp.pr5.items.InventoryObserver;
+import tp.pr5.items.Item;
+
+/**
+ * Measures the time that an engine spends notifying its observers while it executes an instruction, for the InstructionStats.
+ * The observers are wrapped by the timer when they are registered: while an instruction is timed, the wrappers add the time of every
+ * notification, and otherwise they only pass it on. It is used by the thread that executes the instructions of the engine.
+ * @author Juan Manuel Carrera García
+ */
+public class NotificationTimer {
+	private boolean timing;
+	private long nanos;
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Starts an instruction
+	 * @param timing true if the notifications of the instruction are timed
+	 */
+	public void begin(boolean timing) {
+		this.timing = timing;
+		this.nanos = 0;
+	}
+
+	/**
+	 * Ends an instruction
+	 * @return The time spent notifying the observers since begin, in ns, or 0 if they were not timed
+	 */
+	public long end() {
+		this.timing = false;
+		return this.nanos;
+	}
+
+	/**
+	 * Adds the time of a notification
+	 * @param start The time when the notification started, as System.nanoTime
+	 */
+	private void add(long start) {
+		this.nanos += System.nanoTime() - start;
+	}
+
+	// --------------------------------------------- OBSERVADORES -----------------------------------------------
+
+	/**
+	 * Wraps an observer of the robot engine
+	 * @param observer The observer
+	 * @return An observer that notifies the observer and adds the time when the instruction is timed
+	 */
+	public RobotEngineObserver wrapRobotObserver(final RobotEngineObserver observer) {
+		return new RobotEngineObserver() {
+			public void communicationCompleted() {
+				if (NotificationTimer.this.timing) {
+					long start = System.nanoTime();
+					observer.communicationCompleted();
+					NotificationTimer.this.add(start);
+				}
+				else
+					observer.communicationCompleted();
+			}
+
+			public void communicationHelp(String help) {
+				if (NotificationTimer.this.timing) {
+					long start = System.nanoTime();
+					observer.communicationHelp(help);
+					NotificationTimer.this.add(start);
+				}
+				else
+					observer.communicationHelp(help);
+			}
+
+			public void engineOff(boolean atShip) {
+				if (NotificationTimer.this.timing) {
+					long start = System.nanoTime();
+					observer.engineOff(atShip);
+					NotificationTimer.this.add(start);
+				}
+				else
+					observer.engineOff(atShip);
+			}
+
+			public void raiseError(String msg) {
+				if (NotificationTimer.this.timing) {
+					long start = System.nanoTime();
+					observer.raiseError(msg);
+					NotificationTimer.this.add(start);
+				}
+				else
+					observer.raiseError(msg);
+			}
+
+			public void robotSays(String message) {
+				if (NotificationTimer.this.timing) {
+					long start = System.nanoTime();
+					observer.robotSays(message);
+					NotificationTimer.this.add(start);
+				}
+				else
+					observer.robotSays(message);
+			}
+
+			public void robotUpdate(int fuel, int recycledMaterial) {
+				if (NotificationTimer.this.timing) {
+					long start = System.nanoTime();
+					observer.robotUpdate(fuel, recycledMaterial);
+					NotificationTimer.this.add(start);
+				}
+				else
+					observer.robotUpdate(fuel, recycledMaterial);
+			}
+
+			public void fuelToShipUpdate(int fuelToShip, boolean canReach) {
+				if (NotificationTimer.this.timing) {
+					long start = System.nanoTime();
+					observer.fuelToShipUpdate(fuelToShip, canReach);
+					NotificationTimer.this.add(start);
+				}
+				else
+					observer.fuelToShipUpdate(fuelToShip, canReach);
+			}
+		};
+	}
+
+	/**
+	 * Wraps an observer of the navigation module
+	 * @param observer The observer
+	 * @return An observer that notifies the observer and adds the time when the instruction is timed
+	 */
+	public NavigationObserver wrapNavigationObserver(final NavigationObserver observer) {
+		return new NavigationObserver() {
+			public void headingChanged(Direction newHeading) {
+				if (NotificationTimer.this.timing) {
+					long start = System.nanoTime();
+					observer.headingChanged(newHeading);
+					NotificationTimer.this.add(start);
+				}
+				else
+					observer.headingChanged(newHeading);
+			}
+
+			public void initNavigationModule(PlaceInfo initialPlace, Direction heading) {
+				if (NotificationTimer.this.timing) {
+					long start = System.nanoTime();
+					observer.initNavigationModule(initialPlace, heading);
+					NotificationTimer.this.add(start);
+				}
+				else
+					observer.initNavigationModule(initialPlace, heading);
+			}
+
+			public void placeHasChanged(PlaceInfo placeDescription) {
+				if (NotificationTimer.this.timing) {
+					long start = System.nanoTime();
+					observer.placeHasChanged(placeDescription);
+					NotificationTimer.this.add(start);
+				}
+				else
+					observer.placeHasChanged(placeDescription);
+			}
+
+			public void placeScanned(PlaceInfo placeDescription) {
+				if (NotificationTimer.this.timing) {
+					long start = System.nanoTime();
+					observer.placeScanned(placeDescription);
+					NotificationTimer.this.add(start);
+				}
+				else
+					observer.placeScanned(placeDescription);
+			}
+
+			public void robotArrivesAtPlace(Direction heading, PlaceInfo place) {
+				if (NotificationTimer.this.timing) {
+					long start = System.nanoTime();
+					observer.robotArrivesAtPlace(heading, place);
+					NotificationTimer.this.add(start);
+				}
+				else
+					observer.robotArrivesAtPlace(heading, place);
+			}
+		};
+	}
+
+	/**
+	 * Wraps an observer of an item container
+	 * @param observer The observer
+	 * @return An observer that notifies the observer and adds the time when the instruction is timed
+	 */
+	public InventoryObserver wrapInventoryObserver(final InventoryObserver observer) {
+		return new InventoryObserver() {
+			public void inventoryChange(List<Item> inventory) {
+				if (NotificationTimer.this.timing) {
+					long start = System.nanoTime();
+					observer.inventoryChange(inventory);
+					NotificationTimer.this.add(start);
+				}
+				else
+					observer.inventoryChange(inventory);
+			}
+
+			public void itemAdded(Item item, int index) {
+				if (NotificationTimer.this.timing) {
+					long start = System.nanoTime();
+					observer.itemAdded(item, index);
+					NotificationTimer.this.add(start);
+				}
+				else
+					observer.itemAdded(item, index);
+			}
+
+			public void itemRemoved(Item item, int index) {
+				if (NotificationTimer.this.timing) {
+					long start = System.nanoTime();
+					observer.itemRemoved(item, index);
+					NotificationTimer.this.add(start);
+				}
+				else
+					observer.itemRemoved(item, index);
+			}
+
+			public void itemUsageChanged(Item item, int index) {
+				if (NotificationTimer.this.timing) {
+					long start = System.nanoTime();
+					observer.itemUsageChanged(item, index);
+					NotificationTimer.this.add(start);
+				}
+				else
+					observer.itemUsageChanged(item, index);
+			}
+		};
+	}
+}
@@ -6,13 +6,18 @@ import tp.pr5.items.ItemContainer;
 /**
  * It represents a place in the city. Places are connected by streets according to the 4 compass directions: North, East, South and West. Every place has a name and a textual description about itself. This description is displayed when the robot arrives at the place.
  * A place can represent the spaceship where the robot is safe. When the robot arrives at this place, the robot shuts down and the application will finish.
+ * A place of a map has the number that it has in the file, and two places are equal if they have the same number.
  * @author Juan Manuel Carrera García  
  */
 public class Place implements PlaceInfo {
+	private int id;
 	private String nombre;
 	private String descripcion;
 	private boolean estaNaveEspacial;
 	private ItemContainer container;
+	private Place template;
+	private String text;
+	private int textChanges;
 	
 	// -------------------------------------------- CONSTRUCTORAS -------------------------------------
 	
@@ -23,13 +28,45 @@ public class Place implements PlaceInfo {
 	 * @param description Place description
 	 */
 	public Place (String name, boolean isSpaceShip, String description) {
+		this(-1, name, isSpaceShip, description);
+	}
+	
+	/**
+	 * Creates a place of a map
+	 * @param id The number of the place in the map, from 0
+	 * @param name Place name
+	 * @param isSpaceShip Is it a spaceship?
+	 * @param description Place description
+	 */
+	public Place (int id, String name, boolean isSpaceShip, String description) {
+		this.id = id;
 		this.nombre = name;
 		this.descripcion = description;
 		this.estaNaveEspacial = isSpaceShip;
 		this.container = new ItemContainer ();
 	}
 	
+	/**
+	 * Creates a place of a session that shares the name, the description and the items of a place of a city template.
+	 * The items are copied the first time that they change, so the template is never changed
+	 * @param template The place of the template
+	 */
+	public Place (Place template) {
+		this.id = template.id;
+		this.nombre = template.nombre;
+		this.descripcion = template.descripcion;
+		this.estaNaveEspacial = template.estaNaveEspacial;
+		this.container = null;
+		this.template = template;
+	}
+	
 	// ---------------------------- GETTER Y SETTER -------------------------
+	/**
+	 * @return The number of the place in the map, or -1 if it is not a place of a map
+	 */
+	public int getId() {
+		return this.id;
+	}
 	/**
 	 * @return A string with the name of the place
 	 */
@@ -42,25 +79,59 @@ public class Place implements PlaceInfo {
 	public String getDescription() {
 		return this.descripcion;
 	}
+	/**
+	 * @return The place of the template that this place copies, or null if it is not a place of a session
+	 */
+	public Place getTemplate() {
+		return this.template;
+	}
 	// ---------------------------- REIMPLEMENTACIÓN MÉTODOS EQUALS() Y TOSTRING() -------------------------
 	
-	public boolean equals(Place p) {
-		return (this.nombre == p.nombre && this.descripcion == p.descripcion
-				&& this.estaNaveEspacial == p.estaNaveEspacial && this.container == p.container);
+	/**
+	 * Two places of a map are equal if they have the same number, as a place of a session and the place of the template that it copies.
+	 * A place that is not of a map is only equal to itself
+	 * @param obj The other object
+	 * @return true if obj is the same place
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		return (this == obj) || (this.id >= 0 && obj instanceof Place && ((Place) obj).id == this.id);
+	}
+	
+	/**
+	 * @return The number of the place in the map, or the hash of the object if it is not a place of a map
+	 */
+	@Override
+	public int hashCode() {
+		return (this.id >= 0) ? this.id : super.hashCode();
 	}
 
 	/**
-	 * Overrides toString method. Returns the place name and its description
+	 * Overrides toString method. Returns the place name and its description.
+	 * The text is kept until the items of the place change, and a place of a session that has not changed its items returns the text of the template
 	 */
 	public String toString() {
-		String aux = this.nombre + Interpreter.LINE_SEPARATOR
-				+ this.descripcion + Interpreter.LINE_SEPARATOR;
-
-		if (this.container.toString() == "")
-			aux = aux + "The place is empty. There are no objects to pick";
-		else
-			aux = aux + "The place contains these objects:"
-					+ Interpreter.LINE_SEPARATOR + this.container.toString();
+		String aux;
+		
+		if (this.container == null)
+			aux = this.template.toString();
+		else {
+			if (this.text == null || this.textChanges != this.container.getChanges()) {
+				StringBuilder builder = new StringBuilder();
+				builder.append(this.nombre).append(Interpreter.LINE_SEPARATOR)
+						.append(this.descripcion).append(Interpreter.LINE_SEPARATOR);
+				
+				if (this.container.numberOfItems() == 0)
+					builder.append("The place is empty. There are no objects to pick");
+				else
+					this.container.appendTo(builder.append("The place contains these objects:")
+							.append(Interpreter.LINE_SEPARATOR));
+				
+				this.text = builder.toString();
+				this.textChanges = this.container.getChanges();
+			}
+			aux = this.text;
+		}
 
 		return aux;
 	}
@@ -75,7 +146,7 @@ public class Place implements PlaceInfo {
 	 * @return true if and only if the item can be added to the place, i.e., the place does not contain an item with the same name
 	 */
 	public boolean addItem (Item item) {
-		return this.container.addItem(item);
+		return this.itemsToChange().addItem(item);
 	}
 	
 	// --------------------------- MÉTODO PARA COGER Y ELIMINAR UN ÍTEM DEL LUGAR ------------------------
@@ -86,7 +157,12 @@ public class Place implements PlaceInfo {
 	 * @return The item of identifier id if it exists in the place. Otherwise the method returns null
 	 */
 	public Item pickItem (String id) {
-		return this.container.pickItem(id);
+		Item aux = null;
+		
+		if (this.items().containsItem(id))
+			aux = this.itemsToChange().pickItem(id);
+		
+		return aux;
 	}
 	
 	// ------------------------------ MÉTODO PARA BUSCAR UN ÍTEM EN UN LUGAR --------------------------------
@@ -96,7 +172,7 @@ public class Place implements PlaceInfo {
 	 * @return Item with that name or null if the container does not store an item with that name
 	 */
 	public Item findItem(String id) {
-		return this.container.getItem(id);
+		return this.items().getItem(id);
 	}
 	
 	// ------------------------- MÉTODO PARA COMPROBAR SI UN LUGAR TIENE NAVE ESPACIAL ----------------------
@@ -109,6 +185,25 @@ public class Place implements PlaceInfo {
 		return this.estaNaveEspacial;
 	}
 	
+	// ----------------------------- MÉTODOS PARA RECORRER LOS ÍTEMS DE UN LUGAR ---------------------------
+	
+	/**
+	 * Returns the number of items in the place
+	 * @return the number of items
+	 */
+	public int numberOfItems() {
+		return this.items().numberOfItems();
+	}
+	
+	/**
+	 * Get the item in the i position of the place. The items are sorted by their identifiers
+	 * @param i position of the item
+	 * @return the item in the position
+	 */
+	public Item getItem(int i) {
+		return this.items().getItem(i);
+	}
+	
 	// ----------------------------- MÉTODO PARA VER SI EXISTE UN ÍTEM EN UN LUGAR ---------------------------
 		
 	/**
@@ -117,7 +212,7 @@ public class Place implements PlaceInfo {
 	 * @return The item of identifier id if it exists in the place. Otherwise the method returns null
 	 */
 	public boolean existItem(String id) {
-		return this.container.containsItem(id);
+		return this.items().containsItem(id);
 	}
 	
 	// ---------------------------------- MÉTODO DEJAR UN ÍTEM EN UN LUGAR ------------------------------------
@@ -131,11 +226,34 @@ public class Place implements PlaceInfo {
 		boolean ok = false;
 		
 		if (!this.existItem(it.getId())) {
-			this.container.addItem(it);
+			this.itemsToChange().addItem(it);
 			ok = true;
 		} 
 		
 		return ok;
 	}	
+	
+	// ------------------------------- MÉTODOS PARA COPIAR LOS ÍTEMS DE LA PLANTILLA -------------------------------
+	
+	/**
+	 * @return The container of the items of the place, that is the one of the template while the items have not changed
+	 */
+	private ItemContainer items() {
+		return (this.container == null) ? this.template.items() : this.container;
+	}
+	
+	/**
+	 * Copies the items of the template the first time that they are going to change
+	 * @return The container of the place
+	 */
+	private ItemContainer itemsToChange() {
+		if (this.container == null) {
+			ItemContainer aux = new ItemContainer();
+			ItemContainer items = this.template.items();
+			for (int i = 0; i < items.numberOfItems(); i++)
+				aux.addItem(items.getItem(i).copy());
+			this.container = aux;
+		}
+		return this.container;
+	}
 }
-
@@ -0,0 +1,232 @@
+package tp.pr5;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import tp.pr5.instructions.Instruction;
+import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
+
+/**
+ * The log of a game, so it can be restored after the application ends. It has two files:
+ *
+ *  The journal, where every instruction executed by the engine is appended as a line, as it is written in the console.
+ *  The lines are written to disk in groups: when there are many of them or some time has passed since the last group.
+ *  The snapshot (the name of the journal with .snap), that is written every some instructions with the state of the game and
+ *  the length of the journal at that moment. It is written in other file that then replaces the old one, so there is always a complete snapshot.
+ *
+ * To restore the game, the city is loaded again, the snapshot is read and only the instructions of the journal after it are executed again.
+ * A line that was not completely written when the application ended is discarded.
+ * @author Juan Manuel Carrera García
+ */
+public class ReplayLog {
+	/**
+	 * The number of instructions between two snapshots if no other interval is configured
+	 */
+	public static final int DEFAULT_SNAPSHOT_INTERVAL = 10000;
+
+	private static final int MAGIC = 0x57414C4A;
+	private static final int VERSION = 2;
+	private static final int SYNC_BATCH = 256;
+	private static final long SYNC_NANOS = 50000000L;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private File journalFile;
+	private File snapshotFile;
+	private int snapshotInterval;
+	private RobotEngine engine;
+	private FileChannel channel;
+	private OutputStream out;
+	private long count;
+	private long length;
+	private int unsynced;
+	private long lastSync;
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates the log of a game. The files are not opened until the game is restored
+	 * @param journal The file of the journal
+	 * @param snapshotInterval The number of instructions between two snapshots, or 0 to write only the journal
+	 */
+	public ReplayLog(File journal, int snapshotInterval) {
+		this.journalFile = journal;
+		this.snapshotFile = new File(journal.getPath() + ".snap");
+		this.snapshotInterval = snapshotInterval;
+	}
+
+	// ---------------------------- SETTER Y GETTER ------------------------------------
+
+	/**
+	 * @return The number of instructions of the game, the ones restored and the ones appended
+	 */
+	public synchronized long getCount() {
+		return this.count;
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Restores the game in an engine that has just started over the city as it was loaded, and opens the journal to append the next instructions.
+	 * It is called by the engine
+	 * @param robot The engine
+	 * @return The number of instructions of the journal executed again
+	 * @throws IOException If the files cannot be read or they are not a log of this city
+	 */
+	synchronized long restore(RobotEngine robot) throws IOException {
+		long offset = 0;
+		long replayed = 0;
+
+		this.count = 0;
+		if (this.snapshotFile.exists()) {
+			ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(this.snapshotFile), BUFFER_SIZE));
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != VERSION)
+					throw new IOException("Wrong snapshot: " + this.snapshotFile);
+				this.count = in.readLong();
+				offset = in.readLong();
+				robot.readState(in);
+			} finally {
+				in.close();
+			}
+		}
+
+		this.length = offset;
+		if (this.journalFile.exists()) {
+			InputStream in = new BufferedInputStream(new FileInputStream(this.journalFile), BUFFER_SIZE);
+			try {
+				ByteArrayOutputStream line = new ByteArrayOutputStream();
+				long read = ReplayLog.skip(in, offset);
+				if (read < offset)
+					throw new IOException("The journal is shorter than the snapshot: " + this.journalFile);
+
+				for (int b = in.read(); b != -1; b = in.read()) {
+					read++;
+					if (b != '\n')
+						line.write(b);
+					else {
+						robot.comunicateRobot(Interpreter.generateInstruction(new String(line.toByteArray(), StandardCharsets.UTF_8)));
+						line.reset();
+						this.length = read;
+						this.count++;
+						replayed++;
+					}
+				}
+			} catch (WrongInstructionFormatException e) {
+				throw new IOException("Wrong instruction in the journal at byte " + this.length + ": " + this.journalFile);
+			} finally {
+				in.close();
+			}
+		}
+
+		this.channel = FileChannel.open(this.journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		this.channel.truncate(this.length);
+		this.channel.position(this.length);
+		this.out = new BufferedOutputStream(Channels.newOutputStream(this.channel), BUFFER_SIZE);
+		this.lastSync = System.nanoTime();
+		this.engine = robot;
+
+		return replayed;
+	}
+
+	/**
+	 * Appends an instruction to the journal. The journal is written to disk if there are many instructions waiting or some time has passed,
+	 * and a snapshot is written every some instructions
+	 * @param ins The instruction executed by the engine
+	 * @throws IOException If the journal or the snapshot cannot be written
+	 */
+	public synchronized void append(Instruction ins) throws IOException {
+		byte[] line = (ins.toString() + "\n").getBytes(StandardCharsets.UTF_8);
+
+		this.out.write(line);
+		this.length += line.length;
+		this.count++;
+		this.unsynced++;
+		if (this.unsynced >= SYNC_BATCH || System.nanoTime() - this.lastSync >= SYNC_NANOS)
+			this.sync();
+		if (this.snapshotInterval > 0 && this.count % this.snapshotInterval == 0)
+			this.snapshot();
+	}
+
+	/**
+	 * Writes to disk the instructions of the journal that are waiting
+	 * @throws IOException If the journal cannot be written
+	 */
+	public synchronized void sync() throws IOException {
+		this.out.flush();
+		this.channel.force(false);
+		this.unsynced = 0;
+		this.lastSync = System.nanoTime();
+	}
+
+	/**
+	 * Writes a snapshot of the game in a temporary file, that then replaces the last snapshot
+	 * @throws IOException If the snapshot cannot be written
+	 */
+	public synchronized void snapshot() throws IOException {
+		File tmp = new File(this.snapshotFile.getPath() + ".tmp");
+		FileOutputStream file = new FileOutputStream(tmp);
+
+		this.sync();
+		try {
+			ObjectOutputStream snap = new ObjectOutputStream(new BufferedOutputStream(file, BUFFER_SIZE));
+			snap.writeInt(MAGIC);
+			snap.writeInt(VERSION);
+			snap.writeLong(this.count);
+			snap.writeLong(this.length);
+			this.engine.writeState(snap);
+			snap.flush();
+			file.getChannel().force(true);
+		} finally {
+			file.close();
+		}
+		Files.move(tmp.toPath(), this.snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Writes to disk the instructions that are waiting and closes the journal
+	 */
+	public synchronized void close() {
+		if (this.channel != null) {
+			try {
+				this.sync();
+				this.channel.close();
+			} catch (IOException e) {
+				// The journal keeps the instructions written before
+			}
+			this.channel = null;
+		}
+	}
+
+	/**
+	 * Skips bytes of a stream
+	 * @param in The stream
+	 * @param n The number of bytes
+	 * @return The number of bytes skipped, less than n only if the stream ends before
+	 * @throws IOException If the stream cannot be read
+	 */
+	private static long skip(InputStream in, long n) throws IOException {
+		long skipped = 0;
+
+		while (skipped < n && in.read() != -1) {
+			skipped++;
+			skipped += in.skip(n - skipped);
+		}
+
+		return skipped;
+	}
+}
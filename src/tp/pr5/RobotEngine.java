@@ -1,24 +1,39 @@
 package tp.pr5;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Iterator;
 import java.util.List;
 import tp.pr5.instructions.Instruction;
 import tp.pr5.instructions.exceptions.InstructionExecutionException;
 import tp.pr5.items.InventoryObserver;
+import tp.pr5.items.Item;
 import tp.pr5.items.ItemContainer;
+import tp.pr5.jfr.InstructionEvent;
+import tp.pr5.jfr.NotificationEvent;
 
 /**
  * This class represents the robot engine. It controls robot movements by processing the instructions introduced with the keyboard. The engine stops when the robot arrives at the spaceship or receives a quit instruction,
  * @author Juan Manuel Carrera García
  */
 public class RobotEngine extends tp.pr5.Observable<RobotEngineObserver>{
+	/**
+	 * The fuel of the robot when the simulation starts
+	 */
+	public static final int INITIAL_FUEL = 100;
+	
 	private ItemContainer container;
 	private int fuel;
 	private int weight;
 	private NavigationModule nav;
 	private boolean endExecution;
-	private List<Instruction> instrucUndo;
+	private UndoJournal journal;
+	private ReplayLog replayLog;
+	private boolean restored;
+	private RoutePlanner planner;
+	private boolean fuelToShipUpdates;
+	private NotificationTimer notificationTimer;
 	
 
 	// -------------------------------------- CONSTRUCTORA -------------------------------
@@ -30,11 +45,22 @@ public class RobotEngine extends tp.pr5.Observable<RobotEngineObserver>{
 	 * @param cityMap City map
 	 */
 	public RobotEngine(City cityMap, Place initialPlace, Direction direction) {
+		this((CityMap) cityMap, initialPlace, direction);
+	}
+	
+	/**
+	 * Create robot engine over any city map, as the city of a session of the server
+	 * @param cityMap City map
+	 * @param initialPlace Initial place of the robot
+	 * @param direction Initial direction of the robot
+	 */
+	public RobotEngine(CityMap cityMap, Place initialPlace, Direction direction) {
 		super();
 		this.nav = new NavigationModule(cityMap, initialPlace);
 		this.nav.initHeading(direction);
 		this.container = new ItemContainer();
-		this.instrucUndo = new ArrayList<Instruction>();
+		this.journal = new UndoJournal(this, this.nav, this.container, UndoJournal.DEFAULT_LIMIT);
+		this.notificationTimer = new NotificationTimer();
 	}
 	
 	
@@ -47,6 +73,20 @@ public class RobotEngine extends tp.pr5.Observable<RobotEngineObserver>{
 		return this.fuel;
 	}
 	
+	/**
+	 * @return The place where the robot is
+	 */
+	public Place getCurrentPlace() {
+		return this.nav.getCurrentPlace();
+	}
+	
+	/**
+	 * @return The direction where the robot is facing to
+	 */
+	public Direction getCurrentHeading() {
+		return this.nav.getCurrentHeading();
+	}
+	
 	/**
 	 * Configure the fuel
 	 * @param fuel
@@ -56,6 +96,24 @@ public class RobotEngine extends tp.pr5.Observable<RobotEngineObserver>{
 		this.printRobotState();
 	}
 	
+	/**
+	 * Makes the engine inform its observers of the fuel to the spaceship when the simulation starts and after every instruction that can change it.
+	 * It is only asked by the interfaces that show it, so the other games never compute the fuel to the spaceship unless the robot is asked for it.
+	 * It must be called before the simulation starts
+	 * @param updates true to inform the observers of the fuel to the spaceship
+	 */
+	public void setFuelToShipUpdates(boolean updates) {
+		this.fuelToShipUpdates = updates;
+	}
+	
+	/**
+	 * Configures the number of instructions that can be undone
+	 * @param limit The maximum number of instructions kept in the journal
+	 */
+	public void setUndoLimit(int limit) {
+		this.journal.setLimit(limit);
+	}
+	
 	/**
 	 * @return A integer with the the Recycled Material
 	 */
@@ -99,26 +157,32 @@ public class RobotEngine extends tp.pr5.Observable<RobotEngineObserver>{
 	// ---------------------------- MÉTODOS PARA AÑADIR OBSERVADORES --------------
 	
 	/**
-	 * Registers an EngineObserver to the model
+	 * Registers an EngineObserver to the model. If the instruction statistics are enabled, its notifications are timed
 	 * @param observer The observer that wants to be registered
 	 */
 	public void addEngineObserver(RobotEngineObserver observer) {
+		if (InstructionStats.getDefault().isEnabled())
+			observer = this.notificationTimer.wrapRobotObserver(observer);
 		addObserver(observer);
 	}
 	
 	/**
-	 * Registers an ItemContainerObserver to the model
+	 * Registers an ItemContainerObserver to the model. If the instruction statistics are enabled, its notifications are timed
 	 * @param observer The observer that wants to be registered
 	 */
 	public void addItemContainerObserver(InventoryObserver observer) {
+		if (InstructionStats.getDefault().isEnabled())
+			observer = this.notificationTimer.wrapInventoryObserver(observer);
 		this.container.addObserver(observer);
 	}
 	
 	/**
-	 * Register a NavigationObserver to the model
+	 * Register a NavigationObserver to the model. If the instruction statistics are enabled, its notifications are timed
 	 * @param robotObserver The observer that wants to be registered
 	 */
 	public void addNavigationObserver(NavigationObserver observer) {
+		if (InstructionStats.getDefault().isEnabled())
+			observer = this.notificationTimer.wrapNavigationObserver(observer);
 		this.nav.addObserver(observer);
 	}
 	
@@ -136,40 +200,208 @@ public class RobotEngine extends tp.pr5.Observable<RobotEngineObserver>{
 	/**
 	 * It executes an instruction. The instruction must be configured with the context before executing it. 
 	 * It controls the end of the simulation. If the execution of the instruction throws an exception, 
-	 * then the corresponding message is printed
+	 * then the corresponding message is printed. After an instruction that can change the fuel to the spaceship the observers are informed of it.
+	 * The instruction is recorded in the InstructionStats if they are enabled, and as an InstructionEvent if Java Flight Recorder is recording it
 	 * @param c The instruction to be executed
 	 */
 	public void comunicateRobot(Instruction c){
+		InstructionStats stats = InstructionStats.getDefault();
+		InstructionEvent event = new InstructionEvent();
+		Place place = this.nav.getCurrentPlace();
+		int fuelBefore = this.fuel;
+		long start = stats.start();
+		boolean failed = false;
+		
+		event.begin();
+		this.notificationTimer.begin(start != InstructionStats.DISABLED && start != InstructionStats.NOT_TIMED);
 		c.configureContext(this, this.nav, this.container);
 		try {
 			c.execute();	
-			this.instrucUndo.add(c);
+			c.addToJournal(this.journal);
+			if (this.replayLog != null)
+				this.logInstruction(c);
 			if (this.isOver())
 				this.endExecute();
 		} catch (InstructionExecutionException e) {
+			failed = true;
 			this.requestError(e.getMessage());
 		}
+		if (this.fuelToShipUpdates && !failed && !this.isOver() && RobotEngine.changesFuelToShip(c))
+			this.notifyObserversRobotEngine(TypeMessage.FUEL_TO_SHIP, null);
+		stats.executed(start, this.notificationTimer.end(), c, failed);
+		if (event.shouldCommit())
+			event.commit(InstructionStats.kindOf(c).name(), place.getName(), fuelBefore, this.fuel, failed);
 	}
 	
 	/**
-	 * It executes an undo instruction. The undo instruction must be configured with the context before executing it. 
-	 * It controls the end of the simulation. If the execution of the instruction throws an exception, 
+	 * It undoes the last instruction kept in the journal. If it cannot be undone, 
 	 * then the corresponding message is printed
-	 * @param c The instruction to be executed
 	 */
 	public void comunicateRobotUndo(){
-		Instruction ins = this.getIntructionForUndo();
-		
 		try {
-			if (ins == null) 
-				throw new InstructionExecutionException("No more instruction for Undo");
+			this.journal.undo();			
+		} catch (InstructionExecutionException e) {
+			this.requestError(e.getMessage());
+		}
+	}
 	
-			ins.executeUndo();			
+	/**
+	 * It redoes the last instruction undone. If it cannot be redone, 
+	 * then the corresponding message is printed
+	 */
+	public void comunicateRobotRedo(){
+		try {
+			this.journal.redo();
 		} catch (InstructionExecutionException e) {
 			this.requestError(e.getMessage());
 		}
 	}
 	
+	// -------------------- MÉTODOS PARA GUARDAR Y RECUPERAR LA PARTIDA -------------------
+	
+	/**
+	 * Restores the game kept in a replay log and keeps the next instructions in it. It must be called before the observers are registered
+	 * and before the simulation starts, with the city as it was loaded: the latest snapshot is read and the instructions after it are executed again.
+	 * A game that was ended with QUIT goes on
+	 * @param log The replay log of the game
+	 * @return The number of instructions executed again
+	 * @throws IOException If the log cannot be read or it is not a log of this city
+	 */
+	public long restoreFrom(ReplayLog log) throws IOException {
+		this.requestStart();
+		long replayed = log.restore(this);
+		this.endExecution = false;
+		this.restored = true;
+		this.replayLog = log;
+		
+		return replayed;
+	}
+	
+	/**
+	 * Writes the state of the game: fuel, recycled material, place, heading, streets, items and journal of undo
+	 * @param out The stream of the snapshot
+	 * @throws IOException If the stream cannot be written
+	 */
+	void writeState(ObjectOutputStream out) throws IOException {
+		Item[] items = new Item[this.container.numberOfItems()];
+		
+		for (int i = 0; i < items.length; i++)
+			items[i] = this.container.getItem(i);
+		out.writeInt(this.fuel);
+		out.writeInt(this.weight);
+		this.nav.writeState(out);
+		out.writeObject(items);
+		this.journal.writeState(out);
+	}
+	
+	/**
+	 * Reads the state of the game written by writeState
+	 * @param in The stream of the snapshot
+	 * @throws IOException If the stream cannot be read or it is not a snapshot of this city
+	 */
+	void readState(ObjectInputStream in) throws IOException {
+		this.fuel = in.readInt();
+		this.weight = in.readInt();
+		this.nav.readState(in);
+		try {
+			this.container.setItems((Item[]) in.readObject());
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("Wrong inventory in the snapshot", e);
+		}
+		this.journal.readState(in);
+	}
+	
+	/**
+	 * Keeps an instruction in the replay log. If the log cannot be written, the error is printed and the game goes on without it
+	 * @param c The instruction executed
+	 */
+	private void logInstruction(Instruction c) {
+		try {
+			this.replayLog.append(c);
+		} catch (IOException e) {
+			this.replayLog = null;
+			this.requestError("The replay log cannot be written: " + e.getMessage());
+		}
+	}
+	
+	// -------------------- MÉTODO QUE PLANIFICA UNA RUTA HASTA UN LUGAR -------------------
+	
+	/**
+	 * Plans the route that spends less fuel from the current place of the robot to a target place. 
+	 * Closed streets are only crossed if the robot carries the code card that opens them
+	 * @param target The place where the robot wants to arrive
+	 * @return The instructions to be communicated to the robot, or null if the target cannot be reached
+	 */
+	public List<Instruction> planRouteTo(Place target) {
+		if (this.planner == null)
+			this.planner = new RoutePlanner(this.nav.getCityMap());
+		return this.planner.cheapestRoute(this.nav, this.container, target);
+	}
+	
+	// -------------------- MÉTODOS QUE CONSULTAN EL COMBUSTIBLE HASTA LA NAVE -------------------
+	
+	/**
+	 * Fuel spent by the cheapest route from the current place and heading of the robot to a spaceship. 
+	 * The fuel of the city is computed the first time that a game over the city asks for it
+	 * @return The fuel, 0 in a spaceship, or FuelMap.UNREACHABLE if no spaceship can be reached
+	 */
+	public int getFuelToShip() {
+		return this.getFuelMap().getFuelToShip(this.currentPlaceIndex(), this.nav.getCurrentHeading());
+	}
+	
+	/**
+	 * Checks in constant time if the robot can still arrive at a spaceship with its fuel, without picking more fuel
+	 * @return true if the fuel of the robot is enough for the cheapest route to a spaceship
+	 */
+	public boolean canReachShip() {
+		return this.getFuelMap().canReachShip(this.currentPlaceIndex(), this.nav.getCurrentHeading(), this.fuel);
+	}
+	
+	/**
+	 * Requests the engine to say how much fuel the robot needs to arrive at a spaceship and if it has enough
+	 */
+	public void requestFuelToShip() {
+		int toShip = this.getFuelToShip();
+		
+		if (toShip == FuelMap.UNREACHABLE)
+			this.saySomething("WALL·E says: I cannot find a way to my spaceship");
+		else if (this.canReachShip())
+			this.saySomething("WALL·E says: My spaceship is " + toShip + " of fuel away. I can arrive with my fuel");
+		else
+			this.saySomething("WALL·E says: My spaceship is " + toShip + " of fuel away. I cannot arrive with my fuel");
+	}
+	
+	/**
+	 * Checks if an instruction can change the fuel to the spaceship, because it moves or turns the robot or opens a street
+	 * @param c The instruction
+	 * @return true for MOVE, TURN, OPERATE, UNDO and REDO
+	 */
+	private static boolean changesFuelToShip(Instruction c) {
+		boolean aux;
+		
+		switch (InstructionStats.kindOf(c)) {
+		case MOVE: case TURN: case OPERATE: case UNDO: case REDO: aux = true;
+		break;
+		default: aux = false;
+		}
+		
+		return aux;
+	}
+	
+	/**
+	 * @return The fuel to the spaceships of the city, shared by all the games over the city
+	 */
+	private FuelMap getFuelMap() {
+		return this.nav.getCityMap().getFuelMap(this.container);
+	}
+	
+	/**
+	 * @return The index of the current place of the robot in its city
+	 */
+	private int currentPlaceIndex() {
+		return this.nav.getCityMap().indexOf(this.nav.getCurrentPlace());
+	}
+	
 	// -------------------- MÉTODO PARA ACTUALIZAR EL ROBOT Y COMPROBAR SI HEMOS ACABADO -------------------
 	
 	// -------------------- MÉTODO PARA RESPONDER A LA INSTRUCCIÓN DE HELP -------------------
@@ -227,13 +459,17 @@ public class RobotEngine extends tp.pr5.Observable<RobotEngineObserver>{
 	// -------------------- MÉTODO PARA INDICAR A LOS OBSERVADORES -------------------
 	
 	/**
-	 * Requests the engine to inform the observers that the simulation starts
+	 * Requests the engine to inform the observers that the simulation starts, with the state of the robot and, if they want it, its fuel to the spaceship
 	 */
 	public void requestStart() {
-		this.fuel = 100;
-		this.weight = 0;
+		if (!this.restored) {
+			this.fuel = RobotEngine.INITIAL_FUEL;
+			this.weight = 0;
+		}
 		this.endExecution = false;
 		this.printRobotState();
+		if (this.fuelToShipUpdates)
+			this.notifyObserversRobotEngine(TypeMessage.FUEL_TO_SHIP, null);
 	}
 		
 	// ------------ MÉTODO QUE COMPRUEBA EL FUEL DE DESPUÉS DE EJECUTAR UNA INSTRUCCIÓN ------
@@ -282,27 +518,22 @@ public class RobotEngine extends tp.pr5.Observable<RobotEngineObserver>{
 		this.notifyObserversRobotEngine(TypeMessage.UPDATE_ROBOT, null);
 	}
 
-	// -------------------- DA UNA INSTRUCTCIÓN AL MAINWINDOW PARA EJECUTAR UN UNDO -------------------
 	/**
-	 * Gives an instruction to the MainWindow for the instruction Undo
-	 */
-	public Instruction getIntructionForUndo() {
-		Instruction ins = null;
-		if (!instrucUndo.isEmpty()) {
-			ins = instrucUndo.get(instrucUndo.size() - 1);
-			instrucUndo.remove(instrucUndo.size() - 1);
-		}
-		return ins;
-	}
-	
-	/**
-	 * Notifies observers with the changes that have occurred
+	 * Notifies observers with the changes that have occurred. The notification is recorded as a NotificationEvent when Java Flight Recorder is recording it
 	 * @param tipoMensaje Type of Message to to call the correct method
 	 * @param message Message to show of the interface
 	 */
 	private void notifyObserversRobotEngine (TypeMessage tipoMensaje, String message) {
+		NotificationEvent event = new NotificationEvent();
 		Iterator<RobotEngineObserver> it = this.iterator();
+		int observers = 0;
+		// The fuel to the spaceship is only looked for if someone is informed of it
+		int toShip = (tipoMensaje == TypeMessage.FUEL_TO_SHIP && it.hasNext()) ? this.getFuelToShip() : FuelMap.UNREACHABLE;
+		boolean canReach = toShip != FuelMap.UNREACHABLE && this.canReachShip();
+		
+		event.begin();
 		while (it.hasNext()) {
+			observers++;
 			switch (tipoMensaje) {
 			case REQUEST_HELP: it.next().communicationHelp(Interpreter.interpreterHelp());
 			break;
@@ -318,9 +549,13 @@ public class RobotEngine extends tp.pr5.Observable<RobotEngineObserver>{
 			break;
 			case UPDATE_ROBOT: it.next().robotUpdate(this.fuel, this.weight);
 			break;
+			case FUEL_TO_SHIP: it.next().fuelToShipUpdate(toShip, canReach);
+			break;
 			default: break;
 			}
 		}
+		if (event.shouldCommit())
+			event.commit("RobotEngine", tipoMensaje.name(), observers);
 	}
 }
 		
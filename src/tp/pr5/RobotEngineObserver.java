@@ -41,4 +41,12 @@ public interface RobotEngineObserver {
 	 * @param recycledMaterial Current amount of recycled material
 	 */
 	void robotUpdate(int fuel, int recycledMaterial);
+	
+	/**
+	 * The robot engine informs of the fuel that the robot needs to arrive at a spaceship, when the simulation starts and after
+	 * an instruction that can change it (MOVE, TURN, OPERATE, UNDO or REDO)
+	 * @param fuelToShip The fuel of the cheapest route to a spaceship, 0 in a spaceship, or FuelMap.UNREACHABLE if no spaceship can be reached
+	 * @param canReach true if the fuel of the robot is enough to arrive at a spaceship
+	 */
+	void fuelToShipUpdate(int fuelToShip, boolean canReach);
 }
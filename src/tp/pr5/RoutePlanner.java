@@ -0,0 +1,499 @@
+package tp.pr5;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import tp.pr5.instructions.Instruction;
+import tp.pr5.instructions.MoveInstruction;
+import tp.pr5.instructions.OperateInstruction;
+import tp.pr5.instructions.TurnInstruction;
+import tp.pr5.items.CodeCard;
+import tp.pr5.items.Item;
+import tp.pr5.items.ItemContainer;
+
+/**
+ * This class plans routes between two places of a city and compiles them into the instructions that the robot must execute.
+ * A route can minimize the number of MOVE instructions (breadth first search over the places) or the fuel spent
+ * (Dijkstra over the places and the four headings, where every MOVE and every TURN costs fuel).
+ * A closed street is only crossed if the robot inventory contains a code card with the code of the street. In that case the route
+ * operates the card before moving.
+ * The search buffers are created once and reused between queries.
+ * @author Juan Manuel Carrera García
+ */
+public class RoutePlanner {
+	/**
+	 * Fuel spent by a MOVE instruction
+	 */
+	public static final int MOVE_COST = 5;
+
+	/**
+	 * Fuel spent by a TURN instruction
+	 */
+	public static final int TURN_COST = 5;
+
+	private static final Direction[] DIRECTIONS = { Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
+	private static final int NUM_DIRECTIONS = 4;
+	private static final byte MOVE = 1;
+	private static final byte TURN_LEFT = 2;
+	private static final byte TURN_RIGHT = 3;
+
+	private CityMap city;
+	private List<CodeCard> cards;
+	private int query;
+	private int lastCost;
+
+	// Buffers de la búsqueda por estados (lugar * 4 + dirección)
+	private int[] stamp;
+	private int[] dist;
+	private int[] prev;
+	private byte[] action;
+	private long[] heap;
+	private int heapSize;
+
+	// Buffers de la búsqueda en anchura por lugares
+	private int[] placeStamp;
+	private int[] placePrev;
+	private int[] queue;
+	private int[] path;
+
+	// ----------------------------- CONSTRUCTORAS ----------------------------------------------
+
+	/**
+	 * Creates a route planner for the given city
+	 * @param city The city where the routes are planned
+	 */
+	public RoutePlanner(CityMap city) {
+		this.city = city;
+		this.cards = new ArrayList<CodeCard>();
+		this.query = 0;
+		this.lastCost = -1;
+		this.stamp = new int[0];
+		this.placeStamp = new int[0];
+		this.heap = new long[0];
+		this.ensureCapacity();
+	}
+
+	// ----------------------------------------- GETTER -----------------------------------------
+
+	/**
+	 * Fuel spent by the last route found
+	 * @return The fuel of the last route, or -1 if the last target was not reachable
+	 */
+	public int getLastCost() {
+		return this.lastCost;
+	}
+
+	// ------------------------------------------------- MÉTODOS -------------------------------------
+
+	// ----------------------- MÉTODO QUE CALCULA LA RUTA CON MENOS COMBUSTIBLE --------------------------
+
+	/**
+	 * Looks for the route that spends less fuel from the current place and heading of the navigation module to the target
+	 * @param nav The navigation module of the robot
+	 * @param inventory The inventory of the robot, where the code cards are looked for
+	 * @param target The place where the robot wants to arrive
+	 * @return The instructions to arrive at the target, or null if the target cannot be reached
+	 */
+	public List<Instruction> cheapestRoute(NavigationModule nav, ItemContainer inventory, Place target) {
+		return this.cheapestRoute(nav.getCurrentPlace(), nav.getCurrentHeading(), inventory, target);
+	}
+
+	/**
+	 * Looks for the route that spends less fuel between two places
+	 * @param source The place where the robot is
+	 * @param heading The direction where the robot is facing to
+	 * @param inventory The inventory of the robot, where the code cards are looked for
+	 * @param target The place where the robot wants to arrive
+	 * @return The instructions to arrive at the target, or null if the target cannot be reached
+	 */
+	public List<Instruction> cheapestRoute(Place source, Direction heading, ItemContainer inventory, Place target) {
+		List<Instruction> route = null;
+		int from = this.city.indexOf(source);
+		int to = this.city.indexOf(target);
+		int dir = RoutePlanner.headingIndex(heading);
+
+		this.lastCost = -1;
+		if (source == target) {
+			route = new ArrayList<Instruction>();
+			this.lastCost = 0;
+		}
+		else if (from != -1 && to != -1 && dir != -1) {
+			this.startQuery(inventory);
+			int found = this.dijkstra(from * NUM_DIRECTIONS + dir, to);
+			if (found != -1) {
+				this.lastCost = this.dist[found];
+				route = this.compileStates(found);
+			}
+		}
+
+		return route;
+	}
+
+	// ----------------------- MÉTODO QUE CALCULA LA RUTA CON MENOS MOVIMIENTOS --------------------------
+
+	/**
+	 * Looks for the route with less MOVE instructions from the current place and heading of the navigation module to the target
+	 * @param nav The navigation module of the robot
+	 * @param inventory The inventory of the robot, where the code cards are looked for
+	 * @param target The place where the robot wants to arrive
+	 * @return The instructions to arrive at the target, or null if the target cannot be reached
+	 */
+	public List<Instruction> fewestMovesRoute(NavigationModule nav, ItemContainer inventory, Place target) {
+		return this.fewestMovesRoute(nav.getCurrentPlace(), nav.getCurrentHeading(), inventory, target);
+	}
+
+	/**
+	 * Looks for the route with less MOVE instructions between two places
+	 * @param source The place where the robot is
+	 * @param heading The direction where the robot is facing to
+	 * @param inventory The inventory of the robot, where the code cards are looked for
+	 * @param target The place where the robot wants to arrive
+	 * @return The instructions to arrive at the target, or null if the target cannot be reached
+	 */
+	public List<Instruction> fewestMovesRoute(Place source, Direction heading, ItemContainer inventory, Place target) {
+		List<Instruction> route = null;
+		int from = this.city.indexOf(source);
+		int to = this.city.indexOf(target);
+		int dir = RoutePlanner.headingIndex(heading);
+
+		this.lastCost = -1;
+		if (source == target) {
+			route = new ArrayList<Instruction>();
+			this.lastCost = 0;
+		}
+		else if (from != -1 && to != -1 && dir != -1) {
+			this.startQuery(inventory);
+			if (this.breadthFirst(from, to))
+				route = this.compilePlaces(from, dir, to);
+		}
+
+		return route;
+	}
+
+	// ----------------------- MÉTODOS DE BÚSQUEDA ------------------------------------------------------
+
+	/**
+	 * Dijkstra over the states (place, heading). It stops when a state of the target place is taken out of the heap
+	 * @param start The initial state
+	 * @param target The index of the target place
+	 * @return The first state of the target place that is reached, or -1 if the target cannot be reached
+	 */
+	private int dijkstra(int start, int target) {
+		int found = -1;
+
+		this.heapSize = 0;
+		this.relax(start, 0, -1, (byte) 0);
+		while (this.heapSize > 0 && found == -1) {
+			long top = this.pop();
+			int state = (int) top;
+			int cost = (int) (top >>> 32);
+
+			if (cost == this.dist[state]) {
+				int place = state / NUM_DIRECTIONS;
+				int dir = state % NUM_DIRECTIONS;
+
+				if (place == target)
+					found = state;
+				else {
+					Street street = this.city.lookForStreet(place, DIRECTIONS[dir]);
+					if (street != null && this.canCross(street)) {
+						int next = this.city.nextPlace(place, DIRECTIONS[dir]);
+						this.relax(next * NUM_DIRECTIONS + dir, cost + MOVE_COST, state, MOVE);
+					}
+					this.relax(place * NUM_DIRECTIONS + (dir + 3) % NUM_DIRECTIONS, cost + TURN_COST, state, TURN_LEFT);
+					this.relax(place * NUM_DIRECTIONS + (dir + 1) % NUM_DIRECTIONS, cost + TURN_COST, state, TURN_RIGHT);
+				}
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Updates the distance of a state if the new one is shorter, and pushes it into the heap
+	 * @param state The state reached
+	 * @param cost The fuel spent to reach the state
+	 * @param from The previous state
+	 * @param how The instruction executed in the previous state
+	 */
+	private void relax(int state, int cost, int from, byte how) {
+		if (this.stamp[state] != this.query || cost < this.dist[state]) {
+			this.stamp[state] = this.query;
+			this.dist[state] = cost;
+			this.prev[state] = from;
+			this.action[state] = how;
+			this.push(((long) cost << 32) | state);
+		}
+	}
+
+	/**
+	 * Breadth first search over the places, counting only the streets crossed
+	 * @param start The index of the initial place
+	 * @param target The index of the target place
+	 * @return true if the target can be reached
+	 */
+	private boolean breadthFirst(int start, int target) {
+		int head = 0;
+		int tail = 0;
+		boolean found = false;
+
+		this.placeStamp[start] = this.query;
+		this.placePrev[start] = -1;
+		this.queue[tail++] = start;
+		while (head < tail && !found) {
+			int place = this.queue[head++];
+
+			if (place == target)
+				found = true;
+			else {
+				for (int d = 0; d < NUM_DIRECTIONS; d++) {
+					Street street = this.city.lookForStreet(place, DIRECTIONS[d]);
+					if (street != null && this.canCross(street)) {
+						int next = this.city.nextPlace(place, DIRECTIONS[d]);
+						if (this.placeStamp[next] != this.query) {
+							this.placeStamp[next] = this.query;
+							this.placePrev[next] = place;
+							this.queue[tail++] = next;
+						}
+					}
+				}
+			}
+		}
+
+		return found;
+	}
+
+	// ----------------------- MÉTODOS QUE COMPILAN LA RUTA EN INSTRUCCIONES -------------------------------
+
+	/**
+	 * Builds the instructions of the route that ends in the given state of the Dijkstra search
+	 * @param last The final state
+	 * @return The instructions of the route
+	 */
+	private List<Instruction> compileStates(int last) {
+		List<Instruction> route = new ArrayList<Instruction>();
+		int length = 0;
+
+		for (int state = last; this.prev[state] != -1; state = this.prev[state])
+			this.path[length++] = state;
+
+		for (int i = length - 1; i >= 0; i--) {
+			int state = this.path[i];
+
+			if (this.action[state] == TURN_LEFT)
+				route.add(new TurnInstruction(Rotation.LEFT));
+			else if (this.action[state] == TURN_RIGHT)
+				route.add(new TurnInstruction(Rotation.RIGHT));
+			else {
+				int from = this.prev[state];
+				this.addMove(route, from / NUM_DIRECTIONS, from % NUM_DIRECTIONS);
+			}
+		}
+		this.cards.clear();
+
+		return route;
+	}
+
+	/**
+	 * Builds the instructions of the route found by the breadth first search, turning the robot before every move
+	 * @param from The index of the initial place
+	 * @param heading The initial heading
+	 * @param to The index of the target place
+	 * @return The instructions of the route
+	 */
+	private List<Instruction> compilePlaces(int from, int heading, int to) {
+		List<Instruction> route = new ArrayList<Instruction>();
+		int length = 0;
+		int dir = heading;
+		int cost = 0;
+
+		for (int place = to; place != from; place = this.placePrev[place])
+			this.path[length++] = place;
+
+		int place = from;
+		for (int i = length - 1; i >= 0; i--) {
+			int next = this.path[i];
+			int needed = this.directionTo(place, next);
+			int turns = (needed - dir + NUM_DIRECTIONS) % NUM_DIRECTIONS;
+
+			if (turns == 3) {
+				route.add(new TurnInstruction(Rotation.LEFT));
+				cost += TURN_COST;
+			}
+			else {
+				for (int t = 0; t < turns; t++)
+					route.add(new TurnInstruction(Rotation.RIGHT));
+				cost += turns * TURN_COST;
+			}
+			dir = needed;
+			this.addMove(route, place, dir);
+			cost += MOVE_COST;
+			place = next;
+		}
+		this.cards.clear();
+		this.lastCost = cost;
+
+		return route;
+	}
+
+	/**
+	 * Adds the instructions needed to cross the street in a direction, operating a code card first if the street is closed
+	 * @param route The instructions of the route
+	 * @param place The index of the place where the robot is
+	 * @param dir The heading of the robot
+	 */
+	private void addMove(List<Instruction> route, int place, int dir) {
+		Street street = this.city.lookForStreet(place, DIRECTIONS[dir]);
+
+		if (!street.isOpen())
+			route.add(new OperateInstruction(this.cardFor(street).getId()));
+		route.add(new MoveInstruction());
+	}
+
+	/**
+	 * Looks for the direction of the street that links two places
+	 * @param place The index of the place where the robot is
+	 * @param next The index of the place at the other side of the street
+	 * @return The heading of the robot to cross the street
+	 */
+	private int directionTo(int place, int next) {
+		int found = -1;
+
+		for (int d = 0; d < NUM_DIRECTIONS && found == -1; d++) {
+			Street street = this.city.lookForStreet(place, DIRECTIONS[d]);
+			if (street != null && this.canCross(street)
+					&& this.city.nextPlace(place, DIRECTIONS[d]) == next)
+				found = d;
+		}
+
+		return found;
+	}
+
+	// ----------------------- MÉTODOS AUXILIARES ---------------------------------------------------------
+
+	/**
+	 * Starts a new query: the buffers are invalidated changing the query number and the code cards of the inventory are collected
+	 * @param inventory The inventory of the robot
+	 */
+	private void startQuery(ItemContainer inventory) {
+		this.ensureCapacity();
+		this.query++;
+		this.cards.clear();
+		if (inventory != null) {
+			for (int i = 0; i < inventory.numberOfItems(); i++) {
+				Item item = inventory.getItem(i);
+				if (item instanceof CodeCard)
+					this.cards.add((CodeCard) item);
+			}
+		}
+	}
+
+	/**
+	 * Checks if the robot can cross a street
+	 * @param street The street
+	 * @return true if the street is open or the robot has a code card that opens it
+	 */
+	private boolean canCross(Street street) {
+		return street.isOpen() || this.cardFor(street) != null;
+	}
+
+	/**
+	 * Looks for a code card of the robot that opens a street
+	 * @param street The street
+	 * @return The code card, or null if the robot does not have it
+	 */
+	private CodeCard cardFor(Street street) {
+		CodeCard card = null;
+
+		for (int i = 0; i < this.cards.size() && card == null; i++)
+			if (this.cards.get(i).compareCodes(street.getCodeStreet()))
+				card = this.cards.get(i);
+
+		return card;
+	}
+
+	/**
+	 * Resizes the buffers if the city has more places than the last query
+	 */
+	private void ensureCapacity() {
+		int places = this.city.getNumPlaces();
+		int states = places * NUM_DIRECTIONS;
+
+		if (this.stamp.length < states) {
+			this.stamp = new int[states];
+			this.dist = new int[states];
+			this.prev = new int[states];
+			this.action = new byte[states];
+			this.path = new int[states];
+			this.query = 0;
+		}
+		if (this.placeStamp.length < places) {
+			this.placeStamp = new int[places];
+			this.placePrev = new int[places];
+			this.queue = new int[places];
+			this.query = 0;
+		}
+	}
+
+	/**
+	 * Position of a heading in the array of directions
+	 * @param heading The heading
+	 * @return The position, or -1 if the heading is unknown
+	 */
+	private static int headingIndex(Direction heading) {
+		int index = -1;
+
+		for (int i = 0; i < NUM_DIRECTIONS && index == -1; i++)
+			if (DIRECTIONS[i] == heading)
+				index = i;
+
+		return index;
+	}
+
+	// ----------------------- MONTÍCULO BINARIO DE (COSTE, ESTADO) ---------------------------------------
+
+	/**
+	 * Pushes an entry into the heap
+	 * @param entry The cost in the high half and the state in the low half
+	 */
+	private void push(long entry) {
+		if (this.heapSize == this.heap.length) {
+			long[] aux = new long[2 * (this.heap.length + 1)];
+			System.arraycopy(this.heap, 0, aux, 0, this.heapSize);
+			this.heap = aux;
+		}
+		int i = this.heapSize++;
+		while (i > 0 && this.heap[(i - 1) / 2] > entry) {
+			this.heap[i] = this.heap[(i - 1) / 2];
+			i = (i - 1) / 2;
+		}
+		this.heap[i] = entry;
+	}
+
+	/**
+	 * Takes out the entry with less cost from the heap
+	 * @return The entry
+	 */
+	private long pop() {
+		long top = this.heap[0];
+		long last = this.heap[--this.heapSize];
+		int i = 0;
+		boolean placed = false;
+
+		while (!placed) {
+			int child = 2 * i + 1;
+			if (child < this.heapSize && child + 1 < this.heapSize && this.heap[child + 1] < this.heap[child])
+				child++;
+			if (child < this.heapSize && this.heap[child] < last) {
+				this.heap[i] = this.heap[child];
+				i = child;
+			}
+			else
+				placed = true;
+		}
+		if (this.heapSize > 0)
+			this.heap[i] = last;
+
+		return top;
+	}
+}
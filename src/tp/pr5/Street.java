@@ -4,11 +4,14 @@ import tp.pr5.items.CodeCard;
 
 /**
  * A street links two places A and B. All streets are two-way streets. If a street is defined as Street(A,NORTH,B) this means that Place B is at NORTH of Place A and Place A is at south of Place B
+ * The street keeps the numbers of its places, so it checks if a place of a map is one of them comparing numbers
  * @author Juan Manuel Carrera García
  */
 public class Street {
 	private Place inicio;
 	private Place destino;
+	private int sourceId;
+	private int targetId;
 	private Direction direccion;
 	private boolean open;
 	private String code;
@@ -25,6 +28,8 @@ public class Street {
 		this.inicio = source;
 		this.direccion = direction;
 		this.destino = target;
+		this.sourceId = (source == null) ? -1 : source.getId();
+		this.targetId = (target == null) ? -1 : target.getId();
 		this.open = true;
 		this.code = "";
 	}
@@ -41,6 +46,8 @@ public class Street {
 		this.inicio = source;
 		this.direccion = direction;
 		this.destino = target;
+		this.sourceId = (source == null) ? -1 : source.getId();
+		this.targetId = (target == null) ? -1 : target.getId();
 		this.open = isOpen;
 		this.code = code;
 	}
@@ -56,7 +63,45 @@ public class Street {
 	public String getCodeStreet () {
 		return this.code;
 	}
-	
+
+	/**
+	 * Get the source place of the street
+	 * @return the source place (in the example A)
+	 */
+	public Place getSource () {
+		return this.inicio;
+	}
+
+	/**
+	 * Get the target place of the street
+	 * @return the target place (in the example B)
+	 */
+	public Place getTarget () {
+		return this.destino;
+	}
+
+	/**
+	 * @return The number of the source place in the map, or -1 if it is not a place of a map
+	 */
+	public int getSourceId () {
+		return this.sourceId;
+	}
+
+	/**
+	 * @return The number of the target place in the map, or -1 if it is not a place of a map
+	 */
+	public int getTargetId () {
+		return this.targetId;
+	}
+
+	/**
+	 * Get the direction of the street from its source place
+	 * @return the direction where the target place is placed with respect to the source place
+	 */
+	public Direction getDirection () {
+		return this.direccion;
+	}
+
 		
 	// ---------------------------- MÉTODO PARA VER SI UNA CALLE ESTA ABIERTA  --------------------
 		
@@ -68,6 +113,14 @@ public class Street {
 		return this.open;
 	}
 	
+	/**
+	 * Opens or closes the street without a code card, when a game is restored from a snapshot
+	 * @param open true if the street is open
+	 */
+	void setOpen(boolean open) {
+		this.open = open;
+	}
+	
 	// ----------- MÉTODO QUE COMPRUEBA SI HAY UNA CALLE DESDE EL LUGAR DADO EN UNA DIRECCIÓN ------------
 	
 	/**
@@ -77,8 +130,8 @@ public class Street {
 	 * @return Returns true if the street comes out from the input Place.
 	 */
 	public boolean comeOutFrom (Place place, Direction wichDirection) {
-		return ((this.destino.equals(place) && this.direccion == wichDirection.direccionOpuesta())
-				|| (this.inicio.equals(place) && this.direccion == wichDirection)) ;
+		return ((Street.isPlace(this.destino, this.targetId, place) && this.direccion == wichDirection.direccionOpuesta())
+				|| (Street.isPlace(this.inicio, this.sourceId, place) && this.direccion == wichDirection)) ;
 	}
 	
 	// ------------------------- MÉTODO QUE DEVUELVE EL LUGAR OPUESTO DE LA CALLE --------------------------------
@@ -91,9 +144,9 @@ public class Street {
 	public Place nextPlace (Place whereAmI) {
 		Place aux = null;
 		
-		if (whereAmI.equals(this.inicio))
+		if (Street.isPlace(this.inicio, this.sourceId, whereAmI))
 			aux = this.destino;
-		else if (whereAmI.equals(this.destino))
+		else if (Street.isPlace(this.destino, this.targetId, whereAmI))
 			aux = this.inicio;
 			
 		return aux;
@@ -134,4 +187,15 @@ public class Street {
 				
 		return ok;
 	}
-}
+	
+	/**
+	 * Checks if a place is one of the places of the street, comparing the numbers if it is a place of a map
+	 * @param end The place of the street
+	 * @param id The number of the place of the street
+	 * @param place The place to check
+	 * @return true if it is the same place
+	 */
+	private static boolean isPlace(Place end, int id, Place place) {
+		return (id >= 0) ? place.getId() == id : end == place;
+	}
+}
\ No newline at end of file
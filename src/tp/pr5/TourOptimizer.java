@@ -0,0 +1,808 @@
+package tp.pr5;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tp.pr5.instructions.Instruction;
+import tp.pr5.instructions.MoveInstruction;
+import tp.pr5.instructions.OperateInstruction;
+import tp.pr5.instructions.PickInstruction;
+import tp.pr5.instructions.TurnInstruction;
+import tp.pr5.items.CodeCard;
+import tp.pr5.items.Fuel;
+import tp.pr5.items.Garbage;
+import tp.pr5.items.Item;
+import tp.pr5.items.ItemContainer;
+
+/**
+ * This class looks for the tour of a city that gives more recycled material and still ends at a spaceship with the fuel of the robot.
+ * The stops of the tour are the places with garbage, with fuel that gives energy or with the code card of a closed street. The robot picks
+ * all of them and operates the garbage and the fuel, because picking and operating an item costs no fuel.
+ *
+ * A beam search adds one stop at a time to the best partial tours, keeping only the tours from where a spaceship can still be reached.
+ * The search is repeated doubling the width of the beam while there is time, so a longer time gives a better tour, and the score of every
+ * round is kept as the progress of the optimizer. The partial tours of a round are expanded in parallel in a pool.
+ *
+ * The fuel from a stop to the other stops is computed with a breadth first search over the states (place, heading), as every MOVE and
+ * TURN costs the same fuel, the first time that a tour is expanded from that stop, so the time is only spent on the stops that the beam
+ * reaches. A route never goes through a spaceship, where the game would end, and a closed street is only crossed if the robot carries its
+ * code card. The cards that the robot can pick change the streets that it can cross, so the fuel depends on the set of cards of the tour
+ * (only the first MAX_CODES codes are taken into account). The fuel to the nearest spaceship from every state is computed once for every
+ * set of cards with a search backwards from the spaceships.
+ * @author Juan Manuel Carrera García
+ */
+public class TourOptimizer {
+	/**
+	 * The number of codes of closed streets whose cards are looked for in the city
+	 */
+	public static final int MAX_CODES = 4;
+
+	private static final Direction[] DIRECTIONS = { Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
+	private static final int NUM_DIRECTIONS = 4;
+	private static final int INFINITE = Integer.MAX_VALUE;
+	private static final int TOURS_PER_TASK = 16;
+	private static final int MAX_WIDTH = 1 << 16;
+
+	private CityMap city;
+	private ForkJoinPool pool;
+	private boolean[] ship;
+
+	// Codes that the robot carries, and codes of the cards of the city with their bit in the set of cards of a tour
+	private Map<String, String> carried;
+	private Map<String, Integer> codeBit;
+	private String[] codeCard;
+
+	private int[] stopPlace;
+	private int[] stopMaterial;
+	private int[] stopFuel;
+	private int[] stopCodes;
+	private List<List<Instruction>> stopInstructions;
+
+	// For every set of cards, made the first time that they are needed: fuel and heading of arrival from every source (the start and every
+	// stop with every heading) to every stop, and fuel to a spaceship from every state
+	private int[] sourceState;
+	private Leg[][] legs;
+	private ShipFuel[] shipFuel;
+	private AtomicInteger legCount;
+	// The buffers of the searches that are not being used
+	private ConcurrentLinkedQueue<Search> searches;
+	// The most fuel that the robot can have, so no leg is longer
+	private int horizon;
+
+	private int score;
+	private int finalFuel;
+	private boolean truncated;
+	private List<String> progress;
+
+	/**
+	 * A partial tour: the stops visited, the cards picked and the fuel and recycled material after the last stop
+	 */
+	private static class Tour {
+		private Tour parent;
+		private int stop;
+		private int source;
+		private int codes;
+		private int fuel;
+		private int score;
+		private long[] visited;
+
+		private Tour(Tour parent, int stop, int source, int codes, int fuel, int score, long[] visited) {
+			this.parent = parent;
+			this.stop = stop;
+			this.source = source;
+			this.codes = codes;
+			this.fuel = fuel;
+			this.score = score;
+			this.visited = visited;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			boolean aux = false;
+
+			if (obj instanceof Tour) {
+				Tour other = (Tour) obj;
+				aux = this.source == other.source && Arrays.equals(this.visited, other.visited);
+			}
+
+			return aux;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * this.source + Arrays.hashCode(this.visited);
+		}
+	}
+
+	/**
+	 * The fuel and heading of arrival from a source to every stop. It is not changed after it is made, so the threads share it without locks
+	 */
+	private static class Leg {
+		private final int[] fuel;
+		private final byte[] heading;
+
+		private Leg(int[] fuel, byte[] heading) {
+			this.fuel = fuel;
+			this.heading = heading;
+		}
+	}
+
+	/**
+	 * The fuel to the nearest spaceship from every state. It is not changed after it is made, so the threads share it without locks
+	 */
+	private static class ShipFuel {
+		private final int[] fuel;
+
+		private ShipFuel(int[] fuel) {
+			this.fuel = fuel;
+		}
+	}
+
+	/**
+	 * The buffers of a breadth first search over the states, used by one thread at a time
+	 */
+	private class Search {
+		private int[] dist;
+		private int[] prev;
+		private int[] queue;
+		private int reached;
+
+		private Search() {
+			int states = TourOptimizer.this.city.getNumPlaces() * NUM_DIRECTIONS;
+
+			this.dist = new int[states];
+			this.prev = new int[states];
+			this.queue = new int[states];
+			this.reached = 0;
+			Arrays.fill(this.dist, INFINITE);
+		}
+
+		/**
+		 * Searches from a state until a target state is reached, or all the states if there is no target. The states that need more fuel
+		 * than the horizon are not reached
+		 * @param source The initial state
+		 * @param codes The set of cards of the robot
+		 * @param target The state looked for, -1 to look for a spaceship or -2 to reach all the states
+		 * @return The target state, or the first state of a spaceship, or -1 if it is not reached
+		 */
+		private int run(int source, int codes, int target) {
+			int head = 0;
+			int tail = 0;
+			int found = -1;
+
+			for (int i = 0; i < this.reached; i++)
+				this.dist[this.queue[i]] = INFINITE;
+			this.dist[source] = 0;
+			this.prev[source] = -1;
+			this.queue[tail++] = source;
+			while (head < tail && found == -1) {
+				int state = this.queue[head++];
+				int place = state / NUM_DIRECTIONS;
+
+				if (state == target || (target == -1 && TourOptimizer.this.ship[place]))
+					found = state;
+				else if ((state == source || !TourOptimizer.this.ship[place])
+						&& this.dist[state] + RoutePlanner.MOVE_COST <= TourOptimizer.this.horizon) {
+					int dir = state % NUM_DIRECTIONS;
+					int next = TourOptimizer.this.moveFrom(place, dir, codes);
+					int[] steps = { place * NUM_DIRECTIONS + (dir + 1) % NUM_DIRECTIONS, place * NUM_DIRECTIONS + (dir + 3) % NUM_DIRECTIONS,
+							(next == -1) ? -1 : next * NUM_DIRECTIONS + dir };
+					for (int i = 0; i < steps.length; i++) {
+						if (steps[i] != -1 && this.dist[steps[i]] == INFINITE) {
+							this.dist[steps[i]] = this.dist[state] + RoutePlanner.MOVE_COST;
+							this.prev[steps[i]] = state;
+							this.queue[tail++] = steps[i];
+						}
+					}
+				}
+			}
+			this.reached = tail;
+
+			return found;
+		}
+
+		/**
+		 * Searches the fuel from a source to every stop
+		 * @param codes The set of cards of the robot
+		 * @param source The index of the source
+		 * @return The fuel and heading of arrival at every stop
+		 */
+		private Leg leg(int codes, int source) {
+			int stops = TourOptimizer.this.stopPlace.length;
+			int[] fuel = new int[stops];
+			byte[] heading = new byte[stops];
+
+			this.run(TourOptimizer.this.sourceState[source], codes, -2);
+			for (int i = 0; i < stops; i++) {
+				fuel[i] = INFINITE;
+				for (int d = 0; d < NUM_DIRECTIONS; d++) {
+					int state = TourOptimizer.this.stopPlace[i] * NUM_DIRECTIONS + d;
+					if (this.dist[state] < fuel[i]) {
+						fuel[i] = this.dist[state];
+						heading[i] = (byte) d;
+					}
+				}
+			}
+
+			return new Leg(fuel, heading);
+		}
+	}
+
+	// ----------------------------- CONSTRUCTORAS ----------------------------------------------
+
+	/**
+	 * Creates an optimizer that searches in the common pool
+	 * @param city The city, with the items of its places as they are when the game starts
+	 * @param inventory The inventory of the robot, where the code cards are looked for, or null
+	 */
+	public TourOptimizer(CityMap city, ItemContainer inventory) {
+		this(city, inventory, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates an optimizer that searches in the given pool
+	 * @param city The city, with the items of its places as they are when the game starts
+	 * @param inventory The inventory of the robot, where the code cards are looked for, or null
+	 * @param pool The pool where the searches are done
+	 */
+	public TourOptimizer(CityMap city, ItemContainer inventory, ForkJoinPool pool) {
+		this.city = city;
+		this.pool = pool;
+		this.carried = new HashMap<String, String>();
+		if (inventory != null) {
+			for (int i = 0; i < inventory.numberOfItems(); i++) {
+				Item item = inventory.getItem(i);
+				if (item instanceof CodeCard && !this.carried.containsKey(((CodeCard) item).getCode()))
+					this.carried.put(((CodeCard) item).getCode(), item.getId());
+			}
+		}
+
+		this.ship = new boolean[city.getNumPlaces()];
+		for (int p = 0; p < city.getNumPlaces(); p++)
+			this.ship[p] = city.getPlace(p).isSpaceship();
+		this.findCodes();
+		this.findStops(inventory);
+		this.score = -1;
+		this.progress = new ArrayList<String>();
+		this.searches = new ConcurrentLinkedQueue<Search>();
+	}
+
+	// ----------------------------------------- GETTER -----------------------------------------
+
+	/**
+	 * @return The number of places with garbage, fuel or a code card that opens a street
+	 */
+	public int getNumStops() {
+		return this.stopPlace.length;
+	}
+
+	/**
+	 * @return The recycled material of the last tour found, or -1 if no spaceship could be reached
+	 */
+	public int getScore() {
+		return this.score;
+	}
+
+	/**
+	 * @return The fuel of the robot at the spaceship at the end of the last tour found
+	 */
+	public int getFinalFuel() {
+		return this.finalFuel;
+	}
+
+	/**
+	 * @return true if the last search tried all the tours, so a longer time would not find a better one
+	 */
+	public boolean isComplete() {
+		return !this.truncated;
+	}
+
+	/**
+	 * @return A line for every round of the last search: the width of the beam, the best recycled material found and the time spent until then,
+	 *         and a last line with the number of sources whose fuel to the stops was searched
+	 */
+	public List<String> getProgress() {
+		return this.progress;
+	}
+
+	// ------------------------------------------------- MÉTODOS -------------------------------------
+
+	/**
+	 * Looks for the tour that gives more recycled material from a place and heading with some fuel, ending at a spaceship
+	 * @param start The place where the robot is
+	 * @param heading The heading of the robot
+	 * @param fuel The fuel of the robot
+	 * @param time The time to search, in ns. When it runs out the best tour found until then is returned, that goes straight to the nearest
+	 *            spaceship if no stop was added yet
+	 * @return The instructions of the tour, or null if no spaceship can be reached from the start
+	 */
+	public List<Instruction> optimize(Place start, Direction heading, int fuel, long time) {
+		long begin = System.nanoTime();
+		long deadline = begin + time;
+		int place = this.city.indexOf(start);
+		int dir = TourOptimizer.headingIndex(heading);
+		List<Instruction> route = null;
+
+		this.score = -1;
+		this.finalFuel = 0;
+		this.truncated = false;
+		this.progress = new ArrayList<String>();
+		if (place != -1 && dir != -1) {
+			this.horizon = this.fuelHorizon(fuel);
+			this.prepareLegs(place * NUM_DIRECTIONS + dir);
+			Tour root = new Tour(null, -1, 0, 0, fuel, 0, new long[(this.stopPlace.length + 63) / 64]);
+			Tour best = this.canFinish(root) ? root : null;
+			int width = 1;
+			do {
+				best = this.better(best, this.beamSearch(root, width, deadline));
+				this.progress.add("width " + width + ": " + ((best == null) ? "no tour" : best.score + " recycled material") + " in "
+						+ (System.nanoTime() - begin) / 1000000 + " ms"
+						+ ((System.nanoTime() >= deadline) ? " (out of time)" : (this.truncated ? "" : " (complete)")));
+				width *= 2;
+			} while (this.truncated && System.nanoTime() < deadline && width <= MAX_WIDTH);
+			this.progress.add("legs: " + this.legCount.get() + " of " + this.sourceState.length * this.legs.length + " sources searched for "
+					+ this.stopPlace.length + " stops and " + this.codeCard.length + " codes");
+			if (best != null) {
+				this.score = best.score;
+				this.finalFuel = Math.max(0, best.fuel - this.fuelToShip(best));
+				route = this.compile(best);
+			}
+		}
+
+		return route;
+	}
+
+	// ----------------------- MÉTODOS QUE PREPARAN LA BÚSQUEDA -----------------------------------------
+
+	/**
+	 * Gives a bit to the codes of the closed streets that the robot does not carry and whose card is in a place of the city
+	 */
+	private void findCodes() {
+		Set<String> inCity = new HashSet<String>();
+		List<String> codes = new ArrayList<String>();
+
+		for (int p = 0; p < this.city.getNumPlaces(); p++) {
+			Place place = this.city.getPlace(p);
+			for (int i = 0; i < place.numberOfItems(); i++)
+				if (place.getItem(i) instanceof CodeCard)
+					inCity.add(((CodeCard) place.getItem(i)).getCode());
+		}
+		this.codeBit = new HashMap<String, Integer>();
+		for (int i = 0; i < this.city.getNumStreet() && codes.size() < MAX_CODES; i++) {
+			String code = this.city.getStreet(i).getCodeStreet();
+			if (!this.city.getStreet(i).isOpen() && inCity.contains(code) && !this.carried.containsKey(code) && !this.codeBit.containsKey(code)) {
+				this.codeBit.put(code, codes.size());
+				codes.add(code);
+			}
+		}
+		this.codeCard = new String[codes.size()];
+	}
+
+	/**
+	 * Finds the stops: the places that are not a spaceship with garbage, with fuel that gives energy or with a card of a code
+	 * @param inventory The inventory of the robot
+	 */
+	private void findStops(ItemContainer inventory) {
+		List<Integer> stops = new ArrayList<Integer>();
+		List<int[]> values = new ArrayList<int[]>();
+
+		this.stopInstructions = new ArrayList<List<Instruction>>();
+		for (int p = 0; p < this.city.getNumPlaces(); p++) {
+			Place place = this.city.getPlace(p);
+			List<Instruction> instructions = new ArrayList<Instruction>();
+			int[] value = new int[3];
+
+			for (int i = 0; i < place.numberOfItems() && !this.ship[p]; i++) {
+				Item item = place.getItem(i);
+				boolean free = inventory == null || !inventory.containsItem(item.getId());
+				if (item instanceof Garbage && free) {
+					instructions.add(new PickInstruction(item.getId()));
+					instructions.add(new OperateInstruction(item.getId()));
+					value[0] += ((Garbage) item).getRecycledMaterial();
+				}
+				else if (item instanceof Fuel && free && ((Fuel) item).getTimes() > 0 && ((Fuel) item).getFuel() > 0) {
+					instructions.add(new PickInstruction(item.getId()));
+					for (int t = 0; t < ((Fuel) item).getTimes(); t++)
+						instructions.add(new OperateInstruction(item.getId()));
+					value[1] += ((Fuel) item).getFuel() * ((Fuel) item).getTimes();
+				}
+				else if (item instanceof CodeCard && free && this.codeBit.containsKey(((CodeCard) item).getCode())) {
+					int bit = this.codeBit.get(((CodeCard) item).getCode());
+					if (this.codeCard[bit] == null || this.codeCard[bit].equals(item.getId())) {
+						this.codeCard[bit] = item.getId();
+						instructions.add(new PickInstruction(item.getId()));
+						value[2] |= 1 << bit;
+					}
+				}
+			}
+			if (!instructions.isEmpty()) {
+				stops.add(p);
+				values.add(value);
+				this.stopInstructions.add(instructions);
+			}
+		}
+		this.stopPlace = new int[stops.size()];
+		this.stopMaterial = new int[stops.size()];
+		this.stopFuel = new int[stops.size()];
+		this.stopCodes = new int[stops.size()];
+		for (int i = 0; i < stops.size(); i++) {
+			this.stopPlace[i] = stops.get(i);
+			this.stopMaterial[i] = values.get(i)[0];
+			this.stopFuel[i] = values.get(i)[1];
+			this.stopCodes[i] = values.get(i)[2];
+		}
+	}
+
+	// ----------------------- MÉTODOS DE BÚSQUEDA ------------------------------------------------------
+
+	/**
+	 * Computes the most fuel that the robot can have: its fuel, the fuel of all the stops and a move, because the robot can arrive
+	 * with no fuel left
+	 * @param fuel The fuel of the robot
+	 * @return The fuel horizon, where the searches stop
+	 */
+	private int fuelHorizon(int fuel) {
+		long aux = (long) Math.max(0, fuel) + RoutePlanner.MOVE_COST;
+
+		for (int i = 0; i < this.stopFuel.length; i++)
+			aux += Math.max(0, this.stopFuel[i]);
+
+		return (int) Math.min(aux, INFINITE - RoutePlanner.MOVE_COST);
+	}
+
+	/**
+	 * Prepares the sources and forgets the fuel of the last search, that depends on the horizon
+	 * @param start The state of the robot
+	 */
+	private void prepareLegs(int start) {
+		int sources = 1 + this.stopPlace.length * NUM_DIRECTIONS;
+		int sets = 1 << this.codeCard.length;
+
+		this.sourceState = new int[sources];
+		this.sourceState[0] = start;
+		for (int i = 0; i < this.stopPlace.length; i++)
+			for (int d = 0; d < NUM_DIRECTIONS; d++)
+				this.sourceState[1 + i * NUM_DIRECTIONS + d] = this.stopPlace[i] * NUM_DIRECTIONS + d;
+		this.legs = new Leg[sets][sources];
+		this.shipFuel = new ShipFuel[sets];
+		this.legCount = new AtomicInteger();
+	}
+
+	/**
+	 * Gives the fuel from a source to every stop, searching it the first time. Two threads can search the same leg at the same time, and
+	 * both find the same one
+	 * @param codes The set of cards of the robot
+	 * @param source The index of the source
+	 * @return The fuel and heading of arrival at every stop
+	 */
+	private Leg leg(int codes, int source) {
+		Leg aux = this.legs[codes][source];
+
+		if (aux == null) {
+			Search search = this.searches.poll();
+			if (search == null)
+				search = new Search();
+			aux = search.leg(codes, source);
+			this.searches.add(search);
+			this.legs[codes][source] = aux;
+			this.legCount.incrementAndGet();
+		}
+
+		return aux;
+	}
+
+	/**
+	 * Gives the fuel to the nearest spaceship after a tour, searching it for the cards of the tour the first time
+	 * @param tour The tour
+	 * @return The fuel, or INFINITE if no spaceship can be reached
+	 */
+	private int fuelToShip(Tour tour) {
+		ShipFuel aux = this.shipFuel[tour.codes];
+
+		if (aux == null) {
+			aux = new ShipFuel(this.searchFromShips(tour.codes));
+			this.shipFuel[tour.codes] = aux;
+		}
+
+		return aux.fuel[this.sourceState[tour.source]];
+	}
+
+	/**
+	 * Searches backwards from the spaceships the fuel to the nearest one from every state. A route does not go through other spaceship,
+	 * and the states that need more fuel than the horizon are not reached
+	 * @param codes The set of cards of the robot
+	 * @return The fuel from every state, or INFINITE if no spaceship can be reached
+	 */
+	private int[] searchFromShips(int codes) {
+		int[] fuel = new int[this.ship.length * NUM_DIRECTIONS];
+		int[] queue = new int[fuel.length];
+		int head = 0;
+		int tail = 0;
+
+		Arrays.fill(fuel, INFINITE);
+		for (int place = 0; place < this.ship.length; place++) {
+			if (this.ship[place]) {
+				for (int d = 0; d < NUM_DIRECTIONS; d++) {
+					fuel[place * NUM_DIRECTIONS + d] = 0;
+					queue[tail++] = place * NUM_DIRECTIONS + d;
+				}
+			}
+		}
+		while (head < tail) {
+			int state = queue[head++];
+			int place = state / NUM_DIRECTIONS;
+			int dir = state % NUM_DIRECTIONS;
+
+			if (fuel[state] + RoutePlanner.MOVE_COST <= this.horizon) {
+				int behind = this.city.nextPlace(place, DIRECTIONS[(dir + 2) % NUM_DIRECTIONS]);
+				int[] steps = { place * NUM_DIRECTIONS + (dir + 1) % NUM_DIRECTIONS, place * NUM_DIRECTIONS + (dir + 3) % NUM_DIRECTIONS,
+						(behind == -1 || this.moveFrom(behind, dir, codes) != place) ? -1 : behind * NUM_DIRECTIONS + dir };
+				for (int i = 0; i < steps.length; i++) {
+					if (steps[i] != -1 && fuel[steps[i]] == INFINITE && !this.ship[steps[i] / NUM_DIRECTIONS]) {
+						fuel[steps[i]] = fuel[state] + RoutePlanner.MOVE_COST;
+						queue[tail++] = steps[i];
+					}
+				}
+			}
+		}
+
+		return fuel;
+	}
+
+	/**
+	 * A beam search: every level adds a stop to the tours of the last level, and only the best ones of every level are kept. Two tours
+	 * with the same stops that end in the same state have the same recycled material and cards, so only the one with more fuel is kept.
+	 * If no level had more tours than the width, the search has tried all the tours
+	 * @param root The tour without stops
+	 * @param width The number of tours kept in every level
+	 * @param deadline The time when the search stops, as System.nanoTime
+	 * @return The best tour that can end at a spaceship, or null if there is none
+	 */
+	private Tour beamSearch(Tour root, int width, final long deadline) {
+		List<Tour> level = Collections.singletonList(root);
+		Tour best = null;
+
+		this.truncated = false;
+		while (!level.isEmpty() && System.nanoTime() < deadline) {
+			List<Callable<List<Tour>>> tasks = new ArrayList<Callable<List<Tour>>>();
+			final List<Tour> current = level;
+			for (int first = 0; first < current.size(); first += TOURS_PER_TASK) {
+				final int from = first;
+				final int to = Math.min(first + TOURS_PER_TASK, current.size());
+				tasks.add(new Callable<List<Tour>>() {
+					public List<Tour> call() {
+						List<Tour> children = new ArrayList<Tour>();
+						for (int i = from; i < to && System.nanoTime() < deadline; i++)
+							TourOptimizer.this.expand(current.get(i), children);
+						return children;
+					}
+				});
+			}
+
+			List<Tour> children = new ArrayList<Tour>();
+			for (List<Tour> part : this.invokeAll(tasks))
+				children.addAll(part);
+			Collections.sort(children, new Comparator<Tour>() {
+				public int compare(Tour a, Tour b) {
+					return (a.score != b.score) ? Integer.compare(b.score, a.score) : Integer.compare(b.fuel, a.fuel);
+				}
+			});
+
+			level = new ArrayList<Tour>();
+			Set<Tour> kept = new HashSet<Tour>();
+			for (int i = 0; i < children.size(); i++) {
+				if (kept.add(children.get(i))) {
+					if (level.size() < width) {
+						level.add(children.get(i));
+						if (this.canFinish(children.get(i)))
+							best = this.better(best, children.get(i));
+					}
+					else
+						this.truncated = true;
+				}
+			}
+		}
+		if (System.nanoTime() >= deadline)
+			this.truncated = true;
+
+		return best;
+	}
+
+	/**
+	 * Adds the tours with one more stop. A stop is only added if the robot arrives at it with some fuel, and the tour is kept
+	 * if a spaceship can be reached after it or it picks a card that opens the way
+	 * @param tour The partial tour
+	 * @param children The list where the new tours are added
+	 */
+	private void expand(Tour tour, List<Tour> children) {
+		Leg leg = this.leg(tour.codes, tour.source);
+		int[] fuel = leg.fuel;
+		byte[] heading = leg.heading;
+
+		for (int i = 0; i < this.stopPlace.length; i++) {
+			if ((tour.visited[i >>> 6] & (1L << i)) == 0 && fuel[i] != INFINITE && tour.fuel > fuel[i]) {
+				long[] visited = tour.visited.clone();
+				visited[i >>> 6] |= 1L << i;
+				Tour child = new Tour(tour, i, 1 + i * NUM_DIRECTIONS + heading[i], tour.codes | this.stopCodes[i],
+						tour.fuel - fuel[i] + this.stopFuel[i], tour.score + this.stopMaterial[i], visited);
+				if (this.canFinish(child) || (this.stopCodes[i] & ~tour.codes) != 0)
+					children.add(child);
+			}
+		}
+	}
+
+	/**
+	 * Checks if a spaceship can be reached after a tour. The robot can arrive at the spaceship with 0 fuel
+	 * @param tour The tour
+	 * @return true if the fuel is enough to go to the nearest spaceship
+	 */
+	private boolean canFinish(Tour tour) {
+		int toShip = this.fuelToShip(tour);
+
+		return toShip != INFINITE && (toShip == 0 || tour.fuel > toShip - RoutePlanner.MOVE_COST);
+	}
+
+	/**
+	 * @param a A tour that can end at a spaceship, or null
+	 * @param b Other tour that can end at a spaceship, or null
+	 * @return The tour with more recycled material, or the one with more fuel at the spaceship if both have the same
+	 */
+	private Tour better(Tour a, Tour b) {
+		Tour aux = a;
+
+		if (a == null)
+			aux = b;
+		else if (b != null && (b.score > a.score || (b.score == a.score
+				&& b.fuel - this.fuelToShip(b) > a.fuel - this.fuelToShip(a))))
+			aux = b;
+
+		return aux;
+	}
+
+	// ----------------------- MÉTODOS QUE COMPILAN EL RECORRIDO EN INSTRUCCIONES -------------------------------
+
+	/**
+	 * Builds the instructions of a tour: the routes between the stops, the items of every stop and the route to the spaceship
+	 * @param tour The tour
+	 * @return The instructions
+	 */
+	private List<Instruction> compile(Tour tour) {
+		List<Instruction> route = new ArrayList<Instruction>();
+		List<Tour> stops = new ArrayList<Tour>();
+		Set<Street> opened = new HashSet<Street>();
+		Search search = new Search();
+		int state = this.sourceState[0];
+		int codes = 0;
+
+		for (Tour t = tour; t.parent != null; t = t.parent)
+			stops.add(t);
+		Collections.reverse(stops);
+		for (Tour t : stops) {
+			int target = this.sourceState[t.source];
+			search.run(state, codes, target);
+			this.addSteps(route, search, target, opened);
+			route.addAll(this.stopInstructions.get(t.stop));
+			state = target;
+			codes = t.codes;
+		}
+		int ship = search.run(state, codes, -1);
+		this.addSteps(route, search, ship, opened);
+
+		return route;
+	}
+
+	/**
+	 * Adds the instructions of the route found by the last search to a state
+	 * @param route The instructions of the tour
+	 * @param search The search
+	 * @param target The last state of the route
+	 * @param opened The closed streets opened by the tour, that are open when the robot crosses them again
+	 */
+	private void addSteps(List<Instruction> route, Search search, int target, Set<Street> opened) {
+		List<Integer> path = new ArrayList<Integer>();
+
+		for (int state = target; search.prev[state] != -1; state = search.prev[state])
+			path.add(state);
+		Collections.reverse(path);
+
+		int from = (path.isEmpty()) ? target : search.prev[path.get(0)];
+		for (int state : path) {
+			int place = from / NUM_DIRECTIONS;
+			int dir = from % NUM_DIRECTIONS;
+			if (state / NUM_DIRECTIONS != place) {
+				Street street = this.city.lookForStreet(place, DIRECTIONS[dir]);
+				if (!street.isOpen() && opened.add(street))
+					route.add(new OperateInstruction(this.cardOf(street.getCodeStreet())));
+				route.add(new MoveInstruction());
+			}
+			else if (state % NUM_DIRECTIONS == (dir + 1) % NUM_DIRECTIONS)
+				route.add(new TurnInstruction(Rotation.RIGHT));
+			else
+				route.add(new TurnInstruction(Rotation.LEFT));
+			from = state;
+		}
+	}
+
+	// ----------------------- MÉTODOS AUXILIARES ---------------------------------------------------------
+
+	/**
+	 * The place reached moving from a place in a direction
+	 * @param place The index of the place
+	 * @param dir The position of the direction
+	 * @param codes The set of cards of the robot
+	 * @return The index of the place at the other side, or -1 if there is no street or the robot cannot cross it
+	 */
+	private int moveFrom(int place, int dir, int codes) {
+		Street street = this.city.lookForStreet(place, DIRECTIONS[dir]);
+		int aux = -1;
+
+		if (street != null) {
+			Integer bit = street.isOpen() ? null : this.codeBit.get(street.getCodeStreet());
+			if (street.isOpen() || this.carried.containsKey(street.getCodeStreet()) || (bit != null && (codes & (1 << bit)) != 0))
+				aux = this.city.nextPlace(place, DIRECTIONS[dir]);
+		}
+
+		return aux;
+	}
+
+	/**
+	 * @param code The code of a closed street that the robot can cross
+	 * @return The id of the card of the robot that opens it
+	 */
+	private String cardOf(String code) {
+		String aux = this.carried.get(code);
+
+		if (aux == null)
+			aux = this.codeCard[this.codeBit.get(code)];
+
+		return aux;
+	}
+
+	/**
+	 * Runs tasks in the pool and waits for their results
+	 * @param tasks The tasks
+	 * @return The results of the tasks, in order
+	 */
+	private <T> List<T> invokeAll(List<Callable<T>> tasks) {
+		List<T> results = new ArrayList<T>();
+
+		try {
+			for (Future<T> f : this.pool.invokeAll(tasks))
+				results.add(f.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Error optimizing the tour", e.getCause());
+		}
+
+		return results;
+	}
+
+	/**
+	 * Position of a heading in the array of directions
+	 * @param heading The heading
+	 * @return The position, or -1 if the heading is unknown
+	 */
+	private static int headingIndex(Direction heading) {
+		int index = -1;
+
+		for (int i = 0; i < NUM_DIRECTIONS && index == -1; i++)
+			if (DIRECTIONS[i] == heading)
+				index = i;
+
+		return index;
+	}
+}
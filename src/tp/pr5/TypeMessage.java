@@ -5,6 +5,6 @@ package tp.pr5;
  * @author Juan Manuel Carrera García
  */
 public enum TypeMessage {
-	REQUEST_HELP, ENGINE_OFF_SPACESHIP, ENGINE_OFF_NO_FUEL, COMMUNICATION_COMPLETED, SAY_SOMETHING, REQUEST_ERROR, UPDATE_ROBOT, INIT_NAVIGATION_MODULE, ROBOT_ARRIVE,
+	REQUEST_HELP, ENGINE_OFF_SPACESHIP, ENGINE_OFF_NO_FUEL, COMMUNICATION_COMPLETED, SAY_SOMETHING, REQUEST_ERROR, UPDATE_ROBOT, FUEL_TO_SHIP, INIT_NAVIGATION_MODULE, ROBOT_ARRIVE,
 	HEADING_CHANGE, SCAN_PLACE, UPDATE_PLACE, ROBOT_ARRIVE_UNDO;
 }
@@ -0,0 +1,363 @@
+package tp.pr5;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import tp.pr5.instructions.DropInstruction;
+import tp.pr5.instructions.Instruction;
+import tp.pr5.instructions.OperateInstruction;
+import tp.pr5.instructions.PickInstruction;
+import tp.pr5.instructions.exceptions.InstructionExecutionException;
+import tp.pr5.items.Item;
+import tp.pr5.items.ItemContainer;
+
+/**
+ * The journal of the instructions of a robot that can be undone and redone. Every instruction that changes the game is kept
+ * as a record of four integers (the operation, its rotation, the change of fuel and the index of the place where it started) in a ring buffer
+ * with a limit: when the limit is reached, the oldest record is forgotten. The identifier or the item of the instruction is kept in the same
+ * position of a ring of references, so it is forgotten with its record and the limit bounds all the memory of the journal.
+ * The records after the last one undone can be redone until a new instruction is added.
+ * @author Juan Manuel Carrera García
+ */
+public class UndoJournal {
+	/**
+	 * The number of records kept if no other limit is configured
+	 */
+	public static final int DEFAULT_LIMIT = 1000;
+
+	private static final int FIELDS = 4;
+	private static final int OPERATION = 0;
+	private static final int ARGUMENT = 1;
+	private static final int FUEL = 2;
+	private static final int PLACE = 3;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private static final int MOVE = 1;
+	private static final int TURN = 2;
+	private static final int PICK = 3;
+	private static final int DROP = 4;
+	private static final int OPERATE = 5;
+
+	private RobotEngine robot;
+	private NavigationModule nav;
+	private ItemContainer container;
+	private int limit;
+	private int[] records;
+	private Object[] refs;
+	private int capacity;
+	private int first;
+	private int size;
+	private int redo;
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates the journal of a robot
+	 * @param robot The engine of the robot
+	 * @param nav The navigation module of the robot
+	 * @param container The inventory of the robot
+	 * @param limit The maximum number of records
+	 */
+	public UndoJournal(RobotEngine robot, NavigationModule nav, ItemContainer container, int limit) {
+		this.robot = robot;
+		this.nav = nav;
+		this.container = container;
+		this.limit = Math.max(1, limit);
+		this.capacity = Math.min(INITIAL_CAPACITY, this.limit);
+		this.records = new int[this.capacity * FIELDS];
+		this.refs = new Object[this.capacity];
+	}
+
+	// ---------------------------- SETTER Y GETTER ------------------------------------
+
+	/**
+	 * Configures the maximum number of records. If there are more records, the oldest ones and the ones that can be redone are forgotten
+	 * @param limit The maximum number of records
+	 */
+	public void setLimit(int limit) {
+		this.limit = Math.max(1, limit);
+		this.forgetRedo();
+		if (this.size > this.limit) {
+			this.first = (this.first + this.size - this.limit) % this.capacity;
+			this.size = this.limit;
+		}
+		this.resize(Math.min(Math.max(this.size, INITIAL_CAPACITY), this.limit));
+	}
+
+	/**
+	 * @return The number of instructions that can be undone
+	 */
+	public int getUndoSize() {
+		return this.size;
+	}
+
+	/**
+	 * @return The number of instructions that can be redone
+	 */
+	public int getRedoSize() {
+		return this.redo;
+	}
+
+	// ----------------------------- MÉTODOS PARA AÑADIR INSTRUCCIONES ------------------------------
+
+	/**
+	 * Adds a movement
+	 * @param origin The place where the movement started
+	 * @param fuel The change of fuel
+	 */
+	public void addMove(Place origin, int fuel) {
+		this.add(MOVE, 0, fuel, this.nav.getCityMap().indexOf(origin), null);
+	}
+
+	/**
+	 * Adds a rotation
+	 * @param rotation The rotation
+	 * @param fuel The change of fuel
+	 */
+	public void addTurn(Rotation rotation, int fuel) {
+		this.add(TURN, rotation.ordinal(), fuel, -1, null);
+	}
+
+	/**
+	 * Adds the pick of an item
+	 * @param id The identifier of the item
+	 */
+	public void addPick(String id) {
+		this.add(PICK, 0, 0, -1, id);
+	}
+
+	/**
+	 * Adds the drop of an item
+	 * @param id The identifier of the item
+	 */
+	public void addDrop(String id) {
+		this.add(DROP, 0, 0, -1, id);
+	}
+
+	/**
+	 * Adds the use of an item
+	 * @param item The item used
+	 */
+	public void addOperate(Item item) {
+		this.add(OPERATE, 0, 0, -1, item);
+	}
+
+	// ----------------------------- MÉTODOS PARA DESHACER Y REHACER ------------------------------
+
+	/**
+	 * Undoes the last instruction. If it cannot be undone, it is forgotten with the ones that could be redone
+	 * @throws InstructionExecutionException If there is no instruction or it cannot be undone
+	 */
+	public void undo() throws InstructionExecutionException {
+		if (this.size == 0)
+			throw new InstructionExecutionException("No more instruction for Undo");
+
+		int slot = (this.first + this.size - 1) % this.capacity;
+		this.size--;
+		try {
+			this.undo(slot);
+			this.redo++;
+		} catch (InstructionExecutionException e) {
+			// The record is forgotten as the first one that could be redone
+			this.redo++;
+			this.forgetRedo();
+			throw e;
+		}
+	}
+
+	/**
+	 * Redoes the last instruction undone. If it cannot be redone, it is forgotten with the ones after it
+	 * @throws InstructionExecutionException If there is no instruction or it cannot be redone
+	 */
+	public void redo() throws InstructionExecutionException {
+		if (this.redo == 0)
+			throw new InstructionExecutionException("No more instruction for Redo");
+
+		int slot = (this.first + this.size) % this.capacity;
+		try {
+			this.redo(slot);
+			this.size++;
+			this.redo--;
+		} catch (InstructionExecutionException e) {
+			this.forgetRedo();
+			throw e;
+		}
+	}
+
+	/**
+	 * Undoes a record
+	 * @param slot The position of the record in the ring
+	 * @throws InstructionExecutionException If it cannot be undone
+	 */
+	private void undo(int slot) throws InstructionExecutionException {
+		int pos = slot * FIELDS;
+		int arg = this.records[pos + ARGUMENT];
+
+		switch (this.records[pos + OPERATION]) {
+		case MOVE:
+			this.nav.returnTo(this.nav.getCityMap().getPlace(this.records[pos + PLACE]));
+			this.robot.addFuel(-this.records[pos + FUEL]);
+			break;
+		case TURN:
+			this.nav.rotate(Rotation.values()[arg].rotacionOpuesta());
+			this.robot.addFuel(-this.records[pos + FUEL]);
+			break;
+		case PICK: this.execute(new DropInstruction((String) this.refs[slot]));
+			break;
+		case DROP: this.execute(new PickInstruction((String) this.refs[slot]));
+			break;
+		case OPERATE:
+			Item item = (Item) this.refs[slot];
+			if (!item.useUndo(this.robot, this.nav, this.container))
+				throw new InstructionExecutionException("WALL·E says: I have problems using the object " + item.getId());
+			break;
+		default: break;
+		}
+	}
+
+	/**
+	 * Redoes a record
+	 * @param slot The position of the record in the ring
+	 * @throws InstructionExecutionException If it cannot be redone
+	 */
+	private void redo(int slot) throws InstructionExecutionException {
+		int pos = slot * FIELDS;
+		int arg = this.records[pos + ARGUMENT];
+
+		switch (this.records[pos + OPERATION]) {
+		case MOVE:
+			this.nav.move();
+			this.robot.addFuel(this.records[pos + FUEL]);
+			break;
+		case TURN:
+			this.nav.rotate(Rotation.values()[arg]);
+			this.robot.addFuel(this.records[pos + FUEL]);
+			break;
+		case PICK: this.execute(new PickInstruction((String) this.refs[slot]));
+			break;
+		case DROP: this.execute(new DropInstruction((String) this.refs[slot]));
+			break;
+		case OPERATE: this.execute(new OperateInstruction(((Item) this.refs[slot]).getId()));
+			break;
+		default: break;
+		}
+	}
+
+	/**
+	 * Executes an instruction in the context of the robot
+	 * @param ins The instruction
+	 * @throws InstructionExecutionException If the instruction fails
+	 */
+	private void execute(Instruction ins) throws InstructionExecutionException {
+		ins.configureContext(this.robot, this.nav, this.container);
+		ins.execute();
+	}
+
+	// ----------------------------- MÉTODOS PARA LAS INSTANTÁNEAS ------------------------------
+
+	/**
+	 * Writes the records that can be undone and redone, with their identifiers and items
+	 * @param out The stream of the snapshot
+	 * @throws IOException If the stream cannot be written
+	 */
+	void writeState(ObjectOutputStream out) throws IOException {
+		int total = this.size + this.redo;
+		int[] aux = new int[total * FIELDS];
+		Object[] auxRefs = new Object[total];
+
+		for (int i = 0; i < total; i++) {
+			int slot = (this.first + i) % this.capacity;
+			System.arraycopy(this.records, slot * FIELDS, aux, i * FIELDS, FIELDS);
+			auxRefs[i] = this.refs[slot];
+		}
+		out.writeInt(this.size);
+		out.writeInt(this.redo);
+		out.writeObject(aux);
+		out.writeObject(auxRefs);
+	}
+
+	/**
+	 * Replaces the records by the ones of a snapshot. If they are more than the limit, the oldest ones are forgotten,
+	 * and then the last ones that could be redone
+	 * @param in The stream of the snapshot
+	 * @throws IOException If the stream cannot be read or it is not a snapshot
+	 */
+	void readState(ObjectInputStream in) throws IOException {
+		int undo = in.readInt();
+		int redo = in.readInt();
+
+		try {
+			int[] aux = (int[]) in.readObject();
+			Object[] auxRefs = (Object[]) in.readObject();
+			int skip = Math.min(undo, Math.max(0, undo + redo - this.limit));
+
+			this.size = undo - skip;
+			this.redo = Math.min(redo, this.limit - this.size);
+			this.first = 0;
+			this.capacity = Math.min(Math.max(this.size + this.redo, INITIAL_CAPACITY), this.limit);
+			this.records = new int[this.capacity * FIELDS];
+			this.refs = new Object[this.capacity];
+			System.arraycopy(aux, skip * FIELDS, this.records, 0, (this.size + this.redo) * FIELDS);
+			System.arraycopy(auxRefs, skip, this.refs, 0, this.size + this.redo);
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("Wrong journal of undo in the snapshot", e);
+		}
+	}
+
+	// ----------------------------- MÉTODOS DEL BUFFER CIRCULAR ------------------------------
+
+	/**
+	 * Adds a record after the last one that can be undone. The records that could be redone are forgotten
+	 * @param operation The operation
+	 * @param argument The rotation, or 0
+	 * @param fuel The change of fuel
+	 * @param place The index of the place, or -1
+	 * @param ref The identifier or the item of the instruction, or null
+	 */
+	private void add(int operation, int argument, int fuel, int place, Object ref) {
+		this.forgetRedo();
+		if (this.size == this.limit) {
+			this.first = (this.first + 1) % this.capacity;
+			this.size--;
+		}
+		else if (this.size == this.capacity)
+			this.resize(Math.min(2 * this.capacity, this.limit));
+
+		int slot = (this.first + this.size) % this.capacity;
+		int pos = slot * FIELDS;
+		this.records[pos + OPERATION] = operation;
+		this.records[pos + ARGUMENT] = argument;
+		this.records[pos + FUEL] = fuel;
+		this.records[pos + PLACE] = place;
+		this.refs[slot] = ref;
+		this.size++;
+	}
+
+	/**
+	 * Forgets the records that could be redone, and the identifiers and items that they keep
+	 */
+	private void forgetRedo() {
+		for (int i = 0; i < this.redo; i++)
+			this.refs[(this.first + this.size + i) % this.capacity] = null;
+		this.redo = 0;
+	}
+
+	/**
+	 * Moves the records that can be undone to a buffer of other capacity, starting at its first position
+	 * @param newCapacity The new capacity, not less than the number of records
+	 */
+	private void resize(int newCapacity) {
+		int[] aux = new int[newCapacity * FIELDS];
+		Object[] auxRefs = new Object[newCapacity];
+
+		for (int i = 0; i < this.size; i++) {
+			int slot = (this.first + i) % this.capacity;
+			System.arraycopy(this.records, slot * FIELDS, aux, i * FIELDS, FIELDS);
+			auxRefs[i] = this.refs[slot];
+		}
+		this.records = aux;
+		this.refs = auxRefs;
+		this.capacity = newCapacity;
+		this.first = 0;
+	}
+}
@@ -0,0 +1,236 @@
+package tp.pr5.cityLoader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import tp.pr5.City;
+import tp.pr5.Place;
+import tp.pr5.Street;
+import tp.pr5.cityLoader.cityLoaderExceptions.WrongCityFormatException;
+import tp.pr5.items.CodeCard;
+import tp.pr5.items.Fuel;
+import tp.pr5.items.Garbage;
+import tp.pr5.items.Item;
+
+/**
+ * Converts a city in the text format of CityLoaderFromTxtFile into the binary format read by CityLoaderFromBinaryFile.
+ * The text file is loaded with CityLoaderFromTxtFile, so the binary file contains exactly the city that the text loader builds.
+ *
+ * Usage: java tp.pr5.cityLoader.CityBinaryConverter &lt;txtfile&gt; &lt;binfile&gt;
+ * @author Juan Manuel Carrera García
+ */
+public class CityBinaryConverter {
+	private List<String> strings;
+	private Map<String, Integer> stringIndex;
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates the converter
+	 */
+	public CityBinaryConverter() {
+		this.strings = new ArrayList<String>();
+		this.stringIndex = new HashMap<String, Integer>();
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Converts a city in text format into the binary format
+	 * @param txt The input stream with the text city
+	 * @param out The output stream where the binary city is written
+	 * @throws IOException When the text city is not correct (WrongCityFormatException) or some errors in IO operations
+	 */
+	public void convert(InputStream txt, OutputStream out) throws IOException {
+		CityLoaderFromTxtFile loader = new CityLoaderFromTxtFile();
+		City city = loader.loadCity(txt);
+
+		this.write(loader.getPlaces(), city, out);
+	}
+
+	/**
+	 * Writes a city in the binary format
+	 * @param places The places of the city, in the order of their indexes
+	 * @param city The streets of the city
+	 * @param out The output stream where the binary city is written
+	 * @throws IOException When there are some errors in IO operations
+	 */
+	public void write(List<Place> places, City city, OutputStream out) throws IOException {
+		Map<Place, Integer> placeIndex = new IdentityHashMap<Place, Integer>();
+		int numItems = 0;
+
+		this.strings.clear();
+		this.stringIndex.clear();
+		for (int i = 0; i < places.size(); i++) {
+			Place place = places.get(i);
+			placeIndex.put(place, i);
+			this.stringId(place.getName());
+			this.stringId(place.getDescription());
+			for (int j = 0; j < place.numberOfItems(); j++)
+				this.collectStrings(place.getItem(j));
+			numItems += place.numberOfItems();
+		}
+		for (int i = 0; i < city.getNumStreet(); i++)
+			this.stringId(city.getStreet(i).getCodeStreet());
+
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+		data.writeInt(CityBinaryFormat.MAGIC);
+		data.writeInt(CityBinaryFormat.VERSION);
+		this.writeStrings(data);
+
+		data.writeInt(places.size());
+		for (int i = 0; i < places.size(); i++) {
+			Place place = places.get(i);
+			data.writeInt(this.stringId(place.getName()));
+			data.writeInt(this.stringId(place.getDescription()));
+			data.writeInt(place.isSpaceship() ? 1 : 0);
+		}
+
+		data.writeInt(city.getNumStreet());
+		for (int i = 0; i < city.getNumStreet(); i++) {
+			Street street = city.getStreet(i);
+			Integer source = placeIndex.get(street.getSource());
+			Integer target = placeIndex.get(street.getTarget());
+			if (source == null || target == null)
+				throw new WrongCityFormatException("The street " + i + " links a place that is not in the city");
+			data.writeInt(source);
+			data.writeInt(target);
+			data.writeInt(this.stringId(street.getCodeStreet()) << CityBinaryFormat.CODE_SHIFT
+					| (street.isOpen() ? CityBinaryFormat.OPEN : 0)
+					| CityBinaryFormat.directionCode(street.getDirection()));
+		}
+
+		data.writeInt(numItems);
+		for (int i = 0; i < places.size(); i++) {
+			Place place = places.get(i);
+			for (int j = 0; j < place.numberOfItems(); j++)
+				this.writeItem(data, place.getItem(j), i);
+		}
+		data.flush();
+	}
+
+	/**
+	 * Adds to the string table the strings of an item
+	 * @param item The item
+	 */
+	private void collectStrings(Item item) {
+		this.stringId(item.getId());
+		this.stringId(item.getDescription());
+		if (item instanceof CodeCard)
+			this.stringId(((CodeCard) item).getCode());
+	}
+
+	/**
+	 * Writes the record of an item
+	 * @param data The output stream
+	 * @param item The item
+	 * @param place The index of the place of the item
+	 * @throws IOException When there are some errors in IO operations
+	 */
+	private void writeItem(DataOutputStream data, Item item, int place) throws IOException {
+		int type, a, b;
+
+		if (item instanceof Fuel) {
+			type = CityBinaryFormat.FUEL;
+			a = ((Fuel) item).getFuel();
+			b = ((Fuel) item).getTimes();
+		}
+		else if (item instanceof Garbage) {
+			type = CityBinaryFormat.GARBAGE;
+			a = ((Garbage) item).getRecycledMaterial();
+			b = 0;
+		}
+		else if (item instanceof CodeCard) {
+			type = CityBinaryFormat.CODECARD;
+			a = this.stringId(((CodeCard) item).getCode());
+			b = 0;
+		}
+		else
+			throw new WrongCityFormatException("Unknown type of item " + item.getId());
+
+		data.writeInt(type);
+		data.writeInt(place);
+		data.writeInt(this.stringId(item.getId()));
+		data.writeInt(this.stringId(item.getDescription()));
+		data.writeInt(a);
+		data.writeInt(b);
+	}
+
+	/**
+	 * Writes the string table
+	 * @param data The output stream
+	 * @throws IOException When there are some errors in IO operations
+	 */
+	private void writeStrings(DataOutputStream data) throws IOException {
+		byte[][] bytes = new byte[this.strings.size()][];
+
+		data.writeInt(this.strings.size());
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = this.strings.get(i).getBytes(StandardCharsets.UTF_8);
+			data.writeInt(bytes[i].length);
+		}
+		for (int i = 0; i < bytes.length; i++)
+			data.write(bytes[i]);
+	}
+
+	/**
+	 * Index of a string in the string table, adding it if it is not there
+	 * @param s The string
+	 * @return The index of the string
+	 * @throws IllegalStateException If the table is full
+	 */
+	private int stringId(String s) {
+		Integer id = this.stringIndex.get(s);
+
+		if (id == null) {
+			if (this.strings.size() == CityBinaryFormat.MAX_STRINGS)
+				throw new IllegalStateException("Too many strings for the binary format");
+			id = this.strings.size();
+			this.strings.add(s);
+			this.stringIndex.put(s, id);
+		}
+
+		return id;
+	}
+
+	// --------------------------------------------- PROGRAMA -----------------------------------------------
+
+	/**
+	 * Converts the text city given as first argument into the binary file given as second argument
+	 * @param args The text file and the binary file
+	 */
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("usage: " + CityBinaryConverter.class.getCanonicalName() + " <txtfile> <binfile>");
+			System.exit(1);
+		}
+
+		try {
+			InputStream in = new FileInputStream(args[0]);
+			OutputStream out = new FileOutputStream(args[1]);
+			try {
+				new CityBinaryConverter().convert(in, out);
+			} finally {
+				in.close();
+				out.close();
+			}
+		} catch (WrongCityFormatException e) {
+			System.err.println("Incorrect Format");
+			System.exit(2);
+		} catch (IOException e) {
+			System.err.println("Error converting the map file: " + e.getMessage());
+			System.exit(2);
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package tp.pr5.cityLoader;
+
+import tp.pr5.Direction;
+
+/**
+ * Constants of the binary city format. A binary city file contains, in big endian order:
+ * 
+ *  int magic, int version
+ *  int numStrings, int[numStrings] lengths, the UTF-8 bytes of all the strings
+ *  int numPlaces, numPlaces records of 3 ints: name, description, spaceship (0 or 1)
+ *  int numStreets, numStreets records of 3 ints: source place, target place, code &lt;&lt; 3 | open &lt;&lt; 2 | direction
+ *  int numItems, numItems records of 6 ints: type, place, id, description, and two values that depend on the type 
+ *  	(power and times for fuel, recycled material for garbage, code for code cards)
+ *
+ * Names, descriptions and codes are indexes in the string table.
+ * @author Juan Manuel Carrera García
+ */
+final class CityBinaryFormat {
+	static final int MAGIC = 0x57414C45;
+	static final int VERSION = 1;
+
+	static final int PLACE_INTS = 3;
+	static final int STREET_INTS = 3;
+	static final int ITEM_INTS = 6;
+
+	static final int FUEL = 0;
+	static final int GARBAGE = 1;
+	static final int CODECARD = 2;
+
+	static final int OPEN = 1 << 2;
+	static final int CODE_SHIFT = 3;
+	static final int MAX_STRINGS = 1 << (31 - CODE_SHIFT);
+
+	private static final Direction[] DIRECTIONS = { Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
+
+	private CityBinaryFormat() {}
+
+	/**
+	 * Code of a direction in the street records
+	 * @param dir The direction
+	 * @return The code, or -1 if the direction is unknown
+	 */
+	static int directionCode(Direction dir) {
+		int code = -1;
+
+		for (int i = 0; i < DIRECTIONS.length && code == -1; i++)
+			if (DIRECTIONS[i] == dir)
+				code = i;
+
+		return code;
+	}
+
+	/**
+	 * Direction of a code of the street records
+	 * @param code The code
+	 * @return The direction
+	 */
+	static Direction direction(int code) {
+		return DIRECTIONS[code & 3];
+	}
+}
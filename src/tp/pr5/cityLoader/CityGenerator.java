@@ -0,0 +1,399 @@
+package tp.pr5.cityLoader;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.apache.commons.cli.*;
+
+import tp.pr5.Direction;
+
+/**
+ * Generates cities in the text format of CityLoaderFromTxtFile to test the game with big maps. There are three topologies:
+ *  - GRID: the places are in rows, linked with their east and south neighbours.
+ *  - RANDOM: a random tree that links all the places, plus some random extra streets.
+ *  - CORRIDOR: a line of places from west to east.
+ * Some streets can be closed. The code card that opens a closed street is left in the source place of the street.
+ * The spaceship is always in the last place.
+ *
+ * The city is written while it is generated, so the size of the map is not limited by the memory: the streets are generated
+ * twice, once for the streets section and once for the code cards of the items section. The same seed gives the same file.
+ *
+ * Usage: java tp.pr5.cityLoader.CityGenerator -t grid|random|corridor -p places [-o file] [-s seed] [-c closed] [-f fuel] [-g garbage] [-e extra] [-q]
+ * @author Juan Manuel Carrera García
+ */
+public class CityGenerator {
+	private static final Direction[] DIRECTIONS = { Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
+	private static final long ITEMS_SEED = 0x5DEECE66DL;
+	private static final int RANDOM_TRIES = 8;
+
+	/**
+	 * The shape of the generated city
+	 */
+	public enum Topology {
+		GRID, RANDOM, CORRIDOR
+	}
+
+	private Topology topology;
+	private int numPlaces;
+	private long seed;
+	private double closedStreets;
+	private double fuelDensity;
+	private double garbageDensity;
+	private double extraStreets;
+	private boolean quotedDescriptions;
+
+	private Writer out;
+	private Random random;
+	private byte[] usedExits;
+	private int numStreets;
+	private int numItems;
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates a generator without closed streets, with one garbage for every place and without quoted descriptions
+	 * @param topology The shape of the city
+	 * @param numPlaces The number of places
+	 * @param seed The seed of the random numbers
+	 */
+	public CityGenerator(Topology topology, int numPlaces, long seed) {
+		if (numPlaces < 1)
+			throw new IllegalArgumentException("The city needs at least one place");
+		this.topology = topology;
+		this.numPlaces = numPlaces;
+		this.seed = seed;
+		this.closedStreets = 0;
+		this.fuelDensity = 0;
+		this.garbageDensity = 1;
+		this.extraStreets = 0.5;
+		this.quotedDescriptions = false;
+	}
+
+	// --------------------------------------------- SETTER -----------------------------------------------
+
+	/**
+	 * @param closedStreets The probability that a street is closed
+	 */
+	public void setClosedStreets(double closedStreets) {
+		this.closedStreets = closedStreets;
+	}
+
+	/**
+	 * @param fuelDensity The average number of fuel items in a place
+	 */
+	public void setFuelDensity(double fuelDensity) {
+		this.fuelDensity = fuelDensity;
+	}
+
+	/**
+	 * @param garbageDensity The average number of garbage items in a place
+	 */
+	public void setGarbageDensity(double garbageDensity) {
+		this.garbageDensity = garbageDensity;
+	}
+
+	/**
+	 * @param extraStreets The number of random streets added to the random tree, for every place. Only for RANDOM cities
+	 */
+	public void setExtraStreets(double extraStreets) {
+		this.extraStreets = extraStreets;
+	}
+
+	/**
+	 * @param quotedDescriptions true to write the descriptions between quotes, with spaces, instead of with underscores
+	 */
+	public void setQuotedDescriptions(boolean quotedDescriptions) {
+		this.quotedDescriptions = quotedDescriptions;
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Writes the city
+	 * @param output Where the city is written, in UTF-8. It is not closed
+	 * @throws IOException If the city cannot be written
+	 */
+	public void generate(OutputStream output) throws IOException {
+		this.out = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 1 << 16);
+
+		this.out.write("BeginCity\n");
+		this.writePlaces();
+		this.out.write("BeginStreets\n");
+		this.generateStreets(true);
+		this.out.write("EndStreets\nBeginItems\n");
+		this.numItems = 0;
+		this.generateStreets(false);
+		this.writeItems();
+		this.out.write("EndItems\nEndCity\n");
+		this.out.flush();
+	}
+
+	/**
+	 * Writes the places section
+	 * @throws IOException If the city cannot be written
+	 */
+	private void writePlaces() throws IOException {
+		this.out.write("BeginPlaces\n");
+		for (int i = 0; i < this.numPlaces; i++) {
+			this.out.write("place " + i + " P" + i + " ");
+			this.out.write(this.description("Place number " + i + " of the city"));
+			this.out.write(i == this.numPlaces - 1 ? " spaceShip\n" : " noSpaceShip\n");
+		}
+		this.out.write("EndPlaces\n");
+	}
+
+	/**
+	 * Writes the items section, except the code cards
+	 * @throws IOException If the city cannot be written
+	 */
+	private void writeItems() throws IOException {
+		this.random = new Random(this.seed ^ ITEMS_SEED);
+
+		for (int i = 0; i < this.numPlaces; i++) {
+			for (int k = this.count(this.fuelDensity); k > 0; k--) {
+				this.out.write("fuel " + this.numItems + " F" + this.numItems + " " + this.description("Some fuel") + " "
+						+ (5 + this.random.nextInt(46)) + " " + (1 + this.random.nextInt(3)) + " place " + i + "\n");
+				this.numItems++;
+			}
+			for (int k = this.count(this.garbageDensity); k > 0; k--) {
+				this.out.write("garbage " + this.numItems + " G" + this.numItems + " " + this.description("Some garbage") + " "
+						+ (1 + this.random.nextInt(50)) + " place " + i + "\n");
+				this.numItems++;
+			}
+		}
+	}
+
+	/**
+	 * Number of items of a kind in a place
+	 * @param density The average number of items
+	 * @return The integer part of the density, plus one with the probability of the fractional part
+	 */
+	private int count(double density) {
+		int n = (int) density;
+		if (this.random.nextDouble() < density - n)
+			n++;
+		return n;
+	}
+
+	/**
+	 * A description in the format of the file
+	 * @param text The description
+	 * @return The description with quotes or with underscores instead of spaces
+	 */
+	private String description(String text) {
+		return this.quotedDescriptions ? "\"" + text + "\"" : text.replace(' ', '_');
+	}
+
+	// ----------------------- GENERACIÓN DE CALLES ---------------------------
+
+	/**
+	 * Generates the streets of the topology. The same random numbers are used in both passes, so they generate the same streets
+	 * @param streets true to write the streets, false to write the code cards of the closed streets
+	 * @throws IOException If the city cannot be written
+	 */
+	private void generateStreets(boolean streets) throws IOException {
+		this.random = new Random(this.seed);
+		this.numStreets = 0;
+
+		switch (this.topology) {
+		case GRID: this.generateGrid(streets);
+		break;
+		case RANDOM: this.generateRandom(streets);
+		break;
+		default: this.generateCorridor(streets);
+		}
+		this.usedExits = null;
+	}
+
+	/**
+	 * Rows of places, as square as possible
+	 * @param streets true to write the streets, false to write the code cards
+	 * @throws IOException If the city cannot be written
+	 */
+	private void generateGrid(boolean streets) throws IOException {
+		int side = (int) Math.ceil(Math.sqrt(this.numPlaces));
+
+		for (int i = 0; i < this.numPlaces; i++) {
+			if (i % side + 1 < side && i + 1 < this.numPlaces)
+				this.street(i, Direction.EAST, i + 1, streets);
+			if (i + side < this.numPlaces)
+				this.street(i, Direction.SOUTH, i + side, streets);
+		}
+	}
+
+	/**
+	 * A line of places from west to east
+	 * @param streets true to write the streets, false to write the code cards
+	 * @throws IOException If the city cannot be written
+	 */
+	private void generateCorridor(boolean streets) throws IOException {
+		for (int i = 0; i + 1 < this.numPlaces; i++)
+			this.street(i, Direction.EAST, i + 1, streets);
+	}
+
+	/**
+	 * A random tree, where every place is linked with a previous place, and some extra streets between random places.
+	 * A place has only one street in every direction, so the free directions of every place are kept in a byte
+	 * @param streets true to write the streets, false to write the code cards
+	 * @throws IOException If the city cannot be written
+	 */
+	private void generateRandom(boolean streets) throws IOException {
+		long extra = Math.round(this.extraStreets * this.numPlaces);
+
+		this.usedExits = new byte[this.numPlaces];
+		for (int i = 1; i < this.numPlaces; i++) {
+			int parent = this.placeWithFreeExit(i);
+			int d = this.freeDirection(parent, -1);
+			this.street(parent, DIRECTIONS[d], i, streets);
+		}
+		for (long k = 0; k < extra && this.numPlaces > 1; k++) {
+			int a = this.random.nextInt(this.numPlaces);
+			int b = this.random.nextInt(this.numPlaces);
+			int d = (a == b) ? -1 : this.freeDirection(a, b);
+			if (d != -1)
+				this.street(a, DIRECTIONS[d], b, streets);
+		}
+	}
+
+	/**
+	 * A random place before a place that has some free direction. There is always one, because a tree of n places has n - 1 streets
+	 * @param limit The places before this one are searched
+	 * @return The place
+	 */
+	private int placeWithFreeExit(int limit) {
+		int place = -1;
+
+		for (int t = 0; t < RANDOM_TRIES && place == -1; t++) {
+			int p = this.random.nextInt(limit);
+			if (this.usedExits[p] != 0xF)
+				place = p;
+		}
+		for (int p = limit - 1; place == -1; p--)
+			if (this.usedExits[p] != 0xF)
+				place = p;
+
+		return place;
+	}
+
+	/**
+	 * A random free direction of a place whose opposite direction is free in other place
+	 * @param place The place
+	 * @param other The other place, or -1 if it has all the directions free
+	 * @return The index of the direction in DIRECTIONS, or -1 if there is none
+	 */
+	private int freeDirection(int place, int other) {
+		int first = this.random.nextInt(DIRECTIONS.length);
+		int found = -1;
+
+		for (int k = 0; k < DIRECTIONS.length && found == -1; k++) {
+			int d = (first + k) % DIRECTIONS.length;
+			int opposite = (d + 2) % DIRECTIONS.length;
+			if ((this.usedExits[place] & (1 << d)) == 0 && (other == -1 || (this.usedExits[other] & (1 << opposite)) == 0))
+				found = d;
+		}
+
+		return found;
+	}
+
+	/**
+	 * Generates a street. In the first pass the street is written; in the second one, if it is closed, the code card that opens it
+	 * @param source The source place
+	 * @param direction The direction from the source place to the target place
+	 * @param target The target place
+	 * @param streets true to write the street, false to write the code card
+	 * @throws IOException If the city cannot be written
+	 */
+	private void street(int source, Direction direction, int target, boolean streets) throws IOException {
+		boolean closed = this.random.nextDouble() < this.closedStreets;
+
+		if (this.usedExits != null) {
+			int d = CityGenerator.slot(direction);
+			this.usedExits[source] |= 1 << d;
+			this.usedExits[target] |= 1 << ((d + 2) % DIRECTIONS.length);
+		}
+
+		if (streets)
+			this.out.write("street " + this.numStreets + " place " + source + " " + direction.name().toLowerCase() + " place "
+					+ target + (closed ? " closed code" + this.numStreets + "\n" : " open\n"));
+		else if (closed) {
+			this.out.write("codecard " + this.numItems + " C" + this.numItems + " " + this.description("Opens a street") + " code"
+					+ this.numStreets + " place " + source + "\n");
+			this.numItems++;
+		}
+		this.numStreets++;
+	}
+
+	/**
+	 * The position of a direction in DIRECTIONS
+	 * @param direction The direction
+	 * @return The position
+	 */
+	private static int slot(Direction direction) {
+		int d = 0;
+		while (DIRECTIONS[d] != direction)
+			d++;
+		return d;
+	}
+
+	// --------------------------------------------- PROGRAMA -----------------------------------------------
+
+	/**
+	 * Generates a city with the options given as arguments
+	 * @param args The options of the city
+	 */
+	public static void main(String[] args) {
+		Options options = new Options();
+		options.addOption("t", "topology", true, "The shape of the city: grid, random or corridor");
+		options.addOption("p", "places", true, "The number of places");
+		options.addOption("o", "output", true, "The file where the city is written (default the standard output)");
+		options.addOption("s", "seed", true, "The seed of the random numbers (default 0)");
+		options.addOption("c", "closed", true, "The probability that a street is closed (default 0)");
+		options.addOption("f", "fuel", true, "The average number of fuel items in a place (default 0)");
+		options.addOption("g", "garbage", true, "The average number of garbage items in a place (default 1)");
+		options.addOption("e", "extra", true, "Extra streets for every place in random cities (default 0.5)");
+		options.addOption("q", "quoted", false, "Writes the descriptions between quotes");
+		options.addOption("h", "help", false, "Shows this help message");
+
+		try {
+			CommandLine cmdLine = new BasicParser().parse(options, args);
+			if (cmdLine.hasOption("h") || !cmdLine.hasOption("t") || !cmdLine.hasOption("p")) {
+				new HelpFormatter().printHelp(CityGenerator.class.getCanonicalName(), options);
+				System.exit(cmdLine.hasOption("h") ? 0 : 1);
+			}
+
+			CityGenerator generator = new CityGenerator(Topology.valueOf(cmdLine.getOptionValue("t").toUpperCase()),
+					Integer.parseInt(cmdLine.getOptionValue("p")), Long.parseLong(cmdLine.getOptionValue("s", "0")));
+			generator.setClosedStreets(Double.parseDouble(cmdLine.getOptionValue("c", "0")));
+			generator.setFuelDensity(Double.parseDouble(cmdLine.getOptionValue("f", "0")));
+			generator.setGarbageDensity(Double.parseDouble(cmdLine.getOptionValue("g", "1")));
+			generator.setExtraStreets(Double.parseDouble(cmdLine.getOptionValue("e", "0.5")));
+			generator.setQuotedDescriptions(cmdLine.hasOption("q"));
+
+			if (cmdLine.hasOption("o")) {
+				OutputStream out = new FileOutputStream(cmdLine.getOptionValue("o"));
+				try {
+					generator.generate(out);
+				} finally {
+					out.close();
+				}
+			}
+			else
+				generator.generate(System.out);
+		} catch (ParseException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		} catch (IllegalArgumentException e) {
+			System.err.println("Wrong option: " + e.getMessage());
+			System.exit(1);
+		} catch (IOException e) {
+			System.err.println("Error writing the city: " + e.getMessage());
+			System.exit(2);
+		}
+	}
+}
@@ -0,0 +1,410 @@
+package tp.pr5.cityLoader;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import tp.pr5.Direction;
+import tp.pr5.Place;
+import tp.pr5.Street;
+import tp.pr5.cityLoader.cityLoaderExceptions.WrongCityFormatException;
+import tp.pr5.items.CodeCard;
+import tp.pr5.items.Fuel;
+import tp.pr5.items.Garbage;
+import tp.pr5.items.Item;
+
+/**
+ * Parser of the lines of a city file stored in a byte buffer. The lines are tokenized in place, keeping only the start and the end of every word,
+ * and the numbers are parsed directly from the bytes. Only the strings that are stored in the places, streets and items are created,
+ * and the repeated ones are shared through a map of strings.
+ *
+ * It accepts the same lines as CityLoaderFromTxtFile. A parser is not thread safe, but several parsers can share a concurrent map of strings.
+ * @author Juan Manuel Carrera García
+ */
+class CityLineParser {
+	private static final int MAX_WORDS = 16;
+	private static final byte SPACE = ' ';
+	private static final byte QUOTE = '"';
+
+	private Map<String, String> strings;
+	private ByteBuffer buffer;
+	private int[] wordStart;
+	private int[] wordEnd;
+	private int numWords;
+	private byte[] scratch;
+	private int itemPlace;
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates a parser
+	 * @param strings The map used to share the repeated strings
+	 */
+	CityLineParser(Map<String, String> strings) {
+		this.strings = strings;
+		this.wordStart = new int[MAX_WORDS];
+		this.wordEnd = new int[MAX_WORDS];
+		this.scratch = new byte[256];
+	}
+
+	// --------------------------------------------- GETTER -----------------------------------------------
+
+	/**
+	 * Index of the place where the last parsed item must be stored
+	 * @return The index of the place
+	 */
+	int getItemPlace() {
+		return this.itemPlace;
+	}
+
+	// ----------------------- MÉTODO QUE PARSEA UNA LÍNEA DE UN PLACE ---------------------------
+
+	/**
+	 * Parses a line with a place
+	 * @param buf The buffer with the line
+	 * @param start First byte of the line
+	 * @param end Byte after the last byte of the line
+	 * @param index The index that the place must have
+	 * @param line The number of the line in the file
+	 * @return The place
+	 * @throws WrongCityFormatException If the line is not a correct place
+	 */
+	Place parsePlace(ByteBuffer buf, int start, int end, int index, int line) throws WrongCityFormatException {
+		this.buffer = buf;
+		if (this.indexOf(QUOTE, start, end) != -1)
+			this.divideQuoted(start, end, line, 1, 1);
+		else
+			this.split(start, end, line);
+
+		if (this.numWords != 5 || !this.wordIs(0, "Place")
+				|| !(this.wordIs(4, "spaceShip") || this.wordIs(4, "noSpaceShip"))
+				|| this.intWord(1) != index)
+			throw new WrongCityFormatException("Incorrect Format", line);
+
+		return new Place(index, this.shared(2), this.wordIs(4, "spaceShip"), this.description(3));
+	}
+
+	// ----------------------- MÉTODO QUE PARSEA UNA LÍNEA DE UNA STREET ---------------------------
+
+	/**
+	 * Parses a line with a street
+	 * @param buf The buffer with the line
+	 * @param start First byte of the line
+	 * @param end Byte after the last byte of the line
+	 * @param places The places of the city
+	 * @param numPlaces Number of places that the street can use
+	 * @param index The index that the street must have
+	 * @param line The number of the line in the file
+	 * @return The street
+	 * @throws WrongCityFormatException If the line is not a correct street
+	 */
+	Street parseStreet(ByteBuffer buf, int start, int end, List<Place> places, int numPlaces, int index, int line)
+			throws WrongCityFormatException {
+		this.buffer = buf;
+		this.split(start, end, line);
+
+		if (this.numWords < 8)
+			throw new WrongCityFormatException("Incorrect Format", line);
+
+		Direction dir = this.directionWord(4);
+		int placeI = this.intWord(3);
+		int placeF = this.intWord(6);
+
+		if (placeI == -1 || placeF == -1
+				|| (this.numWords != 8 && this.numWords != 9)
+				|| !this.wordIs(0, "Street")
+				|| placeI >= numPlaces || placeF >= numPlaces
+				|| dir == Direction.UNKNOWN
+				|| !((this.wordIs(7, "open") && this.numWords == 8) || (this.wordIs(7, "closed") && this.numWords == 9))
+				|| this.intWord(1) != index)
+			throw new WrongCityFormatException("Incorrect Format", line);
+
+		Street aux;
+		if (this.wordIs(7, "open"))
+			aux = new Street(places.get(placeI), dir, places.get(placeF), true, "");
+		else
+			aux = new Street(places.get(placeI), dir, places.get(placeF), false, this.shared(8));
+
+		return aux;
+	}
+
+	// ----------------------- MÉTODO QUE PARSEA UNA LÍNEA DE UN ÍTEM ---------------------------
+
+	/**
+	 * Parses a line with an item. The index of the place where the item must be stored is available with getItemPlace
+	 * @param buf The buffer with the line
+	 * @param start First byte of the line
+	 * @param end Byte after the last byte of the line
+	 * @param numPlaces Number of places that the item can use
+	 * @param index The index that the item must have
+	 * @param line The number of the line in the file
+	 * @return The item
+	 * @throws WrongCityFormatException If the line is not a correct item
+	 */
+	Item parseItem(ByteBuffer buf, int start, int end, int numPlaces, int index, int line) throws WrongCityFormatException {
+		this.buffer = buf;
+		if (this.indexOf(QUOTE, start, end) != -1)
+			this.divideQuoted(start, end, line, 3, 4);
+		else
+			this.split(start, end, line);
+
+		boolean fuel = this.numWords > 0 && this.wordIs(0, "Fuel");
+		boolean other = this.numWords > 0 && (this.wordIs(0, "Garbage") || this.wordIs(0, "CodeCard"));
+
+		if (!((fuel && this.numWords == 8) || (other && this.numWords == 7)))
+			throw new WrongCityFormatException("Incorrect Format", line);
+
+		this.itemPlace = fuel ? this.intWord(7) : this.intWord(6);
+		if (this.itemPlace < 0 || this.itemPlace >= numPlaces || this.intWord(1) != index)
+			throw new WrongCityFormatException("Incorrect Format", line);
+
+		Item aux;
+		if (fuel)
+			aux = new Fuel(this.shared(2), this.description(3), this.intWord(4), this.intWord(5));
+		else if (this.wordIs(0, "Garbage"))
+			aux = new Garbage(this.shared(2), this.description(3), this.intWord(4));
+		else
+			aux = new CodeCard(this.shared(2), this.description(3), this.shared(4));
+
+		return aux;
+	}
+
+	// ----------------------- MÉTODOS QUE DIVIDEN UNA LÍNEA EN PALABRAS ---------------------------
+
+	/**
+	 * Divides a range of the line in words separated by one space, as String.split(" ") does:
+	 * the empty words at the end are discarded and an empty range is one empty word
+	 * @param start First byte of the range
+	 * @param end Byte after the last byte of the range
+	 * @param line The number of the line in the file
+	 * @throws WrongCityFormatException If the line has too many words
+	 */
+	private void split(int start, int end, int line) throws WrongCityFormatException {
+		this.numWords = 0;
+		this.splitRange(start, end, line);
+	}
+
+	/**
+	 * Adds the words of a range to the current words
+	 * @param start First byte of the range
+	 * @param end Byte after the last byte of the range
+	 * @param line The number of the line in the file
+	 * @throws WrongCityFormatException If the line has too many words
+	 */
+	private void splitRange(int start, int end, int line) throws WrongCityFormatException {
+		int first = this.numWords;
+		int from = start;
+
+		if (start == end)
+			this.addWord(start, end, line);
+		else {
+			for (int i = start; i < end; i++) {
+				if (this.buffer.get(i) == SPACE) {
+					this.addWord(from, i, line);
+					from = i + 1;
+				}
+			}
+			this.addWord(from, end, line);
+			while (this.numWords > first && this.wordStart[this.numWords - 1] == this.wordEnd[this.numWords - 1])
+				this.numWords--;
+		}
+	}
+
+	/**
+	 * Divides a line with a quoted description: three words, the description and the words after it
+	 * @param start First byte of the line
+	 * @param end Byte after the last byte of the line
+	 * @param line The number of the line in the file
+	 * @param minLast Minimum number of words after the description
+	 * @param maxLast Maximum number of words after the description
+	 * @throws WrongCityFormatException If the line does not have this format
+	 */
+	private void divideQuoted(int start, int end, int line, int minLast, int maxLast) throws WrongCityFormatException {
+		int inicio = this.indexOf(QUOTE, start, end);
+		int finDes = this.indexOf(QUOTE, inicio + 1, end);
+
+		if (inicio == start || finDes == -1 || finDes + 2 > end)
+			throw new WrongCityFormatException("Incorrect Format", line);
+
+		this.split(start, inicio - 1, line);
+		if (this.numWords != 3)
+			throw new WrongCityFormatException("Incorrect Format", line);
+		this.addWord(inicio + 1, finDes, line);
+
+		if (maxLast == 1)
+			this.addWord(finDes + 2, end, line);
+		else {
+			this.splitRange(finDes + 2, end, line);
+			if (this.numWords - 4 < minLast || this.numWords - 4 > maxLast)
+				throw new WrongCityFormatException("Incorrect Format", line);
+		}
+	}
+
+	/**
+	 * Adds a word to the current words
+	 * @param start First byte of the word
+	 * @param end Byte after the last byte of the word
+	 * @param line The number of the line in the file
+	 * @throws WrongCityFormatException If the line has too many words
+	 */
+	private void addWord(int start, int end, int line) throws WrongCityFormatException {
+		if (this.numWords == MAX_WORDS)
+			throw new WrongCityFormatException("Incorrect Format", line);
+		this.wordStart[this.numWords] = start;
+		this.wordEnd[this.numWords] = end;
+		this.numWords++;
+	}
+
+	/**
+	 * Looks for a byte in a range
+	 * @param b The byte
+	 * @param start First byte of the range
+	 * @param end Byte after the last byte of the range
+	 * @return The position of the byte, or -1 if it is not in the range
+	 */
+	private int indexOf(byte b, int start, int end) {
+		int found = -1;
+
+		for (int i = start; i < end && found == -1; i++)
+			if (this.buffer.get(i) == b)
+				found = i;
+
+		return found;
+	}
+
+	// ----------------------- MÉTODOS QUE INTERPRETAN LAS PALABRAS ---------------------------
+
+	/**
+	 * Compares a word with a keyword ignoring case
+	 * @param word The position of the word
+	 * @param keyword The keyword, in ASCII
+	 * @return true if they are equal
+	 */
+	private boolean wordIs(int word, String keyword) {
+		return CityLineParser.equalsIgnoreCase(this.buffer, this.wordStart[word], this.wordEnd[word], keyword);
+	}
+
+	/**
+	 * Converts a word to an integer with the rules of CityLoaderFromTxtFile: only digits are allowed and an empty word is 0
+	 * @param word The position of the word
+	 * @return The number, or -1 if the word is not a number
+	 */
+	private int intWord(int word) {
+		int resultado = 0;
+		boolean ok = true;
+
+		for (int i = this.wordStart[word]; i < this.wordEnd[word] && ok; i++) {
+			int digit = this.buffer.get(i) - '0';
+			if (digit >= 0 && digit <= 9)
+				resultado = resultado * 10 + digit;
+			else
+				ok = false;
+		}
+
+		if (!ok)
+			resultado = -1;
+
+		return resultado;
+	}
+
+	/**
+	 * Converts a word to a direction
+	 * @param word The position of the word
+	 * @return The direction, or UNKNOWN if the word is not a direction
+	 */
+	private Direction directionWord(int word) {
+		Direction aux = Direction.UNKNOWN;
+
+		if (this.wordIs(word, "WEST"))
+			aux = Direction.WEST;
+		else if (this.wordIs(word, "EAST"))
+			aux = Direction.EAST;
+		else if (this.wordIs(word, "SOUTH"))
+			aux = Direction.SOUTH;
+		else if (this.wordIs(word, "NORTH"))
+			aux = Direction.NORTH;
+
+		return aux;
+	}
+
+	/**
+	 * Decodes a word, sharing it with the equal words already decoded
+	 * @param word The position of the word
+	 * @return The string of the word
+	 */
+	private String shared(int word) {
+		String s = this.decode(word, false);
+		String previous = this.strings.putIfAbsent(s, s);
+
+		return previous == null ? s : previous;
+	}
+
+	/**
+	 * Decodes a description, where the underscores are spaces
+	 * @param word The position of the word
+	 * @return The description
+	 */
+	private String description(int word) {
+		return this.decode(word, true);
+	}
+
+	/**
+	 * Decodes a word as UTF-8
+	 * @param word The position of the word
+	 * @param underscores true if the underscores must be replaced by spaces
+	 * @return The string of the word
+	 */
+	private String decode(int word, boolean underscores) {
+		int start = this.wordStart[word];
+		int length = this.wordEnd[word] - start;
+
+		if (this.scratch.length < length)
+			this.scratch = new byte[2 * length];
+		for (int i = 0; i < length; i++) {
+			byte b = this.buffer.get(start + i);
+			this.scratch[i] = (underscores && b == '_') ? SPACE : b;
+		}
+
+		return new String(this.scratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Compares a range of bytes with a keyword ignoring case
+	 * @param buf The buffer
+	 * @param start First byte of the range
+	 * @param end Byte after the last byte of the range
+	 * @param keyword The keyword, in ASCII
+	 * @return true if they are equal
+	 */
+	static boolean equalsIgnoreCase(ByteBuffer buf, int start, int end, String keyword) {
+		boolean eq = (end - start == keyword.length());
+
+		for (int i = 0; i < keyword.length() && eq; i++) {
+			int a = buf.get(start + i);
+			int b = keyword.charAt(i);
+			if (a != b && Character.toLowerCase(a) != Character.toLowerCase(b))
+				eq = false;
+		}
+
+		return eq;
+	}
+
+	/**
+	 * Compares a range of bytes with a keyword
+	 * @param buf The buffer
+	 * @param start First byte of the range
+	 * @param end Byte after the last byte of the range
+	 * @param keyword The keyword, in ASCII
+	 * @return true if they are equal
+	 */
+	static boolean equalsExact(ByteBuffer buf, int start, int end, String keyword) {
+		boolean eq = (end - start == keyword.length());
+
+		for (int i = 0; i < keyword.length() && eq; i++)
+			if (buf.get(start + i) != keyword.charAt(i))
+				eq = false;
+
+		return eq;
+	}
+}
@@ -0,0 +1,222 @@
+package tp.pr5.cityLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import tp.pr5.City;
+import tp.pr5.Place;
+import tp.pr5.Street;
+import tp.pr5.cityLoader.cityLoaderExceptions.WrongCityFormatException;
+import tp.pr5.items.CodeCard;
+import tp.pr5.items.Fuel;
+import tp.pr5.items.Garbage;
+import tp.pr5.items.Item;
+
+/**
+ * City loader from a binary file written by CityBinaryConverter. The file is mapped in memory and every section
+ * (strings, places, streets and items) is read with one bulk read, so no text is parsed.
+ * @author Juan Manuel Carrera García
+ */
+public class CityLoaderFromBinaryFile {
+	private String[] strings;
+	private Place[] places;
+	private Place initialPlace;
+	private City map;
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates the loader
+	 */
+	public CityLoaderFromBinaryFile() {
+		this.map = new City();
+	}
+
+	// --------------------------------------------- GETTER -----------------------------------------------
+
+	/**
+	 * Returns the place where the robot will start the simulation
+	 * @return The initial place
+	 */
+	public Place getInitialPlace() {
+		return this.initialPlace;
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Loads the city from a binary file
+	 * @param file The file where the city is stored
+	 * @return The city
+	 * @throws IOException When the file is not a correct binary city (WrongCityFormatException) or some errors in IO operations
+	 */
+	public City loadCity(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+		try {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new WrongCityFormatException("The binary file is too big");
+			this.loadCity(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (BufferUnderflowException e) {
+			throw new WrongCityFormatException("The binary file is truncated", e);
+		} finally {
+			channel.close();
+		}
+
+		return this.map;
+	}
+
+	/**
+	 * Loads the sections of the city
+	 * @param buf The buffer with the file
+	 * @throws WrongCityFormatException When the buffer is not a correct binary city
+	 */
+	private void loadCity(ByteBuffer buf) throws WrongCityFormatException {
+		if (buf.getInt() != CityBinaryFormat.MAGIC)
+			throw new WrongCityFormatException("The file is not a binary city");
+		if (buf.getInt() != CityBinaryFormat.VERSION)
+			throw new WrongCityFormatException("Unsupported version of the binary city");
+
+		this.readStrings(buf);
+		this.readPlaces(buf);
+		this.readStreets(buf);
+		this.readItems(buf);
+
+		if (this.places.length == 0)
+			throw new WrongCityFormatException("The city has no places");
+		this.initialPlace = this.places[0];
+	}
+
+	/**
+	 * Reads the string table
+	 * @param buf The buffer with the file
+	 * @throws WrongCityFormatException When the table is not correct
+	 */
+	private void readStrings(ByteBuffer buf) throws WrongCityFormatException {
+		int[] lengths = this.readInts(buf, 1);
+		byte[] bytes;
+		long total = 0;
+
+		for (int i = 0; i < lengths.length; i++) {
+			if (lengths[i] < 0)
+				throw new WrongCityFormatException("Wrong length of string " + i);
+			total += lengths[i];
+		}
+		if (total > buf.remaining())
+			throw new WrongCityFormatException("The binary file is truncated");
+
+		bytes = new byte[(int) total];
+		buf.get(bytes);
+		this.strings = new String[lengths.length];
+		int offset = 0;
+		for (int i = 0; i < lengths.length; i++) {
+			this.strings[i] = new String(bytes, offset, lengths[i], StandardCharsets.UTF_8);
+			offset += lengths[i];
+		}
+	}
+
+	/**
+	 * Reads the places
+	 * @param buf The buffer with the file
+	 * @throws WrongCityFormatException When a place is not correct
+	 */
+	private void readPlaces(ByteBuffer buf) throws WrongCityFormatException {
+		int[] records = this.readInts(buf, CityBinaryFormat.PLACE_INTS);
+
+		this.places = new Place[records.length / CityBinaryFormat.PLACE_INTS];
+		for (int i = 0, r = 0; i < this.places.length; i++, r += CityBinaryFormat.PLACE_INTS)
+			this.places[i] = new Place(i, this.string(records[r]), records[r + 2] != 0, this.string(records[r + 1]));
+	}
+
+	/**
+	 * Reads the streets, adding them to the city in the order of the file. The city is created with room for all the streets
+	 * and places of the file, so it is not resized while they are added
+	 * @param buf The buffer with the file
+	 * @throws WrongCityFormatException When a street is not correct
+	 */
+	private void readStreets(ByteBuffer buf) throws WrongCityFormatException {
+		int[] records = this.readInts(buf, CityBinaryFormat.STREET_INTS);
+
+		this.map = new City(records.length / CityBinaryFormat.STREET_INTS, this.places.length);
+		for (int r = 0; r < records.length; r += CityBinaryFormat.STREET_INTS) {
+			int flags = records[r + 2];
+			this.map.addStreet(new Street(this.place(records[r]), CityBinaryFormat.direction(flags), this.place(records[r + 1]),
+					(flags & CityBinaryFormat.OPEN) != 0, this.string(flags >>> CityBinaryFormat.CODE_SHIFT)));
+		}
+	}
+
+	/**
+	 * Reads the items, adding them to their places
+	 * @param buf The buffer with the file
+	 * @throws WrongCityFormatException When an item is not correct
+	 */
+	private void readItems(ByteBuffer buf) throws WrongCityFormatException {
+		int[] records = this.readInts(buf, CityBinaryFormat.ITEM_INTS);
+
+		for (int r = 0; r < records.length; r += CityBinaryFormat.ITEM_INTS) {
+			Item aux;
+			String id = this.string(records[r + 2]);
+			String description = this.string(records[r + 3]);
+
+			switch (records[r]) {
+			case CityBinaryFormat.FUEL: aux = new Fuel(id, description, records[r + 4], records[r + 5]);
+			break;
+			case CityBinaryFormat.GARBAGE: aux = new Garbage(id, description, records[r + 4]);
+			break;
+			case CityBinaryFormat.CODECARD: aux = new CodeCard(id, description, this.string(records[r + 4]));
+			break;
+			default: throw new WrongCityFormatException("Unknown type of item " + records[r]);
+			}
+			this.place(records[r + 1]).addItem(aux);
+		}
+	}
+
+	/**
+	 * Reads a section of records of ints with one bulk read
+	 * @param buf The buffer with the file
+	 * @param recordInts The number of ints of a record
+	 * @return The ints of all the records of the section
+	 * @throws WrongCityFormatException When the section is truncated
+	 */
+	private int[] readInts(ByteBuffer buf, int recordInts) throws WrongCityFormatException {
+		int count = buf.getInt();
+
+		if (count < 0 || (long) count * recordInts * 4 > buf.remaining())
+			throw new WrongCityFormatException("The binary file is truncated");
+
+		int[] ints = new int[count * recordInts];
+		buf.asIntBuffer().get(ints);
+		buf.position(buf.position() + 4 * ints.length);
+
+		return ints;
+	}
+
+	/**
+	 * String of the string table
+	 * @param index The index of the string
+	 * @return The string
+	 * @throws WrongCityFormatException When the index is not correct
+	 */
+	private String string(int index) throws WrongCityFormatException {
+		if (index < 0 || index >= this.strings.length)
+			throw new WrongCityFormatException("Wrong string " + index);
+		return this.strings[index];
+	}
+
+	/**
+	 * Place of the city
+	 * @param index The index of the place
+	 * @return The place
+	 * @throws WrongCityFormatException When the index is not correct
+	 */
+	private Place place(int index) throws WrongCityFormatException {
+		if (index < 0 || index >= this.places.length)
+			throw new WrongCityFormatException("Wrong place " + index);
+		return this.places[index];
+	}
+}
@@ -0,0 +1,135 @@
+package tp.pr5.cityLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import tp.pr5.City;
+import tp.pr5.Place;
+import tp.pr5.cityLoader.cityLoaderExceptions.WrongCityFormatException;
+import tp.pr5.items.Item;
+
+/**
+ * City loader that maps the file in memory instead of reading it line by line. It accepts the same format as CityLoaderFromTxtFile,
+ * but the lines are tokenized directly from the mapped bytes and the numbers are parsed in place, so big maps are loaded without
+ * creating a string for every line. The names and codes that appear several times in the file are shared.
+ *
+ * When the file does not adhere to the format, the WrongCityFormatException contains the number of the wrong line.
+ * @author Juan Manuel Carrera García
+ */
+public class CityLoaderFromMappedFile {
+	private List<Place> places;
+	private Place initialPlace;
+	private City map;
+	private CityLineParser parser;
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates the loader
+	 */
+	public CityLoaderFromMappedFile() {
+		this.places = new ArrayList<Place>();
+		this.map = new City();
+		this.parser = new CityLineParser(new HashMap<String, String>());
+	}
+
+	// --------------------------------------------- GETTER -----------------------------------------------
+
+	/**
+	 * Returns the place where the robot will start the simulation
+	 * @return The initial place
+	 */
+	public Place getInitialPlace() {
+		return this.initialPlace;
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	// ----------------------- MÉTODO QUE CARGA LA CIUDAD DE UN ARCHIVO MAPEADO EN MEMORIA ---------------------------
+
+	/**
+	 * Loads the city from a file
+	 * @param file The file where the city is stored
+	 * @return The city
+	 * @throws IOException When there is some format error in the file (WrongCityFormatException) or some errors in IO operations
+	 */
+	public City loadCity(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+		try {
+			this.loadCity(new MappedLineReader(channel));
+		} finally {
+			channel.close();
+		}
+
+		return this.map;
+	}
+
+	/**
+	 * Loads the sections of the city
+	 * @param reader The reader of the lines of the file
+	 * @throws IOException When there is some format error in the file or some errors in IO operations
+	 */
+	private void loadCity(MappedLineReader reader) throws IOException {
+		if (!reader.nextLine() || !this.lineIs(reader, "BeginCity"))
+			throw new WrongCityFormatException("Incorrect Format", reader.getLineNumber() + 1);
+
+		boolean end = false;
+		while (!end) {
+			this.nextLine(reader);
+
+			if (this.lineIs(reader, "BeginPlaces")) {
+				for (this.nextLine(reader); !this.lineIs(reader, "EndPlaces"); this.nextLine(reader))
+					this.places.add(this.parser.parsePlace(reader.getBuffer(), reader.getLineStart(),
+							reader.getLineEnd(), this.places.size(), reader.getLineNumber()));
+			}
+			else if (this.lineIs(reader, "BeginStreets")) {
+				for (this.nextLine(reader); !this.lineIs(reader, "EndStreets"); this.nextLine(reader))
+					this.map.addStreet(this.parser.parseStreet(reader.getBuffer(), reader.getLineStart(), reader.getLineEnd(),
+							this.places, this.places.size(), this.map.getNumStreet(), reader.getLineNumber()));
+			}
+			else if (this.lineIs(reader, "BeginItems")) {
+				int cont = 0;
+				for (this.nextLine(reader); !this.lineIs(reader, "EndItems"); this.nextLine(reader)) {
+					Item aux = this.parser.parseItem(reader.getBuffer(), reader.getLineStart(), reader.getLineEnd(),
+							this.places.size(), cont, reader.getLineNumber());
+					this.places.get(this.parser.getItemPlace()).addItem(aux);
+					cont++;
+				}
+			}
+			else
+				end = CityLineParser.equalsExact(reader.getBuffer(), reader.getLineStart(), reader.getLineEnd(), "EndCity");
+		}
+
+		if (this.places.isEmpty())
+			throw new WrongCityFormatException("The city has no places", reader.getLineNumber());
+		this.initialPlace = this.places.get(0);
+	}
+
+	/**
+	 * Moves to the next line, that must exist
+	 * @param reader The reader of the lines of the file
+	 * @throws IOException If the file ends or cannot be read
+	 */
+	private void nextLine(MappedLineReader reader) throws IOException {
+		if (!reader.nextLine())
+			throw new WrongCityFormatException("Incorrect Format", reader.getLineNumber() + 1);
+	}
+
+	/**
+	 * Compares the current line with a keyword ignoring case
+	 * @param reader The reader of the lines of the file
+	 * @param keyword The keyword
+	 * @return true if the line is the keyword
+	 */
+	private boolean lineIs(MappedLineReader reader, String keyword) {
+		ByteBuffer buf = reader.getBuffer();
+		return CityLineParser.equalsIgnoreCase(buf, reader.getLineStart(), reader.getLineEnd(), keyword);
+	}
+}
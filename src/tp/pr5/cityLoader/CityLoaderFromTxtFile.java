@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import tp.pr5.City;
@@ -16,6 +17,7 @@ import tp.pr5.items.CodeCard;
 import tp.pr5.items.Fuel;
 import tp.pr5.items.Garbage;
 import tp.pr5.items.Item;
+import tp.pr5.jfr.CitySectionEvent;
 
 /**
  * City loader from a txt file The mandatory format must be:  
@@ -71,13 +73,21 @@ public class CityLoaderFromTxtFile {
 		return this.initialPlace;
 	}
 	
+	/**
+	 * Returns the places of the city in the order of the file
+	 * @return A non modifiable list with the places
+	 */
+	public List<Place> getPlaces(){
+		return Collections.unmodifiableList(this.places);
+	}
+	
 	
 	// --------------------------------------------- MÉTODOS -----------------------------------------------
 	
 	// ----------------------- MÉTODO QUE CARGA LA CIUDAD DE UN ARCHIVO DE TEXTO ---------------------------
 	
 	/**
-	 * Thes method loadCity from a file
+	 * Thes method loadCity from a file. Every section is recorded as a CitySectionEvent when Java Flight Recorder is recording it
 	 * @param file The input stream where the city is stored
 	 * @return The city
 	 * @throws IOException When there is some format error in the file (WrongCityFormatException) or some errors in IO operations
@@ -94,30 +104,42 @@ public class CityLoaderFromTxtFile {
 
 		line = b.readLine();
 
-		if (line.equalsIgnoreCase("BeginCity")) {
+		if (line != null && line.equalsIgnoreCase("BeginCity")) {
 			do {
 				line = b.readLine();
 
 				if (line == null)
 					throw new WrongCityFormatException("Formato incorrecto");
+				CitySectionEvent event = new CitySectionEvent();
+				int lines = 0;
+				long size = 0;
+				event.begin();
 				if (line.equalsIgnoreCase("BeginPlaces")) {
 					while (!line.equalsIgnoreCase("EndPlaces")) {
 						line = b.readLine();
 						if (line == null)
 							throw new WrongCityFormatException(
 									"Incorrect Format");
+						lines++;
+						size += line.length() + 1;
 						if (!line.equalsIgnoreCase("EndPlaces"))
 							this.places.add(this.parsePlace(line));
 					}
+					if (event.shouldCommit())
+						event.commit("Places", lines, size);
 				} else if (line.equalsIgnoreCase("BeginStreets")) {
 					while (!line.equalsIgnoreCase("EndStreets")) {
 						line = b.readLine();
 						if (line == null)
 							throw new WrongCityFormatException(
 									"Incorrect Format");
+						lines++;
+						size += line.length() + 1;
 						if (!line.equals("EndStreets"))
 							this.map.addStreet(this.parseStreet(line));
 					}
+					if (event.shouldCommit())
+						event.commit("Streets", lines, size);
 				} else if (line.equalsIgnoreCase("BeginItems")) {
 					int cont = 0;
 					while (!line.equalsIgnoreCase("EndItems")) {
@@ -125,11 +147,15 @@ public class CityLoaderFromTxtFile {
 						if (line == null)
 							throw new WrongCityFormatException(
 									"Incorrect Format");
+						lines++;
+						size += line.length() + 1;
 						if (!line.equals("EndItems")) {
 							this.parseItem(line, cont);
 							cont++;
 						}
 					}
+					if (event.shouldCommit())
+						event.commit("Items", lines, size);
 				}
 			} while (!line.equals("EndCity"));
 		} else
@@ -165,9 +191,9 @@ public class CityLoaderFromTxtFile {
 			throw new WrongCityFormatException("Formato incorrecto");
 
 		if (words[4].equalsIgnoreCase("spaceShip"))
-			aux = new Place(words[2], true, words[3].replace('_', ' '));
+			aux = new Place(places.size(), words[2], true, words[3].replace('_', ' '));
 		else
-			aux = new Place(words[2], false, words[3].replace('_', ' '));
+			aux = new Place(places.size(), words[2], false, words[3].replace('_', ' '));
 
 		return aux;
 	}
@@ -315,18 +341,15 @@ public class CityLoaderFromTxtFile {
 		else
 			words = line.split(" ");
 
-		if (words[0].equalsIgnoreCase("Fuel"))
-			place = this.convertInt(words[7].toCharArray());
-		else if (words[0].equalsIgnoreCase("Garbage")
-				|| words[0].equalsIgnoreCase("CodeCard"))
-			place = this.convertInt(words[6].toCharArray());
-		else
+		if (!(words[0].equalsIgnoreCase("Fuel") || words[0].equalsIgnoreCase("Garbage")
+				|| words[0].equalsIgnoreCase("CodeCard")))
 			throw new WrongCityFormatException("Incorrect Format");
+		// The number of words is checked before the place, that is the last word
+		if (words.length != (words[0].equalsIgnoreCase("Fuel") ? 8 : 7))
+			throw new WrongCityFormatException("Formato Incorrecto");
+		place = this.convertInt(words[words.length - 1].toCharArray());
 
-		if (!((words[0].equalsIgnoreCase("Fuel") && words.length == 8) || ((words[0]
-				.equalsIgnoreCase("Garbage") || words[0]
-				.equalsIgnoreCase("CodeCard")) && words.length == 7))
-				|| (place >= this.places.size())
+		if (place < 0 || (place >= this.places.size())
 				|| (this.convertInt(words[1].toCharArray()) != contador))
 			throw new WrongCityFormatException("Formato Incorrecto");
 
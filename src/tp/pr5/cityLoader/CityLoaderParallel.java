@@ -0,0 +1,340 @@
+package tp.pr5.cityLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import tp.pr5.City;
+import tp.pr5.Place;
+import tp.pr5.Street;
+import tp.pr5.cityLoader.cityLoaderExceptions.WrongCityFormatException;
+import tp.pr5.items.Item;
+
+/**
+ * City loader that parses the sections of the file in parallel. It accepts the same format as CityLoaderFromMappedFile and builds the same city:
+ *  1. The mapped file is scanned once to find the sections and to split their lines in chunks. Nothing is parsed yet.
+ *  2. The places are parsed in parallel. The index of every place is known from its position in the file.
+ *  3. The streets and the items only depend on the places, so all their chunks are parsed concurrently.
+ *  4. The streets are added to the city and the items to their places in the order of the file.
+ * When the file has several errors, the exception is the one of the first wrong line, as in the sequential loader.
+ * @author Juan Manuel Carrera García
+ */
+public class CityLoaderParallel {
+	private static final int CHUNK_LINES = 4096;
+	private static final int PLACES = 0;
+	private static final int STREETS = 1;
+	private static final int ITEMS = 2;
+
+	private ForkJoinPool pool;
+	private Map<String, String> strings;
+	private List<Place> places;
+	private Place initialPlace;
+	private City map;
+	private List<Chunk> chunks;
+	private WrongCityFormatException structureError;
+	private int lastLine;
+
+	/**
+	 * Lines of a section that are parsed together, and the result of parsing them
+	 */
+	private static class Chunk {
+		private int kind;
+		private ByteBuffer buffer;
+		private int[] starts;
+		private int[] ends;
+		private int numLines;
+		private int firstLine;
+		private int firstIndex;
+		private int numPlaces;
+		private Object[] results;
+		private int[] itemPlaces;
+		private WrongCityFormatException error;
+
+		private Chunk(int kind, ByteBuffer buffer, int firstLine, int firstIndex, int numPlaces) {
+			this.kind = kind;
+			this.buffer = buffer;
+			this.starts = new int[CHUNK_LINES];
+			this.ends = new int[CHUNK_LINES];
+			this.numLines = 0;
+			this.firstLine = firstLine;
+			this.firstIndex = firstIndex;
+			this.numPlaces = numPlaces;
+		}
+	}
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates a loader that uses the common ForkJoinPool
+	 */
+	public CityLoaderParallel() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a loader that uses the given pool
+	 * @param pool The pool where the chunks are parsed
+	 */
+	public CityLoaderParallel(ForkJoinPool pool) {
+		this.pool = pool;
+		this.strings = new ConcurrentHashMap<String, String>();
+		this.places = new ArrayList<Place>();
+		this.map = new City();
+		this.chunks = new ArrayList<Chunk>();
+	}
+
+	// --------------------------------------------- GETTER -----------------------------------------------
+
+	/**
+	 * Returns the place where the robot will start the simulation
+	 * @return The initial place
+	 */
+	public Place getInitialPlace() {
+		return this.initialPlace;
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Loads the city from a file
+	 * @param file The file where the city is stored
+	 * @return The city
+	 * @throws IOException When there is some format error in the file (WrongCityFormatException) or some errors in IO operations
+	 */
+	public City loadCity(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+		try {
+			this.split(new MappedLineReader(channel));
+		} finally {
+			channel.close();
+		}
+
+		// The streets and items after the first wrong place are not parsed: their errors would come after it
+		int firstError = this.parse(PLACES, Integer.MAX_VALUE);
+		this.collectPlaces();
+		this.parse(-1, firstError);
+		this.throwFirstError();
+		this.merge();
+
+		if (this.places.isEmpty())
+			throw new WrongCityFormatException("The city has no places", this.lastLine);
+		this.initialPlace = this.places.get(0);
+
+		return this.map;
+	}
+
+	// ----------------------- FASE 1: DIVISIÓN DEL FICHERO EN SECCIONES Y TROZOS ---------------------------
+
+	/**
+	 * Scans the lines of the file, splitting the sections in chunks. A structural error (the file does not start with BeginCity or
+	 * it ends before EndCity) is kept to be compared with the errors of the lines parsed before it
+	 * @param reader The reader of the lines of the file
+	 * @throws IOException If the file cannot be read
+	 */
+	private void split(MappedLineReader reader) throws IOException {
+		int numPlaces = 0;
+		int numStreets = 0;
+		boolean end = false;
+
+		if (!reader.nextLine() || !this.lineIs(reader, "BeginCity")) {
+			this.structureError = new WrongCityFormatException("Incorrect Format", reader.getLineNumber() + 1);
+			end = true;
+		}
+
+		while (!end && this.nextLine(reader)) {
+			if (this.lineIs(reader, "BeginPlaces"))
+				numPlaces += this.splitSection(reader, PLACES, "EndPlaces", numPlaces, numPlaces);
+			else if (this.lineIs(reader, "BeginStreets"))
+				numStreets += this.splitSection(reader, STREETS, "EndStreets", numStreets, numPlaces);
+			else if (this.lineIs(reader, "BeginItems"))
+				this.splitSection(reader, ITEMS, "EndItems", 0, numPlaces);
+			else
+				end = CityLineParser.equalsExact(reader.getBuffer(), reader.getLineStart(), reader.getLineEnd(), "EndCity");
+			end = end || this.structureError != null;
+		}
+		this.lastLine = reader.getLineNumber();
+	}
+
+	/**
+	 * Splits the lines of a section in chunks
+	 * @param reader The reader of the lines of the file
+	 * @param kind The kind of section
+	 * @param endKeyword The line that ends the section
+	 * @param firstIndex The index of the first element of the section
+	 * @param numPlaces The number of places defined before the section
+	 * @return The number of lines of the section
+	 * @throws IOException If the file cannot be read
+	 */
+	private int splitSection(MappedLineReader reader, int kind, String endKeyword, int firstIndex, int numPlaces) throws IOException {
+		Chunk chunk = null;
+		int count = 0;
+
+		while (this.nextLine(reader) && !this.lineIs(reader, endKeyword)) {
+			if (chunk == null || chunk.numLines == CHUNK_LINES || chunk.buffer != reader.getBuffer()) {
+				chunk = new Chunk(kind, reader.getBuffer(), reader.getLineNumber(), firstIndex + count, numPlaces);
+				this.chunks.add(chunk);
+			}
+			chunk.starts[chunk.numLines] = reader.getLineStart();
+			chunk.ends[chunk.numLines] = reader.getLineEnd();
+			chunk.numLines++;
+			count++;
+		}
+
+		return count;
+	}
+
+	/**
+	 * Moves to the next line. If the file ends, the structural error is kept
+	 * @param reader The reader of the lines of the file
+	 * @return false if the file has ended
+	 * @throws IOException If the file cannot be read
+	 */
+	private boolean nextLine(MappedLineReader reader) throws IOException {
+		boolean more = reader.nextLine();
+
+		if (!more && this.structureError == null)
+			this.structureError = new WrongCityFormatException("Incorrect Format", reader.getLineNumber() + 1);
+
+		return more;
+	}
+
+	/**
+	 * Compares the current line with a keyword ignoring case
+	 * @param reader The reader of the lines of the file
+	 * @param keyword The keyword
+	 * @return true if the line is the keyword
+	 */
+	private boolean lineIs(MappedLineReader reader, String keyword) {
+		return CityLineParser.equalsIgnoreCase(reader.getBuffer(), reader.getLineStart(), reader.getLineEnd(), keyword);
+	}
+
+	// ----------------------- FASES 2 Y 3: ANÁLISIS EN PARALELO DE LOS TROZOS ---------------------------
+
+	/**
+	 * Parses in parallel the chunks of a kind of section that start before a line
+	 * @param kind The kind of section, or -1 for streets and items together
+	 * @param beforeLine Only the chunks that start before this line are parsed
+	 * @return The first line with an error, or Integer.MAX_VALUE if there is none
+	 * @throws IOException If a chunk fails with an unexpected exception
+	 */
+	private int parse(int kind, int beforeLine) throws IOException {
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		int firstError = Integer.MAX_VALUE;
+
+		for (final Chunk c : this.chunks) {
+			boolean selected = (kind == -1) ? c.kind != PLACES : c.kind == kind;
+			if (selected && c.firstLine < beforeLine) {
+				tasks.add(new Callable<Void>() {
+					public Void call() {
+						CityLoaderParallel.this.parseChunk(c);
+						return null;
+					}
+				});
+			}
+		}
+
+		try {
+			for (Future<Void> f : this.pool.invokeAll(tasks))
+				f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("The load of the city was interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Error parsing the city", e.getCause());
+		}
+
+		for (Chunk c : this.chunks)
+			if (c.error != null && c.error.getLine() < firstError)
+				firstError = c.error.getLine();
+
+		return firstError;
+	}
+
+	/**
+	 * Parses the lines of a chunk until the first wrong line
+	 * @param c The chunk
+	 */
+	private void parseChunk(Chunk c) {
+		CityLineParser parser = new CityLineParser(this.strings);
+
+		c.results = new Object[c.numLines];
+		if (c.kind == ITEMS)
+			c.itemPlaces = new int[c.numLines];
+		try {
+			for (int i = 0; i < c.numLines; i++) {
+				int line = c.firstLine + i;
+				int index = c.firstIndex + i;
+				switch (c.kind) {
+				case PLACES: c.results[i] = parser.parsePlace(c.buffer, c.starts[i], c.ends[i], index, line);
+				break;
+				case STREETS: c.results[i] = parser.parseStreet(c.buffer, c.starts[i], c.ends[i], this.places, c.numPlaces, index, line);
+				break;
+				default:
+					c.results[i] = parser.parseItem(c.buffer, c.starts[i], c.ends[i], c.numPlaces, index, line);
+					c.itemPlaces[i] = parser.getItemPlace();
+				}
+			}
+		} catch (WrongCityFormatException e) {
+			c.error = e;
+		}
+	}
+
+	/**
+	 * Adds the parsed places to the list of places in the order of the file, until the first wrong place
+	 */
+	private void collectPlaces() {
+		boolean wrong = false;
+
+		for (Chunk c : this.chunks) {
+			if (c.kind == PLACES && !wrong) {
+				for (int i = 0; i < c.numLines && c.results[i] != null; i++)
+					this.places.add((Place) c.results[i]);
+				wrong = c.error != null;
+			}
+		}
+	}
+
+	/**
+	 * Throws the error of the first wrong line of the file, if there is any
+	 * @throws WrongCityFormatException The first error
+	 */
+	private void throwFirstError() throws WrongCityFormatException {
+		WrongCityFormatException first = this.structureError;
+
+		for (Chunk c : this.chunks)
+			if (c.error != null && (first == null || c.error.getLine() < first.getLine()))
+				first = c.error;
+
+		if (first != null)
+			throw first;
+	}
+
+	// ----------------------- FASE 4: UNIÓN DE LOS RESULTADOS EN EL ORDEN DEL FICHERO ---------------------------
+
+	/**
+	 * Adds the streets to the city and the items to their places in the order of the file
+	 */
+	private void merge() {
+		for (Chunk c : this.chunks) {
+			if (c.kind == STREETS)
+				for (int i = 0; i < c.numLines; i++)
+					this.map.addStreet((Street) c.results[i]);
+			else if (c.kind == ITEMS)
+				for (int i = 0; i < c.numLines; i++)
+					this.places.get(c.itemPlaces[i]).addItem((Item) c.results[i]);
+			c.results = null;
+		}
+		this.chunks.clear();
+	}
+}
@@ -0,0 +1,164 @@
+package tp.pr5.cityLoader;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import tp.pr5.cityLoader.cityLoaderExceptions.WrongCityFormatException;
+
+/**
+ * Reads the lines of a file mapped in memory. The file is mapped in windows, so files bigger than the maximum size of a buffer can be read.
+ * A line that does not fit at the end of a window is read again from a new window that starts at the beginning of the line.
+ * The lines end with \n, \r or \r\n, as in BufferedReader.readLine. No line is copied: the reader gives the buffer and the range of the current line.
+ * @author Juan Manuel Carrera García
+ */
+class MappedLineReader {
+	private static final long WINDOW = 1L << 30;
+
+	private FileChannel channel;
+	private long fileSize;
+	private long window;
+	private MappedByteBuffer buffer;
+	private long bufferStart;
+	private int pos;
+	private int lineStart;
+	private int lineEnd;
+	private int lineNumber;
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates a reader over a channel, with windows of 1 GB
+	 * @param channel The channel of the file
+	 * @throws IOException If the file cannot be mapped
+	 */
+	MappedLineReader(FileChannel channel) throws IOException {
+		this(channel, WINDOW);
+	}
+
+	/**
+	 * Creates a reader over a channel
+	 * @param channel The channel of the file
+	 * @param window The size of the windows
+	 * @throws IOException If the file cannot be mapped
+	 */
+	MappedLineReader(FileChannel channel, long window) throws IOException {
+		this.channel = channel;
+		this.fileSize = channel.size();
+		this.window = window;
+		this.lineNumber = 0;
+		this.map(0);
+	}
+
+	// --------------------------------------------- GETTER -----------------------------------------------
+
+	/**
+	 * @return The buffer that contains the current line
+	 */
+	MappedByteBuffer getBuffer() {
+		return this.buffer;
+	}
+
+	/**
+	 * @return The first byte of the current line in the buffer
+	 */
+	int getLineStart() {
+		return this.lineStart;
+	}
+
+	/**
+	 * @return The byte after the last byte of the current line in the buffer
+	 */
+	int getLineEnd() {
+		return this.lineEnd;
+	}
+
+	/**
+	 * @return The number of the current line, starting at 1
+	 */
+	int getLineNumber() {
+		return this.lineNumber;
+	}
+
+	/**
+	 * @return The number of bytes of the file before the next line
+	 */
+	long getBytesRead() {
+		return this.bufferStart + this.pos;
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Moves to the next line
+	 * @return false if there are no more lines
+	 * @throws IOException If a window cannot be mapped or a line is bigger than a window
+	 */
+	boolean nextLine() throws IOException {
+		boolean found = false;
+		boolean more = this.bufferStart + this.pos < this.fileSize;
+
+		while (more && !found) {
+			int limit = this.buffer.limit();
+			int i = this.pos;
+			while (i < limit && this.buffer.get(i) != '\n' && this.buffer.get(i) != '\r')
+				i++;
+
+			if (i < limit || this.bufferStart + limit == this.fileSize) {
+				this.lineStart = this.pos;
+				this.lineEnd = i;
+				if (i < limit && this.buffer.get(i) == '\r')
+					i = this.skipLineFeed(i);
+				this.pos = Math.min(i + 1, this.buffer.limit());
+				this.lineNumber++;
+				found = true;
+			}
+			else if (this.pos == 0)
+				throw new WrongCityFormatException("Line too long", this.lineNumber + 1);
+			else
+				this.map(this.bufferStart + this.pos);
+		}
+
+		return found;
+	}
+
+	/**
+	 * Skips the \n of a \r\n line ending, mapping a new window if the \r is the last byte of the current one
+	 * @param i The position of the \r
+	 * @return The position of the last byte of the line ending
+	 * @throws IOException If a window cannot be mapped
+	 */
+	private int skipLineFeed(int i) throws IOException {
+		int last = i;
+
+		if (i + 1 < this.buffer.limit()) {
+			if (this.buffer.get(i + 1) == '\n')
+				last = i + 1;
+		}
+		else if (this.bufferStart + i + 1 < this.fileSize) {
+			long start = this.bufferStart + this.lineStart;
+			int length = i - this.lineStart;
+			this.map(start);
+			this.lineStart = 0;
+			this.lineEnd = length;
+			last = length;
+			if (length + 1 < this.buffer.limit() && this.buffer.get(length + 1) == '\n')
+				last = length + 1;
+		}
+
+		return last;
+	}
+
+	/**
+	 * Maps a window of the file
+	 * @param start The position of the file where the window starts
+	 * @throws IOException If the window cannot be mapped
+	 */
+	private void map(long start) throws IOException {
+		long size = Math.min(this.window, this.fileSize - start);
+
+		this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+		this.bufferStart = start;
+		this.pos = 0;
+	}
+}
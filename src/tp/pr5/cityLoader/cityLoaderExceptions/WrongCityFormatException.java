@@ -9,6 +9,8 @@ import java.io.IOException;
  */
 @SuppressWarnings("serial")
 public class WrongCityFormatException extends IOException {
+	private int line = -1;
+	
 	/**
 	 * Constructor without parameters (no message is given)
 	 */
@@ -38,4 +40,22 @@ public class WrongCityFormatException extends IOException {
 	public WrongCityFormatException(Throwable arg) {
 		super (arg);
 	} 
+	
+	/**
+	 * The exception thrown is created with a problem message and the line of the file where the problem was found.
+	 * @param msg User-friendly string that explains the error.
+	 * @param line Number of the line of the file, starting at 1.
+	 */
+	public WrongCityFormatException(String msg, int line) {
+		super (msg + " (line " + line + ")");
+		this.line = line;
+	}
+	
+	/**
+	 * Line of the file where the problem was found
+	 * @return The number of the line, starting at 1, or -1 if it is unknown
+	 */
+	public int getLine() {
+		return this.line;
+	}
 }
@@ -0,0 +1,287 @@
+package tp.pr5.cityLoader.test;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import tp.pr5.City;
+import tp.pr5.Place;
+import tp.pr5.Street;
+import tp.pr5.cityLoader.CityBinaryConverter;
+import tp.pr5.cityLoader.CityGenerator;
+import tp.pr5.cityLoader.CityLoaderFromBinaryFile;
+import tp.pr5.cityLoader.CityLoaderFromMappedFile;
+import tp.pr5.cityLoader.CityLoaderFromTxtFile;
+import tp.pr5.cityLoader.CityLoaderParallel;
+import tp.pr5.cityLoader.cityLoaderExceptions.WrongCityFormatException;
+import tp.pr5.items.Item;
+
+/**
+ * Tests that the loaders of a text city from a mapped file and in parallel, and the loader of a binary city, build the same city as
+ * the loader of the text file, and that the three text loaders find the same wrong files. The mapped and parallel loaders also give the
+ * same message and line, that the loader of the text file does not give
+ * @author Juan Manuel Carrera García
+ */
+public class CityLoadersTest {
+	private static final String MADRID = "BeginCity\n"
+			+ "BeginPlaces\n"
+			+ "place 0 Sol You_are_at_the_center_of_Madrid noSpaceShip\n"
+			+ "place 1 Callao In_this_square_you_can_find_a_code_card noSpaceShip\n"
+			+ "place 2 Colon People_concentrates_here_to_watch_football noSpaceShip\n"
+			+ "place 3 Exit Ok,_finally_you_have_found_your_spaceship... spaceShip\n"
+			+ "EndPlaces\n"
+			+ "BeginStreets\n"
+			+ "street 0 place 0 south place 1 open\n"
+			+ "street 1 place 1 east place 2 open\n"
+			+ "street 2 place 2 north place 3 closed onetwothreefourfive\n"
+			+ "EndStreets\n"
+			+ "BeginItems\n"
+			+ "fuel 0 Petrol from_olds_heatings 10 3 place 0\n"
+			+ "fuel 1 Battery to_get_cracking -50 1 place 0\n"
+			+ "codecard 2 Card The_key_is_too_easy onetwothreefourfive place 1\n"
+			+ "garbage 3 Newspapers News_on_sport 30 place 2\n"
+			+ "EndItems\n"
+			+ "EndCity\n";
+
+	private static final String FORMAT_ERROR = WrongCityFormatException.class.getSimpleName() + ":";
+
+	private File file;
+	private File binary;
+
+	@Before
+	public void setUp() throws IOException {
+		this.file = File.createTempFile("city", ".txt");
+		this.binary = File.createTempFile("city", ".bin");
+	}
+
+	@After
+	public void tearDown() {
+		this.file.delete();
+		this.binary.delete();
+	}
+
+	@Test
+	public void testSameCitySmall() throws IOException {
+		this.write(MADRID);
+		this.checkSameCity();
+	}
+
+	@Test
+	public void testSameCityWithCarriageReturns() throws IOException {
+		this.write(MADRID.replace("\n", "\r\n"));
+		this.checkSameCity();
+	}
+
+	@Test
+	public void testSameCityGrid() throws IOException {
+		// More lines in every section than a chunk of the parallel loader, with closed streets and every type of item
+		CityGenerator generator = new CityGenerator(CityGenerator.Topology.GRID, 10000, 3);
+		generator.setClosedStreets(0.1);
+		generator.setFuelDensity(0.5);
+		this.generate(generator);
+		this.checkSameCity();
+	}
+
+	@Test
+	public void testSameCityQuoted() throws IOException {
+		CityGenerator generator = new CityGenerator(CityGenerator.Topology.RANDOM, 3000, 5);
+		generator.setClosedStreets(0.2);
+		generator.setQuotedDescriptions(true);
+		this.generate(generator);
+		this.checkSameCity();
+	}
+
+	@Test
+	public void testSameErrors() throws IOException {
+		String[] wrong = {
+				"",
+				MADRID.replace("EndCity\n", ""),
+				MADRID.replace("BeginCity", "BeginCiti"),
+				MADRID.replace("EndPlaces", "EndPlace"),
+				MADRID.replace("place 0 Sol", "place 1 Sol"),
+				MADRID.replace("place 0 Sol You_are_at_the_center_of_Madrid noSpaceShip", "place 0 Sol noSpaceShip"),
+				MADRID.replace("spaceShip\nEndPlaces", "spaceShips\nEndPlaces"),
+				MADRID.replace("street 1 place 1 east place 2", "street 1 place 1 east place 9"),
+				MADRID.replace("south", "southwest"),
+				MADRID.replace("closed onetwothreefourfive", "closed"),
+				MADRID.replace("street 1", "street 2"),
+				MADRID.replace("fuel 1 Battery", "battery 1 Battery"),
+				MADRID.replace("fuel 0 Petrol from_olds_heatings 10 3 place 0", "fuel 0 Petrol"),
+				MADRID.replace("News_on_sport 30 place 2", "News_on_sport 30 place"),
+				MADRID.replace("News_on_sport 30 place 2", "News_on_sport 30 place two"),
+				MADRID.replace("30 place 2", "30 place 7"),
+				MADRID.replace("garbage 3", "garbage 2"),
+				MADRID.replace("EndItems\n", "")
+		};
+
+		for (int i = 0; i < wrong.length; i++) {
+			this.write(wrong[i]);
+			String mapped = this.loadMapped();
+			assertTrue("The text loader finds that the file " + i + " is wrong", this.loadTxt().startsWith(FORMAT_ERROR));
+			assertTrue("The mapped loader finds that the file " + i + " is wrong", mapped.startsWith(FORMAT_ERROR));
+			assertEquals("The parallel loader gives the same error as the mapped loader for the file " + i, mapped, this.loadParallel());
+		}
+	}
+
+	/**
+	 * Loads the file with every loader, converting it to a binary city for the binary loader, and checks that all the cities are the same
+	 * @throws IOException If the file cannot be loaded
+	 */
+	private void checkSameCity() throws IOException {
+		String txt = this.loadTxt();
+
+		assertTrue("The city is loaded: " + txt, txt.startsWith("OK"));
+		assertEquals("The mapped loader builds the same city", txt, this.loadMapped());
+		assertEquals("The parallel loader builds the same city", txt, this.loadParallel());
+		InputStream in = new FileInputStream(this.file);
+		OutputStream out = new FileOutputStream(this.binary);
+		try {
+			new CityBinaryConverter().convert(in, out);
+		} finally {
+			in.close();
+			out.close();
+		}
+		CityLoaderFromBinaryFile loader = new CityLoaderFromBinaryFile();
+		City city = loader.loadCity(this.binary);
+		assertEquals("The binary loader builds the same city", txt, CityLoadersTest.describe(city, loader.getInitialPlace()));
+	}
+
+	/**
+	 * @return The city loaded by the text loader, or its error
+	 */
+	private String loadTxt() {
+		String aux;
+
+		try {
+			CityLoaderFromTxtFile loader = new CityLoaderFromTxtFile();
+			InputStream in = new FileInputStream(this.file);
+			try {
+				aux = CityLoadersTest.describe(loader.loadCity(in), loader.getInitialPlace());
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			aux = CityLoadersTest.describe(e);
+		}
+
+		return aux;
+	}
+
+	/**
+	 * @return The city loaded by the mapped loader, or its error
+	 */
+	private String loadMapped() {
+		String aux;
+
+		try {
+			CityLoaderFromMappedFile loader = new CityLoaderFromMappedFile();
+			aux = CityLoadersTest.describe(loader.loadCity(this.file), loader.getInitialPlace());
+		} catch (Exception e) {
+			aux = CityLoadersTest.describe(e);
+		}
+
+		return aux;
+	}
+
+	/**
+	 * @return The city loaded by the parallel loader, or its error
+	 */
+	private String loadParallel() {
+		String aux;
+
+		try {
+			CityLoaderParallel loader = new CityLoaderParallel();
+			aux = CityLoadersTest.describe(loader.loadCity(this.file), loader.getInitialPlace());
+		} catch (Exception e) {
+			aux = CityLoadersTest.describe(e);
+		}
+
+		return aux;
+	}
+
+	/**
+	 * Writes a text city in the file
+	 * @param text The text
+	 * @throws IOException If the file cannot be written
+	 */
+	private void write(String text) throws IOException {
+		this.write(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Writes the city of a generator in the file
+	 * @param generator The generator
+	 * @throws IOException If the file cannot be written
+	 */
+	private void generate(CityGenerator generator) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		generator.generate(out);
+		this.write(out.toByteArray());
+	}
+
+	/**
+	 * Writes some bytes in the file
+	 * @param bytes The bytes
+	 * @throws IOException If the file cannot be written
+	 */
+	private void write(byte[] bytes) throws IOException {
+		OutputStream out = new FileOutputStream(this.file);
+
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * A text with all the city: its initial place, its streets, and its places with their items
+	 * @param city The city
+	 * @param initialPlace The initial place
+	 * @return The text
+	 */
+	private static String describe(City city, Place initialPlace) {
+		StringBuilder aux = new StringBuilder("OK initial place ").append(initialPlace.getName()).append('\n');
+
+		for (int i = 0; i < city.getNumStreet(); i++) {
+			Street street = city.getStreet(i);
+			aux.append(street.getSource().getName()).append(' ').append(street.getDirection()).append(' ').append(street.getTarget().getName())
+					.append(' ').append(street.isOpen()).append(' ').append(street.getCodeStreet()).append('\n');
+		}
+		for (int i = 0; i < city.getNumPlaces(); i++) {
+			Place place = city.getPlace(i);
+			aux.append(place.getName()).append('|').append(place.getDescription()).append('|').append(place.isSpaceship()).append('\n');
+			for (int j = 0; j < place.numberOfItems(); j++) {
+				Item item = place.getItem(j);
+				aux.append("  ").append(item.getClass().getSimpleName()).append(' ').append(item).append('\n');
+			}
+		}
+
+		return aux.toString();
+	}
+
+	/**
+	 * @param e The error of a loader
+	 * @return Its type, its message and, if it is a format error, its line
+	 */
+	private static String describe(Exception e) {
+		String aux = e.getClass().getSimpleName() + ": " + e.getMessage();
+
+		if (e instanceof WrongCityFormatException)
+			aux += " at line " + ((WrongCityFormatException) e).getLine();
+
+		return aux;
+	}
+}
@@ -0,0 +1,111 @@
+package tp.pr5.console;
+
+import java.io.PrintWriter;
+import java.util.List;
+
+import tp.pr5.AsyncDispatcher;
+import tp.pr5.Controller;
+import tp.pr5.Interpreter;
+import tp.pr5.RobotEngine;
+import tp.pr5.instructions.Instruction;
+import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
+
+/**
+ * The controller employed when the application runs a script without user interaction. The whole script is parsed before
+ * the simulation starts, and then the instructions are executed until the script ends or the simulation is over.
+ * The messages of the observers are written as in the console, but in a buffered stream and without prompts.
+ * At the end, it reports the final state of the robot, the number of instructions and the throughput.
+ * @author Juan Manuel Carrera García
+ *
+ */
+public class BatchController extends Controller {
+	private List<String> script;
+	private PrintWriter out;
+
+	/**
+	 * Constructor of the controller. It receives the model main class, the script and the stream of the messages.
+	 * @param robot Engine that is being played
+	 * @param script The lines of the script
+	 * @param out The writer where the messages are written. It is flushed when the script ends
+	 */
+	public BatchController(RobotEngine robot, List<String> script, PrintWriter out) {
+		this(robot, script, out, null);
+	}
+
+	/**
+	 * Constructor of the controller with a dispatcher of the notifications. The messages are written in the thread of the dispatcher
+	 * @param robot Engine that is being played
+	 * @param script The lines of the script
+	 * @param out The writer where the messages are written. It is flushed when the script ends
+	 * @param dispatcher The dispatcher of the notifications, or null to write the messages in the thread of the engine
+	 */
+	public BatchController(RobotEngine robot, List<String> script, PrintWriter out, AsyncDispatcher dispatcher) {
+		super(robot);
+		this.setDispatcher(dispatcher);
+		this.script = script;
+		this.out = out;
+		Console consola = new Console(out);
+		this.setRobotObserver(consola);
+		this.setNavigationObserver(consola);
+		this.setInventoryObserver(consola);
+	}
+
+	/**
+	 * Runs the script
+	 */
+	@Override
+	public void runGame() {
+		Instruction[] instructions = new Instruction[this.script.size()];
+		String[] errors = new String[this.script.size()];
+		String lastError = null;
+		int executed = 0;
+		int invalid = 0;
+
+		for (int i = 0; i < instructions.length; i++) {
+			try {
+				instructions[i] = Interpreter.generateInstruction(this.script.get(i));
+			} catch (WrongInstructionFormatException e) {
+				if (!e.getMessage().equals(lastError))
+					lastError = e.getMessage();
+				errors[i] = lastError;
+			}
+		}
+		// The lines are not needed any more, and the script can be very big
+		this.script = null;
+
+		this.robotEngine.initNavigationModule();
+		this.robotEngine.requestStart();
+		long start = System.nanoTime();
+		for (int i = 0; i < instructions.length && !this.robotEngine.isOver(); i++) {
+			if (instructions[i] != null)
+				this.robotEngine.comunicateRobot(instructions[i]);
+			else {
+				this.robotEngine.requestError(errors[i]);
+				invalid++;
+			}
+			executed++;
+		}
+		this.flushNotifications();
+		long elapsed = System.nanoTime() - start;
+
+		this.report(executed, instructions.length, invalid, elapsed);
+		this.out.flush();
+	}
+
+	/**
+	 * Writes the final state and the throughput
+	 * @param executed The number of lines of the script that were executed
+	 * @param total The number of lines of the script
+	 * @param invalid The number of invalid instructions
+	 * @param elapsed The time of the execution in ns
+	 */
+	private void report(int executed, int total, int invalid, long elapsed) {
+		long perSecond = (elapsed == 0) ? 0 : executed * 1000000000L / elapsed;
+
+		this.out.println("Batch: " + executed + " of " + total + " instructions executed (" + invalid + " invalid) in "
+				+ (elapsed / 1000000) + " ms, " + perSecond + " instructions/s");
+		this.out.println("Final state: place " + this.robotEngine.getCurrentPlace().getName() + ", heading "
+				+ this.robotEngine.getCurrentHeading() + ", fuel " + this.robotEngine.getFuel() + ", recycled material "
+				+ this.robotEngine.getRecycledMaterial() + (this.robotEngine.isOver() ? ", simulation over" : ""));
+	}
+}
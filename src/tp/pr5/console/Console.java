@@ -1,6 +1,7 @@
 package tp.pr5.console;
 
-import java.util.Iterator;
+import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.List;
 
 import tp.pr5.Direction;
@@ -16,27 +17,82 @@ import tp.pr5.items.Item;
  */
  
 public class Console implements NavigationObserver, RobotEngineObserver, InventoryObserver {
+	private PrintWriter out;
+	private List<String> inventory;
+	
+	/**
+	 * Creates a console that writes in the standard output. Every message is flushed when it is written
+	 */
+	public Console() {
+		this(new PrintWriter(System.out, true));
+	}
+	
+	/**
+	 * Creates a console that writes in a writer. The messages are not flushed unless the writer does it
+	 * @param out The writer where the messages are written
+	 */
+	public Console(PrintWriter out) {
+		this.out = out;
+		this.inventory = new ArrayList<String>();
+	}
+	
 	/**
 	 * Notifies that the container has changed
 	 * @param inventory New Inventory
 	 */	
 	@Override
 	public void inventoryChange(List<Item> inventory) {
-		String aux = "";
-		
-		if (inventory.isEmpty())
-			aux = "The inventory is empty";
+		this.inventory.clear();
+		for (Item item : inventory)
+			this.inventory.add(item.getId());
+		this.writeInventory();
+	}
+	
+	/**
+	 * Notifies that an item has been added to the container
+	 * @param item The new item
+	 * @param index The position of the item in the sorted inventory
+	 */
+	@Override
+	public void itemAdded(Item item, int index) {
+		this.inventory.add(index, item.getId());
+		this.writeInventory();
+	}
+	
+	/**
+	 * Notifies that an item has been removed from the container
+	 * @param item The removed item
+	 * @param index The position that the item had in the sorted inventory
+	 */
+	@Override
+	public void itemRemoved(Item item, int index) {
+		this.inventory.remove(index);
+		this.writeInventory();
+	}
+	
+	/**
+	 * Notifies that an item of the container has been used and it is still in the container. The console does not write anything
+	 * @param item The item
+	 * @param index The position of the item in the sorted inventory
+	 */
+	@Override
+	public void itemUsageChanged(Item item, int index) {}
+	
+	/**
+	 * Writes the identifiers of the inventory, one per line, without making a string with all of them
+	 */
+	private void writeInventory() {
+		if (this.inventory.isEmpty())
+			this.out.println("The inventory is empty");
 		else {
-			aux = "WALL·E says: I am carrying the following items" + Interpreter.LINE_SEPARATOR;
-			Iterator<Item> iter = inventory.iterator();
-			
-			while (iter.hasNext()) {
-				aux = aux + "   " + iter.next().getId();
-				if (iter.hasNext())
-					aux = aux + Interpreter.LINE_SEPARATOR;
+			this.out.print("WALL·E says: I am carrying the following items");
+			for (String id : this.inventory) {
+				this.out.print(Interpreter.LINE_SEPARATOR);
+				this.out.print("   ");
+				this.out.print(id);
 			}
+			this.out.println();
 		}
-		System.out.println(aux);
 	}
 
 	/**
@@ -44,7 +100,7 @@ public class Console implements NavigationObserver, RobotEngineObserver, Invento
 	 */
 	@Override
 	public void communicationCompleted() {
-		System.out.println("WALL·E says: I have communications problems. Bye bye");
+		this.out.println("WALL·E says: I have communications problems. Bye bye");
 	}
 
 	/**
@@ -53,7 +109,7 @@ public class Console implements NavigationObserver, RobotEngineObserver, Invento
 	 */
 	@Override
 	public void communicationHelp(String help) {
-		System.out.println(help);
+		this.out.println(help);
 	}
 
 	/**
@@ -63,9 +119,9 @@ public class Console implements NavigationObserver, RobotEngineObserver, Invento
 	@Override
 	public void engineOff(boolean atShip) {
 		if (atShip)
-			System.out.println("WALL·E says: I am at my spaceship. Bye bye");
+			this.out.println("WALL·E says: I am at my spaceship. Bye bye");
 		else 
-			System.out.println("WALL·E says: I run out of fuel. I cannot move. Shutting down...");
+			this.out.println("WALL·E says: I run out of fuel. I cannot move. Shutting down...");
 	}
 
 	/**
@@ -74,7 +130,7 @@ public class Console implements NavigationObserver, RobotEngineObserver, Invento
 	 */
 	@Override
 	public void raiseError(String msg) {
-		System.out.println(msg);
+		this.out.println(msg);
 	}
 
 	/**
@@ -83,7 +139,7 @@ public class Console implements NavigationObserver, RobotEngineObserver, Invento
 	 */
 	@Override
 	public void robotSays(String msg) {
-		System.out.println(msg);
+		this.out.println(msg);
 	}
 	
 	/**
@@ -93,10 +149,18 @@ public class Console implements NavigationObserver, RobotEngineObserver, Invento
 	 */
 	@Override
 	public void robotUpdate(int fuel, int recycledMaterial) {
-		System.out.println ("      * My power is " + fuel + 
+		this.out.println ("      * My power is " + fuel + 
 				Interpreter.LINE_SEPARATOR +
 			    "      * My reclycled material is " + recycledMaterial);
 	}
+	
+	/**
+	 * The robot engine informs of the fuel that the robot needs to arrive at a spaceship. The console only writes it when the user asks for it
+	 * @param fuelToShip The fuel of the cheapest route to a spaceship
+	 * @param canReach true if the fuel of the robot is enough to arrive at a spaceship
+	 */
+	@Override
+	public void fuelToShipUpdate(int fuelToShip, boolean canReach) {}
 
 	/**
 	 * Notifies that the robot heading has changed
@@ -104,7 +168,7 @@ public class Console implements NavigationObserver, RobotEngineObserver, Invento
 	 */
 	@Override
 	public void headingChanged(Direction newHeading) {
-		System.out.println("WALL·E is looking at direction " + newHeading);
+		this.out.println("WALL·E is looking at direction " + newHeading);
 	}
 
 	/**
@@ -114,8 +178,8 @@ public class Console implements NavigationObserver, RobotEngineObserver, Invento
 	 */
 	@Override
 	public void initNavigationModule(PlaceInfo initialPlace, Direction heading) {
-		System.out.println(initialPlace.toString());
-		System.out.println("WALL·E is looking at direction "
+		this.out.println(initialPlace.toString());
+		this.out.println("WALL·E is looking at direction "
 					+ heading);		
 	}
 
@@ -125,7 +189,7 @@ public class Console implements NavigationObserver, RobotEngineObserver, Invento
 	 */
 	@Override
 	public void placeHasChanged(PlaceInfo placeDescription) {
-		System.out.println("Places has changed" + Interpreter.LINE_SEPARATOR + placeDescription.toString());
+		this.out.println("Places has changed" + Interpreter.LINE_SEPARATOR + placeDescription.toString());
 	}
 
 	/**
@@ -134,7 +198,7 @@ public class Console implements NavigationObserver, RobotEngineObserver, Invento
 	 */
 	@Override
 	public void placeScanned(PlaceInfo placeDescription) {
-		System.out.println(placeDescription.toString());
+		this.out.println(placeDescription.toString());
 	}
 
 	/**
@@ -144,8 +208,8 @@ public class Console implements NavigationObserver, RobotEngineObserver, Invento
 	 */
 	@Override
 	public void robotArrivesAtPlace(Direction heading, PlaceInfo place) {
-		System.out.println("WALL·E says: Moving in direction "
+		this.out.println("WALL·E says: Moving in direction "
 				+ heading);
-		System.out.println(place.toString());
+		this.out.println(place.toString());
 	}	
 }
@@ -1,11 +1,15 @@
 package tp.pr5.console;
 
-import java.util.Scanner;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
 
+import tp.pr5.AsyncDispatcher;
 import tp.pr5.Controller;
+import tp.pr5.InstructionStats;
 import tp.pr5.Interpreter;
 import tp.pr5.RobotEngine;
-import tp.pr5.instructions.Instruction;
 import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
 
 /**
@@ -15,13 +19,43 @@ import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
  */
  
 public class ConsoleController extends Controller {
+	private static final String STATS_COMMAND = "STATS";
+	private static final String STATS_CSV = "CSV";
+	private static final String SHIP_COMMAND = "SHIP";
+	
+	private BufferedReader in;
+	private PrintWriter out;
+	
 	/**
 	 * Constructor of the controller. It receives the model main class.
 	 * @param robot Engine that is being played
 	 */
 	public ConsoleController(RobotEngine robot) {
+		this(robot, null);
+	}
+
+	/**
+	 * Constructor of the controller with a dispatcher of the notifications. The console receives them in the thread of the dispatcher
+	 * @param robot Engine that is being played
+	 * @param dispatcher The dispatcher of the notifications, or null to receive them in the thread of the engine
+	 */
+	public ConsoleController(RobotEngine robot, AsyncDispatcher dispatcher) {
+		this(robot, new BufferedReader(new InputStreamReader(System.in)), new PrintWriter(System.out, true), dispatcher);
+	}
+
+	/**
+	 * Constructor of the controller that reads the instructions and writes the messages in the given streams, as a remote session
+	 * @param robot Engine that is being played
+	 * @param in The reader of the instructions. The game ends when it has no more lines
+	 * @param out The writer of the messages. It is flushed with every prompt
+	 * @param dispatcher The dispatcher of the notifications, or null to receive them in the thread of the engine
+	 */
+	public ConsoleController(RobotEngine robot, BufferedReader in, PrintWriter out, AsyncDispatcher dispatcher) {
 		super(robot);
-		Console consola = new Console();
+		this.setDispatcher(dispatcher);
+		this.in = in;
+		this.out = out;
+		Console consola = new Console(out);
 		this.setRobotObserver(consola);
 		this.setNavigationObserver(consola);
 		this.setInventoryObserver(consola);
@@ -32,22 +66,101 @@ public class ConsoleController extends Controller {
 	 */
 	@Override
 	public void runGame() {
-		Scanner sc = new Scanner(System.in);
-		String line;
-		Instruction ins = null;
+		this.execute(new Runnable() {
+			public void run() {
+				ConsoleController.this.robotEngine.initNavigationModule();
+				ConsoleController.this.robotEngine.requestStart();
+			}
+		});
+		this.readInstructions();
+	}
+
+	/**
+	 * Reads the instructions of the user and executes them until the input ends or the simulation is over, without starting the simulation.
+	 * It is used alone when other interface starts the simulation. The prompt is written when the engine has executed the instructions submitted before.
+	 * If the instruction statistics are enabled, STATS writes them and STATS CSV writes them as CSV, without going to the engine.
+	 * SHIP asks the engine for the fuel that the robot needs to arrive at a spaceship
+	 */
+	public void readInstructions() {
+		String line = "";
 		
-		this.robotEngine.initNavigationModule();
-		this.robotEngine.requestStart();
-		do {
-			System.out.print("WALL·E> ");
-			line = sc.nextLine();
+		try {
+			do {
+				this.flushCommands();
+				this.flushNotifications();
+				this.out.print("WALL·E> ");
+				this.out.flush();
+				line = this.in.readLine();
+				if (line != null && InstructionStats.getDefault().isEnabled() && this.isStatsCommand(line))
+					this.stats(line.substring(STATS_COMMAND.length()).trim());
+				else if (line != null && line.trim().equalsIgnoreCase(SHIP_COMMAND))
+					this.requestFuelToShip();
+				else if (line != null) {
+					try {
+						this.execute(Interpreter.generateInstruction(line));
+					} catch (WrongInstructionFormatException e) {
+						this.requestError(e.getMessage());
+					}
+				}
+				this.flushCommands();
+			} while (line != null && !this.isOver());
+			this.flushNotifications();
+			this.out.flush();
+			this.in.close();
+		} catch (IOException e) {
+			// The input is closed, as a remote player that leaves the game
+		}
+	}
+
+	/**
+	 * @param line A line written by the user
+	 * @return true if the line is STATS or STATS CSV, without taking case into account
+	 */
+	private boolean isStatsCommand(String line) {
+		String arg = (line.length() > STATS_COMMAND.length()) ? line.substring(STATS_COMMAND.length()) : "";
+		
+		return line.regionMatches(true, 0, STATS_COMMAND, 0, STATS_COMMAND.length())
+				&& (arg.isEmpty() || arg.trim().equalsIgnoreCase(STATS_CSV) && arg.charAt(0) == ' ');
+	}
+
+	/**
+	 * Writes the instruction statistics in the console, as a table or as CSV
+	 * @param format CSV to write them as CSV, or an empty string to write the table
+	 */
+	private void stats(String format) {
+		InstructionStats stats = InstructionStats.getDefault();
+		
+		if (format.equalsIgnoreCase(STATS_CSV)) {
 			try {
-				ins = Interpreter.generateInstruction(line);
-				this.robotEngine.comunicateRobot(ins);
-			} catch (WrongInstructionFormatException e) {
-				this.robotEngine.requestError(e.getMessage());
+				stats.export(this.out);
+			} catch (IOException e) {
+				this.out.println("The statistics cannot be written: " + e.getMessage());
+			}
+		}
+		else
+			this.out.print(stats.getReport());
+	}
+
+	/**
+	 * Asks the engine for the fuel to the spaceship, in the thread of the engine. The robot says it to the observers
+	 */
+	private void requestFuelToShip() {
+		this.execute(new Runnable() {
+			public void run() {
+				ConsoleController.this.robotEngine.requestFuelToShip();
+			}
+		});
+	}
+
+	/**
+	 * Informs the observers of an error in the line written by the user
+	 * @param msg The message of the error
+	 */
+	private void requestError(final String msg) {
+		this.execute(new Runnable() {
+			public void run() {
+				ConsoleController.this.robotEngine.requestError(msg);
 			}
-		} while (!this.robotEngine.isOver());
-		sc.close();
+		});
 	}
 }
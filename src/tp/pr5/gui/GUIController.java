@@ -3,6 +3,8 @@ package tp.pr5.gui;
 import tp.pr5.Controller;
 import tp.pr5.RobotEngine;
 import tp.pr5.instructions.Instruction;
+import tp.pr5.instructions.RedoInstruction;
+import tp.pr5.instructions.UndoInstruction;
 
 /**
  * The controller employed when the application is configured as a swing application. It is responsible for requesting the robot engine start and it redirects the actions performed by the user on the window to the robot engine.
@@ -24,24 +26,35 @@ public class GUIController extends Controller {
 	 */
 	@Override
 	public void runGame() {
-		this.robotEngine.initNavigationModule();
-		this.robotEngine.initRobotContainer();
-		this.robotEngine.requestStart();
+		this.execute(new Runnable() {
+			public void run() {
+				GUIController.this.robotEngine.initNavigationModule();
+				GUIController.this.robotEngine.initRobotContainer();
+				GUIController.this.robotEngine.requestStart();
+			}
+		});
 	}
 	
 	/**
-	 * This method passes an instruction to the robot for execution
+	 * This method passes an instruction to the robot for execution. With a command queue the method returns before the instruction is executed
 	 * @param ins Instruction to execute
 	 */
 	public void executeInstruction(Instruction ins) {
-		this.robotEngine.comunicateRobot(ins);	
+		this.execute(ins);
 	}
 	
 	/**
 	 * This method tells the robot to undo the last instruction executed
 	 */
 	public void executeInstructionUndo() {
-		this.robotEngine.comunicateRobotUndo();
+		this.execute(new UndoInstruction());
+	}
+	
+	/**
+	 * This method tells the robot to redo the last instruction undone
+	 */
+	public void executeInstructionRedo() {
+		this.execute(new RedoInstruction());
 	}
 }
 
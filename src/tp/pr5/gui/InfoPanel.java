@@ -1,11 +1,13 @@
 package tp.pr5.gui;
 
+import java.awt.Color;
 import java.util.List;
 
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 
 import tp.pr5.Direction;
+import tp.pr5.FuelMap;
 import tp.pr5.NavigationObserver;
 import tp.pr5.PlaceInfo;
 import tp.pr5.RobotEngineObserver;
@@ -13,13 +15,15 @@ import tp.pr5.items.InventoryObserver;
 import tp.pr5.items.Item;
 
 /**
- * Panel at the bottom of the window that displays messages about the events that occur during the simulation. This panel implements all the observer interfaces in order to be notified about all event ocurred
+ * Panel at the bottom of the window that displays messages about the events that occur during the simulation. This panel implements all the observer interfaces in order to be notified about all event ocurred.
+ * Next to the messages it shows the fuel that the robot needs to arrive at a spaceship, in red when its fuel is not enough
  * @author Juan Manuel Carrera García
  *
  */
 @SuppressWarnings("serial")
 public class InfoPanel extends JPanel implements RobotEngineObserver, NavigationObserver, InventoryObserver {
 	private JLabel information;
+	private JLabel toShip;
 	
 	/**
 	 * Constructor of the InfoPanel in the MainWindow to show the informaiton of the game
@@ -27,6 +31,7 @@ public class InfoPanel extends JPanel implements RobotEngineObserver, Navigation
 	public InfoPanel() {
 		super();
 		this.add(this.information = new JLabel());
+		this.add(this.toShip = new JLabel());
 	}
 	
 	/**
@@ -37,6 +42,34 @@ public class InfoPanel extends JPanel implements RobotEngineObserver, Navigation
 	public void inventoryChange(List<Item> inventory) {
 		this.information.setText("WALL·E says: The inventory change");
 	}
+	
+	/**
+	 * Notifies that an item has been added to the container
+	 * @param item The new item
+	 * @param index The position of the item in the sorted inventory
+	 */
+	@Override
+	public void itemAdded(Item item, int index) {
+		this.information.setText("WALL·E says: The inventory change");
+	}
+	
+	/**
+	 * Notifies that an item has been removed from the container
+	 * @param item The removed item
+	 * @param index The position that the item had in the sorted inventory
+	 */
+	@Override
+	public void itemRemoved(Item item, int index) {
+		this.information.setText("WALL·E says: The inventory change");
+	}
+	
+	/**
+	 * Notifies that an item of the container has been used and it is still in the container
+	 * @param item The item
+	 * @param index The position of the item in the sorted inventory
+	 */
+	@Override
+	public void itemUsageChanged(Item item, int index) {}
 
 	/**
 	 * Notifies that the robot heading has changed
@@ -136,4 +169,18 @@ public class InfoPanel extends JPanel implements RobotEngineObserver, Navigation
 		this.information.setText("Robot atributes has been updated: (" + 
 						fuel + ", " + recycledMaterial + ")");
 	}
+
+	/**
+	 * The robot engine informs of the fuel that the robot needs to arrive at a spaceship
+	 * @param fuelToShip The fuel of the cheapest route to a spaceship, or FuelMap.UNREACHABLE if no spaceship can be reached
+	 * @param canReach true if the fuel of the robot is enough to arrive at a spaceship
+	 */
+	@Override
+	public void fuelToShipUpdate(int fuelToShip, boolean canReach) {
+		if (fuelToShip == FuelMap.UNREACHABLE)
+			this.toShip.setText("| Spaceship: unreachable");
+		else
+			this.toShip.setText("| Fuel to spaceship: " + fuelToShip);
+		this.toShip.setForeground(canReach ? this.information.getForeground() : Color.RED);
+	}
 }
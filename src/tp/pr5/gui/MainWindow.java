@@ -43,7 +43,7 @@ public class MainWindow extends JFrame implements RobotEngineObserver {
 	
 	private JSplitPane panelSuperior;
 	private JPanel buttonPanel;
-	private JButton move, operate, pick, drop, quit, turn, undo;
+	private JButton move, operate, pick, drop, quit, turn, undo, redo;
 	private JTextField items;
 	private JComboBox<Rotation> comboRotation;
 	private JMenuBar menuBar;
@@ -71,6 +71,7 @@ public class MainWindow extends JFrame implements RobotEngineObserver {
         this.controller.setRobotObserver(this);
         this.controller.setRobotObserver(this.robotPanel);
         this.controller.setRobotObserver(this.infoPanel);
+        this.controller.requestFuelToShipUpdates();
         this.controller.setNavigationObserver(this.navPanel);
         this.controller.setNavigationObserver(this.infoPanel);
         this.controller.setInventoryObserver(this.robotPanel);
@@ -131,6 +132,7 @@ public class MainWindow extends JFrame implements RobotEngineObserver {
 		this.buttonPanel.add(this.drop);
 		this.buttonPanel.add(this.operate);
 		this.buttonPanel.add(this.undo);
+		this.buttonPanel.add(this.redo);
 	}
 	
 	/**
@@ -146,6 +148,7 @@ public class MainWindow extends JFrame implements RobotEngineObserver {
         this.turn = new JButton("TURN");
         this.comboRotation = new JComboBox<Rotation>(Rotation.values());
         this.undo = new JButton("UNDO");
+        this.redo = new JButton("REDO");
 		
         this.move.addActionListener(this.listener);
 		this.operate.addActionListener(this.listener);
@@ -154,6 +157,7 @@ public class MainWindow extends JFrame implements RobotEngineObserver {
 		this.quit.addActionListener(this.listener);
 		this.turn.addActionListener(this.listener);
 		this.undo.addActionListener(this.listener);
+		this.redo.addActionListener(this.listener);
 	}
 	
 	/**
@@ -225,6 +229,14 @@ public class MainWindow extends JFrame implements RobotEngineObserver {
 	 */
 	@Override
 	public void robotUpdate(int fuel, int recycledMaterial) {}
+
+	/**
+	 * The robot engine informs of the fuel that the robot needs to arrive at a spaceship. The info panel shows it
+	 * @param fuelToShip The fuel of the cheapest route to a spaceship
+	 * @param canReach true if the fuel of the robot is enough to arrive at a spaceship
+	 */
+	@Override
+	public void fuelToShipUpdate(int fuelToShip, boolean canReach) {}
 		
 	
 	/**
@@ -262,6 +274,9 @@ public class MainWindow extends JFrame implements RobotEngineObserver {
 			case "UNDO":
 				controller.executeInstructionUndo();
 				break;
+			case "REDO":
+				controller.executeInstructionRedo();
+				break;
 			case "OPERATE":
 				if(robotPanel.getSelectedItem() == null)
 					raiseError("You must select a item in the list");
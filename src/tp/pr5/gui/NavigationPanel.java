@@ -15,11 +15,14 @@ import javax.swing.JTextArea;
 import tp.pr5.Direction;
 import tp.pr5.NavigationObserver;
 import tp.pr5.PlaceInfo;
+import tp.pr5.jfr.PanelUpdateEvent;
 
 /**
  * This class is in charge of the panel that displays the information about the robot heading and the city that is traversing. It contains the grid that represents the city in the Swing interface, a text area to show the place descriptions, and a label with an icon which represents the robot heading 
 
    The 11x11 grid contains PlaceCell objects and the first place starts at (5,5). This panel will update the visited places when the robot moves from one place to another. Additionally it will show the place description on a text area if the user clicks on a visited place.
+
+   Every notification handled by the panel is recorded as a PanelUpdateEvent when Java Flight Recorder is recording it.
  
  * @author Juan Manuel Carrera García
  *
@@ -182,7 +185,12 @@ public class NavigationPanel extends JPanel implements NavigationObserver {
 	 */
 	@Override
 	public void headingChanged(Direction newHeading) {
+		PanelUpdateEvent event = new PanelUpdateEvent();
+		
+		event.begin();
 		this.setImageWalle(newHeading);
+		if (event.shouldCommit())
+			event.commit("NavigationPanel", "headingChanged", null);
 	}
 
 	/**
@@ -192,10 +200,15 @@ public class NavigationPanel extends JPanel implements NavigationObserver {
 	 */
 	@Override
 	public void initNavigationModule(PlaceInfo initialPlace, Direction heading) {
+		PanelUpdateEvent event = new PanelUpdateEvent();
+		
+		event.begin();
 		this.setTextCell(initialPlace.getName());
 		this.setDescriptionCell(initialPlace.toString());
 		this.setDescripArea(initialPlace.toString());
 		this.getCell().changeColor(Color.GREEN);	
+		if (event.shouldCommit())
+			event.commit("NavigationPanel", "initNavigationModule", initialPlace.getName());
 	}
 
 	/**
@@ -204,7 +217,12 @@ public class NavigationPanel extends JPanel implements NavigationObserver {
 	 */
 	@Override
 	public void placeHasChanged(PlaceInfo placeDescription) {	
+		PanelUpdateEvent event = new PanelUpdateEvent();
+		
+		event.begin();
 		this.setDescripArea(placeDescription.toString());
+		if (event.shouldCommit())
+			event.commit("NavigationPanel", "placeHasChanged", placeDescription.getName());
 	}
 
 	/**
@@ -221,6 +239,11 @@ public class NavigationPanel extends JPanel implements NavigationObserver {
 	 */
 	@Override
 	public void robotArrivesAtPlace(Direction heading, PlaceInfo place) {
+		PanelUpdateEvent event = new PanelUpdateEvent();
+		
+		event.begin();
 		this.changeCell(heading, place);
+		if (event.shouldCommit())
+			event.commit("NavigationPanel", "robotArrivesAtPlace", place.getName());
 	}	
 }
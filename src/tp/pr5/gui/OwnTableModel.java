@@ -1,21 +1,101 @@
 package tp.pr5.gui;
-import javax.swing.table.DefaultTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.table.AbstractTableModel;
+
+import tp.pr5.items.Item;
 
 /**
  * This class represents a own table model so that 
  * the cells are not altered .
+ * Every row shows the identifier and the description of an item. The rows are added and removed one by one, as the inventory changes,
+ * so the table only paints again the rows that have changed.
  * @author Juan Manuel Carrera García
 */
-public class OwnTableModel extends DefaultTableModel {
+public class OwnTableModel extends AbstractTableModel {
 	private static final long serialVersionUID = 1L;
 	
+	private String[] names;
+	private List<String[]> rows;
+	
 	/**
 	 * Construct of the table model
-	 * @param data of the table model
 	 * @param name colum of the table model
 	 */
-	public OwnTableModel(Object[][] data, Object[] name) {
-		super(data, name);
+	public OwnTableModel(String[] name) {
+		this.names = name;
+		this.rows = new ArrayList<String[]>();
+	}
+	
+	/**
+	 * Replaces all the rows of the table
+	 * @param items The items of the new rows
+	 */
+	public void setItems(List<Item> items) {
+		this.rows.clear();
+		for (Item item : items)
+			this.rows.add(OwnTableModel.row(item));
+		this.fireTableDataChanged();
+	}
+	
+	/**
+	 * Adds the row of an item
+	 * @param item The item
+	 * @param index The position of the row
+	 */
+	public void addItem(Item item, int index) {
+		this.rows.add(index, OwnTableModel.row(item));
+		this.fireTableRowsInserted(index, index);
+	}
+	
+	/**
+	 * Removes the row of an item
+	 * @param index The position of the row
+	 */
+	public void removeItem(int index) {
+		this.rows.remove(index);
+		this.fireTableRowsDeleted(index, index);
+	}
+	
+	/**
+	 * Paints again the row of an item
+	 * @param index The position of the row
+	 */
+	public void updateItem(int index) {
+		this.fireTableRowsUpdated(index, index);
+	}
+	
+	/**
+	 * @return The number of rows
+	 */
+	public int getRowCount() {
+		return this.rows.size();
+	}
+	
+	/**
+	 * @return The number of columns
+	 */
+	public int getColumnCount() {
+		return this.names.length;
+	}
+	
+	/**
+	 * @param column The position of the column
+	 * @return The name of the column
+	 */
+	@Override
+	public String getColumnName(int column) {
+		return this.names[column];
+	}
+	
+	/**
+	 * @param row The position of the row
+	 * @param column The position of the column
+	 * @return The text of the cell
+	 */
+	public Object getValueAt(int row, int column) {
+		return this.rows.get(row)[column];
 	}
 	
 	/**
@@ -24,4 +104,12 @@ public class OwnTableModel extends DefaultTableModel {
 	public boolean isCellEditable (int row, int column)	   {
 	   return false;
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * @param item An item
+	 * @return The cells of its row: the identifier and the description
+	 */
+	private static String[] row(Item item) {
+		return new String[] { item.getId(), item.getDescription() };
+	}
+}
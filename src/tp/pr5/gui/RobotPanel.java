@@ -38,7 +38,7 @@ public class RobotPanel extends JPanel implements RobotEngineObserver, Inventory
 		super(new BorderLayout());
 		this.setBorder(BorderFactory.createTitledBorder("Robot Info"));
 		
-		this.tableModel = new OwnTableModel(null, RobotPanel.Titles);
+		this.tableModel = new OwnTableModel(RobotPanel.Titles);
 		this.table = new JTable(this.tableModel);
 		this.table.getSelectionModel().setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 		this.table.setPreferredScrollableViewportSize(new Dimension(600,70));
@@ -91,16 +91,37 @@ public class RobotPanel extends JPanel implements RobotEngineObserver, Inventory
 	 */
 	@Override
 	public void inventoryChange(List<Item> inventory) {
-		String[][] infoUpdate = null;
-			
-		infoUpdate = new String[inventory.size()][2];
-		for (int i = 0; i < inventory.size(); i++) {
-			infoUpdate[i][0] = inventory.get(i).getId();
-			infoUpdate[i][1] = inventory.get(i).getDescription();
-		}			
-		
-		this.tableModel = new OwnTableModel(infoUpdate, RobotPanel.Titles);
-		this.table.setModel(this.tableModel);
+		this.tableModel.setItems(inventory);
+	}
+	
+	/**
+	 * Notifies that an item has been added to the container. Only its row is added to the table
+	 * @param item The new item
+	 * @param index The position of the item in the sorted inventory
+	 */
+	@Override
+	public void itemAdded(Item item, int index) {
+		this.tableModel.addItem(item, index);
+	}
+	
+	/**
+	 * Notifies that an item has been removed from the container. Only its row is removed from the table
+	 * @param item The removed item
+	 * @param index The position that the item had in the sorted inventory
+	 */
+	@Override
+	public void itemRemoved(Item item, int index) {
+		this.tableModel.removeItem(index);
+	}
+	
+	/**
+	 * Notifies that an item of the container has been used and it is still in the container. Only its row is painted again
+	 * @param item The item
+	 * @param index The position of the item in the sorted inventory
+	 */
+	@Override
+	public void itemUsageChanged(Item item, int index) {
+		this.tableModel.updateItem(index);
 	}
 
 	/**
@@ -147,4 +168,12 @@ public class RobotPanel extends JPanel implements RobotEngineObserver, Inventory
 	 */
 	@Override
 	public void robotSays(String message) {}
+
+	/**
+	 * The robot engine informs of the fuel that the robot needs to arrive at a spaceship
+	 * @param fuelToShip The fuel of the cheapest route to a spaceship
+	 * @param canReach true if the fuel of the robot is enough to arrive at a spaceship
+	 */
+	@Override
+	public void fuelToShipUpdate(int fuelToShip, boolean canReach) {}
 }
@@ -2,6 +2,7 @@ package tp.pr5.instructions;
 
 import tp.pr5.NavigationModule;
 import tp.pr5.RobotEngine;
+import tp.pr5.UndoJournal;
 import tp.pr5.instructions.exceptions.InstructionExecutionException;
 import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
 import tp.pr5.items.Item;
@@ -54,21 +55,27 @@ public class DropInstruction implements Instruction {
 			if (this.navig.findItemAtCurrentPlace(this.id)) 
 				throw new InstructionExecutionException ("The item already exists in this place");
 			
-			Item aux = this.container.pickItem(this.id);
+			Item aux = this.container.getItem(this.id);
 			this.navig.dropItemAtCurrentPlace(aux);
-			this.container.inventoryChange();
+			this.container.pickItem(this.id);
 			this.robot.saySomething("Great! I have dropped " + aux.getId());
 	}
 	
-	@Override
 	/**
-	 * Undo the Instruction It must be implemented in every non abstract subclass.
-	 * @throws InstructionExecutionException if there exist any execution error.
+	 * Keeps the drop in the journal, so it can be undone picking the item again
+	 * @param journal The journal of the engine
+	 */
+	public void addToJournal(UndoJournal journal) {
+		journal.addDrop(this.id);
+	}
+	
+	/**
+	 * The instruction as it is written in the console, so it can be parsed again when a game is replayed
+	 * @return The text of the instruction
 	 */
-	public void executeUndo() throws InstructionExecutionException {
-		Instruction ins = new PickInstruction(this.id);
-		ins.configureContext(robot, navig, container);
-		ins.execute();
+	@Override
+	public String toString() {
+		return "DROP " + this.id;
 	}
 	
 	/**
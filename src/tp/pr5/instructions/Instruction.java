@@ -2,6 +2,7 @@ package tp.pr5.instructions;
 
 import tp.pr5.NavigationModule;
 import tp.pr5.RobotEngine;
+import tp.pr5.UndoJournal;
 import tp.pr5.instructions.exceptions.InstructionExecutionException;
 import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
 import tp.pr5.items.ItemContainer;
@@ -39,10 +40,11 @@ public interface Instruction {
 	// --------------------------------------- MÉTODO PARA DESHACER UNA INSTRUCCIÓN -------------------------------------------
 	
 	/**
-	 * Undo the Instruction It must be implemented in every non abstract subclass.
-	 * @throws InstructionExecutionException if there exist any execution error.
+	 * Adds the executed instruction to the journal of the engine, so it can be undone and redone. 
+	 * The instructions that do not change the game are not added
+	 * @param journal The journal of the engine
 	 */
-	public void executeUndo() throws InstructionExecutionException;
+	public void addToJournal(UndoJournal journal);
 		
 	// ----------------------------------- MÉTODO QUE DEVULVE LA SINTÁIS DE LA INSTRUCCIÓN -------------------------------------
 		
@@ -0,0 +1,22 @@
+package tp.pr5.instructions;
+
+/**
+ * A provider of an instruction that is not part of the game, found with ServiceLoader when the application starts. To add an instruction,
+ * a jar in the class path has a class that implements this interface, with a constructor without parameters, and the file
+ * META-INF/services/tp.pr5.instructions.InstructionProvider with the name of that class.
+ *
+ * The lines that start with a keyword of the provider are read by the parse method of its instruction, that can be called by several threads.
+ * The toString method of the instructions must return a line that parse reads again, so the instruction can be replayed from a journal.
+ * @author Juan Manuel Carrera García
+ */
+public interface InstructionProvider {
+	/**
+	 * @return The keywords that start the instruction, without taking case into account. A keyword of other instruction is ignored
+	 */
+	public String[] getKeywords();
+
+	/**
+	 * @return An instruction that parses the lines that start with the keywords and gives the help of the instruction
+	 */
+	public Instruction getInstruction();
+}
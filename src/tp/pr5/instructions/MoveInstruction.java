@@ -1,7 +1,9 @@
 package tp.pr5.instructions;
 
 import tp.pr5.NavigationModule;
+import tp.pr5.Place;
 import tp.pr5.RobotEngine;
+import tp.pr5.UndoJournal;
 import tp.pr5.instructions.exceptions.InstructionExecutionException;
 import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
 import tp.pr5.items.ItemContainer;
@@ -13,6 +15,7 @@ import tp.pr5.items.ItemContainer;
 public class MoveInstruction implements Instruction{
 	private NavigationModule navig;
 	private RobotEngine robot;	
+	private Place origin;
 	
 	/**
 	 * Create Move instruction
@@ -37,18 +40,26 @@ public class MoveInstruction implements Instruction{
 	 * @throws InstructionExecutionException When the robot cannot go to other place (there is a wall, a closed street...)
 	  */
 	public void execute() throws InstructionExecutionException{
+		this.origin = this.navig.getCurrentPlace();
 		this.navig.move();
 		this.robot.addFuel(-5);
 	}
 	
-	@Override
 	/**
-	 * Undo the Instruction It must be implemented in every non abstract subclass.
-	 * @throws InstructionExecutionException if there exist any execution error.
+	 * Keeps the movement in the journal with the place where it started
+	 * @param journal The journal of the engine
+	 */
+	public void addToJournal(UndoJournal journal) {
+		journal.addMove(this.origin, -5);
+	}
+	
+	/**
+	 * The instruction as it is written in the console, so it can be parsed again when a game is replayed
+	 * @return The text of the instruction
 	 */
-	public void executeUndo() throws InstructionExecutionException{
-		this.navig.moveUndo();
-		this.robot.addFuel(5);
+	@Override
+	public String toString() {
+		return "MOVE";
 	}
 	
 	/**
@@ -2,6 +2,7 @@ package tp.pr5.instructions;
 
 import tp.pr5.NavigationModule;
 import tp.pr5.RobotEngine;
+import tp.pr5.UndoJournal;
 import tp.pr5.instructions.exceptions.InstructionExecutionException;
 import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
 import tp.pr5.items.Item;
@@ -63,14 +64,20 @@ public class OperateInstruction implements Instruction{
 	}
 	
 	/**
-	 * Undo the Instruction It must be implemented in every non abstract subclass.
-	 * @throws InstructionExecutionException if there exist any execution error.
+	 * Keeps the item used in the journal, so its use can be undone
+	 * @param journal The journal of the engine
 	 */
-	public void executeUndo() throws InstructionExecutionException {
-		Item item = this.item;
-		
-		if(!item.useUndo(this.robot, this.navig, this.container))
-			throw new InstructionExecutionException("WALL·E says: I have problems using the object " +  item.getId());
+	public void addToJournal(UndoJournal journal) {
+		journal.addOperate(this.item);
+	}
+	
+	/**
+	 * The instruction as it is written in the console, so it can be parsed again when a game is replayed
+	 * @return The text of the instruction
+	 */
+	@Override
+	public String toString() {
+		return "OPERATE " + this.id;
 	}
 		
 	/**
@@ -2,6 +2,7 @@ package tp.pr5.instructions;
 
 import tp.pr5.NavigationModule;
 import tp.pr5.RobotEngine;
+import tp.pr5.UndoJournal;
 import tp.pr5.instructions.exceptions.InstructionExecutionException;
 import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
 import tp.pr5.items.Item;
@@ -49,13 +50,12 @@ public class PickInstruction implements Instruction{
 	 * @throws InstructionExecutionException if there exist any execution error.
 	 */
 	public void execute() throws InstructionExecutionException{
-		Item aux = this.navig.getCurrentPlace().pickItem(id);
+		Item aux = this.navig.pickItemFromCurrentPlace(this.id);
 		Item auxRobot = this.container.getItem(id);
 		
 		if (aux != null) {
 			if (auxRobot == null) {
 				this.container.addItem(aux);
-				this.container.inventoryChange();
 				this.navig.updateNavigationModule();
 				this.robot.saySomething("WALL·E says: I am happy! Now I have " + id);
 			}
@@ -67,15 +67,21 @@ public class PickInstruction implements Instruction{
 		else throw new InstructionExecutionException ("WALL·E says: Ooops, this place has not the object " + id);
 	}
 	
-	@Override
 	/**
-	 * Undo the Instruction It must be implemented in every non abstract subclass.
-	 * @throws InstructionExecutionException if there exist any execution error.
+	 * Keeps the pick in the journal, so it can be undone dropping the item again
+	 * @param journal The journal of the engine
 	 */
-	public void executeUndo() throws InstructionExecutionException{
-		Instruction ins = new DropInstruction(this.id);
-		ins.configureContext(robot, navig, container);
-		ins.execute();
+	public void addToJournal(UndoJournal journal) {
+		journal.addPick(this.id);
+	}
+	
+	/**
+	 * The instruction as it is written in the console, so it can be parsed again when a game is replayed
+	 * @return The text of the instruction
+	 */
+	@Override
+	public String toString() {
+		return "PICK " + this.id;
 	}
 	
 	/**
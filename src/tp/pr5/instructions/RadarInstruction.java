@@ -2,6 +2,7 @@ package tp.pr5.instructions;
 
 import tp.pr5.NavigationModule;
 import tp.pr5.RobotEngine;
+import tp.pr5.UndoJournal;
 import tp.pr5.instructions.exceptions.InstructionExecutionException;
 import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
 import tp.pr5.items.ItemContainer;
@@ -37,12 +38,20 @@ public class RadarInstruction implements Instruction {
 		this.navig.scanCurrentPlace();
 	}
 	
-	@Override
 	/**
-	 * Undo the Instruction It must be implemented in every non abstract subclass.
-	 * @throws InstructionExecutionException if there exist any execution error.
+	 * The instruction does not change the game, so it is not kept in the journal of undo
+	 * @param journal The journal of the engine
 	 */
-	public void executeUndo() throws InstructionExecutionException{}
+	public void addToJournal(UndoJournal journal) {}
+	
+	/**
+	 * The instruction as it is written in the console, so it can be parsed again when a game is replayed
+	 * @return The text of the instruction
+	 */
+	@Override
+	public String toString() {
+		return "RADAR";
+	}
 	/**
 	 * Returns a description of the Instruction syntax. The string does not end with the line separator. It is up to the caller adding it before printing.
 	 * @return The Instruction's syntax.
@@ -3,6 +3,7 @@ package tp.pr5.instructions;
 import tp.pr5.Interpreter;
 import tp.pr5.NavigationModule;
 import tp.pr5.RobotEngine;
+import tp.pr5.UndoJournal;
 import tp.pr5.instructions.exceptions.InstructionExecutionException;
 import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
 import tp.pr5.items.Item;
@@ -22,6 +23,14 @@ public class ScanInstruction implements Instruction {
 	 */
 	public ScanInstruction() {}
 	
+	/**
+	 * Create Scan instruction of an item
+	 * @param ide Identifier of the item
+	 */
+	public ScanInstruction(String ide) {
+		this.id = ide;
+	}
+	
 	/**
 	 * Set the execution context. The method receives the entire engine (engine, navigation and the robot container) even though the actual implementation of execute() may not require it.
 	 * @param engine The robot engine
@@ -48,19 +57,27 @@ public class ScanInstruction implements Instruction {
 		}
 		else {
 			if(this.container.numberOfItems() > 0) 
-				message = "WALL·E says: I am carrying the following items" + 
-				             		Interpreter.LINE_SEPARATOR + this.container.toString();
+				message = this.container.appendTo(new StringBuilder("WALL·E says: I am carrying the following items")
+								.append(Interpreter.LINE_SEPARATOR)).toString();
 			else throw new InstructionExecutionException("WALL·E says: My inventory is empty");			
 		}
 		this.robot.saySomething(message);
 	}
 	
-	@Override
 	/**
-	 * Undo the Instruction It must be implemented in every non abstract subclass.
-	 * @throws InstructionExecutionException if there exist any execution error.
+	 * The instruction does not change the game, so it is not kept in the journal of undo
+	 * @param journal The journal of the engine
 	 */
-	public void executeUndo() throws InstructionExecutionException{}
+	public void addToJournal(UndoJournal journal) {}
+	
+	/**
+	 * The instruction as it is written in the console, so it can be parsed again when a game is replayed
+	 * @return The text of the instruction
+	 */
+	@Override
+	public String toString() {
+		return (this.id == null) ? "SCAN" : "SCAN " + this.id;
+	}
 	
 	/**
 	 * Returns a description of the Instruction syntax. The string does not end with the line separator. It is up to the caller adding it before printing.
@@ -2,6 +2,7 @@ package tp.pr5.instructions;
 
 import tp.pr5.NavigationModule;
 import tp.pr5.RobotEngine;
+import tp.pr5.UndoJournal;
 import tp.pr5.Rotation;
 import tp.pr5.instructions.exceptions.InstructionExecutionException;
 import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
@@ -51,14 +52,21 @@ public class TurnInstruction implements Instruction {
 		this.robot.addFuel(-5);
 	}
 	
-	@Override
 	/**
-	 * Undo the Instruction It must be implemented in every non abstract subclass.
-	 * @throws InstructionExecutionException if there exist any execution error.
+	 * Keeps the rotation in the journal
+	 * @param journal The journal of the engine
 	 */
-	public void executeUndo() throws InstructionExecutionException{
-		this.navig.rotate(this.rotacion.rotacionOpuesta());	
-		this.robot.addFuel(5);
+	public void addToJournal(UndoJournal journal) {
+		journal.addTurn(this.rotacion, -5);
+	}
+	
+	/**
+	 * The instruction as it is written in the console, so it can be parsed again when a game is replayed
+	 * @return The text of the instruction
+	 */
+	@Override
+	public String toString() {
+		return "TURN " + this.rotacion;
 	}
 	
 	/**
@@ -0,0 +1,81 @@
+package tp.pr5.instructions;
+
+import tp.pr5.NavigationModule;
+import tp.pr5.RobotEngine;
+import tp.pr5.UndoJournal;
+import tp.pr5.instructions.exceptions.InstructionExecutionException;
+import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
+import tp.pr5.items.ItemContainer;
+
+/**
+ * Its execution undoes the last instruction that changed the game. This Instruction works if the user writes UNDO or DESHACER
+ * @author Juan Manuel Carrera García
+ */
+public class UndoInstruction implements Instruction{
+	private RobotEngine robot;
+	
+	/**
+	 * Create Undo instruction
+	 */
+	public UndoInstruction() {}
+	
+	/**
+	 * Set the execution context. The method receives the entire engine (engine, navigation and the robot container) even though the actual implementation of execute() may not require it.
+	 * @param engine The robot engine
+	 * @param navigation The information about the game, i.e., the places, current direction and current heading to navigate
+	 * @param robotContainer The inventory of the robot
+	 */
+	public void configureContext(RobotEngine engine, NavigationModule navigation, ItemContainer robotContainer){
+		this.robot = engine;
+	}
+	
+	/**
+	 * Undoes the last instruction kept in the journal of the robot. The errors are reported by the engine
+	 * @throws InstructionExecutionException if there exist any execution error.
+	 */
+	public void execute() throws InstructionExecutionException{
+		this.robot.comunicateRobotUndo();
+	}
+	
+	/**
+	 * The instruction works on the journal, so it is not kept in it
+	 * @param journal The journal of the engine
+	 */
+	public void addToJournal(UndoJournal journal) {}
+	
+	/**
+	 * The instruction as it is written in the console, so it can be parsed again when a game is replayed
+	 * @return The text of the instruction
+	 */
+	@Override
+	public String toString() {
+		return "UNDO";
+	}
+	
+	/**
+	 * Returns a description of the Instruction syntax. The string does not end with the line separator. It is up to the caller adding it before printing.
+	 * @return The Instruction's syntax.
+	 */
+	public String getHelp(){
+		return ("The instruction syntax UNDO | DESHACER");
+		
+	}
+	
+	/**
+	 * Parses the String returning an instance its corresponding subclass if the string fits the instruction's syntax. Otherwise it throws an WrongInstructionFormatException. Each non abstract subclass must implement its corresponding parse.
+	 * @param cad Text String
+	 * @return Instruction Reference pointing to an instance of a Instruction subclass, if it is corresponding to the String cad
+	 * @throws WrongInstructionFormatException When the String cad does not fit the Instruction syntax.
+	 */
+	public Instruction parse(String cad) throws WrongInstructionFormatException{
+		String[] words = cad.split(" "); 
+		Instruction aux;
+		
+		if (words.length == 1 && (words [0].equalsIgnoreCase("UNDO") || words [0].equalsIgnoreCase("DESHACER"))) 
+				aux = new UndoInstruction (); 			
+		else throw new WrongInstructionFormatException(this.getHelp());
+		
+		return aux;
+	}
+}
+
@@ -10,6 +10,7 @@ import tp.pr5.Street;
  */
 
 public class CodeCard extends Item {
+	private static final long serialVersionUID = 1L;
 	private String code;
 	
 	// --------------- CONSTRUCTORAS -------------------------
@@ -47,6 +48,15 @@ public class CodeCard extends Item {
 	}
 	
 	
+	/**
+	 * Creates a code card with the same code
+	 * @return The copy of the code card
+	 */
+	@Override
+	public Item copy () {
+		return new CodeCard(this.id, this.description, this.code);
+	}
+	
 	// ------------------------- MÉTODOS PARA USAR LAS TARJETAS ---------------------
 	
 	@Override
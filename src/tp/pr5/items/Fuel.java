@@ -9,6 +9,7 @@ import tp.pr5.RobotEngine;
 */
 
 public class Fuel extends Item {
+	private static final long serialVersionUID = 1L;
 	private int power;
 	private int times;
 	
@@ -53,6 +54,15 @@ public class Fuel extends Item {
 		return super.toString() + " // power = " + this.power + ", times = " + this.times;			
 	}
 	
+	/**
+	 * Creates a fuel with the same power and times
+	 * @return The copy of the fuel
+	 */
+	@Override
+	public Item copy () {
+		return new Fuel(this.id, this.description, this.power, this.times);
+	}
+	
 	// ------------------------- MÉTODOS PARA USAR LOS COMBUSTIBLES ---------------------
 	
 	// --------------- MÉTODO QUE COMPRUEBA SI SE PUEDE USAR UN COMBUSTIBLE --------------
@@ -96,12 +106,14 @@ public class Fuel extends Item {
 	public boolean useUndo (RobotEngine r, NavigationModule nav, ItemContainer container) {
 		r.addFuel(this.power * -1);
 		
-		if (container.getItem(this.id) != null)
-			((Fuel)container.getItem(this.id)).times++;
+		if (container.getItem(this.id) != null) {
+			Fuel aux = (Fuel) container.getItem(this.id);
+			aux.times++;
+			container.usageChanged(aux);
+		}
 		else {
 			this.times++;
 			container.addItem(this);
-			container.inventoryChange();
 		}
 		
 		return true;
@@ -9,6 +9,7 @@ import tp.pr5.RobotEngine;
  */
 
 public class Garbage extends Item {
+	private static final long serialVersionUID = 1L;
 	private int recycledMaterial;
 	private int times;
 	
@@ -45,6 +46,17 @@ public class Garbage extends Item {
 		return super.toString() + " // recycled material = " + this.recycledMaterial;		
 	}
 	
+	/**
+	 * Creates a garbage with the same recycled material, that can be used if this one can
+	 * @return The copy of the garbage
+	 */
+	@Override
+	public Item copy () {
+		Garbage aux = new Garbage(this.id, this.description, this.recycledMaterial);
+		aux.times = this.times;
+		return aux;
+	}
+	
 	// ------------------------- MÉTODOS PARA USAR LA BASURA ---------------------
 	
 	// --------------- MÉTODO QUE COMPRUEBA SI SE PUEDE USAR UN COMBUSTIBLE --------------
@@ -89,7 +101,6 @@ public class Garbage extends Item {
 		r.addRecycledMaterial(this.recycledMaterial * -1);
 		this.times++;
 		container.addItem(this);
-		container.inventoryChange();
 		
 		return true;
 	}
@@ -4,6 +4,9 @@ import java.util.List;
 
 /**
  * Interface of the observers that want to be notified about the events ocurred in the robot inventory. The container will notify its observer every change in the container (when the robot picks or drops items) and when an item is removed from the container beacuse it is empty. The container will also notify when the user requests to scan an item or the whole container
+ *
+ * The whole inventory is sent only when the observer has to be initialized. After that, every change is notified alone with the position
+ * of the item in the inventory sorted by identifier, so the observer can update only that item
  * @author Juan Manuel Carrera García
  *
  */
@@ -13,4 +16,25 @@ public interface InventoryObserver {
 	 * @param inventory New Inventory
 	 */
 	public void inventoryChange(List<Item> inventory);
+	
+	/**
+	 * Notifies that an item has been added to the container
+	 * @param item The new item
+	 * @param index The position of the item in the sorted inventory
+	 */
+	public void itemAdded(Item item, int index);
+	
+	/**
+	 * Notifies that an item has been removed from the container
+	 * @param item The removed item
+	 * @param index The position that the item had in the sorted inventory
+	 */
+	public void itemRemoved(Item item, int index);
+	
+	/**
+	 * Notifies that an item of the container has been used, or its use has been undone, and it is still in the container
+	 * @param item The item
+	 * @param index The position of the item in the sorted inventory
+	 */
+	public void itemUsageChanged(Item item, int index);
 }
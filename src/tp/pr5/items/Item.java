@@ -1,13 +1,23 @@
 package tp.pr5.items;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
 import tp.pr5.NavigationModule;
 import tp.pr5.RobotEngine;
 
 /**
- * The superclass of every type of item. It contains the common information for all the items and it defines the interface that the items must match
+ * The superclass of every type of item. It contains the common information for all the items and it defines the interface that the items must match.
+ * The items are serializable, so the snapshots of a game keep their state and which places, inventories and journals share the same item
  * @author Juan Manuel Carrera García
  */
- public abstract  class Item implements Comparable<Item> {
+ public abstract  class Item implements Comparable<Item>, Serializable {
+	private static final long serialVersionUID = 1L;
+	
 	protected String id;
 	protected String description;
 	
@@ -105,6 +115,27 @@ import tp.pr5.RobotEngine;
 	 * @return true if the item are using
 	*/
 	public abstract boolean useUndo (RobotEngine r, NavigationModule nav, ItemContainer cont);
+	
+	/**
+	 * Creates an item with the same identifier, description and state, that can be used without changing this one.
+	 * By default the item is copied through its serialized form, so any item can be copied; the items of the game do it faster
+	 * @return The copy of the item
+	 */
+	public Item copy () {
+		Item aux;
+		
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(this);
+			out.close();
+			aux = (Item) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		} catch (IOException | ClassNotFoundException e) {
+			throw new IllegalStateException("The item " + this.id + " cannot be copied", e);
+		}
+		
+		return aux;
+	}
 
 	/**
 	 * Compare two items
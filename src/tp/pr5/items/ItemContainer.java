@@ -1,19 +1,38 @@
 package tp.pr5.items;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import tp.pr5.IgnoreCaseHash;
 import tp.pr5.Interpreter;
 
 /**
  * A container of items. It can be employed by any class that stores items. A container cannot store two items with the same identifier
+ * (without taking case into account)
  *
  * It provides methods to add new items, access them and remove them from the container.
+ * The items are kept in a hash table with open addressing and linear probing, indexed by the identifier without case, so an item is
+ * found, added or removed in constant time and without creating objects. The list of the items sorted by identifier, that is
+ * used to access them by position, to write them and to inform the observers, is made again only when it is needed after an item is added.
+ * If only a few items have been added since it was made, they are put in their positions instead.
+ *
+ * When the container has observers, the sorted list is kept made: an added item is put in its position, and the observers are
+ * informed only of the item that has been added, removed or used, with its position in the list.
  * @author Juan Manuel Carrera García
  */
 public class ItemContainer extends tp.pr5.Observable<InventoryObserver> {
+	private static final int INITIAL_CAPACITY = 8;
+	private static final int MAX_PENDING = 16;
+	
+	private Item[] table;
+	private int[] hashes;
+	private int size;
 	private List <Item> items;
+	private boolean sorted;
+	private List<Item> pending;
+	private int changes;
 	
 	// ------------------------------------ CONSTRUCTORAS ------------------------------------
 	
@@ -22,7 +41,11 @@ public class ItemContainer extends tp.pr5.Observable<InventoryObserver> {
 	 */
 	public ItemContainer () {
 		super();
+		this.table = new Item[INITIAL_CAPACITY];
+		this.hashes = new int[INITIAL_CAPACITY];
 		this.items = new ArrayList<Item> ();
+		this.sorted = true;
+		this.pending = new ArrayList<Item>();
 	}
 	
 	// ----------------------------------------- MÉTODOS --------------------------------------
@@ -34,7 +57,14 @@ public class ItemContainer extends tp.pr5.Observable<InventoryObserver> {
 	 * @return Array size
 	 */
 	public int getSize () {
-		return this.items.size ();
+		return this.size;
+	}
+	
+	/**
+	 * @return The number of times that an item has been added or removed, so a text made with the items can be kept while it does not change
+	 */
+	public int getChanges() {
+		return this.changes;
 	}
 	
 	
@@ -45,16 +75,24 @@ public class ItemContainer extends tp.pr5.Observable<InventoryObserver> {
 	 * @return The identifiers of items in the array
 	 */
 	public String toString() {
-		Iterator<Item> iter = this.items.iterator();
-		String aux = "";
+		return this.appendTo(new StringBuilder()).toString();
+	}
+	
+	/**
+	 * Writes the identifiers of the items sorted, one per line, at the end of a builder, as toString does
+	 * @param builder The builder
+	 * @return The same builder
+	 */
+	public StringBuilder appendTo(StringBuilder builder) {
+		Iterator<Item> iter = this.sortedItems().iterator();
 		
 		while (iter.hasNext()) {
-			aux = aux + "   " + iter.next().getId();
+			builder.append("   ").append(iter.next().getId());
 			if (iter.hasNext())
-				aux = aux + Interpreter.LINE_SEPARATOR;
+				builder.append(Interpreter.LINE_SEPARATOR);
 		}
 		
-		return aux;
+		return builder;
 	}
 		
 		
@@ -66,14 +104,29 @@ public class ItemContainer extends tp.pr5.Observable<InventoryObserver> {
 	 * @return true if and only if the item is added, i.e., an item with the same identifier does not exists in the container
 	 */
 	public boolean addItem(Item item) {
-		int i = 0;
 		boolean ok = false;
+		int hash = IgnoreCaseHash.hash(item.getId());
 		
-		i = Collections.binarySearch(this.items, item);
-		
-		if (i < 0){
-			i = (i * -1) - 1;
-			this.items.add(i, item);
+		if (this.find(item.getId(), hash) < 0) {
+			boolean observed = this.iterator().hasNext();
+			int index = observed ? -this.sortedIndex(item.getId()) - 1 : -1;
+
+			if (2 * (this.size + 1) > this.table.length)
+				this.rehash(2 * this.table.length);
+			this.insert(item, hash);
+			this.size++;
+			this.changes++;
+			if (observed) {
+				this.items.add(index, item);
+				for (InventoryObserver observer : this)
+					observer.itemAdded(item, index);
+			}
+			else if (this.sorted && this.pending.size() < MAX_PENDING)
+				this.pending.add(item);
+			else {
+				this.sorted = false;
+				this.pending.clear();
+			}
 			ok = true;
 		}
 	
@@ -88,7 +141,7 @@ public class ItemContainer extends tp.pr5.Observable<InventoryObserver> {
 	 * @return the number of items in the container
 	 */
 	public int numberOfItems () {
-		return this.items.size();
+		return this.size;
 	}
 	
 	// ---------------------------- MÉTODO PARA CONSEGUIR UN ÍTEM DEL CONTENEDOR --------------------------
@@ -99,14 +152,9 @@ public class ItemContainer extends tp.pr5.Observable<InventoryObserver> {
 	 * @return Item with that name or null if the container does not store an item with that name
 	 */
 	public Item getItem(String id) {
-		Item itAux = new ItemGeneric(id);
-		int i = Collections.binarySearch(this.items, itAux);
-		Item it = null;
+		int i = this.find(id);
 		
-		if (i >= 0)
-			it = this.items.get(i);
-
-		return it;
+		return (i < 0) ? null : this.table[i];
 	}
 	
 	// ---------------------------- MÉTODO PARA CONSEGUIR Y BORRAR UN ÍTEM DEL CONTENEDOR --------------------------
@@ -117,13 +165,12 @@ public class ItemContainer extends tp.pr5.Observable<InventoryObserver> {
 	 * @return An item if and only if the item identified by id exists in the inventory. Otherwise it returns null
 	 */
 	public Item pickItem(String id) {
-		Item itAux = new ItemGeneric(id);
-		int i = Collections.binarySearch(this.items, itAux);
+		int i = this.find(id);
 		Item it = null;
 		
 		if (i >= 0) {
-			it = this.items.get(i);
-			this.items.remove(i);
+			it = this.table[i];
+			this.removeAndNotify(i);
 		}
 	
 		return it;
@@ -137,8 +184,7 @@ public class ItemContainer extends tp.pr5.Observable<InventoryObserver> {
 	 * @return true if the container as an item with that name.
 	 */
 	public boolean containsItem(String id){
-		Item itAux = new ItemGeneric(id);
-		return (Collections.binarySearch(this.items, itAux) >= 0);
+		return this.find(id) >= 0;
 	}
 	
 	// ---------------------------- MÉTODO PARA USAR UN ÍTEM DEL CONTENEDOR --------------------------
@@ -148,19 +194,54 @@ public class ItemContainer extends tp.pr5.Observable<InventoryObserver> {
 	 * @param item to be used
 	 */
 	public void useItem(Item item) {
-		if (!item.canBeUsed()) {
-			this.items.remove(item);
-			this.inventoryChange();
+		int i = this.find(item.getId());
+		
+		if (i >= 0) {
+			if (!item.canBeUsed())
+				this.removeAndNotify(i);
+			else
+				this.usageChanged(item);
+		}
+	}
+	
+	/**
+	 * Informs the observers that an item of the container has been used, or its use has been undone, and it is still in the container
+	 * @param item The item
+	 */
+	public void usageChanged(Item item) {
+		if (this.iterator().hasNext()) {
+			int index = this.sortedIndex(item.getId());
+			for (InventoryObserver observer : this)
+				observer.itemUsageChanged(item, index);
 		}
 	}
 	
+	/**
+	 * Replaces the items of the container, as when a game is restored. The observers are informed of the whole new inventory
+	 * @param newItems The new items, with different identifiers
+	 */
+	public void setItems(Item[] newItems) {
+		Arrays.fill(this.table, null);
+		this.size = 0;
+		this.sorted = false;
+		this.pending.clear();
+		this.changes++;
+		for (Item item : newItems) {
+			if (2 * (this.size + 1) > this.table.length)
+				this.rehash(2 * this.table.length);
+			this.insert(item, IgnoreCaseHash.hash(item.getId()));
+			this.size++;
+		}
+		this.inventoryChange();
+	}
+	
 	/**
 	 * Get an item in the i position
 	 * @param i position of the item
 	 * @return the item in the position
 	 */
 	public Item getItem(int i) {
-		return this.items.get(i);
+		return this.sortedItems().get(i);
 	} 
 	
 	/**
@@ -168,7 +249,195 @@ public class ItemContainer extends tp.pr5.Observable<InventoryObserver> {
 	 */
 	public void inventoryChange() {
 		Iterator<InventoryObserver> it = this.iterator();
-		while (it.hasNext()) 
-			it.next().inventoryChange(items);
+		if (it.hasNext()) {
+			List<Item> aux = this.sortedItems();
+			while (it.hasNext()) 
+				it.next().inventoryChange(aux);
+		}
+	}
+	
+	/**
+	 * Adds an observer to the container. If the container already has items, the new observer is informed of the whole inventory
+	 * @param observer The observer
+	 */
+	@Override
+	public void addObserver(InventoryObserver observer) {
+		super.addObserver(observer);
+		if (this.size > 0)
+			observer.inventoryChange(this.sortedItems());
+	}
+	
+	// ---------------------------- MÉTODOS DE LA TABLA HASH --------------------------
+	
+	/**
+	 * Removes the item of a slot and informs the observers
+	 * @param slot The slot of the item
+	 */
+	private void removeAndNotify(int slot) {
+		Item item = this.table[slot];
+		
+		if (this.iterator().hasNext()) {
+			this.sortedItems();
+			int index = this.remove(slot);
+			for (InventoryObserver observer : this)
+				observer.itemRemoved(item, index);
+		}
+		else
+			this.remove(slot);
+	}
+	
+	/**
+	 * The list of the items sorted by identifier. It is made again if many items have been added since the last time,
+	 * otherwise the items added are put in their positions
+	 * @return The sorted list, that is always the same object
+	 */
+	private List<Item> sortedItems() {
+		if (!this.pending.isEmpty()) {
+			for (Item item : this.pending)
+				this.items.add(-this.search(item.getId()) - 1, item);
+			this.pending.clear();
+		}
+		if (!this.sorted) {
+			this.items.clear();
+			for (Item item : this.table)
+				if (item != null)
+					this.items.add(item);
+			Collections.sort(this.items);
+			this.sorted = true;
+		}
+		return this.items;
+	}
+	
+	/**
+	 * Looks for the slot of an item
+	 * @param id The identifier of the item
+	 * @return The slot of the item with this identifier without taking case into account, or -1 if there is not any
+	 */
+	private int find(String id) {
+		return this.find(id, IgnoreCaseHash.hash(id));
+	}
+	
+	/**
+	 * Looks for the slot of an item
+	 * @param id The identifier of the item
+	 * @param hash The hash of the identifier
+	 * @return The slot of the item with this identifier without taking case into account, or -1 if there is not any
+	 */
+	private int find(String id, int hash) {
+		int mask = this.table.length - 1;
+		int i = hash & mask;
+		int found = -1;
+		
+		while (found == -1 && this.table[i] != null) {
+			if (this.hashes[i] == hash && this.table[i].getId().equalsIgnoreCase(id))
+				found = i;
+			else
+				i = (i + 1) & mask;
+		}
+		
+		return found;
+	}
+	
+	/**
+	 * Puts an item in the first free slot from its hash. The table must have a free slot
+	 * @param item The item
+	 * @param hash The hash of its identifier
+	 */
+	private void insert(Item item, int hash) {
+		int mask = this.table.length - 1;
+		int i = hash & mask;
+		
+		while (this.table[i] != null)
+			i = (i + 1) & mask;
+		this.table[i] = item;
+		this.hashes[i] = hash;
+	}
+	
+	/**
+	 * Removes the item of a slot, moving back the next items of its cluster so that no slot is left empty in their way.
+	 * If the sorted list is made, the item is also removed from it
+	 * @param slot The slot of the item
+	 * @return The position that the item had in the sorted list, or -1 if the list is not made
+	 */
+	private int remove(int slot) {
+		int mask = this.table.length - 1;
+		int hole = slot;
+		int i = (slot + 1) & mask;
+		int index = -1;
+		
+		if (this.sorted && this.pending.isEmpty()) {
+			index = this.search(this.table[slot].getId());
+			this.items.remove(index);
+		}
+		else {
+			this.sorted = false;
+			this.pending.clear();
+		}
+		while (this.table[i] != null) {
+			int home = this.hashes[i] & mask;
+			if (((i - home) & mask) >= ((i - hole) & mask)) {
+				this.table[hole] = this.table[i];
+				this.hashes[hole] = this.hashes[i];
+				hole = i;
+			}
+			i = (i + 1) & mask;
+		}
+		this.table[hole] = null;
+		this.size--;
+		this.changes++;
+		
+		return index;
+	}
+	
+	/**
+	 * Looks for an item in the sorted list, that is made if it is needed
+	 * @param id The identifier of an item
+	 * @return The position of the item in the sorted list or, if it is not in the list, -(the position where it would be added) - 1
+	 */
+	private int sortedIndex(String id) {
+		this.sortedItems();
+		return this.search(id);
+	}
+	
+	/**
+	 * Looks for an item in the sorted list as it is, without the items added that are not in their positions yet
+	 * @param id The identifier of an item
+	 * @return The position of the item in the sorted list or, if it is not in the list, -(the position where it would be added) - 1
+	 */
+	private int search(String id) {
+		List<Item> aux = this.items;
+		int low = 0;
+		int high = aux.size() - 1;
+		int found = -(low + 1);
+		
+		while (found < 0 && low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = aux.get(mid).getId().compareToIgnoreCase(id);
+			if (cmp < 0)
+				low = mid + 1;
+			else if (cmp > 0)
+				high = mid - 1;
+			else
+				found = mid;
+			if (found < 0)
+				found = -(low + 1);
+		}
+		
+		return found;
+	}
+	
+	/**
+	 * Moves the items to a table of other capacity
+	 * @param capacity The new capacity, a power of two greater than the number of items
+	 */
+	private void rehash(int capacity) {
+		Item[] old = this.table;
+		int[] oldHashes = this.hashes;
+		
+		this.table = new Item[capacity];
+		this.hashes = new int[capacity];
+		for (int i = 0; i < old.length; i++)
+			if (old[i] != null)
+				this.insert(old[i], oldHashes[i]);
 	}
 }
@@ -8,6 +8,8 @@ import tp.pr5.RobotEngine;
  */
  
 public class ItemGeneric extends Item {
+	private static final long serialVersionUID = 1L;
+	
 	/**
 	 * Create a item generic with a id
 	 * @param id id of the item
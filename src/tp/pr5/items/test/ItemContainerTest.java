@@ -0,0 +1,171 @@
+package tp.pr5.items.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import tp.pr5.IgnoreCaseHash;
+import tp.pr5.items.Garbage;
+import tp.pr5.items.InventoryObserver;
+import tp.pr5.items.Item;
+import tp.pr5.items.ItemContainer;
+
+/**
+ * Tests of the hash table of the item containers. The items are compared with a sorted map without case, that keeps them as the
+ * sorted list of the first versions of the container did
+ * @author Juan Manuel Carrera García
+ */
+public class ItemContainerTest {
+	private ItemContainer container;
+
+	/**
+	 * An observer that keeps its own list of the items with the positions that the container gives
+	 */
+	private static class ListObserver implements InventoryObserver {
+		private List<Item> items = new ArrayList<Item>();
+
+		public void inventoryChange(List<Item> inventory) {
+			this.items = new ArrayList<Item>(inventory);
+		}
+		public void itemAdded(Item item, int index) {
+			this.items.add(index, item);
+		}
+		public void itemRemoved(Item item, int index) {
+			assertSame("The observer is told the position of the item removed", item, this.items.remove(index));
+		}
+		public void itemUsageChanged(Item item, int index) {
+			assertSame("The observer is told the position of the item used", item, this.items.get(index));
+		}
+	}
+
+	@Before
+	public void setUp() {
+		this.container = new ItemContainer();
+	}
+
+	@Test
+	public void testLookupIgnoresCase() {
+		Item card = new Garbage("NewsPaper", "Old news", 10);
+
+		assertTrue("The item is added", this.container.addItem(card));
+		assertSame("The identifier in capitals finds the item", card, this.container.getItem("NEWSPAPER"));
+		assertTrue("The identifier in lower case finds the item", this.container.containsItem("newspaper"));
+		assertFalse("An item with the same identifier in other case is not added", this.container.addItem(new Garbage("newspaper", "", 5)));
+		assertSame("The item is picked in other case", card, this.container.pickItem("nEWSpAPER"));
+		assertEquals("The container is empty", 0, this.container.numberOfItems());
+	}
+
+	@Test
+	public void testCollisions() {
+		assertEquals("The identifiers have the same hash", IgnoreCaseHash.hash("an"), IgnoreCaseHash.hash("C0"));
+		Item first = new Garbage("an", "", 1);
+		Item second = new Garbage("C0", "", 2);
+		this.container.addItem(first);
+		this.container.addItem(second);
+
+		assertSame("The first item is found", first, this.container.getItem("AN"));
+		assertSame("The second item is found", second, this.container.getItem("c0"));
+		assertSame("The first item is removed", first, this.container.pickItem("an"));
+		assertSame("The second item is found after the first one is removed", second, this.container.getItem("C0"));
+		assertNull("The first item is not found", this.container.getItem("an"));
+	}
+
+	@Test
+	public void testRemoveShiftsBack() {
+		// Six identifiers whose slot is the last one of a table of 16, so their cluster goes around the end of the table
+		List<String> ids = new ArrayList<String>();
+		for (int i = 0; ids.size() < 6; i++)
+			if ((IgnoreCaseHash.hash("item" + i) & 15) == 15)
+				ids.add("item" + i);
+		for (String id : ids)
+			this.container.addItem(new Garbage(id, "", 1));
+
+		boolean[] removed = new boolean[ids.size()];
+		for (int r : new int[] { 2, 0, 5, 1, 4, 3 }) {
+			assertNotNull("The item " + ids.get(r) + " is removed", this.container.pickItem(ids.get(r).toUpperCase()));
+			removed[r] = true;
+			for (int i = 0; i < ids.size(); i++)
+				assertEquals("The item " + ids.get(i) + " after removing " + ids.get(r), !removed[i], this.container.containsItem(ids.get(i)));
+		}
+		assertEquals("The container is empty", 0, this.container.numberOfItems());
+		for (String id : ids)
+			assertTrue("The item " + id + " is added again", this.container.addItem(new Garbage(id, "", 1)));
+		assertEquals("All the items are back", ids.size(), this.container.numberOfItems());
+	}
+
+	@Test
+	public void testResize() {
+		for (int i = 0; i < 1000; i++)
+			assertTrue("The item " + i + " is added", this.container.addItem(new Garbage("g" + i, "", i)));
+
+		assertEquals("All the items are kept", 1000, this.container.numberOfItems());
+		for (int i = 0; i < 1000; i++)
+			assertEquals("The item " + i + " is found after the table grows", i, ((Garbage) this.container.getItem("G" + i)).getRecycledMaterial());
+		assertEquals("The items are sorted", "g0", this.container.getItem(0).getId());
+		assertEquals("The items are sorted", "g999", this.container.getItem(999).getId());
+	}
+
+	@Test
+	public void testSameAsSortedList() {
+		this.checkSameAsSortedList(null);
+	}
+
+	@Test
+	public void testSameAsSortedListWithObserver() {
+		ListObserver observer = new ListObserver();
+		this.container.addObserver(observer);
+		this.checkSameAsSortedList(observer);
+	}
+
+	/**
+	 * Adds and picks random items, with identifiers in any case, and checks that the container has the same items and in the same order
+	 * as a sorted map without case
+	 * @param observer The observer of the container, whose list is also checked, or null
+	 */
+	private void checkSameAsSortedList(ListObserver observer) {
+		Map<String, Item> expected = new TreeMap<String, Item>(String.CASE_INSENSITIVE_ORDER);
+		Random random = new Random(7);
+
+		for (int step = 0; step < 5000; step++) {
+			String id = this.randomCase("item" + random.nextInt(200), random);
+			if (random.nextInt(3) == 0) {
+				Item item = new Garbage(id, "", step);
+				assertEquals("Adding " + id, !expected.containsKey(id), this.container.addItem(item));
+				if (!expected.containsKey(id))
+					expected.put(id, item);
+			}
+			else
+				assertSame("Picking " + id, expected.remove(id), this.container.pickItem(id));
+
+			if (step % 100 == 0 || observer != null) {
+				List<Item> sorted = new ArrayList<Item>(expected.values());
+				assertEquals("Number of items at step " + step, sorted.size(), this.container.numberOfItems());
+				for (int i = 0; i < sorted.size(); i++)
+					assertSame("Item " + i + " at step " + step, sorted.get(i), this.container.getItem(i));
+				if (observer != null)
+					assertEquals("List of the observer at step " + step, sorted, observer.items);
+			}
+		}
+	}
+
+	/**
+	 * @param id An identifier
+	 * @param random The random numbers
+	 * @return The identifier with every letter in upper or lower case at random
+	 */
+	private String randomCase(String id, Random random) {
+		StringBuilder aux = new StringBuilder();
+
+		for (int i = 0; i < id.length(); i++)
+			aux.append(random.nextBoolean() ? Character.toUpperCase(id.charAt(i)) : id.charAt(i));
+
+		return aux.toString();
+	}
+}
@@ -0,0 +1,43 @@
+package tp.pr5.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A section of a city file (places, streets or items) read by the text loader, with the time to read and parse it.
+ * Like all the events of the game, it costs nothing when Java Flight Recorder is not recording it: the fields are only set if shouldCommit is true
+ * @author Juan Manuel Carrera García
+ */
+@Name("tp.pr5.CitySection")
+@Label("City Section")
+@Category({ "WALL-E", "Loader" })
+@Description("A section of a city file read and parsed by the text loader")
+public class CitySectionEvent extends Event {
+	@Label("Section")
+	private String section;
+
+	@Label("Lines")
+	private int lines;
+
+	@Label("Size")
+	@Description("Characters of the lines and their line ends, the bytes of an ASCII file")
+	@DataAmount(DataAmount.BYTES)
+	private long size;
+
+	/**
+	 * Sets the fields and commits the event
+	 * @param section The name of the section: Places, Streets or Items
+	 * @param lines The number of lines of the section
+	 * @param size The characters of the lines and their line ends
+	 */
+	public void commit(String section, int lines, long size) {
+		this.section = section;
+		this.lines = lines;
+		this.size = size;
+		this.commit();
+	}
+}
@@ -0,0 +1,51 @@
+package tp.pr5.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An instruction executed by a robot engine, with the notifications of its observers
+ * @author Juan Manuel Carrera García
+ */
+@Name("tp.pr5.Instruction")
+@Label("Instruction")
+@Category({ "WALL-E", "Engine" })
+@Description("An instruction executed by the robot engine, with the notifications of its observers")
+public class InstructionEvent extends Event {
+	@Label("Type")
+	private String type;
+
+	@Label("Place")
+	@Description("The place where the robot was when the instruction started")
+	private String place;
+
+	@Label("Fuel Before")
+	private int fuelBefore;
+
+	@Label("Fuel After")
+	private int fuelAfter;
+
+	@Label("Failed")
+	@Description("The instruction failed with an InstructionExecutionException")
+	private boolean failed;
+
+	/**
+	 * Sets the fields and commits the event
+	 * @param type The type of the instruction
+	 * @param place The name of the place where the instruction started
+	 * @param fuelBefore The fuel of the robot before the instruction
+	 * @param fuelAfter The fuel of the robot after the instruction
+	 * @param failed true if the instruction failed
+	 */
+	public void commit(String type, String place, int fuelBefore, int fuelAfter, boolean failed) {
+		this.type = type;
+		this.place = place;
+		this.fuelBefore = fuelBefore;
+		this.fuelAfter = fuelAfter;
+		this.failed = failed;
+		this.commit();
+	}
+}
@@ -0,0 +1,39 @@
+package tp.pr5.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A notification sent by the robot engine or the navigation module to all its observers
+ * @author Juan Manuel Carrera García
+ */
+@Name("tp.pr5.Notification")
+@Label("Notification")
+@Category({ "WALL-E", "Engine" })
+@Description("A notification sent to all the observers of the robot engine or the navigation module")
+public class NotificationEvent extends Event {
+	@Label("Source")
+	private String source;
+
+	@Label("Message")
+	private String message;
+
+	@Label("Observers")
+	private int observers;
+
+	/**
+	 * Sets the fields and commits the event
+	 * @param source The class that sends the notification
+	 * @param message The type of message
+	 * @param observers The number of observers notified
+	 */
+	public void commit(String source, String message, int observers) {
+		this.source = source;
+		this.message = message;
+		this.observers = observers;
+		this.commit();
+	}
+}
@@ -0,0 +1,39 @@
+package tp.pr5.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A notification handled by a panel of the window in the event dispatch thread, that changes its components and asks to repaint them
+ * @author Juan Manuel Carrera García
+ */
+@Name("tp.pr5.PanelUpdate")
+@Label("Panel Update")
+@Category({ "WALL-E", "Swing" })
+@Description("A notification handled by a panel of the window, that changes its components and asks to repaint them")
+public class PanelUpdateEvent extends Event {
+	@Label("Panel")
+	private String panel;
+
+	@Label("Notification")
+	private String notification;
+
+	@Label("Place")
+	private String place;
+
+	/**
+	 * Sets the fields and commits the event
+	 * @param panel The name of the panel
+	 * @param notification The method of the observer
+	 * @param place The name of the place of the notification, or null if it has none
+	 */
+	public void commit(String panel, String notification, String place) {
+		this.panel = panel;
+		this.notification = notification;
+		this.place = place;
+		this.commit();
+	}
+}
@@ -0,0 +1,156 @@
+package tp.pr5.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import tp.pr5.City;
+import tp.pr5.CityOverlay;
+import tp.pr5.Direction;
+import tp.pr5.Place;
+import tp.pr5.RobotEngine;
+import tp.pr5.console.ConsoleController;
+
+/**
+ * A server of game sessions over TCP. Every connection plays its own game with its own robot engine, and the protocol
+ * is the one of the console: the server writes the messages and the prompt WALL·E> in UTF-8, and reads an instruction per line.
+ * The session ends when the simulation is over or the player closes the connection.
+ *
+ * Every session runs in its own thread with a small stack, so a server can keep thousands of sessions.
+ * The city is loaded once and shared by all the sessions as a template: every session plays over a CityOverlay,
+ * that copies only the places and the streets that the session reaches.
+ * The text of every place of the template is made before the sessions start, so they share it and never change the template.
+ * @author Juan Manuel Carrera García
+ */
+public class SessionServer {
+	private static final long SESSION_STACK_SIZE = 256 * 1024;
+	private static final int BACKLOG = 4096;
+	private static final int BUFFER_SIZE = 1024;
+
+	private City template;
+	private Place initialPlace;
+	private ServerSocket serverSocket;
+	private ExecutorService sessions;
+	private AtomicInteger active;
+	private AtomicInteger started;
+
+	// ------------------------------------------------- CONSTRUCTORAS -------------------------------
+
+	/**
+	 * Creates a server of a city
+	 * @param template The city shared by the sessions. It must not be played by other engines
+	 * @param initialPlace The place of the template where the sessions start
+	 */
+	public SessionServer(City template, Place initialPlace) {
+		this.template = template;
+		this.initialPlace = initialPlace;
+		this.active = new AtomicInteger();
+		this.started = new AtomicInteger();
+		for (int i = 0; i < template.getNumPlaces(); i++)
+			template.getPlace(i).toString();
+		this.sessions = Executors.newCachedThreadPool(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(null, r, "WALL-E session " + SessionServer.this.started.incrementAndGet(), SESSION_STACK_SIZE);
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	// ---------------------------- SETTER Y GETTER ------------------------------------
+
+	/**
+	 * @return The number of sessions that are being played
+	 */
+	public int getActiveSessions() {
+		return this.active.get();
+	}
+
+	/**
+	 * @return The port where the server listens, or -1 if it is not bound
+	 */
+	public int getPort() {
+		return (this.serverSocket == null) ? -1 : this.serverSocket.getLocalPort();
+	}
+
+	// --------------------------------------------- MÉTODOS -----------------------------------------------
+
+	/**
+	 * Binds the server to a port of all the interfaces
+	 * @param port The port, or 0 for any free port
+	 * @throws IOException If the port cannot be bound
+	 */
+	public void bind(int port) throws IOException {
+		this.serverSocket = new ServerSocket();
+		this.serverSocket.setReuseAddress(true);
+		this.serverSocket.bind(new InetSocketAddress(port), BACKLOG);
+	}
+
+	/**
+	 * Accepts connections and starts a session for each one until the server is closed
+	 */
+	public void serve() {
+		try {
+			while (!this.serverSocket.isClosed()) {
+				final Socket socket = this.serverSocket.accept();
+				this.sessions.execute(new Runnable() {
+					public void run() {
+						SessionServer.this.play(socket);
+					}
+				});
+			}
+		} catch (IOException e) {
+			// The server socket has been closed
+		}
+	}
+
+	/**
+	 * Stops accepting connections. The sessions that are being played go on until they end
+	 */
+	public void close() {
+		try {
+			if (this.serverSocket != null)
+				this.serverSocket.close();
+		} catch (IOException e) {
+			// It is already closed
+		}
+		this.sessions.shutdown();
+	}
+
+	/**
+	 * Plays a session with a connection
+	 * @param socket The connection with the player
+	 */
+	private void play(Socket socket) {
+		this.active.incrementAndGet();
+		try {
+			CityOverlay city = new CityOverlay(this.template);
+			RobotEngine engine = new RobotEngine(city, city.sessionPlace(this.initialPlace), Direction.NORTH);
+
+			socket.setTcpNoDelay(true);
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+			PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE));
+			new ConsoleController(engine, in, out, null).runGame();
+		} catch (IOException e) {
+			// The player has gone
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// It is already closed
+			}
+			this.active.decrementAndGet();
+		}
+	}
+}
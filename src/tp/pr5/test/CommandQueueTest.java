@@ -0,0 +1,192 @@
+package tp.pr5.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import tp.pr5.City;
+import tp.pr5.CommandQueue;
+import tp.pr5.Direction;
+import tp.pr5.Interpreter;
+import tp.pr5.Place;
+import tp.pr5.RobotEngine;
+import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
+
+/**
+ * Tests of the queue of commands of an engine. The commands write in a list what they do, and the list is only read after the queue
+ * has executed them, so the tests do not depend on how the threads are scheduled
+ * @author Juan Manuel Carrera García
+ */
+public class CommandQueueTest {
+	// A queue that loses a command never ends a flush, so every test fails after this time, in ms
+	private static final long TIMEOUT = 10000;
+
+	private RobotEngine engine;
+	private List<String> executed;
+
+	/**
+	 * A command that writes its name in the list of executed commands when the engine thread runs it
+	 */
+	private class Record implements Runnable {
+		private String name;
+
+		private Record(String name) {
+			this.name = name;
+		}
+
+		public void run() {
+			CommandQueueTest.this.executed.add(Thread.currentThread().getName() + ":" + this.name);
+		}
+	}
+
+	@Before
+	public void setUp() {
+		this.engine = new RobotEngine(new City(), new Place("Queue", false, "The place of the queue"), Direction.NORTH);
+		this.executed = Collections.synchronizedList(new ArrayList<String>());
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void testOrderOfOneProducer() {
+		CommandQueue queue = CommandQueue.start(this.engine, 16);
+		List<String> expected = new ArrayList<String>();
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals("The tickets are given in order", i, queue.submit(new Record("c" + i)));
+			expected.add("Engine:c" + i);
+		}
+		queue.flush();
+		assertEquals("The commands run in the engine thread in order", expected, this.executed);
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void testWrapAround() {
+		CommandQueue queue = CommandQueue.start(this.engine, 2);
+		List<String> expected = new ArrayList<String>();
+
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("The tickets go on after the ring goes around", i, queue.submit(new Record("c" + i)));
+			expected.add("Engine:c" + i);
+		}
+		queue.flush();
+		assertEquals("No command is lost or repeated when the ring goes around", expected, this.executed);
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void testFullRingWaits() throws InterruptedException {
+		final CommandQueue queue = CommandQueue.start(this.engine, 4);
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicBoolean submitted = new AtomicBoolean(false);
+
+		queue.submit(new Runnable() {
+			public void run() {
+				entered.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		entered.await();
+		for (int i = 0; i < 4; i++)
+			queue.submit(new Record("c" + i));
+		Thread producer = new Thread(new Runnable() {
+			public void run() {
+				queue.submit(new Record("last"));
+				submitted.set(true);
+			}
+		}, "Producer");
+		producer.start();
+		while (producer.getState() != Thread.State.TIMED_WAITING && producer.getState() != Thread.State.TERMINATED)
+			Thread.yield();
+
+		assertFalse("The producer waits while the ring is full", submitted.get());
+		assertTrue("No command has run while the engine is busy", this.executed.isEmpty());
+		release.countDown();
+		producer.join();
+		queue.flush();
+		assertEquals("The commands run in order once the engine is free",
+				Arrays.asList("Engine:c0", "Engine:c1", "Engine:c2", "Engine:c3", "Engine:last"), this.executed);
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void testEmptyQueue() {
+		CommandQueue queue = CommandQueue.start(this.engine, 4);
+
+		queue.flush();
+		assertTrue("Nothing runs in an empty queue", this.executed.isEmpty());
+		long ticket = queue.submit(new Record("first"));
+		queue.await(ticket);
+		assertEquals("The command runs after waiting for its ticket", Collections.singletonList("Engine:first"), this.executed);
+		queue.flush();
+		queue.await(ticket);
+		queue.submit(new Record("second"));
+		queue.flush();
+		assertEquals("The engine thread wakes up when the queue was empty", 2, this.executed.size());
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void testOrderAcrossProducers() throws InterruptedException {
+		final int producers = 4;
+		final int commands = 2000;
+		final CommandQueue queue = CommandQueue.start(this.engine, 8);
+		final Map<String, Long> tickets = Collections.synchronizedMap(new HashMap<String, Long>());
+		Thread[] threads = new Thread[producers];
+
+		for (int p = 0; p < producers; p++) {
+			final int producer = p;
+			threads[p] = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0; i < commands; i++) {
+						String name = producer + "-" + i;
+						tickets.put("Engine:" + name, queue.submit(new Record(name)));
+					}
+				}
+			}, "Producer " + p);
+			threads[p].start();
+		}
+		for (Thread t : threads)
+			t.join();
+		queue.flush();
+
+		assertEquals("All the commands run once", producers * commands, this.executed.size());
+		int[] next = new int[producers];
+		for (int k = 0; k < this.executed.size(); k++) {
+			String command = this.executed.get(k);
+			int producer = Integer.parseInt(command.substring(command.indexOf(':') + 1, command.indexOf('-')));
+			assertEquals("The commands run in the order of their tickets", Long.valueOf(k), tickets.get(command));
+			assertEquals("The commands of a producer run in the order it submitted them", "Engine:" + producer + "-" + next[producer], command);
+			next[producer]++;
+		}
+	}
+
+	@Test(timeout = TIMEOUT)
+	public void testInstructions() throws WrongInstructionFormatException {
+		final RobotEngine robot = this.engine;
+		CommandQueue queue = CommandQueue.start(robot, 4);
+
+		queue.submit(new Runnable() {
+			public void run() {
+				robot.requestStart();
+			}
+		});
+		queue.submit(Interpreter.generateInstruction("TURN RIGHT"));
+		queue.flush();
+		assertEquals("The instruction is communicated to the robot", Direction.EAST, this.engine.getCurrentHeading());
+		assertFalse("The simulation goes on", queue.isOver());
+		queue.submit(Interpreter.generateInstruction("QUIT"));
+		queue.flush();
+		assertTrue("The queue knows that the simulation is over", queue.isOver());
+	}
+}
@@ -0,0 +1,145 @@
+package tp.pr5.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import tp.pr5.City;
+import tp.pr5.CityOverlay;
+import tp.pr5.Direction;
+import tp.pr5.FuelMap;
+import tp.pr5.Place;
+import tp.pr5.RobotEngine;
+import tp.pr5.RobotEngineObserver;
+import tp.pr5.RoutePlanner;
+import tp.pr5.Street;
+import tp.pr5.items.CodeCard;
+import tp.pr5.items.ItemContainer;
+
+/**
+ * Tests of the fuel to the spaceships over a line of three places: A, B and the spaceship S to the east, with a closed door between B and S
+ * @author Juan Manuel Carrera García
+ */
+public class FuelMapTest {
+	private static final Direction[] DIRECTIONS = { Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST };
+
+	private Place a;
+	private Place b;
+	private Place ship;
+	private Street door;
+	private City city;
+	private CodeCard card;
+
+	@Before
+	public void setUp() {
+		this.a = new Place("A", false, "The first place");
+		this.b = new Place("B", false, "The place before the door");
+		this.ship = new Place("S", true, "The spaceship");
+		this.door = new Street(this.b, Direction.EAST, this.ship, false, "secret");
+		this.city = new City(new Street[] { new Street(this.a, Direction.EAST, this.b, true, ""), this.door });
+		this.card = new CodeCard("card", "The card of the door", "secret");
+	}
+
+	@Test
+	public void testFuelToShip() {
+		this.door.open(this.card);
+		FuelMap map = new FuelMap(this.city, null);
+
+		assertEquals("The spaceship needs no fuel", 0, map.getFuelToShip(this.ship, Direction.WEST));
+		assertEquals("One move from B heading east", RoutePlanner.MOVE_COST, map.getFuelToShip(this.b, Direction.EAST));
+		assertEquals("Two moves from A heading east", 2 * RoutePlanner.MOVE_COST, map.getFuelToShip(this.a, Direction.EAST));
+		assertEquals("One turn and two moves from A heading north", 3 * RoutePlanner.MOVE_COST, map.getFuelToShip(this.a, Direction.NORTH));
+		assertEquals("Two turns and two moves from A heading west", 4 * RoutePlanner.MOVE_COST, map.getFuelToShip(this.a, Direction.WEST));
+		assertEquals("A place out of the city", FuelMap.UNREACHABLE, map.getFuelToShip(new Place("X", false, ""), Direction.EAST));
+	}
+
+	@Test
+	public void testClosedStreetWithoutCard() {
+		FuelMap map = new FuelMap(this.city, null);
+
+		assertEquals("The door cannot be opened", FuelMap.UNREACHABLE, map.getFuelToShip(this.b, Direction.EAST));
+		assertFalse("The door cannot be opened", map.canReachShip(this.a, Direction.EAST, RobotEngine.INITIAL_FUEL));
+	}
+
+	@Test
+	public void testClosedStreetWithCardInCity() {
+		this.a.addItem(this.card);
+		FuelMap map = new FuelMap(this.city, null);
+
+		assertEquals("The card in A opens the door", 2 * RoutePlanner.MOVE_COST, map.getFuelToShip(this.a, Direction.EAST));
+	}
+
+	@Test
+	public void testClosedStreetWithCardInInventory() {
+		ItemContainer inventory = new ItemContainer();
+		inventory.addItem(this.card);
+		FuelMap map = new FuelMap(this.city, inventory);
+
+		assertEquals("The card of the robot opens the door", 2 * RoutePlanner.MOVE_COST, map.getFuelToShip(this.a, Direction.EAST));
+	}
+
+	@Test
+	public void testCanReachShip() {
+		this.door.open(this.card);
+		FuelMap map = new FuelMap(this.city, null);
+
+		assertTrue("The robot arrives at the spaceship with 0 fuel", map.canReachShip(this.b, Direction.EAST, RoutePlanner.MOVE_COST));
+		assertFalse("The robot stops before the last move", map.canReachShip(this.a, Direction.EAST, RoutePlanner.MOVE_COST));
+		assertTrue("The robot is at the spaceship", map.canReachShip(this.ship, Direction.NORTH, 0));
+	}
+
+	@Test
+	public void testOperatingStreetKeepsFuel() {
+		this.b.addItem(this.card);
+		FuelMap closed = new FuelMap(this.city, null);
+		this.door.open(this.card);
+		FuelMap opened = new FuelMap(this.city, null);
+		this.door.close(this.card);
+		FuelMap closedAgain = new FuelMap(this.city, null);
+
+		for (Place place : new Place[] { this.a, this.b, this.ship })
+			for (Direction heading : DIRECTIONS) {
+				assertEquals("The card can open the door, so opening it does not change the fuel",
+						closed.getFuelToShip(place, heading), opened.getFuelToShip(place, heading));
+				assertEquals("The card can open the door, so closing it does not change the fuel",
+						closed.getFuelToShip(place, heading), closedAgain.getFuelToShip(place, heading));
+			}
+	}
+
+	@Test
+	public void testSharedBySessions() {
+		this.door.open(this.card);
+		CityOverlay first = new CityOverlay(this.city);
+		CityOverlay second = new CityOverlay(this.city);
+		RobotEngine engine = new RobotEngine(second, second.sessionPlace(this.a), Direction.EAST);
+
+		assertSame("The sessions share the fuel map of the template", first.getFuelMap(null), second.getFuelMap(null));
+		assertSame("The template and its sessions share the fuel map", this.city.getFuelMap(null), first.getFuelMap(null));
+		assertEquals("The engine of a session finds its place in the map", 2 * RoutePlanner.MOVE_COST, engine.getFuelToShip());
+	}
+
+	@Test
+	public void testUpdatesOnlyWhenAsked() {
+		this.door.open(this.card);
+		RobotEngine engine = new RobotEngine(this.city, this.a, Direction.EAST);
+		final int[] updates = new int[1];
+		engine.addEngineObserver(new RobotEngineObserver() {
+			public void communicationCompleted() {}
+			public void communicationHelp(String help) {}
+			public void engineOff(boolean atShip) {}
+			public void raiseError(String msg) {}
+			public void robotSays(String message) {}
+			public void robotUpdate(int fuel, int recycledMaterial) {}
+			public void fuelToShipUpdate(int fuelToShip, boolean canReach) {
+				updates[0]++;
+			}
+		});
+
+		engine.requestStart();
+		assertEquals("The observers have not asked for the fuel to the spaceship", 0, updates[0]);
+		engine.setFuelToShipUpdates(true);
+		engine.requestStart();
+		assertEquals("The observers have asked for the fuel to the spaceship", 1, updates[0]);
+	}
+}
@@ -0,0 +1,38 @@
+package tp.pr5.test;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import tp.pr5.IgnoreCaseHash;
+
+/**
+ * Tests of the hash without case of the keywords of the interpreter and the identifiers of the items
+ * @author Juan Manuel Carrera García
+ */
+public class IgnoreCaseHashTest {
+
+	@Test
+	public void testIgnoresCase() {
+		assertEquals("ASCII letters", IgnoreCaseHash.hash("newspaper"), IgnoreCaseHash.hash("NewsPAPER"));
+		assertEquals("Letters out of ASCII", IgnoreCaseHash.hash("ñandú"), IgnoreCaseHash.hash("ÑANDÚ"));
+		assertEquals("Digits and symbols", IgnoreCaseHash.hash("card-1_B"), IgnoreCaseHash.hash("CARD-1_b"));
+		assertFalse("Different texts", IgnoreCaseHash.hash("move") == IgnoreCaseHash.hash("mode"));
+	}
+
+	@Test
+	public void testSameAsEqualsIgnoreCase() {
+		String[][] pairs = { { "İ", "i" }, { "ı", "I" }, { "ß", "ẞ" }, { "ǅ", "Ǆ" }, { "ς", "Σ" } };
+
+		for (String[] pair : pairs)
+			if (pair[0].equalsIgnoreCase(pair[1]))
+				assertEquals("The texts are equal without case: " + pair[0] + " " + pair[1], IgnoreCaseHash.hash(pair[0]),
+						IgnoreCaseHash.hash(pair[1]));
+	}
+
+	@Test
+	public void testPrefix() {
+		assertEquals("The hash of a prefix", IgnoreCaseHash.hash("TURN"), IgnoreCaseHash.hash("turn LEFT", 4));
+		assertEquals("The hash of an empty prefix", IgnoreCaseHash.hash(""), IgnoreCaseHash.hash("MOVE", 0));
+	}
+}
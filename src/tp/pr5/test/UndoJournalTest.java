@@ -0,0 +1,193 @@
+package tp.pr5.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import tp.pr5.City;
+import tp.pr5.Direction;
+import tp.pr5.Interpreter;
+import tp.pr5.Place;
+import tp.pr5.ReplayLog;
+import tp.pr5.RobotEngine;
+import tp.pr5.RobotEngineObserver;
+import tp.pr5.Street;
+import tp.pr5.instructions.exceptions.WrongInstructionFormatException;
+import tp.pr5.items.Garbage;
+
+/**
+ * Tests of the journal of undo and redo of the robot engine, over a line of three places A, B and C to the east, with three garbages in A
+ * @author Juan Manuel Carrera García
+ */
+public class UndoJournalTest {
+	private Place a;
+	private RobotEngine engine;
+	private ErrorCounter errors;
+	private File log;
+
+	/**
+	 * An observer of the robot that counts the errors
+	 */
+	private static class ErrorCounter implements RobotEngineObserver {
+		private int count;
+
+		public void communicationCompleted() {}
+		public void communicationHelp(String help) {}
+		public void engineOff(boolean atShip) {}
+		public void raiseError(String msg) {
+			this.count++;
+		}
+		public void robotSays(String message) {}
+		public void robotUpdate(int fuel, int recycledMaterial) {}
+		public void fuelToShipUpdate(int fuelToShip, boolean canReach) {}
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		this.engine = this.newEngine();
+		this.errors = new ErrorCounter();
+		this.engine.addEngineObserver(this.errors);
+		this.log = File.createTempFile("undo", ".log");
+		this.log.delete();
+	}
+
+	@After
+	public void tearDown() {
+		this.log.delete();
+		new File(this.log.getPath() + ".snap").delete();
+	}
+
+	@Test
+	public void testUndoRedoPastLimit() throws WrongInstructionFormatException {
+		this.engine.requestStart();
+		this.engine.setUndoLimit(3);
+		for (int i = 0; i < 5; i++)
+			this.execute(this.engine, "TURN RIGHT");
+		assertEquals("Five turns", Direction.SOUTH, this.engine.getCurrentHeading());
+
+		for (int i = 0; i < 3; i++)
+			this.engine.comunicateRobotUndo();
+		assertEquals("Only the last three turns are undone", Direction.WEST, this.engine.getCurrentHeading());
+		assertEquals("Only the fuel of the last three turns is given back", RobotEngine.INITIAL_FUEL - 10, this.engine.getFuel());
+		assertEquals("Nothing has failed", 0, this.errors.count);
+		this.engine.comunicateRobotUndo();
+		assertEquals("The fourth undo is past the limit", 1, this.errors.count);
+		assertEquals("The fourth undo changes nothing", Direction.WEST, this.engine.getCurrentHeading());
+
+		for (int i = 0; i < 3; i++)
+			this.engine.comunicateRobotRedo();
+		assertEquals("The three turns are redone", Direction.SOUTH, this.engine.getCurrentHeading());
+		assertEquals("The fuel of the three turns is spent again", RobotEngine.INITIAL_FUEL - 25, this.engine.getFuel());
+		this.engine.comunicateRobotRedo();
+		assertEquals("There is nothing more to redo", 2, this.errors.count);
+	}
+
+	@Test
+	public void testItemsPastLimit() throws WrongInstructionFormatException {
+		this.engine.requestStart();
+		this.engine.setUndoLimit(2);
+		this.execute(this.engine, "PICK g1");
+		this.execute(this.engine, "PICK g2");
+		this.execute(this.engine, "PICK g3");
+
+		this.engine.comunicateRobotUndo();
+		this.engine.comunicateRobotUndo();
+		this.engine.comunicateRobotUndo();
+		assertEquals("Only two picks are undone", 1, this.errors.count);
+		assertFalse("The first pick was forgotten", this.a.existItem("g1"));
+		assertTrue("The second pick is undone", this.a.existItem("g2"));
+		assertTrue("The third pick is undone", this.a.existItem("g3"));
+
+		this.engine.comunicateRobotRedo();
+		this.execute(this.engine, "OPERATE g1");
+		this.engine.comunicateRobotRedo();
+		assertEquals("A new instruction forgets the ones that could be redone", 2, this.errors.count);
+		assertFalse("The second pick is redone", this.a.existItem("g2"));
+		assertTrue("The third pick is not redone", this.a.existItem("g3"));
+	}
+
+	@Test
+	public void testRestoreFromSnapshot() throws IOException, WrongInstructionFormatException {
+		ReplayLog first = new ReplayLog(this.log, 0);
+		this.engine.restoreFrom(first);
+		this.execute(this.engine, "PICK g1");
+		this.execute(this.engine, "OPERATE g1");
+		this.execute(this.engine, "MOVE");
+		first.snapshot();
+		this.execute(this.engine, "TURN RIGHT");
+		first.close();
+
+		RobotEngine restored = this.newEngine();
+		ErrorCounter restoredErrors = new ErrorCounter();
+		restored.addEngineObserver(restoredErrors);
+		assertEquals("Only the turn is executed again", 1, restored.restoreFrom(new ReplayLog(this.log, 0)));
+		assertEquals("The fuel is restored", this.engine.getFuel(), restored.getFuel());
+		assertEquals("The recycled material is restored", this.engine.getRecycledMaterial(), restored.getRecycledMaterial());
+		assertEquals("The place is restored", "B", restored.getCurrentPlace().getName());
+		assertEquals("The heading is restored", Direction.SOUTH, restored.getCurrentHeading());
+
+		for (int i = 0; i < 4; i++)
+			restored.comunicateRobotUndo();
+		assertEquals("The instructions before the snapshot are undone", 0, restoredErrors.count);
+		assertEquals("The robot is back in A", "A", restored.getCurrentPlace().getName());
+		assertEquals("The robot is heading east again", Direction.EAST, restored.getCurrentHeading());
+		assertEquals("The fuel is given back", RobotEngine.INITIAL_FUEL, restored.getFuel());
+		assertEquals("The garbage is not recycled", 0, restored.getRecycledMaterial());
+		assertTrue("The garbage is dropped in A", restored.getCurrentPlace().existItem("g1"));
+		restored.comunicateRobotUndo();
+		assertEquals("There is nothing more to undo", 1, restoredErrors.count);
+	}
+
+	@Test
+	public void testRestoreKeepsLimit() throws IOException, WrongInstructionFormatException {
+		ReplayLog first = new ReplayLog(this.log, 0);
+		this.engine.restoreFrom(first);
+		for (int i = 0; i < 4; i++)
+			this.execute(this.engine, "TURN LEFT");
+		first.snapshot();
+		first.close();
+
+		RobotEngine restored = this.newEngine();
+		ErrorCounter restoredErrors = new ErrorCounter();
+		restored.addEngineObserver(restoredErrors);
+		restored.setUndoLimit(2);
+		restored.restoreFrom(new ReplayLog(this.log, 0));
+		for (int i = 0; i < 3; i++)
+			restored.comunicateRobotUndo();
+		assertEquals("Only the last two turns of the snapshot are kept", 1, restoredErrors.count);
+		assertEquals("Two turns are undone", Direction.WEST, restored.getCurrentHeading());
+	}
+
+	/**
+	 * Creates an engine in A heading east over a new city
+	 * @return The engine
+	 */
+	private RobotEngine newEngine() {
+		Place placeA = new Place("A", false, "The first place");
+		Place placeB = new Place("B", false, "The second place");
+		Place placeC = new Place("C", false, "The third place");
+		placeA.addItem(new Garbage("g1", "The first garbage", 10));
+		placeA.addItem(new Garbage("g2", "The second garbage", 20));
+		placeA.addItem(new Garbage("g3", "The third garbage", 30));
+		City city = new City(new Street[] { new Street(placeA, Direction.EAST, placeB), new Street(placeB, Direction.EAST, placeC) });
+		if (this.a == null)
+			this.a = placeA;
+
+		return new RobotEngine(city, placeA, Direction.EAST);
+	}
+
+	/**
+	 * Executes an instruction written as in the console
+	 * @param robot The engine
+	 * @param line The instruction
+	 * @throws WrongInstructionFormatException If the instruction is wrong
+	 */
+	private void execute(RobotEngine robot, String line) throws WrongInstructionFormatException {
+		robot.comunicateRobot(Interpreter.generateInstruction(line));
+	}
+}